@@ -22,6 +22,7 @@ package org.sonar.ce;
 import org.sonar.ce.monitoring.CEQueueStatusImpl;
 import org.sonar.ce.monitoring.CeTasksMBeanImpl;
 import org.sonar.ce.queue.CeQueueInitializer;
+import org.sonar.ce.queue.CeTaskPrioritizer;
 import org.sonar.ce.queue.InternalCeQueueImpl;
 import org.sonar.core.platform.Module;
 
@@ -31,6 +32,7 @@ public class CeQueueModule extends Module {
     add(
       // queue state
       InternalCeQueueImpl.class,
+      CeTaskPrioritizer.class,
 
       // queue monitoring
       CEQueueStatusImpl.class,
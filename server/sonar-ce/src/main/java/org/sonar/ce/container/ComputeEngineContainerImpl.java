@@ -81,6 +81,7 @@ import org.sonar.server.debt.DebtRulesXMLImporter;
 import org.sonar.server.event.NewAlerts;
 import org.sonar.server.issue.IssueFieldsSetter;
 import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueIndexRefreshMarker;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.issue.index.IssueIteratorFactory;
 import org.sonar.server.issue.notification.ChangesOnMyIssueNotificationDispatcher;
@@ -130,6 +131,7 @@ import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
 import org.sonar.server.rule.CommonRuleDefinitionsImpl;
 import org.sonar.server.rule.DefaultRuleFinder;
 import org.sonar.server.rule.DeprecatedRulesDefinitionLoader;
+import org.sonar.server.rule.RuleDefinitionsCache;
 import org.sonar.server.rule.RuleDefinitionsLoader;
 import org.sonar.server.rule.index.RuleIndex;
 import org.sonar.server.search.EsSearchModule;
@@ -164,6 +166,11 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
     configureFromModules(this.level1);
     this.level1.startComponents();
 
+    if (WebServerBarrier.isEnabled(props)) {
+      // plugins are loaded at level 2 only, because the web server cleans up the cache of exploded plugins when starting
+      new WebServerBarrier(props).await();
+    }
+
     ComponentContainer level2 = this.level1.createChild();
     level2.add(level2Components());
     configureFromModules(level2);
@@ -257,6 +264,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
 
       // issues
       IssueIndex.class,
+      IssueIndexRefreshMarker.class,
 
       new OkHttpClientProvider()
     };
@@ -319,6 +327,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       AnnotationRuleParser.class,
       XMLRuleParser.class,
       DefaultRuleFinder.class,
+      RuleDefinitionsCache.class,
       DeprecatedRulesDefinitionLoader.class,
       CommonRuleDefinitionsImpl.class,
       RuleDefinitionsLoader.class,
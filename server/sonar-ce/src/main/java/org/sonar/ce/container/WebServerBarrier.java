@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.container;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.AllProcessesCommands;
+import org.sonar.process.ProcessCommands;
+import org.sonar.process.ProcessId;
+import org.sonar.process.ProcessProperties;
+import org.sonar.process.Props;
+
+import static java.lang.String.format;
+
+/**
+ * When the Compute Engine is launched together with the web server of the same node
+ * (see {@link ProcessProperties#CE_PARALLEL_STARTUP}), blocks until the web server is operational. The web server
+ * upgrades the database and persists the startup metadata which are required by the Compute Engine.
+ * Waiting fails after {@link ProcessProperties#CE_PARALLEL_STARTUP_TIMEOUT}.
+ */
+class WebServerBarrier {
+  private static final Logger LOG = Loggers.get(WebServerBarrier.class);
+  private static final long POLL_DELAY_MS = 200L;
+  private static final long LOG_DELAY_MS = 60_000L;
+  private static final int DEFAULT_TIMEOUT_IN_MINUTES = 60;
+
+  private final File sharedMemoryDir;
+  private final long pollDelayMs;
+  private final long timeoutMs;
+
+  WebServerBarrier(Props props) {
+    this(props.nonNullValueAsFile(ProcessProperties.PATH_TEMP), POLL_DELAY_MS,
+      TimeUnit.MINUTES.toMillis(props.valueAsInt(ProcessProperties.CE_PARALLEL_STARTUP_TIMEOUT, DEFAULT_TIMEOUT_IN_MINUTES)));
+  }
+
+  WebServerBarrier(File sharedMemoryDir, long pollDelayMs, long timeoutMs) {
+    this.sharedMemoryDir = sharedMemoryDir;
+    this.pollDelayMs = pollDelayMs;
+    this.timeoutMs = timeoutMs;
+  }
+
+  static boolean isEnabled(Props props) {
+    return props.valueAsBoolean(ProcessProperties.CE_PARALLEL_STARTUP, false);
+  }
+
+  void await() {
+    try (AllProcessesCommands allProcessesCommands = new AllProcessesCommands(sharedMemoryDir)) {
+      ProcessCommands webCommands = allProcessesCommands.create(ProcessId.WEB_SERVER.getIpcIndex());
+      long waitingTime = 0L;
+      while (!webCommands.isOperational()) {
+        if (waitingTime >= timeoutMs) {
+          throw new IllegalStateException(format("Web Server is not operational after %d ms", timeoutMs));
+        }
+        if (waitingTime % LOG_DELAY_MS == 0L) {
+          LOG.info("Waiting for Web Server to be operational");
+        }
+        Thread.sleep(pollDelayMs);
+        waitingTime += pollDelayMs;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for Web Server to be operational", e);
+    }
+  }
+}
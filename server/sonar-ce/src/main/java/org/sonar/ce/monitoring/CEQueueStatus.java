@@ -61,6 +61,13 @@ public interface CEQueueStatus {
    */
   long addError(long processingTime);
 
+  /**
+   * Records the time a batch report waited in queue before being peeked by a worker.
+   *
+   * @param waitTime duration of waiting in ms
+   */
+  void addWaitTime(long waitTime);
+
   /**
    * Count of batch reports waiting for processing since startup, including reports received before instance startup.
    */
@@ -85,4 +92,12 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Percentile of the time spent in queue by the latest batch reports peeked by workers, in milliseconds. Zero if
+   * no report has been peeked since startup.
+   *
+   * @param percentile between 1 and 100
+   */
+  long getWaitTimePercentile(int percentile);
 }
@@ -19,6 +19,7 @@
  */
 package org.sonar.ce.monitoring;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -28,11 +29,18 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 public class CEQueueStatusImpl implements CEQueueStatus {
 
+  /**
+   * Number of the latest wait times used to compute percentiles
+   */
+  static final int WAIT_TIME_SAMPLES = 1_000;
+
   private final DbClient dbClient;
   private final AtomicLong inProgress = new AtomicLong(0);
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final long[] waitTimes = new long[WAIT_TIME_SAMPLES];
+  private long waitTimeCount = 0;
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
@@ -62,6 +70,15 @@ public class CEQueueStatusImpl implements CEQueueStatus {
     processingTime.addAndGet(ms);
   }
 
+  @Override
+  public void addWaitTime(long waitTimeInMs) {
+    checkArgument(waitTimeInMs >= 0, "Wait time can not be < 0");
+    synchronized (waitTimes) {
+      waitTimes[(int) (waitTimeCount % WAIT_TIME_SAMPLES)] = waitTimeInMs;
+      waitTimeCount++;
+    }
+  }
+
   @Override
   public long getPendingCount() {
     try (DbSession dbSession = dbClient.openSession(false)) {
@@ -88,4 +105,19 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public long getWaitTimePercentile(int percentile) {
+    checkArgument(percentile > 0 && percentile <= 100, "Percentile must be between 1 and 100");
+    long[] samples;
+    synchronized (waitTimes) {
+      samples = Arrays.copyOf(waitTimes, (int) Math.min(waitTimeCount, WAIT_TIME_SAMPLES));
+    }
+    if (samples.length == 0) {
+      return 0L;
+    }
+    Arrays.sort(samples);
+    int rank = (int) Math.ceil(percentile / 100.0 * samples.length);
+    return samples[rank - 1];
+  }
 }
@@ -48,6 +48,21 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Median of the time spent in queue by the latest batch reports, in milliseconds.
+   */
+  long getWaitTimeMedian();
+
+  /**
+   * 95th percentile of the time spent in queue by the latest batch reports, in milliseconds.
+   */
+  long getWaitTime95thPercentile();
+
+  /**
+   * 99th percentile of the time spent in queue by the latest batch reports, in milliseconds.
+   */
+  long getWaitTime99thPercentile();
+
   /**
    * Configured number of Workers.
    */
@@ -72,6 +72,21 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return queueStatus.getProcessingTime();
   }
 
+  @Override
+  public long getWaitTimeMedian() {
+    return queueStatus.getWaitTimePercentile(50);
+  }
+
+  @Override
+  public long getWaitTime95thPercentile() {
+    return queueStatus.getWaitTimePercentile(95);
+  }
+
+  @Override
+  public long getWaitTime99thPercentile() {
+    return queueStatus.getWaitTimePercentile(99);
+  }
+
   @Override
   public int getWorkerCount() {
     return ceConfiguration.getWorkerCount();
@@ -86,6 +101,9 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     builder.addAttributesBuilder().setKey("Processed With Error").setLongValue(getErrorCount()).build();
     builder.addAttributesBuilder().setKey("Processed With Success").setLongValue(getSuccessCount()).build();
     builder.addAttributesBuilder().setKey("Processing Time (ms)").setLongValue(getProcessingTime()).build();
+    builder.addAttributesBuilder().setKey("Wait Time Median (ms)").setLongValue(getWaitTimeMedian()).build();
+    builder.addAttributesBuilder().setKey("Wait Time 95th Percentile (ms)").setLongValue(getWaitTime95thPercentile()).build();
+    builder.addAttributesBuilder().setKey("Wait Time 99th Percentile (ms)").setLongValue(getWaitTime99thPercentile()).build();
     builder.addAttributesBuilder().setKey("Worker Count").setLongValue(getWorkerCount()).build();
     return builder.build();
   }
@@ -0,0 +1,204 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.Pagination;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskQuery;
+import org.sonar.db.ce.EligibleTaskDto;
+import org.sonar.db.component.ComponentDto;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Orders the tasks which are eligible for peek by descending response ratio, {@code (waiting time + cost) / cost},
+ * where the cost of a task is estimated from the duration of the last task executed on the same component.
+ * Short tasks overtake long ones while the ratio of long tasks keeps growing with time, so that they are never starved.
+ * <p>
+ * The ratio is divided by {@code 1 + number of tasks in progress on the same organization}, so that an organization
+ * submitting many reports at once does not monopolize the workers.
+ * </p>
+ * When no execution is known, all tasks have the same cost and the oldest task comes first. Only the oldest pending
+ * task of each component is returned, as the tasks of a component must be executed in order of submission.
+ * <p>
+ * Costs and organizations of components are cached, so that peeking a task usually requests only the tasks in progress.
+ * </p>
+ */
+@ComputeEngineSide
+public class CeTaskPrioritizer {
+
+  /**
+   * Cost of tasks when no task has been executed yet on the eligible components
+   */
+  static final long DEFAULT_COST_MS = 10_000L;
+  private static final long UNKNOWN_COST = -1L;
+  private static final int CACHE_SIZE = 10_000;
+  private static final long COST_TTL_MINUTES = 1L;
+
+  private final DbClient dbClient;
+  private final System2 system2;
+  private final Cache<String, Long> costByComponentUuid = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .expireAfterWrite(COST_TTL_MINUTES, TimeUnit.MINUTES)
+    .build();
+  private final Cache<String, String> organizationByComponentUuid = CacheBuilder.newBuilder()
+    .maximumSize(CACHE_SIZE)
+    .build();
+
+  public CeTaskPrioritizer(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  public List<EligibleTaskDto> prioritize(DbSession dbSession, List<EligibleTaskDto> eligibles) {
+    List<EligibleTaskDto> candidates = oldestOfEachComponent(eligibles);
+    if (candidates.size() <= 1) {
+      return candidates;
+    }
+    List<String> inProgressComponentUuids = dbClient.ceQueueDao()
+      .selectByQueryInDescOrder(dbSession, new CeTaskQuery().setStatuses(singletonList(CeQueueDto.Status.IN_PROGRESS.name())), CeTaskQuery.MAX_COMPONENT_UUIDS)
+      .stream()
+      .map(CeQueueDto::getComponentUuid)
+      .filter(Objects::nonNull)
+      .collect(toList());
+    Set<String> eligibleComponentUuids = candidates.stream()
+      .map(EligibleTaskDto::getComponentUuid)
+      .filter(Objects::nonNull)
+      .collect(toSet());
+
+    Map<String, Long> costs = loadCosts(dbSession, eligibleComponentUuids);
+    Set<String> componentUuids = new HashSet<>(eligibleComponentUuids);
+    componentUuids.addAll(inProgressComponentUuids);
+    Map<String, String> organizations = loadOrganizations(dbSession, componentUuids);
+    Map<String, Integer> inProgressByOrganization = new HashMap<>();
+    inProgressComponentUuids.stream()
+      .map(organizations::get)
+      .filter(Objects::nonNull)
+      .forEach(organizationUuid -> inProgressByOrganization.merge(organizationUuid, 1, Integer::sum));
+
+    return sort(candidates, system2.now(), defaultCost(costs.values()),
+      costs::get,
+      componentUuid -> {
+        String organizationUuid = organizations.get(componentUuid);
+        return organizationUuid == null ? 0 : inProgressByOrganization.getOrDefault(organizationUuid, 0);
+      });
+  }
+
+  /**
+   * @param eligibles tasks in order of submission
+   */
+  static List<EligibleTaskDto> oldestOfEachComponent(List<EligibleTaskDto> eligibles) {
+    Set<String> componentUuids = new HashSet<>();
+    return eligibles.stream()
+      .filter(eligible -> eligible.getComponentUuid() == null || componentUuids.add(eligible.getComponentUuid()))
+      .collect(toList());
+  }
+
+  /**
+   * Costs of the components which have already been analyzed. Costs are loaded in a single request
+   * for the components which are not in cache.
+   */
+  private Map<String, Long> loadCosts(DbSession dbSession, Set<String> componentUuids) {
+    Map<String, Long> result = new HashMap<>(costByComponentUuid.getAllPresent(componentUuids));
+    List<String> missing = componentUuids.stream().filter(uuid -> !result.containsKey(uuid)).collect(toList());
+    if (!missing.isEmpty()) {
+      Map<String, Long> loaded = loadLastExecutionTimes(dbSession, missing);
+      missing.forEach(uuid -> result.put(uuid, loaded.getOrDefault(uuid, UNKNOWN_COST)));
+      missing.forEach(uuid -> costByComponentUuid.put(uuid, result.get(uuid)));
+    }
+    result.values().removeIf(cost -> cost == UNKNOWN_COST);
+    return result;
+  }
+
+  private Map<String, Long> loadLastExecutionTimes(DbSession dbSession, List<String> componentUuids) {
+    CeTaskQuery query = new CeTaskQuery()
+      .setOnlyCurrents(true)
+      .setComponentUuids(componentUuids);
+    Map<String, Long> result = new HashMap<>();
+    dbClient.ceActivityDao().selectByQuery(dbSession, query, Pagination.forPage(1).andSize(CeTaskQuery.MAX_COMPONENT_UUIDS)).stream()
+      .filter(activity -> activity.getComponentUuid() != null && activity.getExecutionTimeMs() != null)
+      .forEach(activity -> result.merge(activity.getComponentUuid(), activity.getExecutionTimeMs(), Math::max));
+    return result;
+  }
+
+  /**
+   * Organization of a component never changes
+   */
+  private Map<String, String> loadOrganizations(DbSession dbSession, Set<String> componentUuids) {
+    Map<String, String> result = new HashMap<>(organizationByComponentUuid.getAllPresent(componentUuids));
+    List<String> missing = componentUuids.stream().filter(uuid -> !result.containsKey(uuid)).collect(toList());
+    if (!missing.isEmpty()) {
+      for (ComponentDto component : dbClient.componentDao().selectByUuids(dbSession, missing)) {
+        result.put(component.uuid(), component.getOrganizationUuid());
+        organizationByComponentUuid.put(component.uuid(), component.getOrganizationUuid());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Components which have never been analyzed are given the median cost of the known ones
+   */
+  private static long defaultCost(Collection<Long> knownCosts) {
+    if (knownCosts.isEmpty()) {
+      return DEFAULT_COST_MS;
+    }
+    List<Long> sorted = knownCosts.stream().sorted().collect(toList());
+    return sorted.get(sorted.size() / 2);
+  }
+
+  static List<EligibleTaskDto> sort(List<EligibleTaskDto> eligibles, long now, long defaultCost,
+    Function<String, Long> costByComponentUuid, Function<String, Integer> inProgressOfSameOrganization) {
+    Map<EligibleTaskDto, Double> ratios = new HashMap<>();
+    for (EligibleTaskDto eligible : eligibles) {
+      long cost = Math.max(1L, firstNonNull(costByComponentUuid.apply(eligible.getComponentUuid()), defaultCost));
+      long waitingTime = Math.max(0L, now - eligible.getCreatedAt());
+      double ratio = (double) (waitingTime + cost) / cost;
+      ratios.put(eligible, ratio / (1 + inProgressOfSameOrganization.apply(eligible.getComponentUuid())));
+    }
+    // sort is stable: tasks with same ratio stay in order of submission
+    return eligibles.stream()
+      .sorted(Comparator.comparing(ratios::get, Comparator.reverseOrder()))
+      .collect(toList());
+  }
+
+  private static long firstNonNull(@Nullable Long value, long defaultValue) {
+    return value == null ? defaultValue : value;
+  }
+}
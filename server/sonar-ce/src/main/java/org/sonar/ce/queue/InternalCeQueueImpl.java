@@ -40,6 +40,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDao;
 import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.EligibleTaskDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -51,20 +52,27 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
   private static final org.sonar.api.utils.log.Logger LOG = Loggers.get(InternalCeQueueImpl.class);
 
   private static final int MAX_EXECUTION_COUNT = 2;
+  /**
+   * Number of oldest eligible tasks considered by {@link CeTaskPrioritizer}
+   */
+  private static final int PEEK_CANDIDATES = 100;
+  private static final int MAX_PEEK_ATTEMPTS = 3;
 
   private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
+  private final CeTaskPrioritizer prioritizer;
 
   // state
   private AtomicBoolean peekPaused = new AtomicBoolean(false);
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
-    DefaultOrganizationProvider defaultOrganizationProvider) {
+    DefaultOrganizationProvider defaultOrganizationProvider, CeTaskPrioritizer prioritizer) {
     super(dbClient, uuidFactory, defaultOrganizationProvider);
     this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
+    this.prioritizer = prioritizer;
   }
 
   @Override
@@ -80,16 +88,38 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
       if (i > 0) {
         LOG.debug("{} in progress tasks reset for worker uuid {}", i, workerUuid);
       }
-      Optional<CeQueueDto> dto = ceQueueDao.peek(dbSession, workerUuid, MAX_EXECUTION_COUNT);
+      Optional<CeQueueDto> dto = peekByPriority(dbSession, workerUuid);
       CeTask task = null;
       if (dto.isPresent()) {
         task = loadTask(dbSession, dto.get());
         queueStatus.addInProgress();
+        Long startedAt = dto.get().getStartedAt();
+        if (startedAt != null) {
+          queueStatus.addWaitTime(Math.max(0L, startedAt - dto.get().getCreatedAt()));
+        }
       }
       return Optional.ofNullable(task);
     }
   }
 
+  private Optional<CeQueueDto> peekByPriority(DbSession dbSession, String workerUuid) {
+    CeQueueDao ceQueueDao = dbClient.ceQueueDao();
+    for (int attempt = 0; attempt < MAX_PEEK_ATTEMPTS; attempt++) {
+      List<EligibleTaskDto> eligibles = prioritizer.prioritize(dbSession,
+        ceQueueDao.selectEligibleForPeek(dbSession, MAX_EXECUTION_COUNT, PEEK_CANDIDATES));
+      if (eligibles.isEmpty()) {
+        return Optional.empty();
+      }
+      Optional<CeQueueDto> dto = ceQueueDao.tryToPeek(dbSession, eligibles.get(0), workerUuid);
+      if (dto.isPresent()) {
+        return dto;
+      }
+      // another worker peeked the task in the meantime. The other candidates are not tried, as they may
+      // have become ineligible too (for example another task of the same component is now in progress).
+    }
+    return Optional.empty();
+  }
+
   @Override
   public int clear() {
     return cancelAll(true);
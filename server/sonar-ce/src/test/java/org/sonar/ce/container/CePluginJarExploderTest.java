@@ -40,18 +40,33 @@ public class CePluginJarExploderTest {
   CePluginJarExploder underTest = new CePluginJarExploder(fs);
 
   @Test
-  public void explode_jar_to_temp_directory() throws Exception {
+  public void explode_jar_to_cache_directory() throws Exception {
     PluginInfo info = PluginInfo.create(plugin1Jar());
 
     ExplodedPlugin exploded = underTest.explode(info);
 
-    // all the files loaded by classloaders (JAR + META-INF/libs/*.jar) are copied to a dedicated temp directory
+    // all the files loaded by classloaders (JAR + META-INF/libs/*.jar) are copied to a directory
+    // named after the checksum of JAR
     File copiedJar = exploded.getMain();
 
     assertThat(exploded.getKey()).isEqualTo("test");
     assertThat(copiedJar).isFile().exists();
-    assertThat(copiedJar.getParentFile()).isDirectory().hasName("test");
-    assertThat(copiedJar.getParentFile().getParentFile()).isDirectory().hasName("ce-exploded-plugins");
+    assertThat(copiedJar.getParentFile()).isDirectory();
+    assertThat(copiedJar.getParentFile().getParentFile()).isDirectory().hasName("test");
+    assertThat(copiedJar.getParentFile().getParentFile().getParentFile()).isDirectory().hasName("exploded-plugins");
+  }
+
+  @Test
+  public void reuse_exploded_plugin_after_restart() throws Exception {
+    PluginInfo info = PluginInfo.create(plugin1Jar());
+    ExplodedPlugin exploded1 = underTest.explode(info);
+    File marker = new File(exploded1.getMain().getParentFile(), "marker");
+    marker.createNewFile();
+
+    ExplodedPlugin exploded2 = new CePluginJarExploder(fs).explode(info);
+
+    assertThat(exploded2.getMain()).isEqualTo(exploded1.getMain());
+    assertThat(marker).exists();
   }
 
   @Test
@@ -91,7 +106,7 @@ public class CePluginJarExploderTest {
 
   private class DumbFileSystem implements ServerFileSystem {
     private final TemporaryFolder temp;
-    private File tempDir;
+    private File dataDir;
 
     public DumbFileSystem(TemporaryFolder temp) {
       this.temp = temp;
@@ -99,7 +114,14 @@ public class CePluginJarExploderTest {
 
     @Override
     public File getDataDir() {
-      throw new UnsupportedOperationException();
+      if (dataDir == null) {
+        try {
+          this.dataDir = temp.newFolder();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return dataDir;
     }
 
     @Override
@@ -114,14 +136,7 @@ public class CePluginJarExploderTest {
 
     @Override
     public File getTempDir() {
-      if (tempDir == null) {
-        try {
-          this.tempDir = temp.newFolder();
-        } catch (IOException e) {
-          throw new IllegalStateException(e);
-        }
-      }
-      return tempDir;
+      throw new UnsupportedOperationException();
     }
 
     @Override
@@ -129,6 +144,11 @@ public class CePluginJarExploderTest {
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public File getExplodedPluginsCacheDir() {
+      return new File(getDataDir(), "exploded-plugins");
+    }
+
     @Override
     public File getDownloadedPluginsDir() {
       throw new UnsupportedOperationException();
@@ -113,12 +113,12 @@ public class ComputeEngineContainerImplTest {
     assertThat(picoContainer.getComponentAdapters())
       .hasSize(
         CONTAINER_ITSELF
-          + 73 // level 4
+          + 74 // level 4
           + 4 // content of CeConfigurationModule
-          + 4 // content of CeQueueModule
+          + 5 // content of CeQueueModule
           + 3 // content of CeHttpModule
           + 3 // content of CeTaskCommonsModule
-          + 4 // content of ProjectAnalysisTaskModule
+          + 7 // content of ProjectAnalysisTaskModule
           + 4 // content of CeTaskProcessorModule
           + 3 // CeCleaningModule + its content
           + 1 // CeDistributedInformation
@@ -134,9 +134,9 @@ public class ComputeEngineContainerImplTest {
     );
     assertThat(picoContainer.getParent().getParent().getParent().getComponentAdapters()).hasSize(
       COMPONENTS_IN_LEVEL_1_AT_CONSTRUCTION
-        + 23 // level 1
+        + 24 // level 1
         + 46 // content of DaoModule
-        + 3 // content of EsSearchModule
+        + 4 // content of EsSearchModule
         + 56 // content of CorePropertyDefinitions
     );
     assertThat(
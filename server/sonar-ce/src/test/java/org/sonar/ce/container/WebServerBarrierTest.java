@@ -0,0 +1,106 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.container;
+
+import java.io.File;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.DisableOnDebug;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+import org.sonar.process.AllProcessesCommands;
+import org.sonar.process.ProcessId;
+import org.sonar.process.ProcessProperties;
+import org.sonar.process.Props;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebServerBarrierTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TestRule safeguardTimeout = new DisableOnDebug(Timeout.seconds(60));
+
+  @Test
+  public void is_disabled_by_default() {
+    assertThat(WebServerBarrier.isEnabled(new Props(new Properties()))).isFalse();
+
+    Properties properties = new Properties();
+    properties.setProperty(ProcessProperties.CE_PARALLEL_STARTUP, "true");
+    assertThat(WebServerBarrier.isEnabled(new Props(properties))).isTrue();
+  }
+
+  @Test
+  public void await_blocks_until_web_server_is_operational() throws Exception {
+    File sharedMemoryDir = temp.newFolder();
+    WebServerBarrier underTest = new WebServerBarrier(sharedMemoryDir, 1L, 60_000L);
+
+    CompletableFuture<Void> waiting = CompletableFuture.runAsync(underTest::await);
+    Thread.sleep(50L);
+    assertThat(waiting.isDone()).isFalse();
+
+    try (AllProcessesCommands commands = new AllProcessesCommands(sharedMemoryDir)) {
+      commands.create(ProcessId.WEB_SERVER.getIpcIndex()).setOperational();
+    }
+
+    waiting.get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void await_fails_if_web_server_is_not_operational_before_timeout() throws Exception {
+    WebServerBarrier underTest = new WebServerBarrier(temp.newFolder(), 1L, 10L);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Web Server is not operational after 10 ms");
+
+    underTest.await();
+  }
+
+  @Test
+  public void await_fails_if_interrupted() throws Exception {
+    WebServerBarrier underTest = new WebServerBarrier(temp.newFolder(), 10_000L, 60_000L);
+    AtomicReference<Exception> failure = new AtomicReference<>();
+
+    Thread waiting = new Thread(() -> {
+      try {
+        underTest.await();
+      } catch (IllegalStateException e) {
+        failure.set(e);
+      }
+    });
+    waiting.start();
+    while (waiting.getState() != Thread.State.TIMED_WAITING) {
+      Thread.sleep(1L);
+    }
+    waiting.interrupt();
+    waiting.join();
+
+    assertThat(failure.get()).hasMessage("Interrupted while waiting for Web Server to be operational");
+  }
+}
@@ -139,4 +139,41 @@ public class CEQueueStatusImplTest {
 
     assertThat(underTest.getPendingCount()).isEqualTo(42);
   }
+
+  @Test
+  public void getWaitTimePercentile_is_zero_if_no_wait_time() {
+    assertThat(underTest.getWaitTimePercentile(50)).isEqualTo(0);
+    assertThat(underTest.getWaitTimePercentile(99)).isEqualTo(0);
+  }
+
+  @Test
+  public void getWaitTimePercentile_computes_percentiles_of_wait_times() {
+    for (int i = 100; i > 0; i--) {
+      underTest.addWaitTime(i);
+    }
+
+    assertThat(underTest.getWaitTimePercentile(50)).isEqualTo(50);
+    assertThat(underTest.getWaitTimePercentile(95)).isEqualTo(95);
+    assertThat(underTest.getWaitTimePercentile(100)).isEqualTo(100);
+  }
+
+  @Test
+  public void getWaitTimePercentile_considers_only_latest_wait_times() {
+    for (int i = 0; i < CEQueueStatusImpl.WAIT_TIME_SAMPLES; i++) {
+      underTest.addWaitTime(1_000_000);
+    }
+    for (int i = 0; i < CEQueueStatusImpl.WAIT_TIME_SAMPLES; i++) {
+      underTest.addWaitTime(10);
+    }
+
+    assertThat(underTest.getWaitTimePercentile(100)).isEqualTo(10);
+  }
+
+  @Test
+  public void addWaitTime_throws_IAE_if_time_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Wait time can not be < 0");
+
+    underTest.addWaitTime(-1);
+  }
 }
@@ -58,6 +58,9 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getWaitTimeMedian()).isEqualTo(50);
+    assertThat(underTest.getWaitTime95thPercentile()).isEqualTo(95);
+    assertThat(underTest.getWaitTime99thPercentile()).isEqualTo(99);
   }
 
   @Test
@@ -69,7 +72,7 @@ public class CeTasksMBeanImplTest {
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
     assertThat(section.getName()).isEqualTo("Compute Engine Tasks");
-    assertThat(section.getAttributesCount()).isEqualTo(6);
+    assertThat(section.getAttributesCount()).isEqualTo(9);
   }
 
   /**
@@ -118,6 +121,16 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public void addWaitTime(long waitTime) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public long getWaitTimePercentile(int percentile) {
+      return percentile;
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
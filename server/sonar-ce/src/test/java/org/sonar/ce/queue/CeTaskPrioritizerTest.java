@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.sonar.db.ce.EligibleTaskDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeTaskPrioritizerTest {
+
+  private static final long NOW = 1_000_000_000L;
+  private static final long DEFAULT_COST = 10_000L;
+
+  @Test
+  public void oldest_task_first_if_costs_are_unknown() {
+    EligibleTaskDto task1 = newTask("T1", "P1", NOW - 3_000);
+    EligibleTaskDto task2 = newTask("T2", "P2", NOW - 2_000);
+    EligibleTaskDto task3 = newTask("T3", "P3", NOW - 2_000);
+
+    assertThat(sort(emptyMap(), emptyMap(), task3, task1, task2)).containsExactly(task1, task3, task2);
+  }
+
+  @Test
+  public void short_task_overtakes_long_task() {
+    EligibleTaskDto longTask = newTask("T1", "P1", NOW - 60_000);
+    EligibleTaskDto shortTask = newTask("T2", "P2", NOW - 5_000);
+
+    assertThat(sort(ImmutableMap.of("P1", 600_000L, "P2", 1_000L), emptyMap(), longTask, shortTask)).containsExactly(shortTask, longTask);
+  }
+
+  @Test
+  public void long_task_is_not_starved_when_it_waited_long_enough() {
+    EligibleTaskDto longTask = newTask("T1", "P1", NOW - 6_000_000);
+    EligibleTaskDto shortTask = newTask("T2", "P2", NOW - 5_000);
+
+    assertThat(sort(ImmutableMap.of("P1", 600_000L, "P2", 1_000L), emptyMap(), longTask, shortTask)).containsExactly(longTask, shortTask);
+  }
+
+  @Test
+  public void task_of_organization_with_tasks_in_progress_yields_to_other_organizations() {
+    EligibleTaskDto busyOrganizationTask = newTask("T1", "P1", NOW - 3_000);
+    EligibleTaskDto otherOrganizationTask = newTask("T2", "P2", NOW - 2_000);
+
+    assertThat(sort(emptyMap(), ImmutableMap.of("P1", 2), busyOrganizationTask, otherOrganizationTask))
+      .containsExactly(otherOrganizationTask, busyOrganizationTask);
+  }
+
+  @Test
+  public void task_without_component_has_default_cost() {
+    EligibleTaskDto task1 = newTask("T1", null, NOW - 3_000);
+    EligibleTaskDto task2 = newTask("T2", "P2", NOW - 2_000);
+
+    assertThat(sort(ImmutableMap.of("P2", DEFAULT_COST), emptyMap(), task2, task1)).containsExactly(task1, task2);
+  }
+
+  @Test
+  public void keep_only_oldest_task_of_each_component() {
+    EligibleTaskDto task1 = newTask("T1", "P1", NOW - 3_000);
+    EligibleTaskDto task2 = newTask("T2", "P2", NOW - 2_000);
+    EligibleTaskDto task3 = newTask("T3", "P1", NOW - 1_000);
+    EligibleTaskDto task4 = newTask("T4", null, NOW - 1_000);
+    EligibleTaskDto task5 = newTask("T5", null, NOW);
+
+    assertThat(CeTaskPrioritizer.oldestOfEachComponent(asList(task1, task2, task3, task4, task5))).containsExactly(task1, task2, task4, task5);
+  }
+
+  private static List<EligibleTaskDto> sort(Map<String, Long> costs, Map<String, Integer> inProgress, EligibleTaskDto... tasks) {
+    return CeTaskPrioritizer.sort(asList(tasks), NOW, DEFAULT_COST, costs::get, uuid -> inProgress.getOrDefault(uuid, 0));
+  }
+
+  private static EligibleTaskDto newTask(String uuid, String componentUuid, long createdAt) {
+    return new EligibleTaskDto().setUuid(uuid).setComponentUuid(componentUuid).setCreatedAt(createdAt);
+  }
+}
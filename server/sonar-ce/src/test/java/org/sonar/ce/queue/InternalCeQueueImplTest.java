@@ -72,7 +72,8 @@ public class InternalCeQueueImplTest {
   private UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   private CEQueueStatus queueStatus = new CEQueueStatusImpl(dbTester.getDbClient());
   private DefaultOrganizationProvider defaultOrganizationProvider = mock(DefaultOrganizationProvider.class);
-  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider);
+  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, dbTester.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider,
+    new CeTaskPrioritizer(dbTester.getDbClient(), system2));
 
   @Before
   public void setUp() throws Exception {
@@ -294,6 +295,27 @@ public class InternalCeQueueImplTest {
     assertThat(ceQueueDto.getWorkerUuid()).isEqualTo(WORKER_UUID_1);
   }
 
+  @Test
+  public void peek_favors_tasks_of_projects_which_are_fast_to_process() {
+    insertActivity("PROJECT_1", 600_000L);
+    insertActivity("PROJECT_2", 1_000L);
+    CeTask slowTask = submit(CeTaskTypes.REPORT, "PROJECT_1");
+    CeTask fastTask = submit(CeTaskTypes.REPORT, "PROJECT_2");
+
+    assertThat(underTest.peek(WORKER_UUID_1).get().getUuid()).isEqualTo(fastTask.getUuid());
+    assertThat(underTest.peek(WORKER_UUID_2).get().getUuid()).isEqualTo(slowTask.getUuid());
+  }
+
+  @Test
+  public void peek_records_wait_time_of_task() {
+    submit(CeTaskTypes.REPORT, "PROJECT_1");
+
+    CeTask task = underTest.peek(WORKER_UUID_1).get();
+
+    CeQueueDto dto = dbTester.getDbClient().ceQueueDao().selectByUuid(session, task.getUuid()).get();
+    assertThat(queueStatus.getWaitTimePercentile(100)).isEqualTo(dto.getStartedAt() - dto.getCreatedAt());
+  }
+
   @Test
   public void peek_nothing_if_paused() throws Exception {
     submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -738,6 +760,19 @@ public class InternalCeQueueImplTest {
     return taskResult;
   }
 
+  private void insertActivity(String componentUuid, long executionTimeMs) {
+    CeQueueDto queueDto = new CeQueueDto()
+      .setUuid(uuidFactory.create())
+      .setTaskType(CeTaskTypes.REPORT)
+      .setComponentUuid(componentUuid)
+      .setCreatedAt(system2.now());
+    CeActivityDto activityDto = new CeActivityDto(queueDto)
+      .setStatus(CeActivityDto.Status.SUCCESS)
+      .setExecutionTimeMs(executionTimeMs);
+    dbTester.getDbClient().ceActivityDao().insert(session, activityDto);
+    session.commit();
+  }
+
   private ComponentDto insertComponent(ComponentDto componentDto) {
     dbTester.getDbClient().componentDao().insert(session, componentDto);
     session.commit();
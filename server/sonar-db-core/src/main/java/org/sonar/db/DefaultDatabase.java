@@ -37,7 +37,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.dialect.Dialect;
 import org.sonar.db.dialect.DialectUtils;
-import org.sonar.db.profiling.NullConnectionInterceptor;
+import org.sonar.db.profiling.CountingConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledDataSource;
 import org.sonar.process.logging.LogbackHelper;
@@ -94,7 +94,7 @@ public class DefaultDatabase implements Database {
     // but it's correctly caught by start()
     LOG.info("Create JDBC data source for {}", properties.getProperty(DatabaseProperties.PROP_URL, DEFAULT_URL));
     BasicDataSource basicDataSource = (BasicDataSource) BasicDataSourceFactory.createDataSource(extractCommonsDbcpProperties(properties));
-    datasource = new ProfiledDataSource(basicDataSource, NullConnectionInterceptor.INSTANCE);
+    datasource = new ProfiledDataSource(basicDataSource, CountingConnectionInterceptor.INSTANCE);
     datasource.setConnectionInitSqls(dialect.getConnectionInitStatements());
     datasource.setValidationQuery(dialect.getValidationQuery());
     enableSqlLogging(datasource, logbackHelper.getLoggerLevel("sql") == Level.TRACE);
@@ -142,7 +142,7 @@ public class DefaultDatabase implements Database {
   }
 
   private static void enableSqlLogging(ProfiledDataSource ds, boolean enable) {
-    ds.setConnectionInterceptor(enable ? ProfiledConnectionInterceptor.INSTANCE : NullConnectionInterceptor.INSTANCE);
+    ds.setConnectionInterceptor(enable ? ProfiledConnectionInterceptor.INSTANCE : CountingConnectionInterceptor.INSTANCE);
   }
 
   /**
@@ -0,0 +1,243 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.commons.dbcp.DelegatingCallableStatement;
+import org.apache.commons.dbcp.DelegatingConnection;
+import org.apache.commons.dbcp.DelegatingPreparedStatement;
+import org.apache.commons.dbcp.DelegatingStatement;
+
+/**
+ * Plain JDBC wrapper, without reflection, that increments {@link SqlStatementCounter} on each
+ * execution of statement.
+ */
+class CountingConnection extends DelegatingConnection {
+
+  CountingConnection(Connection connection) {
+    super(connection);
+  }
+
+  @Override
+  public Statement createStatement() throws SQLException {
+    checkOpen();
+    return new CountingStatement(this, getDelegate().createStatement());
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkOpen();
+    return new CountingStatement(this, getDelegate().createStatement(resultSetType, resultSetConcurrency));
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkOpen();
+    return new CountingStatement(this, getDelegate().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql) throws SQLException {
+    checkOpen();
+    return new CountingPreparedStatement(this, getDelegate().prepareStatement(sql));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+    checkOpen();
+    return new CountingPreparedStatement(this, getDelegate().prepareStatement(sql, autoGeneratedKeys));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+    checkOpen();
+    return new CountingPreparedStatement(this, getDelegate().prepareStatement(sql, columnIndexes));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+    checkOpen();
+    return new CountingPreparedStatement(this, getDelegate().prepareStatement(sql, columnNames));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkOpen();
+    return new CountingPreparedStatement(this, getDelegate().prepareStatement(sql, resultSetType, resultSetConcurrency));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkOpen();
+    return new CountingPreparedStatement(this, getDelegate().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql) throws SQLException {
+    checkOpen();
+    return new CountingCallableStatement(this, getDelegate().prepareCall(sql));
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    checkOpen();
+    return new CountingCallableStatement(this, getDelegate().prepareCall(sql, resultSetType, resultSetConcurrency));
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    checkOpen();
+    return new CountingCallableStatement(this, getDelegate().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+  }
+
+  private static class CountingStatement extends DelegatingStatement {
+    private CountingStatement(DelegatingConnection connection, Statement statement) {
+      super(connection, statement);
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeQuery(sql);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeUpdate(sql);
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeUpdate(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeUpdate(sql, columnIndexes);
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeUpdate(sql, columnNames);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.execute(sql);
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.execute(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.execute(sql, columnIndexes);
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+      SqlStatementCounter.increment();
+      return super.execute(sql, columnNames);
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeBatch();
+    }
+  }
+
+  /**
+   * Prepared statements are executed through the methods without SQL parameter
+   */
+  private static class CountingPreparedStatement extends DelegatingPreparedStatement {
+    private CountingPreparedStatement(DelegatingConnection connection, PreparedStatement statement) {
+      super(connection, statement);
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeQuery();
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeUpdate();
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.execute();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeBatch();
+    }
+  }
+
+  private static class CountingCallableStatement extends DelegatingCallableStatement {
+    private CountingCallableStatement(DelegatingConnection connection, CallableStatement statement) {
+      super(connection, statement);
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeQuery();
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeUpdate();
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.execute();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+      SqlStatementCounter.increment();
+      return super.executeBatch();
+    }
+  }
+}
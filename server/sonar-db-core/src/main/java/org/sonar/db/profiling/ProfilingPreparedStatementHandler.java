@@ -39,6 +39,7 @@ class ProfilingPreparedStatementHandler implements InvocationHandler {
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
     if (method.getName().startsWith("execute")) {
+      SqlStatementCounter.increment();
       Profiler profiler = Profiler.create(ProfiledDataSource.SQL_LOGGER).start();
       Object result = null;
       try {
@@ -35,6 +35,7 @@ class ProfilingStatementHandler implements InvocationHandler {
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
     if (method.getName().startsWith("execute")) {
+      SqlStatementCounter.increment();
       Profiler profiler = Profiler.create(ProfiledDataSource.SQL_LOGGER).start();
       Object result = null;
       try {
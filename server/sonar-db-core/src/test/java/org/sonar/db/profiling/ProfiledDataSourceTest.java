@@ -22,6 +22,7 @@ package org.sonar.db.profiling;
 import java.io.ByteArrayInputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -132,6 +133,47 @@ public class ProfiledDataSourceTest {
       .doesNotContain("params=");
   }
 
+  @Test
+  public void count_executed_statements_without_logging_them() throws Exception {
+    logTester.setLevel(LoggerLevel.TRACE);
+
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+    Statement statement = mock(Statement.class);
+    when(connection.createStatement()).thenReturn(statement);
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    when(connection.prepareStatement("select from dual")).thenReturn(preparedStatement);
+    when(preparedStatement.execute()).thenReturn(true);
+
+    ProfiledDataSource ds = new ProfiledDataSource(originDataSource, CountingConnectionInterceptor.INSTANCE);
+    long before = SqlStatementCounter.get();
+
+    Connection connectionProxy = ds.getConnection();
+    assertThat(Proxy.isProxyClass(connectionProxy.getClass())).isFalse();
+    connectionProxy.createStatement().execute("select from dual");
+    PreparedStatement preparedStatementProxy = connectionProxy.prepareStatement("select from dual");
+    preparedStatementProxy.setInt(1, 42);
+    assertThat(preparedStatementProxy.execute()).isTrue();
+
+    assertThat(SqlStatementCounter.get() - before).isEqualTo(2);
+    assertThat(logTester.logs(LoggerLevel.TRACE)).isEmpty();
+  }
+
+  @Test
+  public void logged_statements_are_counted() throws Exception {
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+    Statement statement = mock(Statement.class);
+    when(connection.createStatement()).thenReturn(statement);
+
+    ProfiledDataSource ds = new ProfiledDataSource(originDataSource, ProfiledConnectionInterceptor.INSTANCE);
+    long before = SqlStatementCounter.get();
+
+    ds.getConnection().createStatement().execute("select from dual");
+
+    assertThat(SqlStatementCounter.get() - before).isEqualTo(1);
+  }
+
   @Test
   public void delegate_to_underlying_data_source() throws Exception {
     ProfiledDataSource proxy = new ProfiledDataSource(originDataSource, ProfiledConnectionInterceptor.INSTANCE);
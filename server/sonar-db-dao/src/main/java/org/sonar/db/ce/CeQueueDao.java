@@ -145,7 +145,18 @@ public class CeQueueDao implements Dao {
     return tryToPeek(session, eligible, workerUuid);
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, EligibleTaskDto eligible, String workerUuid) {
+  /**
+   * Oldest pending tasks which could be peeked, at most {@code limit} of them, ordered by submission date.
+   */
+  public List<EligibleTaskDto> selectEligibleForPeek(DbSession session, int maxExecutionCount, int limit) {
+    return mapper(session).selectEligibleForPeek(maxExecutionCount, Pagination.forPage(1).andSize(limit));
+  }
+
+  /**
+   * Marks the specified task as in progress for the specified worker. Task is not returned if it has been
+   * peeked by another worker in the meantime.
+   */
+  public Optional<CeQueueDto> tryToPeek(DbSession session, EligibleTaskDto eligible, String workerUuid) {
     long now = system2.now();
     int touchedRows = mapper(session).updateIf(eligible.getUuid(),
       new UpdateIf.NewProperties(IN_PROGRESS, workerUuid, eligible.getExecutionCount() + 1, now, now),
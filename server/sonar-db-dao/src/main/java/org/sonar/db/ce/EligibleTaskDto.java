@@ -19,9 +19,14 @@
  */
 package org.sonar.db.ce;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 public class EligibleTaskDto {
   private String uuid;
+  private String componentUuid;
   private int executionCount;
+  private long createdAt;
 
   public String getUuid() {
     return uuid;
@@ -32,6 +37,16 @@ public class EligibleTaskDto {
     return this;
   }
 
+  @CheckForNull
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  public EligibleTaskDto setComponentUuid(@Nullable String componentUuid) {
+    this.componentUuid = componentUuid;
+    return this;
+  }
+
   public int getExecutionCount() {
     return executionCount;
   }
@@ -41,11 +56,22 @@ public class EligibleTaskDto {
     return this;
   }
 
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public EligibleTaskDto setCreatedAt(long createdAt) {
+    this.createdAt = createdAt;
+    return this;
+  }
+
   @Override
   public String toString() {
     return "EligibleTaskDto{" +
         "uuid='" + uuid + '\'' +
+        ", componentUuid='" + componentUuid + '\'' +
         ", executionCount=" + executionCount +
+        ", createdAt=" + createdAt +
         '}';
   }
 }
@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -43,6 +44,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.emptyList;
 import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang.StringUtils.isBlank;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 import static org.sonar.db.DaoDatabaseUtils.buildLikeValue;
 import static org.sonar.db.DaoDatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DaoDatabaseUtils.executeLargeUpdates;
@@ -151,6 +153,15 @@ public class ComponentDao implements Dao {
     return executeLargeInputs(uuids, mapper(session)::selectByUuids);
   }
 
+  /**
+   * Return the ids of the components with the given uuids, indexed by uuid
+   */
+  public Map<String, Long> selectIdsByUuids(DbSession session, Collection<String> uuids) {
+    return executeLargeInputs(uuids, mapper(session)::selectIdsByUuids)
+      .stream()
+      .collect(uniqueIndex(ComponentDto::uuid, ComponentDto::getId, uuids.size()));
+  }
+
   public List<String> selectExistingUuids(DbSession session, Collection<String> uuids) {
     return executeLargeInputs(uuids, mapper(session)::selectExistingUuids);
   }
@@ -162,6 +173,15 @@ public class ComponentDao implements Dao {
     return mapper(session).selectComponentsFromProjectKeyAndScope(projectKey, null, false);
   }
 
+  /**
+   * Same as {@link #selectAllComponentsFromProjectKey(DbSession, String)} but the components are handed over to the
+   * <code>handler</code> one by one instead of being loaded in memory at once.
+   */
+  public void selectAllComponentsFromProjectKey(DbSession session, String projectKey, ResultHandler handler) {
+    requireNonNull(handler);
+    mapper(session).scrollAllComponentsFromProjectKey(projectKey, handler);
+  }
+
   public List<ComponentDto> selectEnabledModulesFromProjectKey(DbSession session, String projectKey) {
     return mapper(session).selectComponentsFromProjectKeyAndScope(projectKey, Scopes.PROJECT, true);
   }
@@ -312,6 +332,15 @@ public class ComponentDao implements Dao {
     mapper(session).insert(item);
   }
 
+  /**
+   * Inserts the component without retrieving its generated id, so that the insert can be part of a JDBC batch
+   * when <code>session</code> is a {@link org.sonar.db.BatchSession}. Id of the component can be loaded afterwards
+   * with {@link #selectIdsByUuids(DbSession, Collection)}.
+   */
+  public void insertWithoutId(DbSession session, ComponentDto item) {
+    mapper(session).insertWithoutGeneratedKey(item);
+  }
+
   public void insert(DbSession session, Collection<ComponentDto> items) {
     for (ComponentDto item : items) {
       insert(session, item);
@@ -132,8 +132,14 @@ public interface ComponentMapper {
 
   void selectForIndexing(@Param("projectUuid") @Nullable String projectUuid, ResultHandler handler);
 
+  void scrollAllComponentsFromProjectKey(@Param("projectKey") String projectKey, ResultHandler handler);
+
+  List<ComponentDto> selectIdsByUuids(@Param("uuids") Collection<String> uuids);
+
   void insert(ComponentDto componentDto);
 
+  void insertWithoutGeneratedKey(ComponentDto componentDto);
+
   void update(ComponentUpdateDto component);
 
   void updateBEnabledToFalse(@Param("uuids") List<String> uuids);
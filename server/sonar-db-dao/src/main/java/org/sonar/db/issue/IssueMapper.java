@@ -30,6 +30,8 @@ public interface IssueMapper {
 
   void selectNonClosedByComponentUuid(@Param("componentUuid") String componentUuid, ResultHandler resultHandler);
 
+  void selectNonClosedByComponentUuids(@Param("componentUuids") List<String> componentUuids, ResultHandler resultHandler);
+
   Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
 
   List<IssueDto> selectByKeys(List<String> keys);
@@ -95,16 +95,25 @@ public class MeasureDao implements Dao {
   }
 
   /**
-   * Select measures of:
-   * - one component
-   * - for a list of metrics
-   * - with analysis from a date (inclusive) - optional
-   * - with analysis to a date (exclusive) - optional
-   *
-   * If no constraints on dates, all the history is returned
+   * Streams the measures of all the components of an analysis, excluding measures on developers.
+   * Rows are loaded with a single cursor, so that variations of a whole project can be computed
+   * without a request per component.
    */
-  public List<MeasureDto> selectPastMeasures(DbSession dbSession, PastMeasureQuery query) {
-    return mapper(dbSession).selectPastMeasuresOnSeveralAnalyses(query);
+  public void selectPastMeasures(DbSession dbSession, String analysisUuid, ResultHandler resultHandler) {
+    mapper(dbSession).selectPastMeasuresOnAnalysis(analysisUuid, resultHandler);
+  }
+
+  /**
+   * Select measures of a component on the given analyses only, for example a page of history.
+   * Measures of developers are excluded.
+   */
+  public List<MeasureDto> selectPastMeasures(DbSession dbSession, String componentUuid, Collection<String> analysisUuids, Collection<Integer> metricIds) {
+    if (analysisUuids.isEmpty() || metricIds.isEmpty()) {
+      return emptyList();
+    }
+    return executeLargeInputs(
+      analysisUuids,
+      analyses -> mapper(dbSession).selectPastMeasuresOnAnalyses(componentUuid, analyses, metricIds));
   }
 
   /**
@@ -39,7 +39,10 @@ public interface MeasureMapper {
   List<PastMeasureDto> selectPastMeasuresOnSingleAnalysis(@Param("componentUuid") String componentUuid, @Param("analysisUuid") String analysisUuid,
     @Param("metricIds") List<Integer> metricIds);
 
-  List<MeasureDto> selectPastMeasuresOnSeveralAnalyses(@Param("query") PastMeasureQuery query);
+  void selectPastMeasuresOnAnalysis(@Param("analysisUuid") String analysisUuid, ResultHandler resultHandler);
+
+  List<MeasureDto> selectPastMeasuresOnAnalyses(@Param("componentUuid") String componentUuid, @Param("analysisUuids") List<String> analysisUuids,
+    @Param("metricIds") Collection<Integer> metricIds);
 
   List<MeasureDto> selectProjectMeasuresOfDeveloper(@Param("developerId") long developerId, @Param("metricIds") Collection<Integer> metricIds);
 
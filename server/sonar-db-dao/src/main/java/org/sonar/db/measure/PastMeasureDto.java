@@ -26,6 +26,9 @@ import static java.util.Objects.requireNonNull;
 
 public class PastMeasureDto {
 
+  @CheckForNull
+  private String componentUuid;
+
   private int metricId;
 
   @CheckForNull
@@ -48,6 +51,19 @@ public class PastMeasureDto {
     return value != null;
   }
 
+  /**
+   * Only loaded by {@link MeasureDao#selectPastMeasures(org.sonar.db.DbSession, String, org.apache.ibatis.session.ResultHandler)}
+   */
+  @CheckForNull
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
+  PastMeasureDto setComponentUuid(@Nullable String s) {
+    this.componentUuid = s;
+    return this;
+  }
+
   public int getMetricId() {
     return metricId;
   }
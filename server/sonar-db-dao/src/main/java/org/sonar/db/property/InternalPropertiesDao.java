@@ -65,6 +65,21 @@ public class InternalPropertiesDao implements Dao {
     return value.length() > TEXT_VALUE_MAX_LENGTH;
   }
 
+  /**
+   * Replaces the text value of a property only if it is still {@code expectedValue}, in a single statement.
+   * Contrary to {@link #save(DbSession, String, String)}, it can't fail on concurrent changes of the property.
+   *
+   * @return false if the property does not exist or if its value is not {@code expectedValue} anymore
+   * @throws IllegalArgumentException if {@code newValue} is {@code null}, empty or too long to be stored as text
+   */
+  public boolean replaceValue(DbSession dbSession, String key, String expectedValue, String newValue) {
+    checkKey(key);
+    checkArgument(newValue != null && !newValue.isEmpty() && !mustsBeStoredInClob(newValue), "new value can't be null nor empty nor longer than %s characters",
+      TEXT_VALUE_MAX_LENGTH);
+
+    return getMapper(dbSession).updateTextValue(key, expectedValue, newValue, system2.now()) == 1;
+  }
+
   /**
    * Save a property which value is empty.
    */
@@ -32,5 +32,8 @@ public interface InternalPropertiesMapper {
 
   void insertAsClob(@Param("key") String key, @Param("value") String value, @Param("createdAt") long createdAt);
 
+  int updateTextValue(@Param("key") String key, @Param("expectedValue") String expectedValue, @Param("newValue") String newValue,
+    @Param("createdAt") long createdAt);
+
   void deleteByKey(@Param("key") String key);
 }
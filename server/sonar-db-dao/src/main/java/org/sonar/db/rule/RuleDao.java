@@ -114,6 +114,25 @@ public class RuleDao implements Dao {
     return mapper(session).selectAllDefinitions();
   }
 
+  /**
+   * Definitions of the rules which have been updated at or after {@code updatedAt}
+   */
+  public List<RuleDefinitionDto> selectDefinitionsUpdatedSince(DbSession session, long updatedAt) {
+    return mapper(session).selectDefinitionsUpdatedSince(updatedAt);
+  }
+
+  /**
+   * Most recent update date of rules, as stored in column RULES.UPDATED_AT, or 0 if table is empty
+   */
+  public long selectMaxUpdatedAt(DbSession session) {
+    Long maxUpdatedAt = mapper(session).selectMaxUpdatedAt();
+    return maxUpdatedAt == null ? 0L : maxUpdatedAt;
+  }
+
+  public List<RuleMetadataDto> selectMetadataByOrganization(DbSession session, String organizationUuid) {
+    return mapper(session).selectMetadataByOrganization(organizationUuid);
+  }
+
   public List<RuleDto> selectByQuery(DbSession session, String organizationUuid, RuleQuery ruleQuery) {
     return ensureOrganizationIsSet(organizationUuid, mapper(session).selectByQuery(organizationUuid, ruleQuery));
   }
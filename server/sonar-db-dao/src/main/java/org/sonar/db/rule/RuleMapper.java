@@ -20,6 +20,7 @@
 package org.sonar.db.rule;
 
 import java.util.List;
+import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.rule.RuleKey;
@@ -45,8 +46,15 @@ public interface RuleMapper {
 
   RuleDefinitionDto selectDefinitionByKey(RuleKey ruleKey);
 
+  List<RuleDefinitionDto> selectDefinitionsUpdatedSince(@Param("updatedAt") long updatedAt);
+
+  @CheckForNull
+  Long selectMaxUpdatedAt();
+
   RuleMetadataDto selectMetadataByKey(@Param("ruleKey") RuleKey ruleKey, @Param("organizationUuid") String organizationUuid);
 
+  List<RuleMetadataDto> selectMetadataByOrganization(@Param("organizationUuid") String organizationUuid);
+
   List<RuleDto> selectByKeys(@Param("organizationUuid") String organizationUuid, @Param("ruleKeys") List<RuleKey> keys);
 
   List<RuleDefinitionDto> selectDefinitionByKeys(@Param("ruleKeys") List<RuleKey> keys);
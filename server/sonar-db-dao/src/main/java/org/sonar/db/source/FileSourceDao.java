@@ -25,8 +25,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
@@ -35,6 +38,8 @@ import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputs;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
@@ -44,6 +49,19 @@ public class FileSourceDao implements Dao {
     return mapper(session).select(fileUuid, Type.SOURCE);
   }
 
+  /**
+   * Loads only the data required by {@link FileSourceDto#getScmLines()}. Sources persisted before 6.5
+   * have no SCM data until their project is analyzed again, in this case the whole source data is loaded.
+   */
+  @CheckForNull
+  public FileSourceDto selectScmByFileUuid(DbSession session, String fileUuid) {
+    FileSourceDto dto = mapper(session).selectScm(fileUuid, Type.SOURCE);
+    if (dto != null && dto.getScmData() == null) {
+      return selectSourceByFileUuid(session, fileUuid);
+    }
+    return dto;
+  }
+
   @CheckForNull
   public FileSourceDto selectTest(DbSession dbSession, String fileUuid) {
     return mapper(dbSession).select(fileUuid, Type.TEST);
@@ -74,6 +92,20 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Line hashes of the given files, loaded with a request per partition of 1'000 files. Files without
+   * sources are not included in the result.
+   */
+  public Map<String, List<String>> selectLineHashesByFileUuids(DbSession dbSession, Collection<String> fileUuids) {
+    Map<String, List<String>> result = new HashMap<>(fileUuids.size());
+    executeLargeInputs(fileUuids, partition -> mapper(dbSession).selectLineHashesByFileUuids(partition, Type.SOURCE))
+      .forEach(dto -> {
+        String lineHashes = dto.getLineHashes();
+        result.put(dto.getFileUuid(), lineHashes == null ? Collections.emptyList() : END_OF_LINE_SPLITTER.splitToList(lineHashes));
+      });
+    return result;
+  }
+
   public <T> void readLineHashesStream(DbSession dbSession, String fileUuid, Function<Reader, T> function) {
     Connection connection = dbSession.getConnection();
     PreparedStatement pstmt = null;
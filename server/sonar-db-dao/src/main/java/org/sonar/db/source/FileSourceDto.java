@@ -26,6 +26,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -49,6 +50,8 @@ public class FileSourceDto {
   private String lineHashes;
   private String srcHash;
   private byte[] binaryData;
+  private byte[] scmData;
+  private boolean hasScmData;
   private String dataType;
   private String dataHash;
   private String revision;
@@ -215,9 +218,50 @@ public class FileSourceDto {
   public FileSourceDto setSourceData(DbFileSources.Data data) {
     this.dataType = Type.SOURCE;
     this.binaryData = encodeSourceData(data);
+    this.scmData = ScmData.encode(data.getLinesList());
     return this;
   }
 
+  /**
+   * Serialized protobuf message {@link org.sonar.db.protobuf.DbFileSources.Scm}. Null on sources
+   * persisted before 6.5, until their project is analyzed again.
+   */
+  @CheckForNull
+  public byte[] getScmData() {
+    return scmData;
+  }
+
+  public FileSourceDto setScmData(@Nullable byte[] scmData) {
+    this.scmData = scmData;
+    return this;
+  }
+
+  /**
+   * Whether column SCM_DATA is set, without loading it. Only loaded by {@link FileSourceMapper#selectHashesForProject(String, String)}.
+   */
+  public boolean isHasScmData() {
+    return hasScmData;
+  }
+
+  public FileSourceDto setHasScmData(boolean hasScmData) {
+    this.hasScmData = hasScmData;
+    return this;
+  }
+
+  /**
+   * Lines with only the SCM fields. They are read from {@link #getScmData()} when available,
+   * else from {@link #getBinaryData()}.
+   */
+  public List<DbFileSources.Line> getScmLines() {
+    if (scmData != null) {
+      return ScmData.decode(scmData);
+    }
+    if (binaryData != null) {
+      return getSourceData().getLinesList();
+    }
+    return Collections.emptyList();
+  }
+
   /**
    * Compressed value of serialized protobuf message {@link org.sonar.db.protobuf.DbFileSources.Data}
    */
@@ -27,9 +27,14 @@ public interface FileSourceMapper {
 
   List<FileSourceDto> selectHashesForProject(@Param("projectUuid") String projectUuid, @Param("dataType") String dataType);
 
+  List<FileSourceDto> selectLineHashesByFileUuids(@Param("fileUuids") List<String> fileUuids, @Param("dataType") String dataType);
+
   @CheckForNull
   FileSourceDto select(@Param("fileUuid") String fileUuid, @Param("dataType") String dataType);
 
+  @CheckForNull
+  FileSourceDto selectScm(@Param("fileUuid") String fileUuid, @Param("dataType") String dataType);
+
   void insert(FileSourceDto dto);
 
   void update(FileSourceDto dto);
@@ -0,0 +1,104 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static java.lang.String.format;
+
+/**
+ * Encoding of the SCM data of lines in column FILE_SOURCES.SCM_DATA. See message {@link DbFileSources.Scm}.
+ */
+public final class ScmData {
+
+  private ScmData() {
+    // only static methods
+  }
+
+  public static byte[] encode(Iterable<DbFileSources.Line> lines) {
+    DbFileSources.Scm.Builder builder = DbFileSources.Scm.newBuilder();
+    Map<String, Integer> authors = new HashMap<>();
+    Map<String, Integer> revisions = new HashMap<>();
+    long previousDate = 0L;
+    int lineNumber = 0;
+    for (DbFileSources.Line line : lines) {
+      lineNumber++;
+      builder.addLineAuthor(line.hasScmAuthor() ? indexOf(authors, line.getScmAuthor(), builder::addAuthor) : 0);
+      builder.addLineRevision(line.hasScmRevision() ? indexOf(revisions, line.getScmRevision(), builder::addRevision) : 0);
+      if (line.hasScmDate()) {
+        builder.addLineDateDelta(line.getScmDate() - previousDate);
+        previousDate = line.getScmDate();
+      } else {
+        builder.addLineDateDelta(0L);
+        builder.addLineWithoutDate(lineNumber);
+      }
+    }
+    return builder.build().toByteArray();
+  }
+
+  private static int indexOf(Map<String, Integer> dictionary, String value, Consumer<String> adder) {
+    return dictionary.computeIfAbsent(value, v -> {
+      adder.accept(v);
+      return dictionary.size() + 1;
+    });
+  }
+
+  /**
+   * Lines that contain only line number and SCM fields
+   */
+  public static List<DbFileSources.Line> decode(byte[] data) {
+    DbFileSources.Scm scm;
+    try {
+      scm = DbFileSources.Scm.parseFrom(data);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException(format("Fail to decode SCM data (%d bytes)", data.length), e);
+    }
+    Set<Integer> linesWithoutDate = new HashSet<>(scm.getLineWithoutDateList());
+    List<DbFileSources.Line> result = new ArrayList<>(scm.getLineAuthorCount());
+    DbFileSources.Line.Builder lineBuilder = DbFileSources.Line.newBuilder();
+    long date = 0L;
+    for (int i = 0; i < scm.getLineAuthorCount(); i++) {
+      int lineNumber = i + 1;
+      lineBuilder.clear().setLine(lineNumber);
+      int author = scm.getLineAuthor(i);
+      if (author > 0) {
+        lineBuilder.setScmAuthor(scm.getAuthor(author - 1));
+      }
+      int revision = scm.getLineRevision(i);
+      if (revision > 0) {
+        lineBuilder.setScmRevision(scm.getRevision(revision - 1));
+      }
+      date += scm.getLineDateDelta(i);
+      if (!linesWithoutDate.contains(lineNumber)) {
+        lineBuilder.setScmDate(date);
+      }
+      result.add(lineBuilder.build());
+    }
+    return result;
+  }
+}
@@ -426,6 +426,24 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getExecutionCount()).isEqualTo(1);
   }
 
+  @Test
+  public void selectEligibleForPeek_returns_oldest_pending_tasks_of_projects_without_task_in_progress() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 2_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, PENDING);
+    system2.setNow(INIT_TIME + 3_000);
+    insert("TASK_4", "PROJECT_3", PENDING);
+
+    List<EligibleTaskDto> eligibles = underTest.selectEligibleForPeek(db.getSession(), MAX_EXECUTION_COUNT, 10);
+    assertThat(eligibles).extracting(EligibleTaskDto::getUuid).containsExactly(TASK_UUID_3, "TASK_4");
+    assertThat(eligibles).extracting(EligibleTaskDto::getComponentUuid).containsExactly(COMPONENT_UUID_2, "PROJECT_3");
+    assertThat(eligibles).extracting(EligibleTaskDto::getCreatedAt).containsExactly(INIT_TIME + 2_000, INIT_TIME + 3_000);
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), MAX_EXECUTION_COUNT, 1)).extracting(EligibleTaskDto::getUuid).containsExactly(TASK_UUID_3);
+  }
+
   @Test
   public void peek_ignores_rows_with_executionCount_greater_or_equal_to_specified_maxExecutionCount_0() {
     peek_ignores_rows_with_executionCount_greater_or_equal_to_specified_maxExecutionCount(0, null);
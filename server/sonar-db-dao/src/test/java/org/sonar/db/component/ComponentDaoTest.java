@@ -49,6 +49,7 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.assertj.guava.api.Assertions.assertThat;
 import static org.sonar.db.component.ComponentTesting.newDirectory;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
@@ -300,6 +301,16 @@ public class ComponentDaoTest {
     assertThat(result.isEnabled()).isFalse();
   }
 
+  @Test
+  public void select_ids_by_uuids() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+
+    assertThat(underTest.selectIdsByUuids(dbSession, newArrayList(project.uuid(), file.uuid(), "unknown")))
+      .containsOnly(entry(project.uuid(), project.getId()), entry(file.uuid(), file.getId()));
+    assertThat(underTest.selectIdsByUuids(dbSession, emptyList())).isEmpty();
+  }
+
   @Test
   public void select_existing_uuids() {
     db.prepareDbUnit(getClass(), "shared.xml");
@@ -502,6 +513,20 @@ public class ComponentDaoTest {
     assertThat(underTest.selectAllComponentsFromProjectKey(dbSession, "UNKNOWN")).isEmpty();
   }
 
+  @Test
+  public void scroll_all_components_from_project() {
+    db.prepareDbUnit(getClass(), "multi-modules.xml");
+
+    List<ComponentDto> components = new ArrayList<>();
+    underTest.selectAllComponentsFromProjectKey(dbSession, "org.struts:struts", context -> components.add((ComponentDto) context.getResultObject()));
+    // Removed components are included
+    assertThat(components).hasSize(8);
+
+    components.clear();
+    underTest.selectAllComponentsFromProjectKey(dbSession, "UNKNOWN", context -> components.add((ComponentDto) context.getResultObject()));
+    assertThat(components).isEmpty();
+  }
+
   @Test
   public void select_modules_from_project() {
     db.prepareDbUnit(getClass(), "multi-modules.xml");
@@ -715,6 +740,19 @@ public class ComponentDaoTest {
     db.assertDbUnit(getClass(), "insert-result.xml", "projects");
   }
 
+  @Test
+  public void insert_without_id_in_batch_session() {
+    ComponentDto project = newPrivateProjectDto(db.getDefaultOrganization());
+
+    try (DbSession batchSession = db.getDbClient().openSession(true)) {
+      underTest.insertWithoutId(batchSession, project);
+      batchSession.commit();
+    }
+
+    assertThat(project.getId()).isNull();
+    assertThat(underTest.selectByUuid(dbSession, project.uuid())).isPresent();
+  }
+
   @Test
   public void insert_disabled_component() {
     db.prepareDbUnit(getClass(), "empty.xml");
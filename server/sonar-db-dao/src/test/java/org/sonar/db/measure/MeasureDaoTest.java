@@ -40,12 +40,11 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.api.resources.Qualifiers.FILE;
 import static org.sonar.api.resources.Qualifiers.UNIT_TEST_FILE;
-import static org.sonar.api.utils.DateUtils.parseDate;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
-import static org.sonar.db.component.SnapshotTesting.newAnalysis;
 import static org.sonar.db.measure.MeasureTreeQuery.Strategy.CHILDREN;
 import static org.sonar.db.measure.MeasureTreeQuery.Strategy.LEAVES;
 
@@ -304,27 +303,45 @@ public class MeasureDaoTest {
   }
 
   @Test
-  public void select_past_measures_with_several_analyses() {
+  public void select_past_measures_of_all_components_of_an_analysis() {
     ComponentDto project = db.components().insertPrivateProject();
-    long lastAnalysisDate = parseDate("2017-01-25").getTime();
-    long previousAnalysisDate = lastAnalysisDate - 10_000_000_000L;
-    long oldAnalysisDate = lastAnalysisDate - 100_000_000_000L;
-    dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setUuid(LAST_ANALYSIS_UUID).setCreatedAt(lastAnalysisDate));
-    dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setUuid(OTHER_ANALYSIS_UUID).setCreatedAt(previousAnalysisDate).setLast(false));
-    dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setUuid("OLD_ANALYSIS_UUID").setCreatedAt(oldAnalysisDate).setLast(false));
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    insertAnalysis(OTHER_ANALYSIS_UUID, project.uuid(), false);
+    insertMeasure("PROJECT_M1", OTHER_ANALYSIS_UUID, project.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("PROJECT_M2", OTHER_ANALYSIS_UUID, project.uuid(), COVERAGE_METRIC_ID);
+    insertMeasure("C1_M1", OTHER_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasureOnPerson("C1_M2", OTHER_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID, A_PERSON_ID);
+    insertMeasure("PROJECT_M3", LAST_ANALYSIS_UUID, project.uuid(), NCLOC_METRIC_ID);
     db.commit();
 
-    // project
+    List<PastMeasureDto> result = new ArrayList<>();
+    underTest.selectPastMeasures(db.getSession(), OTHER_ANALYSIS_UUID, context -> result.add((PastMeasureDto) context.getResultObject()));
+
+    assertThat(result).extracting(PastMeasureDto::getComponentUuid, PastMeasureDto::getMetricId, PastMeasureDto::getPersonId)
+      .containsOnly(
+        tuple(project.uuid(), NCLOC_METRIC_ID, null),
+        tuple(project.uuid(), COVERAGE_METRIC_ID, null),
+        tuple("C1", NCLOC_METRIC_ID, null));
+  }
+
+  @Test
+  public void select_past_measures_of_given_analyses() {
+    ComponentDto project = db.components().insertPrivateProject();
+    insertAnalysis(LAST_ANALYSIS_UUID, project.uuid(), true);
+    insertAnalysis(OTHER_ANALYSIS_UUID, project.uuid(), false);
+    insertAnalysis("OLD_ANALYSIS_UUID", project.uuid(), false);
     insertMeasure("PROJECT_M1", LAST_ANALYSIS_UUID, project.uuid(), NCLOC_METRIC_ID);
-    insertMeasure("PROJECT_M2", OTHER_ANALYSIS_UUID, project.uuid(), NCLOC_METRIC_ID);
-    insertMeasure("PROJECT_M3", "OLD_ANALYSIS_UUID", project.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("PROJECT_M2", LAST_ANALYSIS_UUID, project.uuid(), COVERAGE_METRIC_ID);
+    insertMeasure("PROJECT_M3", OTHER_ANALYSIS_UUID, project.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("PROJECT_M4", "OLD_ANALYSIS_UUID", project.uuid(), NCLOC_METRIC_ID);
+    insertMeasure("C1_M1", LAST_ANALYSIS_UUID, "C1", NCLOC_METRIC_ID);
+    insertMeasureOnPerson("PROJECT_M5", LAST_ANALYSIS_UUID, project.uuid(), NCLOC_METRIC_ID, A_PERSON_ID);
     db.commit();
 
-    // Measures of project for last and previous analyses
-    List<MeasureDto> result = underTest.selectPastMeasures(db.getSession(),
-      new PastMeasureQuery(project.uuid(), singletonList(NCLOC_METRIC_ID), previousAnalysisDate, lastAnalysisDate + 1_000L));
+    List<MeasureDto> result = underTest.selectPastMeasures(dbSession, project.uuid(), asList(LAST_ANALYSIS_UUID, "OLD_ANALYSIS_UUID"), singletonList(NCLOC_METRIC_ID));
 
-    assertThat(result).hasSize(2).extracting(MeasureDto::getData).containsOnly("PROJECT_M1", "PROJECT_M2");
+    assertThat(result).extracting(MeasureDto::getData).containsOnly("PROJECT_M1", "PROJECT_M4");
+    assertThat(underTest.selectPastMeasures(dbSession, project.uuid(), emptyList(), singletonList(NCLOC_METRIC_ID))).isEmpty();
   }
 
   @Test
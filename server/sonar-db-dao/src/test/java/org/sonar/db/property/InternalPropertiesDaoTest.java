@@ -180,6 +180,39 @@ public class InternalPropertiesDaoTest {
       .hasCreatedAt(DATE_2);
   }
 
+  @Test
+  public void replaceValue_updates_value_if_it_is_unchanged() {
+    when(system2.now()).thenReturn(DATE_1, DATE_2);
+    underTest.save(dbSession, A_KEY, VALUE_1);
+
+    assertThat(underTest.replaceValue(dbSession, A_KEY, VALUE_1, VALUE_2)).isTrue();
+
+    assertThatInternalProperty(A_KEY)
+      .hasTextValue(VALUE_2)
+      .hasCreatedAt(DATE_2);
+  }
+
+  @Test
+  public void replaceValue_does_nothing_if_value_has_changed() {
+    when(system2.now()).thenReturn(DATE_1, DATE_2);
+    underTest.save(dbSession, A_KEY, VALUE_SMALL);
+
+    assertThat(underTest.replaceValue(dbSession, A_KEY, VALUE_1, VALUE_2)).isFalse();
+
+    assertThatInternalProperty(A_KEY)
+      .hasTextValue(VALUE_SMALL)
+      .hasCreatedAt(DATE_1);
+  }
+
+  @Test
+  public void replaceValue_does_nothing_if_property_does_not_exist() {
+    when(system2.now()).thenReturn(DATE_1);
+
+    assertThat(underTest.replaceValue(dbSession, A_KEY, VALUE_1, VALUE_2)).isFalse();
+
+    assertThat(underTest.selectByKey(dbSession, A_KEY)).isEmpty();
+  }
+
   @Test
   public void saveAsEmpty_throws_IAE_if_key_is_null() {
     expectKeyNullOrEmptyIAE();
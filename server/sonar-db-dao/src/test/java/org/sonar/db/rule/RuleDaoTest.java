@@ -47,6 +47,7 @@ import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class RuleDaoTest {
 
@@ -261,6 +262,48 @@ public class RuleDaoTest {
     assertThat(ruleDtos).extracting("id").containsOnly(1, 2, 10);
   }
 
+  @Test
+  public void selectDefinitionsUpdatedSince() {
+    dbTester.rules().insert(r -> r.setUpdatedAt(1_000L));
+    RuleDefinitionDto rule2 = dbTester.rules().insert(r -> r.setUpdatedAt(2_000L));
+    RuleDefinitionDto rule3 = dbTester.rules().insert(r -> r.setUpdatedAt(3_000L));
+
+    assertThat(underTest.selectDefinitionsUpdatedSince(dbTester.getSession(), 2_000L))
+      .extracting(RuleDefinitionDto::getKey)
+      .containsOnly(rule2.getKey(), rule3.getKey());
+    assertThat(underTest.selectDefinitionsUpdatedSince(dbTester.getSession(), 0L)).hasSize(3);
+    assertThat(underTest.selectDefinitionsUpdatedSince(dbTester.getSession(), 3_001L)).isEmpty();
+  }
+
+  @Test
+  public void selectMaxUpdatedAt() {
+    assertThat(underTest.selectMaxUpdatedAt(dbTester.getSession())).isEqualTo(0L);
+
+    dbTester.rules().insert(r -> r.setUpdatedAt(1_000L));
+    dbTester.rules().insert(r -> r.setUpdatedAt(3_000L));
+    dbTester.rules().insert(r -> r.setUpdatedAt(2_000L));
+
+    assertThat(underTest.selectMaxUpdatedAt(dbTester.getSession())).isEqualTo(3_000L);
+  }
+
+  @Test
+  public void selectMetadataByOrganization() {
+    OrganizationDto otherOrganization = dbTester.organizations().insert();
+    RuleDefinitionDto rule1 = dbTester.rules().insert();
+    RuleDefinitionDto rule2 = dbTester.rules().insert();
+    dbTester.rules().insert();
+    dbTester.rules().insertOrUpdateMetadata(rule1, organization, m -> m.setNoteData("note 1"));
+    dbTester.rules().insertOrUpdateMetadata(rule2, organization, m -> m.setNoteData("note 2"));
+    dbTester.rules().insertOrUpdateMetadata(rule2, otherOrganization, m -> m.setNoteData("other note"));
+
+    assertThat(underTest.selectMetadataByOrganization(dbTester.getSession(), organization.getUuid()))
+      .extracting(RuleMetadataDto::getRuleId, RuleMetadataDto::getOrganizationUuid, RuleMetadataDto::getNoteData)
+      .containsOnly(
+        tuple(rule1.getId(), organization.getUuid(), "note 1"),
+        tuple(rule2.getId(), organization.getUuid(), "note 2"));
+    assertThat(underTest.selectMetadataByOrganization(dbTester.getSession(), "unknown")).isEmpty();
+  }
+
   @Test
   public void selectEnabled_with_ResultHandler() {
     dbTester.prepareDbUnit(getClass(), "selectEnabled.xml");
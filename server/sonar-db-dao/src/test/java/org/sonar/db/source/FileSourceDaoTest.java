@@ -21,6 +21,8 @@ package org.sonar.db.source;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
@@ -29,8 +31,10 @@ import org.junit.Test;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 
@@ -129,6 +133,58 @@ public class FileSourceDaoTest {
     assertThat(underTest.selectLineHashes(dbTester.getSession(), "FILE2_UUID")).isEmpty();
   }
 
+  @Test
+  public void selectScmByFileUuid_does_not_load_source_data() {
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setSrcHash("FILE2_HASH")
+      .setSourceData(DbFileSources.Data.newBuilder()
+        .addLines(DbFileSources.Line.newBuilder().setLine(1).setSource("foo").setScmAuthor("john").setScmRevision("rev1").setScmDate(1_500_000_000_000L))
+        .build())
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L));
+    session.commit();
+
+    FileSourceDto dto = underTest.selectScmByFileUuid(session, "FILE2_UUID");
+
+    assertThat(dto.getSrcHash()).isEqualTo("FILE2_HASH");
+    assertThat(dto.getBinaryData()).isNull();
+    assertThat(dto.getScmLines()).containsExactly(DbFileSources.Line.newBuilder().setLine(1).setScmAuthor("john").setScmRevision("rev1").setScmDate(1_500_000_000_000L).build());
+    assertThat(underTest.selectScmByFileUuid(session, "UNKNOWN")).isNull();
+  }
+
+  @Test
+  public void selectScmByFileUuid_reads_source_data_when_scm_data_is_missing() {
+    DbFileSources.Line line = DbFileSources.Line.newBuilder().setLine(1).setSource("foo").setScmAuthor("john").setScmRevision("rev1").setScmDate(1_500_000_000_000L).build();
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setSrcHash("FILE2_HASH")
+      .setSourceData(DbFileSources.Data.newBuilder().addLines(line).build())
+      .setScmData(null)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L));
+    session.commit();
+
+    FileSourceDto dto = underTest.selectScmByFileUuid(session, "FILE2_UUID");
+
+    assertThat(dto.getScmLines()).containsExactly(line);
+  }
+
+  @Test
+  public void selectLineHashesByFileUuids() {
+    insertSource("FILE1_UUID", "LINE1_HASH\nLINE2_HASH");
+    insertSource("FILE2_UUID", null);
+    session.commit();
+
+    Map<String, List<String>> result = underTest.selectLineHashesByFileUuids(session, asList("FILE1_UUID", "FILE2_UUID", "UNKNOWN"));
+
+    assertThat(result).containsOnlyKeys("FILE1_UUID", "FILE2_UUID");
+    assertThat(result.get("FILE1_UUID")).containsExactly("LINE1_HASH", "LINE2_HASH");
+    assertThat(result.get("FILE2_UUID")).isEmpty();
+  }
+
   @Test
   public void readLineHashesStream_does_not_fail_when_lineshashes_is_null() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -179,6 +235,20 @@ public class FileSourceDaoTest {
       "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
   }
 
+  private void insertSource(String fileUuid, @Nullable String lineHashes) {
+    underTest.insert(session, new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid(fileUuid)
+      .setBinaryData("BINARY_DATA".getBytes())
+      .setDataHash("DATA_HASH")
+      .setSrcHash("HASH")
+      .setLineHashes(lineHashes)
+      .setDataType(Type.SOURCE)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L)
+      .setRevision("123456789"));
+  }
+
   private static class ReaderToStringFunction implements Function<Reader, String> {
 
     String result = null;
@@ -0,0 +1,70 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.source;
+
+import java.util.List;
+import org.junit.Test;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScmDataTest {
+
+  @Test
+  public void encode_and_decode_scm_of_lines() {
+    List<DbFileSources.Line> lines = asList(
+      DbFileSources.Line.newBuilder().setLine(1).setSource("foo").setScmAuthor("john").setScmRevision("rev1").setScmDate(1_500_000_000_000L).build(),
+      DbFileSources.Line.newBuilder().setLine(2).setSource("bar").setScmAuthor("jane").setScmRevision("rev2").setScmDate(1_400_000_000_000L).build(),
+      DbFileSources.Line.newBuilder().setLine(3).setScmAuthor("john").setScmRevision("rev1").setScmDate(1_500_000_000_000L).build());
+
+    List<DbFileSources.Line> decoded = ScmData.decode(ScmData.encode(lines));
+
+    assertThat(decoded).containsExactly(
+      DbFileSources.Line.newBuilder().setLine(1).setScmAuthor("john").setScmRevision("rev1").setScmDate(1_500_000_000_000L).build(),
+      DbFileSources.Line.newBuilder().setLine(2).setScmAuthor("jane").setScmRevision("rev2").setScmDate(1_400_000_000_000L).build(),
+      DbFileSources.Line.newBuilder().setLine(3).setScmAuthor("john").setScmRevision("rev1").setScmDate(1_500_000_000_000L).build());
+  }
+
+  @Test
+  public void encode_and_decode_lines_with_partial_or_without_scm() {
+    List<DbFileSources.Line> lines = asList(
+      DbFileSources.Line.newBuilder().setLine(1).setSource("foo").build(),
+      DbFileSources.Line.newBuilder().setLine(2).setScmRevision("rev1").build(),
+      DbFileSources.Line.newBuilder().setLine(3).setScmDate(0L).build());
+
+    List<DbFileSources.Line> decoded = ScmData.decode(ScmData.encode(lines));
+
+    assertThat(decoded).containsExactly(
+      DbFileSources.Line.newBuilder().setLine(1).build(),
+      DbFileSources.Line.newBuilder().setLine(2).setScmRevision("rev1").build(),
+      DbFileSources.Line.newBuilder().setLine(3).setScmDate(0L).build());
+  }
+
+  @Test
+  public void dictionaries_are_smaller_than_repeated_values() {
+    DbFileSources.Data.Builder data = DbFileSources.Data.newBuilder();
+    for (int i = 1; i <= 1_000; i++) {
+      data.addLinesBuilder().setLine(i).setScmAuthor("author@sonarsource.com").setScmRevision("cb4d3dc0b3bd2f0e72e3bdbd0d7a53f6c1ef8e4a").setScmDate(1_500_000_000_000L + i);
+    }
+
+    assertThat(ScmData.encode(data.getLinesList()).length).isLessThan(5_000);
+  }
+}
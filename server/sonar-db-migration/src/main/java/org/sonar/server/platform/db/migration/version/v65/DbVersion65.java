@@ -55,6 +55,7 @@ public class DbVersion65 implements DbVersion {
       .add(1726, "Update org_qprofiles to reference built-in profiles", UpdateOrgQProfilesToPointToBuiltInProfiles.class)
       .add(1727, "Delete rules_profiles orphans", DeleteOrphansFromRulesProfiles.class)
       .add(1728, "Rename column qprofile_changes.qprofile_key to qprofile_changes.rules_profile_uuid", RenameQProfileKeyToRulesProfileUuidOnQProfileChanges.class)
-      .add(1729, "Add index on qprofile_changes.rules_profile_uuid", AddIndexRulesProfileUuidOnQProfileChanges.class);
+      .add(1729, "Add index on qprofile_changes.rules_profile_uuid", AddIndexRulesProfileUuidOnQProfileChanges.class)
+      .add(1730, "Add file_sources.scm_data", AddScmDataToFileSources.class);
   }
 }
@@ -35,6 +35,6 @@ public class DbVersion65Test {
 
   @Test
   public void verify_migration_count() {
-    verifyMigrationCount(underTest, 30);
+    verifyMigrationCount(underTest, 31);
   }
 }
@@ -21,6 +21,8 @@ package org.sonar.application;
 
 import java.util.EnumMap;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -38,6 +40,7 @@ import org.sonar.application.process.ProcessEventListener;
 import org.sonar.application.process.ProcessLifecycleListener;
 import org.sonar.application.process.SQProcess;
 import org.sonar.process.ProcessId;
+import org.sonar.process.ProcessProperties;
 
 public class SchedulerImpl implements Scheduler, ProcessEventListener, ProcessLifecycleListener, AppStateListener {
 
@@ -54,6 +57,7 @@ public class SchedulerImpl implements Scheduler, ProcessEventListener, ProcessLi
   private final AtomicBoolean restartRequested = new AtomicBoolean(false);
   private final AtomicBoolean restartDisabled = new AtomicBoolean(false);
   private final EnumMap<ProcessId, SQProcess> processesById = new EnumMap<>(ProcessId.class);
+  private final Set<ProcessId> startedProcesses = ConcurrentHashMap.newKeySet();
   private final AtomicInteger operationalCountDown = new AtomicInteger();
   private final AtomicInteger stopCountDown = new AtomicInteger(0);
   private StopperThread stopperThread;
@@ -82,6 +86,7 @@ public class SchedulerImpl implements Scheduler, ProcessEventListener, ProcessLi
       return;
     }
     processesById.clear();
+    startedProcesses.clear();
 
     for (ProcessId processId : ClusterSettings.getEnabledProcesses(settings)) {
       SQProcess process = SQProcess.builder(processId)
@@ -130,11 +135,22 @@ public class SchedulerImpl implements Scheduler, ProcessEventListener, ProcessLi
 
   private void tryToStartCe() {
     SQProcess process = processesById.get(ProcessId.COMPUTE_ENGINE);
-    if (process != null && appState.isOperational(ProcessId.WEB_SERVER, false) && isEsClientStartable()) {
+    if (process != null && (appState.isOperational(ProcessId.WEB_SERVER, false) || isLocalWebServerStarted()) && isEsClientStartable()) {
       tryToStartProcess(process, javaCommandFactory::createCeCommand);
     }
   }
 
+  /**
+   * With {@link ProcessProperties#CE_PARALLEL_STARTUP}, the Compute Engine does not wait for the web server of the
+   * same node to be operational. It waits by itself before the steps which require the web server.
+   */
+  private boolean isLocalWebServerStarted() {
+    if (!settings.getProps().valueAsBoolean(ProcessProperties.CE_PARALLEL_STARTUP, false)) {
+      return false;
+    }
+    return startedProcesses.contains(ProcessId.WEB_SERVER);
+  }
+
   private boolean isEsClientStartable() {
     boolean requireLocalEs = ClusterSettings.isLocalElasticsearchEnabled(settings);
     return appState.isOperational(ProcessId.ELASTICSEARCH, requireLocalEs);
@@ -231,11 +247,18 @@ public class SchedulerImpl implements Scheduler, ProcessEventListener, ProcessLi
   public void onProcessState(ProcessId processId, Lifecycle.State to) {
     switch (to) {
       case STOPPED:
+        startedProcesses.remove(processId);
         onProcessStop(processId);
         break;
       case STARTING:
         stopCountDown.incrementAndGet();
         break;
+      case STARTED:
+        startedProcesses.add(processId);
+        break;
+      case STOPPING:
+        startedProcesses.remove(processId);
+        break;
       default:
         // Nothing to do
         break;
@@ -115,6 +115,26 @@ public class SchedulerImplTest {
     underTest.awaitTermination();
   }
 
+  @Test
+  public void compute_engine_starts_with_web_server_if_parallel_startup_is_enabled() throws Exception {
+    enableAllProcesses();
+    settings.set(ProcessProperties.CE_PARALLEL_STARTUP, "true");
+    SchedulerImpl underTest = newScheduler();
+    underTest.schedule();
+
+    TestProcess es = processLauncher.waitForProcess(ELASTICSEARCH);
+    assertThat(processLauncher.processes).hasSize(1);
+
+    // elasticsearch becomes operational -> web and CE are starting
+    es.operational = true;
+    waitForAppStateOperational(ELASTICSEARCH);
+    processLauncher.waitForProcessAlive(WEB_SERVER);
+    processLauncher.waitForProcessAlive(COMPUTE_ENGINE);
+    assertThat(processLauncher.commands).containsExactly(ES_COMMAND, WEB_LEADER_COMMAND, CE_COMMAND);
+
+    underTest.terminate();
+  }
+
   private void enableAllProcesses() {
     settings.set(ProcessProperties.CLUSTER_ENABLED, "true");
   }
@@ -75,6 +75,16 @@ public class ProcessProperties {
   public static final String WEB_JAVA_ADDITIONAL_OPTS = "sonar.web.javaAdditionalOpts";
   public static final String CE_JAVA_OPTS = "sonar.ce.javaOpts";
   public static final String CE_JAVA_ADDITIONAL_OPTS = "sonar.ce.javaAdditionalOpts";
+  /**
+   * When true, the Compute Engine of the node is launched together with its web server instead of waiting for the
+   * web server to be operational. The Compute Engine bootstraps up to the steps which require an up-to-date database.
+   */
+  public static final String CE_PARALLEL_STARTUP = "sonar.ce.parallelStartup";
+
+  /**
+   * Maximum number of minutes the Compute Engine waits for the web server when {@link #CE_PARALLEL_STARTUP} is enabled.
+   */
+  public static final String CE_PARALLEL_STARTUP_TIMEOUT = "sonar.ce.parallelStartup.timeoutInMinutes";
 
   /**
    * Used by Orchestrator to ask for shutdown of monitor process
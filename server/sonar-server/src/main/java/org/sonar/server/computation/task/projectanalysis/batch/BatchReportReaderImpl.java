@@ -33,11 +33,12 @@ import javax.annotation.CheckForNull;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
   private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
@@ -48,6 +49,19 @@ public class BatchReportReaderImpl implements BatchReportReader {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
   }
 
+  @Override
+  public void start() {
+    // nothing to do, report is loaded on first read
+  }
+
+  @Override
+  public void stop() {
+    // release the handles of segment files, so that the report directory can be deleted
+    if (delegate != null) {
+      delegate.close();
+    }
+  }
+
   private void ensureInitialized() {
     if (this.delegate == null) {
       this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
@@ -20,10 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.formula;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.ImmutableList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import com.google.common.collect.Iterables;
 import javax.annotation.CheckForNull;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor;
@@ -38,39 +35,39 @@ import org.sonar.server.computation.task.projectanalysis.period.PeriodHolder;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Executes a set of {@link Formula} on the component tree.
+ * <p>
+ * The formulas are compiled once into arrays: counters of a node are stored in an array indexed by the position of the
+ * formula, and the output metrics of each formula are resolved only once. The contexts handed over to the formulas
+ * are reused from one component to the other.
+ * </p>
+ */
 public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<FormulaExecutorComponentVisitor.Counters> {
-  private static final SimpleStackElementFactory<Counters> COUNTERS_FACTORY = new SimpleStackElementFactory<Counters>() {
-
-    @Override
-    public Counters createForAny(Component component) {
-      return new Counters();
-    }
-
-    @Override
-    public Counters createForFile(Component component) {
-      // No need to create a counter on leaf levels
-      return null;
-    }
-
-    @Override
-    public Counters createForProjectView(Component projectView) {
-      // No need to create a counter on leaf levels
-      return null;
-    }
-  };
 
   @CheckForNull
   private final PeriodHolder periodHolder;
   private final MetricRepository metricRepository;
   private final MeasureRepository measureRepository;
-  private final List<Formula> formulas;
-
-  private FormulaExecutorComponentVisitor(Builder builder, Iterable<Formula> formulas) {
-    super(CrawlerDepthLimit.LEAVES, ComponentVisitor.Order.POST_ORDER, COUNTERS_FACTORY);
+  private final Formula[] formulas;
+  private final String[][] outputMetricKeys;
+  private final CounterInitializationContextImpl counterInitializationContext = new CounterInitializationContextImpl();
+  private final CreateMeasureContextImpl createMeasureContext = new CreateMeasureContextImpl();
+  /**
+   * Metrics are resolved on first use, as {@link MetricRepository} may not be populated when formulas are built
+   */
+  private Metric[][] outputMetrics;
+
+  private FormulaExecutorComponentVisitor(Builder builder, Formula[] formulas) {
+    super(CrawlerDepthLimit.LEAVES, ComponentVisitor.Order.POST_ORDER, new CountersFactory(formulas.length));
     this.periodHolder = builder.periodHolder;
     this.measureRepository = builder.measureRepository;
     this.metricRepository = builder.metricRepository;
-    this.formulas = ImmutableList.copyOf(formulas);
+    this.formulas = formulas;
+    this.outputMetricKeys = new String[formulas.length][];
+    for (int i = 0; i < formulas.length; i++) {
+      this.outputMetricKeys[i] = formulas[i].getOutputMetricKeys();
+    }
   }
 
   public static Builder newBuilder(MetricRepository metricRepository, MeasureRepository measureRepository) {
@@ -98,7 +95,32 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     }
 
     public FormulaExecutorComponentVisitor buildFor(Iterable<Formula> formulas) {
-      return new FormulaExecutorComponentVisitor(this, formulas);
+      return new FormulaExecutorComponentVisitor(this, Iterables.toArray(formulas, Formula.class));
+    }
+  }
+
+  private static final class CountersFactory extends SimpleStackElementFactory<Counters> {
+    private final int formulaCount;
+
+    private CountersFactory(int formulaCount) {
+      this.formulaCount = formulaCount;
+    }
+
+    @Override
+    public Counters createForAny(Component component) {
+      return new Counters(formulaCount);
+    }
+
+    @Override
+    public Counters createForFile(Component component) {
+      // No need to create a counter on leaf levels
+      return null;
+    }
+
+    @Override
+    public Counters createForProjectView(Component projectView) {
+      // No need to create a counter on leaf levels
+      return null;
     }
   }
 
@@ -146,54 +168,66 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
   }
 
   private void processNotLeaf(Component component, Path<FormulaExecutorComponentVisitor.Counters> path) {
-    for (Formula formula : formulas) {
-      Counter counter = path.current().getCounter(formula);
+    Counters counters = path.current();
+    for (int i = 0; i < formulas.length; i++) {
+      Counter counter = counters.getCounter(i);
       // If there were no file under this node, the counter won't be initialized
       if (counter != null) {
-        for (String metricKey : formula.getOutputMetricKeys()) {
-          addNewMeasure(component, metricKey, formula, counter);
-        }
-        aggregateToParent(path, formula, counter);
+        addNewMeasures(component, i, counter);
+        aggregateToParent(path, i, counter);
       }
     }
   }
 
   private void processLeaf(Component file, Path<FormulaExecutorComponentVisitor.Counters> path) {
-    CounterInitializationContext counterContext = new CounterInitializationContextImpl(file);
-    for (Formula formula : formulas) {
-      Counter counter = formula.createNewCounter();
-      counter.initialize(counterContext);
-      for (String metricKey : formula.getOutputMetricKeys()) {
-        addNewMeasure(file, metricKey, formula, counter);
-      }
-      aggregateToParent(path, formula, counter);
+    counterInitializationContext.file = file;
+    for (int i = 0; i < formulas.length; i++) {
+      Counter counter = formulas[i].createNewCounter();
+      counter.initialize(counterInitializationContext);
+      addNewMeasures(file, i, counter);
+      aggregateToParent(path, i, counter);
     }
   }
 
-  private void addNewMeasure(Component component, String metricKey, Formula formula, Counter counter) {
+  private void addNewMeasures(Component component, int formulaIndex, Counter counter) {
     // no new measure can be created by formulas for PROJECT_VIEW components, their measures are the copy
     if (component.getType() == Component.Type.PROJECT_VIEW) {
       return;
     }
-    Metric metric = metricRepository.getByKey(metricKey);
-    Optional<Measure> measure = formula.createMeasure(counter, new CreateMeasureContextImpl(component, metric));
-    if (measure.isPresent()) {
-      measureRepository.add(component, metric, measure.get());
+    Formula formula = formulas[formulaIndex];
+    Metric[] metrics = getOutputMetrics(formulaIndex);
+    createMeasureContext.component = component;
+    for (Metric metric : metrics) {
+      createMeasureContext.metric = metric;
+      Optional<Measure> measure = formula.createMeasure(counter, createMeasureContext);
+      if (measure.isPresent()) {
+        measureRepository.add(component, metric, measure.get());
+      }
+    }
+  }
+
+  private Metric[] getOutputMetrics(int formulaIndex) {
+    if (outputMetrics == null) {
+      outputMetrics = new Metric[formulas.length][];
+      for (int i = 0; i < formulas.length; i++) {
+        String[] metricKeys = outputMetricKeys[i];
+        outputMetrics[i] = new Metric[metricKeys.length];
+        for (int j = 0; j < metricKeys.length; j++) {
+          outputMetrics[i][j] = metricRepository.getByKey(metricKeys[j]);
+        }
+      }
     }
+    return outputMetrics[formulaIndex];
   }
 
-  private static void aggregateToParent(Path<FormulaExecutorComponentVisitor.Counters> path, Formula formula, Counter currentCounter) {
+  private static void aggregateToParent(Path<FormulaExecutorComponentVisitor.Counters> path, int formulaIndex, Counter currentCounter) {
     if (!path.isRoot()) {
-      path.parent().aggregate(formula, currentCounter);
+      path.parent().aggregate(formulaIndex, currentCounter);
     }
   }
 
   private class CounterInitializationContextImpl implements CounterInitializationContext {
-    private final Component file;
-
-    public CounterInitializationContextImpl(Component file) {
-      this.file = file;
-    }
+    private Component file;
 
     @Override
     public Component getLeaf() {
@@ -216,13 +250,20 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     }
   }
 
+  /**
+   * Counters of a node, indexed by the position of the formula
+   */
   public static class Counters {
-    Map<Formula, Counter> countersByFormula = new HashMap<>();
+    private final Counter[] countersByFormulaIndex;
+
+    Counters(int formulaCount) {
+      this.countersByFormulaIndex = new Counter[formulaCount];
+    }
 
-    public void aggregate(Formula formula, Counter childCounter) {
-      Counter counter = countersByFormula.get(formula);
+    public void aggregate(int formulaIndex, Counter childCounter) {
+      Counter counter = countersByFormulaIndex[formulaIndex];
       if (counter == null) {
-        countersByFormula.put(formula, childCounter);
+        countersByFormulaIndex[formulaIndex] = childCounter;
       } else {
         counter.aggregate(childCounter);
       }
@@ -232,19 +273,14 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
      * Counter can be null on a level when it has not been fed by children levels
      */
     @CheckForNull
-    public Counter getCounter(Formula formula) {
-      return countersByFormula.get(formula);
+    public Counter getCounter(int formulaIndex) {
+      return countersByFormulaIndex[formulaIndex];
     }
   }
 
   private class CreateMeasureContextImpl implements CreateMeasureContext {
-    private final Component component;
-    private final Metric metric;
-
-    public CreateMeasureContextImpl(Component component, Metric metric) {
-      this.component = component;
-      this.metric = metric;
-    }
+    private Component component;
+    private Metric metric;
 
     @Override
     public Component getComponent() {
@@ -26,11 +26,15 @@ import javax.annotation.CheckForNull;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleMetadataDto;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
+import org.sonar.server.rule.RuleDefinitionsCache;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 
 public class RuleRepositoryImpl implements RuleRepository {
 
@@ -41,10 +45,12 @@ public class RuleRepositoryImpl implements RuleRepository {
 
   private final DbClient dbClient;
   private final AnalysisMetadataHolder analysisMetadataHolder;
+  private final RuleDefinitionsCache ruleDefinitionsCache;
 
-  public RuleRepositoryImpl(DbClient dbClient, AnalysisMetadataHolder analysisMetadataHolder) {
+  public RuleRepositoryImpl(DbClient dbClient, AnalysisMetadataHolder analysisMetadataHolder, RuleDefinitionsCache ruleDefinitionsCache) {
     this.dbClient = dbClient;
     this.analysisMetadataHolder = analysisMetadataHolder;
+    this.ruleDefinitionsCache = ruleDefinitionsCache;
   }
 
   @Override
@@ -99,10 +105,15 @@ public class RuleRepositoryImpl implements RuleRepository {
     ImmutableMap.Builder<RuleKey, Rule> rulesByKeyBuilder = ImmutableMap.builder();
     ImmutableMap.Builder<Integer, Rule> rulesByIdBuilder = ImmutableMap.builder();
     String organizationUuid = analysisMetadataHolder.getOrganization().getUuid();
-    for (RuleDto ruleDto : dbClient.ruleDao().selectAll(dbSession, organizationUuid)) {
-      Rule rule = new RuleImpl(ruleDto);
-      rulesByKeyBuilder.put(ruleDto.getKey(), rule);
-      rulesByIdBuilder.put(ruleDto.getId(), rule);
+    // definitions are shared by all the tasks, only the metadata of the organization are loaded
+    Map<Integer, RuleMetadataDto> metadataByRuleId = dbClient.ruleDao().selectMetadataByOrganization(dbSession, organizationUuid)
+      .stream()
+      .collect(uniqueIndex(RuleMetadataDto::getRuleId));
+    for (RuleDefinitionDto definition : ruleDefinitionsCache.get(dbSession).getDefinitions()) {
+      RuleMetadataDto metadata = metadataByRuleId.get(definition.getId());
+      Rule rule = new RuleImpl(new RuleDto(definition, metadata == null ? new RuleMetadataDto() : metadata));
+      rulesByKeyBuilder.put(definition.getKey(), rule);
+      rulesByIdBuilder.put(definition.getId(), rule);
     }
     this.rulesByKey = rulesByKeyBuilder.build();
     this.rulesById = rulesByIdBuilder.build();
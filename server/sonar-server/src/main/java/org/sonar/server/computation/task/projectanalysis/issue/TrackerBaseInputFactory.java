@@ -19,8 +19,11 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.core.issue.DefaultIssue;
@@ -30,20 +33,34 @@ import org.sonar.core.issue.tracking.LineHashSequence;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository.OriginalFile;
 
 /**
  * Factory of {@link Input} of base data for issue tracking. Data are lazy-loaded.
+ * <p>
+ * Files are tracked in the order of the component tree. When the base data of a file is
+ * requested, the open issues of the next {@link #READ_AHEAD_FILES} files are loaded
+ * with a single request, as well as the line hashes of those which have open issues.
+ * Previously read-ahead data is dropped, so that memory stays bounded.
  */
 public class TrackerBaseInputFactory {
   private static final LineHashSequence EMPTY_LINE_HASH_SEQUENCE = new LineHashSequence(Collections.<String>emptyList());
+  static final int READ_AHEAD_FILES = 100;
 
+  private final TreeRootHolder treeRootHolder;
   private final BaseIssuesLoader baseIssuesLoader;
   private final DbClient dbClient;
   private final MovedFilesRepository movedFilesRepository;
 
-  public TrackerBaseInputFactory(BaseIssuesLoader baseIssuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository) {
+  private List<Component> filesInTreeOrder;
+  private Map<String, Integer> fileIndexesByUuid;
+  private final Map<String, List<DefaultIssue>> readAheadIssues = new HashMap<>();
+  private final Map<String, List<String>> readAheadLineHashes = new HashMap<>();
+
+  public TrackerBaseInputFactory(TreeRootHolder treeRootHolder, BaseIssuesLoader baseIssuesLoader, DbClient dbClient, MovedFilesRepository movedFilesRepository) {
+    this.treeRootHolder = treeRootHolder;
     this.baseIssuesLoader = baseIssuesLoader;
     this.dbClient = dbClient;
     this.movedFilesRepository = movedFilesRepository;
@@ -53,6 +70,50 @@ public class TrackerBaseInputFactory {
     return new BaseLazyInput(component, movedFilesRepository.getOriginalFile(component).orNull());
   }
 
+  private String getEffectiveUuid(Component file) {
+    OriginalFile originalFile = movedFilesRepository.getOriginalFile(file).orNull();
+    return originalFile == null ? file.getUuid() : originalFile.getUuid();
+  }
+
+  private void readAhead(Component file) {
+    if (filesInTreeOrder == null) {
+      filesInTreeOrder = new ArrayList<>();
+      fileIndexesByUuid = new HashMap<>();
+      collectFiles(treeRootHolder.getRoot());
+    }
+    Integer index = fileIndexesByUuid.get(file.getUuid());
+    if (index == null) {
+      return;
+    }
+    readAheadIssues.clear();
+    readAheadLineHashes.clear();
+    List<String> uuids = new ArrayList<>(READ_AHEAD_FILES);
+    for (Component f : filesInTreeOrder.subList(index, Math.min(index + READ_AHEAD_FILES, filesInTreeOrder.size()))) {
+      uuids.add(getEffectiveUuid(f));
+    }
+    readAheadIssues.putAll(baseIssuesLoader.loadForComponentUuids(uuids));
+
+    List<String> uuidsWithIssues = new ArrayList<>();
+    readAheadIssues.forEach((uuid, issues) -> {
+      if (!issues.isEmpty()) {
+        uuidsWithIssues.add(uuid);
+      }
+    });
+    if (!uuidsWithIssues.isEmpty()) {
+      try (DbSession session = dbClient.openSession(false)) {
+        readAheadLineHashes.putAll(dbClient.fileSourceDao().selectLineHashesByFileUuids(session, uuidsWithIssues));
+      }
+    }
+  }
+
+  private void collectFiles(Component component) {
+    if (component.getType() == Component.Type.FILE) {
+      fileIndexesByUuid.put(component.getUuid(), filesInTreeOrder.size());
+      filesInTreeOrder.add(component);
+    }
+    component.getChildren().forEach(this::collectFiles);
+  }
+
   private class BaseLazyInput extends LazyInput<DefaultIssue> {
     private final Component component;
     @CheckForNull
@@ -69,17 +130,29 @@ public class TrackerBaseInputFactory {
         return EMPTY_LINE_HASH_SEQUENCE;
       }
 
-      try (DbSession session = dbClient.openSession(false)) {
-        List<String> hashes = dbClient.fileSourceDao().selectLineHashes(session, effectiveUuid);
-        if (hashes == null || hashes.isEmpty()) {
-          return EMPTY_LINE_HASH_SEQUENCE;
+      List<String> hashes = readAheadLineHashes.remove(effectiveUuid);
+      if (hashes == null) {
+        try (DbSession session = dbClient.openSession(false)) {
+          hashes = dbClient.fileSourceDao().selectLineHashes(session, effectiveUuid);
         }
-        return new LineHashSequence(hashes);
       }
+      if (hashes == null || hashes.isEmpty()) {
+        return EMPTY_LINE_HASH_SEQUENCE;
+      }
+      return new LineHashSequence(hashes);
     }
 
     @Override
     protected List<DefaultIssue> loadIssues() {
+      if (component.getType() == Component.Type.FILE) {
+        if (!readAheadIssues.containsKey(effectiveUuid)) {
+          readAhead(component);
+        }
+        List<DefaultIssue> issues = readAheadIssues.remove(effectiveUuid);
+        if (issues != null) {
+          return issues;
+        }
+      }
       return baseIssuesLoader.loadForComponentUuid(effectiveUuid);
     }
   }
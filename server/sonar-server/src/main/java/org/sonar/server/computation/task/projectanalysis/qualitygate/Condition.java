@@ -23,6 +23,8 @@ import com.google.common.base.MoreObjects;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.server.computation.task.projectanalysis.measure.Measure;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 
 import static java.util.Objects.hash;
@@ -52,6 +54,15 @@ public class Condition {
   @CheckForNull
   private final String errorThreshold;
   private final boolean hasPeriod;
+  /**
+   * Thresholds converted to the value type of the metric, so that they are not parsed for each evaluated measure.
+   * {@code null} if the threshold is not set or can't be converted. {@link ConditionEvaluator} fails on evaluation
+   * of thresholds which can't be converted.
+   */
+  @CheckForNull
+  private final Comparable errorThresholdValue;
+  @CheckForNull
+  private final Comparable warningThresholdValue;
 
   public Condition(Metric metric, String operator,
     @Nullable String errorThreshold, @Nullable String warningThreshold,
@@ -61,6 +72,44 @@ public class Condition {
     this.hasPeriod = hasPeriod;
     this.errorThreshold = errorThreshold;
     this.warningThreshold = warningThreshold;
+    this.errorThresholdValue = parseThreshold(metric, errorThreshold);
+    this.warningThresholdValue = parseThreshold(metric, warningThreshold);
+  }
+
+  @CheckForNull
+  private static Comparable parseThreshold(Metric metric, @Nullable String threshold) {
+    Metric.MetricType metricType = metric.getType();
+    if (StringUtils.isEmpty(threshold) || metricType == null) {
+      return null;
+    }
+    try {
+      return parseThreshold(metricType.getValueType(), threshold);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @CheckForNull
+  private static Comparable parseThreshold(Measure.ValueType valueType, String threshold) {
+    switch (valueType) {
+      case BOOLEAN:
+        return Integer.parseInt(threshold) == 1;
+      case INT:
+        return parseInteger(threshold);
+      case LONG:
+        return Long.parseLong(threshold);
+      case DOUBLE:
+        return Double.parseDouble(threshold);
+      case STRING:
+      case LEVEL:
+        return threshold;
+      default:
+        return null;
+    }
+  }
+
+  private static Comparable<Integer> parseInteger(String value) {
+    return value.contains(".") ? Integer.parseInt(value.substring(0, value.indexOf('.'))) : Integer.parseInt(value);
   }
 
   private static Operator parseFromDbValue(String str) {
@@ -94,6 +143,16 @@ public class Condition {
     return errorThreshold;
   }
 
+  @CheckForNull
+  Comparable getErrorThresholdValue() {
+    return errorThresholdValue;
+  }
+
+  @CheckForNull
+  Comparable getWarningThresholdValue() {
+    return warningThresholdValue;
+  }
+
   @Override
   public boolean equals(@Nullable Object o) {
     if (this == o) {
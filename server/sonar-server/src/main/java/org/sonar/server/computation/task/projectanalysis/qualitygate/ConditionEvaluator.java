@@ -41,28 +41,44 @@ public final class ConditionEvaluator {
       return new EvaluationResult(Measure.Level.OK, null);
     }
 
-    return evaluateCondition(condition, measureComparable, Measure.Level.ERROR)
-      .orElse(evaluateCondition(condition, measureComparable, Measure.Level.WARN)
-        .orElse(new EvaluationResult(Measure.Level.OK, measureComparable)));
+    // warning threshold is not evaluated when the error one is reached
+    Optional<EvaluationResult> errorResult = evaluateCondition(condition, measureComparable, Measure.Level.ERROR);
+    if (errorResult.isPresent()) {
+      return errorResult.get();
+    }
+    return evaluateCondition(condition, measureComparable, Measure.Level.WARN)
+      .orElseGet(() -> new EvaluationResult(Measure.Level.OK, measureComparable));
   }
 
   private static Optional<EvaluationResult> evaluateCondition(Condition condition, Comparable<?> measureComparable, Measure.Level alertLevel) {
-    String conditionValue = getValueToEval(condition, alertLevel);
-    if (StringUtils.isEmpty(conditionValue)) {
+    Comparable conditionComparable = getThresholdValue(condition, alertLevel);
+    if (conditionComparable == null) {
       return Optional.empty();
     }
+    if (doesReachThresholds(measureComparable, conditionComparable, condition)) {
+      return of(new EvaluationResult(alertLevel, measureComparable));
+    }
+    return Optional.empty();
+  }
 
-    try {
-      Comparable conditionComparable = parseConditionValue(condition.getMetric(), conditionValue);
-      if (doesReachThresholds(measureComparable, conditionComparable, condition)) {
-        return of(new EvaluationResult(alertLevel, measureComparable));
-      }
-      return Optional.empty();
-    } catch (NumberFormatException badValueFormat) {
-      throw new IllegalArgumentException(String.format(
-        "Quality Gate: Unable to parse value '%s' to compare against %s",
-        conditionValue, condition.getMetric().getName()));
+  /**
+   * Threshold of the condition for the specified level, as converted to the value type of the metric
+   * when the condition was created.
+   */
+  @CheckForNull
+  private static Comparable getThresholdValue(Condition condition, Measure.Level alertLevel) {
+    Comparable thresholdValue = Measure.Level.ERROR.equals(alertLevel) ? condition.getErrorThresholdValue() : condition.getWarningThresholdValue();
+    if (thresholdValue != null) {
+      return thresholdValue;
+    }
+
+    String conditionValue = getValueToEval(condition, alertLevel);
+    if (StringUtils.isEmpty(conditionValue)) {
+      return null;
     }
+    throw new IllegalArgumentException(String.format(
+      "Quality Gate: Unable to parse value '%s' to compare against %s",
+      conditionValue, condition.getMetric().getName()));
   }
 
   private static String getValueToEval(Condition condition, Measure.Level alertLevel) {
@@ -91,28 +107,6 @@ public final class ConditionEvaluator {
     }
   }
 
-  private static Comparable parseConditionValue(Metric metric, String value) {
-    switch (metric.getType().getValueType()) {
-      case BOOLEAN:
-        return Integer.parseInt(value) == 1;
-      case INT:
-        return parseInteger(value);
-      case LONG:
-        return Long.parseLong(value);
-      case DOUBLE:
-        return Double.parseDouble(value);
-      case STRING:
-      case LEVEL:
-        return value;
-      default:
-        throw new IllegalArgumentException(String.format("Unsupported value type %s. Can not convert condition value", metric.getType().getValueType()));
-    }
-  }
-
-  private static Comparable<Integer> parseInteger(String value) {
-    return value.contains(".") ? Integer.parseInt(value.substring(0, value.indexOf('.'))) : Integer.parseInt(value);
-  }
-
   @CheckForNull
   private static Comparable parseMeasure(Condition condition, Measure measure) {
     if (condition.hasPeriod()) {
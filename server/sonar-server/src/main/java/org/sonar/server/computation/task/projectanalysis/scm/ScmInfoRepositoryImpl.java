@@ -99,11 +99,11 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
 
     LOGGER.trace("Reading SCM info from db for file '{}'", file.getKey());
     try (DbSession dbSession = dbClient.openSession(false)) {
-      FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, file.getUuid());
+      FileSourceDto dto = dbClient.fileSourceDao().selectScmByFileUuid(dbSession, file.getUuid());
       if (dto == null || !sourceHashRepository.getRawSourceHash(file).equals(dto.getSrcHash())) {
         return NoScmInfo.INSTANCE;
       }
-      return DbScmInfo.create(file, dto.getSourceData().getLinesList()).or(NoScmInfo.INSTANCE);
+      return DbScmInfo.create(file, dto.getScmLines()).or(NoScmInfo.INSTANCE);
     }
   }
 
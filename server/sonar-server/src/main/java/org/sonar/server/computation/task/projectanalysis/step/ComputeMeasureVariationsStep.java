@@ -20,8 +20,10 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,12 +45,13 @@ import org.sonar.server.computation.task.projectanalysis.measure.MeasureKey;
 import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
 import org.sonar.server.computation.task.projectanalysis.metric.MetricRepository;
-import org.sonar.server.computation.task.projectanalysis.period.Period;
 import org.sonar.server.computation.task.projectanalysis.period.PeriodHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.function.Function.identity;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
@@ -63,6 +66,9 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
  */
 public class ComputeMeasureVariationsStep implements ComputationStep {
 
+  // measures on files are currently purged, so past measures are not available on files
+  private static final CrawlerDepthLimit VISITED_DEPTH = CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW);
+
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
   private final PeriodHolder periodHolder;
@@ -82,22 +88,47 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
   public void execute() {
     try (DbSession dbSession = dbClient.openSession(false)) {
       List<Metric> metrics = StreamSupport.stream(metricRepository.getAll().spliterator(), false).filter(isNumeric()).collect(MoreCollectors.toList());
-      new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(dbSession, metrics))
+      Map<String, List<PastMeasureDto>> pastMeasuresByComponentUuid = loadPastMeasures(dbSession, metrics);
+      new DepthTraversalTypeAwareCrawler(new VariationMeasuresVisitor(pastMeasuresByComponentUuid, metrics))
         .visit(treeRootHolder.getRoot());
     }
   }
 
+  /**
+   * Past measures of all the visited components are loaded with a single request, instead of
+   * one request per component.
+   */
+  private Map<String, List<PastMeasureDto>> loadPastMeasures(DbSession dbSession, List<Metric> metrics) {
+    if (!periodHolder.hasPeriod() || metrics.isEmpty()) {
+      return emptyMap();
+    }
+    Set<String> componentUuids = new HashSet<>();
+    new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(VISITED_DEPTH, PRE_ORDER) {
+      @Override
+      public void visitAny(Component component) {
+        componentUuids.add(component.getUuid());
+      }
+    }).visit(treeRootHolder.getRoot());
+    Set<Integer> metricIds = metrics.stream().map(Metric::getId).collect(MoreCollectors.toSet());
+
+    Map<String, List<PastMeasureDto>> result = new HashMap<>(componentUuids.size());
+    dbClient.measureDao().selectPastMeasures(dbSession, periodHolder.getPeriod().getAnalysisUuid(), context -> {
+      PastMeasureDto pastMeasure = (PastMeasureDto) context.getResultObject();
+      if (componentUuids.contains(pastMeasure.getComponentUuid()) && metricIds.contains(pastMeasure.getMetricId())) {
+        result.computeIfAbsent(pastMeasure.getComponentUuid(), k -> new ArrayList<>()).add(pastMeasure);
+      }
+    });
+    return result;
+  }
+
   private class VariationMeasuresVisitor extends TypeAwareVisitorAdapter {
 
-    private final DbSession session;
-    private final Set<Integer> metricIds;
+    private final Map<String, List<PastMeasureDto>> pastMeasuresByComponentUuid;
     private final List<Metric> metrics;
 
-    VariationMeasuresVisitor(DbSession session, List<Metric> metrics) {
-      // measures on files are currently purged, so past measures are not available on files
-      super(CrawlerDepthLimit.reportMaxDepth(DIRECTORY).withViewsMaxDepth(SUBVIEW), PRE_ORDER);
-      this.session = session;
-      this.metricIds = metrics.stream().map(Metric::getId).collect(MoreCollectors.toSet());
+    VariationMeasuresVisitor(Map<String, List<PastMeasureDto>> pastMeasuresByComponentUuid, List<Metric> metrics) {
+      super(VISITED_DEPTH, PRE_ORDER);
+      this.pastMeasuresByComponentUuid = pastMeasuresByComponentUuid;
       this.metrics = metrics;
     }
 
@@ -110,9 +141,7 @@ public class ComputeMeasureVariationsStep implements ComputationStep {
     private MeasuresWithVariationRepository computeMeasuresWithVariations(Component component) {
       MeasuresWithVariationRepository measuresWithVariationRepository = new MeasuresWithVariationRepository();
       if (periodHolder.hasPeriod()) {
-        Period period = periodHolder.getPeriod();
-        List<PastMeasureDto> pastMeasures = dbClient.measureDao()
-          .selectPastMeasures(session, component.getUuid(), period.getAnalysisUuid(), metricIds);
+        List<PastMeasureDto> pastMeasures = pastMeasuresByComponentUuid.getOrDefault(component.getUuid(), emptyList());
         setVariationMeasures(component, pastMeasures, measuresWithVariationRepository);
       }
       return measuresWithVariationRepository;
@@ -20,15 +20,17 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Predicate;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang.StringUtils;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.utils.System2;
@@ -58,6 +60,10 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 /**
  * Persist report components
  * Also feed the components cache {@link DbIdsRepositoryImpl} with component ids
+ * <p>
+ * Only a digest of the persisted fields of the existing components is kept in memory. Components which digest
+ * did not change are not updated, and inserts and updates are sent by JDBC batches.
+ * </p>
  */
 public class PersistComponentsStep implements ComputationStep {
   private final DbClient dbClient;
@@ -85,31 +91,44 @@ public class PersistComponentsStep implements ComputationStep {
 
   @Override
   public void execute() {
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try (DbSession dbSession = dbClient.openSession(true)) {
       String projectUuid = treeRootHolder.getRoot().getUuid();
 
       // safeguard, reset all rows to b-changed=false
       dbClient.componentDao().resetBChangedForRootComponentUuid(dbSession, projectUuid);
 
-      Map<String, ComponentDto> existingDtosByKeys = indexExistingDtosByKey(dbSession);
-      boolean isRootPrivate = isRootPrivate(treeRootHolder.getRoot(), existingDtosByKeys);
-      // Insert or update the components in database. They are removed from existingDtosByKeys
+      Map<String, ExistingComponent> existingComponentsByKey = indexExistingComponentsByKey(dbSession);
+      boolean isRootPrivate = isRootPrivate(treeRootHolder.getRoot(), existingComponentsByKey);
+      // Insert or update the components in database. They are removed from existingComponentsByKey
       // at the same time.
-      new PathAwareCrawler<>(new PersistComponentStepsVisitor(existingDtosByKeys, dbSession))
-        .visit(treeRootHolder.getRoot());
+      PersistComponentStepsVisitor visitor = new PersistComponentStepsVisitor(existingComponentsByKey, dbSession);
+      new PathAwareCrawler<>(visitor).visit(treeRootHolder.getRoot());
 
-      disableRemainingComponents(dbSession, existingDtosByKeys.values());
+      disableRemainingComponents(dbSession, existingComponentsByKey.values());
       ensureConsistentVisibility(dbSession, projectUuid, isRootPrivate);
 
       dbSession.commit();
+
+      populateCacheWithIdsOfInsertedComponents(dbSession, visitor.insertedComponentsByUuid);
+    }
+  }
+
+  /**
+   * Ids of the inserted components are generated by the database and can't be retrieved from batched inserts.
+   */
+  private void populateCacheWithIdsOfInsertedComponents(DbSession dbSession, Map<String, Component> insertedComponentsByUuid) {
+    if (insertedComponentsByUuid.isEmpty()) {
+      return;
     }
+    Map<String, Long> idsByUuid = dbClient.componentDao().selectIdsByUuids(dbSession, insertedComponentsByUuid.keySet());
+    insertedComponentsByUuid.forEach((uuid, component) -> dbIdsRepository.setComponentId(component, idsByUuid.get(uuid)));
   }
 
-  private void disableRemainingComponents(DbSession dbSession, Collection<ComponentDto> dtos) {
-    Set<String> uuids = dtos.stream()
-      .filter(ComponentDto::isEnabled)
-      .map(ComponentDto::uuid)
-      .collect(MoreCollectors.toSet(dtos.size()));
+  private void disableRemainingComponents(DbSession dbSession, Collection<ExistingComponent> existingComponents) {
+    Set<String> uuids = existingComponents.stream()
+      .filter(ExistingComponent::isEnabled)
+      .map(ExistingComponent::getUuid)
+      .collect(MoreCollectors.toSet(existingComponents.size()));
     dbClient.componentDao().updateBEnabledToFalse(dbSession, uuids);
     disabledComponentsHolder.setUuids(uuids);
   }
@@ -118,34 +137,38 @@ public class PersistComponentsStep implements ComputationStep {
     dbClient.componentDao().setPrivateForRootComponentUuid(dbSession, projectUuid, isRootPrivate);
   }
 
-  private static boolean isRootPrivate(Component root, Map<String, ComponentDto> existingDtosByKeys) {
+  private static boolean isRootPrivate(Component root, Map<String, ExistingComponent> existingComponentsByKey) {
     String rootKey = root.getKey();
-    ComponentDto rootDto = existingDtosByKeys.get(rootKey);
-    if (rootDto == null) {
+    ExistingComponent rootComponent = existingComponentsByKey.get(rootKey);
+    if (rootComponent == null) {
       if (Component.Type.VIEW == root.getType()) {
         return false;
       }
       throw new IllegalStateException(String.format("The project '%s' is not stored in the database, during a project analysis.", rootKey));
     }
-    return rootDto.isPrivate();
+    return rootComponent.isPrivate();
   }
 
   /**
    * Returns a mutable map of the components currently persisted in database for the project, including
-   * disabled components.
+   * disabled components. Rows are streamed from database and only their digest is kept in memory.
    */
-  private Map<String, ComponentDto> indexExistingDtosByKey(DbSession session) {
-    return dbClient.componentDao().selectAllComponentsFromProjectKey(session, treeRootHolder.getRoot().getKey())
-      .stream()
-      .collect(java.util.stream.Collectors.toMap(ComponentDto::key, Function.identity()));
+  private Map<String, ExistingComponent> indexExistingComponentsByKey(DbSession session) {
+    Map<String, ExistingComponent> res = new HashMap<>();
+    dbClient.componentDao().selectAllComponentsFromProjectKey(session, treeRootHolder.getRoot().getKey(), context -> {
+      ComponentDto dto = (ComponentDto) context.getResultObject();
+      res.put(dto.getKey(), new ExistingComponent(dto));
+    });
+    return res;
   }
 
   private class PersistComponentStepsVisitor extends PathAwareVisitorAdapter<ComponentDtoHolder> {
 
-    private final Map<String, ComponentDto> existingComponentDtosByKey;
+    private final Map<String, ExistingComponent> existingComponentsByKey;
     private final DbSession dbSession;
+    private final Map<String, Component> insertedComponentsByUuid = new HashMap<>();
 
-    public PersistComponentStepsVisitor(Map<String, ComponentDto> existingComponentDtosByKey, DbSession dbSession) {
+    public PersistComponentStepsVisitor(Map<String, ExistingComponent> existingComponentsByKey, DbSession dbSession) {
       super(
         CrawlerDepthLimit.LEAVES,
         PRE_ORDER,
@@ -167,7 +190,7 @@ public class PersistComponentsStep implements ComputationStep {
             return null;
           }
         });
-      this.existingComponentDtosByKey = existingComponentDtosByKey;
+      this.existingComponentsByKey = existingComponentsByKey;
       this.dbSession = dbSession;
     }
 
@@ -213,42 +236,24 @@ public class PersistComponentsStep implements ComputationStep {
       persistAndPopulateCache(projectView, dto);
     }
 
+    /**
+     * Returns the DTO to be kept in the {@link PathAwareVisitor.Path}. Its persisted fields are the ones
+     * of the component once b-changes are applied, hence the DTO built from the report can be used.
+     */
     private ComponentDto persistAndPopulateCache(Component component, ComponentDto dto) {
-      ComponentDto projectDto = persistComponent(dto);
-      addToCache(component, projectDto);
-      return projectDto;
-    }
-
-    private ComponentDto persistComponent(ComponentDto componentDto) {
-      ComponentDto existingComponent = existingComponentDtosByKey.remove(componentDto.getKey());
+      ExistingComponent existingComponent = existingComponentsByKey.remove(dto.getKey());
       if (existingComponent == null) {
-        dbClient.componentDao().insert(dbSession, componentDto);
-        return componentDto;
+        dbClient.componentDao().insertWithoutId(dbSession, dto);
+        // id is added to cache once inserts are flushed
+        insertedComponentsByUuid.put(dto.uuid(), component);
+        return dto;
       }
-      Optional<ComponentUpdateDto> update = compareForUpdate(existingComponent, componentDto);
-      if (update.isPresent()) {
-        ComponentUpdateDto updateDto = update.get();
-        dbClient.componentDao().update(dbSession, updateDto);
-
-        // update the fields in memory in order the PathAwareVisitor.Path
-        // to be up-to-date
-        existingComponent.setCopyComponentUuid(updateDto.getBCopyComponentUuid());
-        existingComponent.setDescription(updateDto.getBDescription());
-        existingComponent.setEnabled(updateDto.isBEnabled());
-        existingComponent.setUuidPath(updateDto.getBUuidPath());
-        existingComponent.setLanguage(updateDto.getBLanguage());
-        existingComponent.setLongName(updateDto.getBLongName());
-        existingComponent.setModuleUuid(updateDto.getBModuleUuid());
-        existingComponent.setModuleUuidPath(updateDto.getBModuleUuidPath());
-        existingComponent.setName(updateDto.getBName());
-        existingComponent.setPath(updateDto.getBPath());
-        existingComponent.setQualifier(updateDto.getBQualifier());
+      if (existingComponent.hasChanged(dto)) {
+        dbClient.componentDao().update(dbSession, ComponentUpdateDto.copyFrom(dto).setBChanged(true));
       }
-      return existingComponent;
-    }
-
-    private void addToCache(Component component, ComponentDto componentDto) {
-      dbIdsRepository.setComponentId(component, componentDto.getId());
+      dto.setId(existingComponent.getId());
+      dbIdsRepository.setComponentId(component, existingComponent.getId());
+      return dto;
     }
   }
 
@@ -405,32 +410,75 @@ public class PersistComponentsStep implements ComputationStep {
 
   }
 
-  private static Optional<ComponentUpdateDto> compareForUpdate(ComponentDto existing, ComponentDto target) {
-    boolean hasDifferences = !StringUtils.equals(existing.getCopyResourceUuid(), target.getCopyResourceUuid()) ||
-      !StringUtils.equals(existing.description(), target.description()) ||
-      !existing.isEnabled() ||
-      !StringUtils.equals(existing.getUuidPath(), target.getUuidPath()) ||
-      !StringUtils.equals(existing.language(), target.language()) ||
-      !StringUtils.equals(existing.longName(), target.longName()) ||
-      !StringUtils.equals(existing.moduleUuid(), target.moduleUuid()) ||
-      !StringUtils.equals(existing.moduleUuidPath(), target.moduleUuidPath()) ||
-      !StringUtils.equals(existing.name(), target.name()) ||
-      !StringUtils.equals(existing.path(), target.path()) ||
-      !StringUtils.equals(existing.qualifier(), target.qualifier());
-
-    ComponentUpdateDto update = null;
-    if (hasDifferences) {
-      update = ComponentUpdateDto
-        .copyFrom(target)
-        .setBChanged(true);
+  /**
+   * Digest of the fields of a component which are compared to decide whether it must be updated
+   */
+  private static HashCode digestOf(ComponentDto dto) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    putField(hasher, dto.getCopyResourceUuid());
+    putField(hasher, dto.description());
+    putField(hasher, dto.getUuidPath());
+    putField(hasher, dto.language());
+    putField(hasher, dto.longName());
+    putField(hasher, dto.moduleUuid());
+    putField(hasher, dto.moduleUuidPath());
+    putField(hasher, dto.name());
+    putField(hasher, dto.path());
+    putField(hasher, dto.qualifier());
+    return hasher.hash();
+  }
+
+  private static void putField(Hasher hasher, @Nullable String value) {
+    if (value == null) {
+      hasher.putInt(-1);
+    } else {
+      hasher.putInt(value.length()).putUnencodedChars(value);
     }
-    return Optional.ofNullable(update);
   }
 
   private static String getFileQualifier(Component component) {
     return component.getFileAttributes().isUnitTest() ? Qualifiers.UNIT_TEST_FILE : Qualifiers.FILE;
   }
 
+  /**
+   * Lightweight representation of a component persisted in database
+   */
+  private static final class ExistingComponent {
+    private final long id;
+    private final String uuid;
+    private final boolean enabled;
+    private final boolean isPrivate;
+    private final HashCode digest;
+
+    private ExistingComponent(ComponentDto dto) {
+      this.id = dto.getId();
+      this.uuid = dto.uuid();
+      this.enabled = dto.isEnabled();
+      this.isPrivate = dto.isPrivate();
+      this.digest = digestOf(dto);
+    }
+
+    long getId() {
+      return id;
+    }
+
+    String getUuid() {
+      return uuid;
+    }
+
+    boolean isEnabled() {
+      return enabled;
+    }
+
+    boolean isPrivate() {
+      return isPrivate;
+    }
+
+    boolean hasChanged(ComponentDto target) {
+      return !enabled || !digest.equals(digestOf(target));
+    }
+  }
+
   private static class ComponentDtoHolder {
     private ComponentDto dto;
 
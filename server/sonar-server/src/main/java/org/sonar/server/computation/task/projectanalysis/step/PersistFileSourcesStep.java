@@ -36,6 +36,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.FileSourceDto.Type;
+import org.sonar.db.source.ScmData;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
@@ -143,6 +144,7 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setFileUuid(componentUuid)
           .setDataType(Type.SOURCE)
           .setBinaryData(data)
+          .setScmData(ScmData.encode(fileData.getLinesList()))
           .setSrcHash(srcHash)
           .setDataHash(dataHash)
           .setLineHashes(lineHashes)
@@ -152,14 +154,16 @@ public class PersistFileSourcesStep implements ComputationStep {
         dbClient.fileSourceDao().insert(session, dto);
         session.commit();
       } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+        // Update only if data_hash has changed or if src_hash, revision or scm_data is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
         String revision = computeRevision(latestChange);
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
+        boolean scmDataMissing = !previousDto.isHasScmData();
+        if (binaryDataUpdated || srcHashUpdated || revisionUpdated || scmDataMissing) {
           previousDto
             .setBinaryData(data)
+            .setScmData(ScmData.encode(fileData.getLinesList()))
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
             .setLineHashes(lineHashes)
@@ -0,0 +1,305 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.systeminfo.SystemInfoSection;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+
+/**
+ * Sends webhooks outside the Compute Engine workers, so that slow endpoints do not delay
+ * the processing of the next tasks.
+ * <ul>
+ *   <li>deliveries are executed by a pool of {@link #WORKER_COUNT} threads</li>
+ *   <li>at most {@link #MAX_CONCURRENT_DELIVERIES_PER_URL} deliveries are sent concurrently to the same URL</li>
+ *   <li>network errors, except read timeouts, and HTTP 5xx responses are retried up to {@link #MAX_ATTEMPTS} times,
+ *   with exponential backoff</li>
+ *   <li>deliveries are persisted by batch</li>
+ * </ul>
+ * Pending deliveries are kept in memory. When more than {@link #MAX_PENDING_DELIVERIES} deliveries are pending,
+ * or when the queue is not started, webhooks are sent by the calling thread. Deliveries in progress
+ * are given {@link #STOP_TIMEOUT_MS} to complete when the Compute Engine stops. Retries which are scheduled
+ * but not started by then are dropped.
+ */
+@ComputeEngineSide
+public class WebhookDeliveryQueue implements Startable, SystemInfoSection {
+
+  static final int WORKER_COUNT = 5;
+  static final int MAX_PENDING_DELIVERIES = 1_000;
+  static final int MAX_CONCURRENT_DELIVERIES_PER_URL = 2;
+  static final int MAX_ATTEMPTS = 3;
+  private static final long FIRST_RETRY_DELAY_MS = 1_000L;
+  private static final long BUSY_URL_DELAY_MS = 100L;
+  private static final long FLUSH_DELAY_MS = 1_000L;
+  private static final long STOP_TIMEOUT_MS = 10_000L;
+  private static final String CONNECT_TIMEOUT_MESSAGE = "connect timed out";
+
+  private static final Logger LOGGER = Loggers.get(WebhookDeliveryQueue.class);
+
+  private final WebhookCaller caller;
+  private final WebhookDeliveryStorage storage;
+  private final long firstRetryDelayMs;
+
+  private final ConcurrentMap<String, Semaphore> permitsByUrl = new ConcurrentHashMap<>();
+  private final Queue<WebhookDelivery> deliveriesToPersist = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicLong successCount = new AtomicLong();
+  private final AtomicLong failureCount = new AtomicLong();
+  private final AtomicLong retryCount = new AtomicLong();
+  private final AtomicLong totalDurationMs = new AtomicLong();
+  @CheckForNull
+  private volatile ScheduledExecutorService executor;
+
+  public WebhookDeliveryQueue(WebhookCaller caller, WebhookDeliveryStorage storage) {
+    this(caller, storage, FIRST_RETRY_DELAY_MS);
+  }
+
+  WebhookDeliveryQueue(WebhookCaller caller, WebhookDeliveryStorage storage, long firstRetryDelayMs) {
+    this.caller = caller;
+    this.storage = storage;
+    this.firstRetryDelayMs = firstRetryDelayMs;
+  }
+
+  @Override
+  public void start() {
+    ScheduledThreadPoolExecutor threadPool = new ScheduledThreadPoolExecutor(WORKER_COUNT,
+      new ThreadFactoryBuilder().setNameFormat("Webhooks-%d").setDaemon(true).build());
+    threadPool.setRemoveOnCancelPolicy(true);
+    threadPool.scheduleWithFixedDelay(this::flush, FLUSH_DELAY_MS, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    this.executor = threadPool;
+  }
+
+  @Override
+  public void stop() {
+    ScheduledExecutorService threadPool = this.executor;
+    if (threadPool != null) {
+      awaitPendingDeliveries();
+      this.executor = null;
+      threadPool.shutdownNow();
+      if (pendingCount.get() > 0) {
+        LOGGER.warn("Webhook deliveries did not complete within {}ms. {} deliveries are dropped.", STOP_TIMEOUT_MS, pendingCount.get());
+      }
+    }
+    flush();
+  }
+
+  /**
+   * Retries are scheduled by the workers themselves, so the thread pool can't simply be shut down
+   * and awaited. Pending deliveries are polled instead.
+   */
+  private void awaitPendingDeliveries() {
+    long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MS;
+    try {
+      while (pendingCount.get() > 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10L);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public void enqueue(Webhook webhook, WebhookPayload payload) {
+    Attempt attempt = new Attempt(webhook, payload, 1);
+    if (executor == null || pendingCount.get() >= MAX_PENDING_DELIVERIES) {
+      // back-pressure. Webhook is sent synchronously.
+      complete(caller.call(webhook, payload));
+      flush();
+      return;
+    }
+    pendingCount.incrementAndGet();
+    schedule(attempt, 0L, null);
+  }
+
+  private void schedule(Attempt attempt, long delayMs, @Nullable WebhookDelivery previous) {
+    ScheduledExecutorService threadPool = this.executor;
+    try {
+      if (threadPool == null) {
+        throw new RejectedExecutionException("Webhook queue is stopped");
+      }
+      threadPool.schedule(() -> execute(attempt), delayMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      try {
+        complete(previous == null ? caller.call(attempt.webhook, attempt.payload) : previous);
+      } finally {
+        pendingCount.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * The delivery stays pending as long as it is handed over to {@link #schedule(Attempt, long, WebhookDelivery)}.
+   */
+  private void execute(Attempt attempt) {
+    boolean rescheduled = false;
+    try {
+      Semaphore permits = permitsByUrl.computeIfAbsent(attempt.webhook.getUrl(), url -> new Semaphore(MAX_CONCURRENT_DELIVERIES_PER_URL));
+      if (!permits.tryAcquire()) {
+        rescheduled = true;
+        schedule(attempt, BUSY_URL_DELAY_MS, null);
+        return;
+      }
+      WebhookDelivery delivery;
+      try {
+        delivery = caller.call(attempt.webhook, attempt.payload);
+      } finally {
+        permits.release();
+      }
+      if (attempt.number < MAX_ATTEMPTS && isRetryable(delivery)) {
+        retryCount.incrementAndGet();
+        LOGGER.debug("Retrying webhook '{}' | url={} | attempt={}", attempt.webhook.getName(), attempt.webhook.getUrl(), attempt.number + 1);
+        rescheduled = true;
+        schedule(attempt.next(), firstRetryDelayMs << (attempt.number - 1), delivery);
+      } else {
+        complete(delivery);
+      }
+    } finally {
+      if (!rescheduled) {
+        pendingCount.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Read timeouts are not retried, as the endpoint may have received the payload and still be processing it.
+   */
+  private static boolean isRetryable(WebhookDelivery delivery) {
+    Optional<Throwable> error = delivery.getError();
+    if (error.isPresent()) {
+      return !isReadTimeout(error.get());
+    }
+    return delivery.getHttpStatus().orElse(0) >= 500;
+  }
+
+  private static boolean isReadTimeout(Throwable error) {
+    return error instanceof SocketTimeoutException && !CONNECT_TIMEOUT_MESSAGE.equals(error.getMessage());
+  }
+
+  private void complete(WebhookDelivery delivery) {
+    if (delivery.isSuccess()) {
+      successCount.incrementAndGet();
+    } else {
+      failureCount.incrementAndGet();
+    }
+    delivery.getDurationInMs().ifPresent(totalDurationMs::addAndGet);
+    log(delivery);
+    deliveriesToPersist.add(delivery);
+  }
+
+  private void flush() {
+    List<WebhookDelivery> deliveries = new ArrayList<>();
+    WebhookDelivery delivery;
+    while ((delivery = deliveriesToPersist.poll()) != null) {
+      deliveries.add(delivery);
+    }
+    if (deliveries.isEmpty()) {
+      return;
+    }
+    try {
+      storage.persist(deliveries);
+      deliveries.stream().map(d -> d.getWebhook().getComponentUuid()).distinct().forEach(storage::purge);
+    } catch (RuntimeException e) {
+      LOGGER.error("Fail to persist {} webhook deliveries", deliveries.size(), e);
+    }
+  }
+
+  private static void log(WebhookDelivery delivery) {
+    Optional<String> error = delivery.getErrorMessage();
+    if (error.isPresent()) {
+      LOGGER.debug("Failed to send webhook '{}' | url={} | message={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), error.get());
+    } else {
+      LOGGER.debug("Sent webhook '{}' | url={} | time={}ms | status={}",
+        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), delivery.getDurationInMs().orElse(-1), delivery.getHttpStatus().orElse(-1));
+    }
+  }
+
+  public int getPendingCount() {
+    return pendingCount.get();
+  }
+
+  public long getSuccessCount() {
+    return successCount.get();
+  }
+
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  public long getRetryCount() {
+    return retryCount.get();
+  }
+
+  /**
+   * Average duration of the deliveries which received an HTTP response
+   */
+  public long getMeanDurationMs() {
+    long count = successCount.get() + failureCount.get();
+    return count == 0 ? 0L : (totalDurationMs.get() / count);
+  }
+
+  @Override
+  public ProtobufSystemInfo.Section toProtobuf() {
+    ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
+    builder.setName("Compute Engine Webhooks");
+    builder.addAttributesBuilder().setKey("Pending Deliveries").setLongValue(getPendingCount()).build();
+    builder.addAttributesBuilder().setKey("Delivered With Success").setLongValue(getSuccessCount()).build();
+    builder.addAttributesBuilder().setKey("Delivered With Failure").setLongValue(getFailureCount()).build();
+    builder.addAttributesBuilder().setKey("Retries").setLongValue(getRetryCount()).build();
+    builder.addAttributesBuilder().setKey("Mean Delivery Time (ms)").setLongValue(getMeanDurationMs()).build();
+    return builder.build();
+  }
+
+  private static final class Attempt {
+    private final Webhook webhook;
+    private final WebhookPayload payload;
+    private final int number;
+
+    private Attempt(Webhook webhook, WebhookPayload payload, int number) {
+      this.webhook = webhook;
+      this.payload = payload;
+      this.number = number;
+    }
+
+    private Attempt next() {
+      return new Attempt(webhook, payload, number + 1);
+    }
+  }
+}
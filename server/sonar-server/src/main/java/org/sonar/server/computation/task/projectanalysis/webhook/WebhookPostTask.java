@@ -22,11 +22,8 @@ package org.sonar.server.computation.task.projectanalysis.webhook;
 import com.google.common.collect.Iterables;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import org.sonar.api.ce.posttask.PostProjectAnalysisTask;
 import org.sonar.api.config.Settings;
-import org.sonar.api.utils.log.Logger;
-import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.config.WebhookProperties;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.server.computation.task.projectanalysis.component.SettingsRepository;
@@ -37,21 +34,17 @@ import static org.sonar.core.config.WebhookProperties.MAX_WEBHOOKS_PER_TYPE;
 
 public class WebhookPostTask implements PostProjectAnalysisTask {
 
-  private static final Logger LOGGER = Loggers.get(WebhookPostTask.class);
-
   private final TreeRootHolder rootHolder;
   private final SettingsRepository settingsRepository;
   private final WebhookPayloadFactory payloadFactory;
-  private final WebhookCaller caller;
-  private final WebhookDeliveryStorage deliveryStorage;
+  private final WebhookDeliveryQueue deliveryQueue;
 
   public WebhookPostTask(TreeRootHolder rootHolder, SettingsRepository settingsRepository, WebhookPayloadFactory payloadFactory,
-    WebhookCaller caller, WebhookDeliveryStorage deliveryStorage) {
+    WebhookDeliveryQueue deliveryQueue) {
     this.rootHolder = rootHolder;
     this.settingsRepository = settingsRepository;
     this.payloadFactory = payloadFactory;
-    this.caller = caller;
-    this.deliveryStorage = deliveryStorage;
+    this.deliveryQueue = deliveryQueue;
   }
 
   @Override
@@ -63,7 +56,6 @@ public class WebhookPostTask implements PostProjectAnalysisTask {
       getWebhookProperties(settings, WebhookProperties.PROJECT_KEY));
     if (!Iterables.isEmpty(webhookProps)) {
       process(settings, analysis, webhookProps);
-      deliveryStorage.purge(analysis.getProject().getUuid());
     }
   }
 
@@ -83,21 +75,8 @@ public class WebhookPostTask implements PostProjectAnalysisTask {
       // as webhooks are defined as property sets, we can't ensure validity of fields on creation.
       if (name != null && url != null) {
         Webhook webhook = new Webhook(analysis.getProject().getUuid(), analysis.getCeTask().getId(), name, url);
-        WebhookDelivery delivery = caller.call(webhook, payload);
-        log(delivery);
-        deliveryStorage.persist(delivery);
+        deliveryQueue.enqueue(webhook, payload);
       }
     }
   }
-
-  private static void log(WebhookDelivery delivery) {
-    Optional<String> error = delivery.getErrorMessage();
-    if (error.isPresent()) {
-      LOGGER.debug("Failed to send webhook '{}' | url={} | message={}",
-        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), error.get());
-    } else {
-      LOGGER.debug("Sent webhook '{}' | url={} | time={}ms | status={}",
-        delivery.getWebhook().getName(), delivery.getWebhook().getUrl(), delivery.getDurationInMs().orElse(-1), delivery.getHttpStatus().orElse(-1));
-    }
-  }
 }
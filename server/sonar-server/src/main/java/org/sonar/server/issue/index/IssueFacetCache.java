@@ -0,0 +1,139 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Settings;
+import org.sonar.api.server.ServerSide;
+import org.sonar.server.es.Facets;
+
+/**
+ * Cache of the facets computed by {@link IssueIndex#search(IssueQuery, org.sonar.server.es.SearchOptions)}, so that
+ * the aggregations are not executed again for the identical requests sent by dashboards and IDEs.
+ * <p>
+ * Entries are keyed by a hash of the normalized request and of the permissions of the caller. Each entry
+ * records the version of the issues of the requested projects, as given by {@link IssueIndexRefreshMarker} before
+ * computing it, so that it is not reused once issues of these projects are indexed, including by Compute Engine.
+ * Requests which are not restricted to some projects depend on the issues of all the projects. Entries also expire
+ * after a configurable delay, which bounds the effect of the changes of permissions.
+ */
+@ServerSide
+public class IssueFacetCache {
+
+  static final String SIZE_PROPERTY = "sonar.issues.facetCache.size";
+  static final String TTL_PROPERTY = "sonar.issues.facetCache.ttlInSeconds";
+  static final int DEFAULT_SIZE = 1_000;
+  static final long DEFAULT_TTL_SECONDS = 60L;
+
+  private final IssueIndexRefreshMarker refreshMarker;
+  private final boolean enabled;
+  private final Cache<String, Entry> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public IssueFacetCache(Settings settings, IssueIndexRefreshMarker refreshMarker) {
+    this.refreshMarker = refreshMarker;
+    int size = settings.hasKey(SIZE_PROPERTY) ? settings.getInt(SIZE_PROPERTY) : DEFAULT_SIZE;
+    long ttl = settings.hasKey(TTL_PROPERTY) ? settings.getLong(TTL_PROPERTY) : DEFAULT_TTL_SECONDS;
+    this.enabled = size > 0 && ttl > 0;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(Math.max(size, 0))
+      .expireAfterWrite(Math.max(ttl, 0), TimeUnit.SECONDS)
+      .recordStats()
+      .build();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Version to be given to {@link #get(String, long)} and {@link #put(String, long, Facets)}. It must be
+   * read before executing the request, so that concurrent changes are detected.
+   *
+   * @param projectUuids the projects the request is restricted to, empty if not restricted
+   */
+  long currentVersion(Collection<String> projectUuids) {
+    return refreshMarker.getVersion(projectUuids);
+  }
+
+  @CheckForNull
+  Facets get(String key, long version) {
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null && entry.version != version) {
+      cache.invalidate(key);
+      entry = null;
+    }
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return copy(entry.facets);
+  }
+
+  void put(String key, long version, Facets facets) {
+    cache.put(key, new Entry(version, copy(facets)));
+  }
+
+  /**
+   * Facets are mutable, for example values are added by api/issues/search
+   */
+  private static Facets copy(Facets facets) {
+    LinkedHashMap<String, LinkedHashMap<String, Long>> copy = new LinkedHashMap<>();
+    facets.getAll().forEach((name, values) -> copy.put(name, new LinkedHashMap<>(values)));
+    return new Facets(copy);
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * Lookups of entries that were obsolete are counted as misses
+   */
+  public long hitCount() {
+    return hits.get();
+  }
+
+  public long missCount() {
+    return misses.get();
+  }
+
+  public long evictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  private static final class Entry {
+    private final long version;
+    private final Facets facets;
+
+    private Entry(long version, Facets facets) {
+      this.version = version;
+      this.facets = facets;
+    }
+  }
+}
@@ -32,9 +32,12 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.search.SearchRequestBuilder;
@@ -63,6 +66,7 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.Facets;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.es.Sorting;
@@ -133,6 +137,7 @@ public class IssueIndex {
   private static final String FACET_SUFFIX_MISSING = "_missing";
 
   private static final String IS_ASSIGNED_FILTER = "__isAssigned";
+  private static final String AUTHORIZATION_FILTER = "__authorization";
 
   private static final SumBuilder EFFORT_AGGREGATION = AggregationBuilders.sum(FACET_MODE_EFFORT).field(IssueIndexDefinition.FIELD_ISSUE_EFFORT);
   private static final Order EFFORT_AGGREGATION_ORDER = Order.aggregation(FACET_MODE_EFFORT, false);
@@ -149,12 +154,23 @@ public class IssueIndex {
   private final System2 system;
   private final UserSession userSession;
   private final AuthorizationTypeSupport authorizationTypeSupport;
+  @Nullable
+  private final IssueFacetCache facetCache;
 
+  /**
+   * Used by Pico in Compute Engine, where facets are not cached
+   */
   public IssueIndex(EsClient client, System2 system, UserSession userSession, AuthorizationTypeSupport authorizationTypeSupport) {
+    this(client, system, userSession, authorizationTypeSupport, null);
+  }
+
+  public IssueIndex(EsClient client, System2 system, UserSession userSession, AuthorizationTypeSupport authorizationTypeSupport,
+    @Nullable IssueFacetCache facetCache) {
     this.client = client;
     this.system = system;
     this.userSession = userSession;
     this.authorizationTypeSupport = authorizationTypeSupport;
+    this.facetCache = facetCache;
 
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
@@ -183,7 +199,6 @@ public class IssueIndex {
 
     configureSorting(query, requestBuilder);
     configurePagination(options, requestBuilder);
-    configureRouting(query, options, requestBuilder);
 
     QueryBuilder esQuery = matchAllQuery();
     BoolQueryBuilder esFilter = boolQuery();
@@ -199,9 +214,45 @@ public class IssueIndex {
       requestBuilder.setQuery(esQuery);
     }
 
+    if (options.getFacets().isEmpty() || facetCache == null || !facetCache.isEnabled()) {
+      configureRouting(query, options, requestBuilder);
+      configureStickyFacets(query, options, filters, esQuery, requestBuilder);
+      return new SearchResult<>(requestBuilder.get(), IssueDoc::new);
+    }
+
+    String facetCacheKey = facetCacheKey(query, options, filters);
+    long version = facetCache.currentVersion(query.projectUuids());
+    Facets cachedFacets = facetCache.get(facetCacheKey, version);
+    if (cachedFacets != null) {
+      // facets are not computed, so request can be routed
+      configureRouting(query, new SearchOptions(), requestBuilder);
+      return new SearchResult<>(requestBuilder.get(), IssueDoc::new, cachedFacets);
+    }
     configureStickyFacets(query, options, filters, esQuery, requestBuilder);
-    SearchResponse response = requestBuilder.get();
-    return new SearchResult<>(response, IssueDoc::new);
+    SearchResult<IssueDoc> result = new SearchResult<>(requestBuilder.get(), IssueDoc::new);
+    facetCache.put(facetCacheKey, version, result.getFacets());
+    return result;
+  }
+
+  /**
+   * Hash of the filters, except the authorization filter which is replaced by the permission signature
+   * of current user, as it can list the uuids of all the projects visible by the user. The login is added
+   * for the facet {@link #FACET_ASSIGNED_TO_ME}.
+   */
+  private String facetCacheKey(IssueQuery query, SearchOptions options, Map<String, QueryBuilder> filters) {
+    StringBuilder key = new StringBuilder();
+    new TreeMap<>(filters).forEach((name, filter) -> {
+      if (!AUTHORIZATION_FILTER.equals(name)) {
+        key.append(name).append('=').append(filter).append('\n');
+      }
+    });
+    key.append("facets=").append(new TreeSet<>(options.getFacets()))
+      .append("\nfacetMode=").append(query.facetMode())
+      .append("\npermissions=").append(query.checkAuthorization() ? authorizationTypeSupport.getPermissionSignature() : "");
+    if (options.getFacets().contains(FACET_ASSIGNED_TO_ME)) {
+      key.append("\nlogin=").append(userSession.getLogin());
+    }
+    return DigestUtils.sha256Hex(key.toString());
   }
 
   /**
@@ -234,7 +285,7 @@ public class IssueIndex {
 
   private Map<String, QueryBuilder> createFilters(IssueQuery query) {
     Map<String, QueryBuilder> filters = new HashMap<>();
-    filters.put("__authorization", createAuthorizationFilter(query.checkAuthorization()));
+    filters.put(AUTHORIZATION_FILTER, createAuthorizationFilter(query.checkAuthorization()));
 
     // Issue is assigned Filter
     if (BooleanUtils.isTrue(query.assigned())) {
@@ -316,7 +367,7 @@ public class IssueIndex {
 
   private QueryBuilder createAuthorizationFilter(boolean checkAuthorization) {
     if (checkAuthorization) {
-      return authorizationTypeSupport.createQueryFilter();
+      return authorizationTypeSupport.createQueryFilter(INDEX_TYPE_ISSUE);
     }
     return matchAllQuery();
   }
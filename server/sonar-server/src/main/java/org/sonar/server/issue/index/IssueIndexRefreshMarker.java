@@ -0,0 +1,196 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+
+/**
+ * Versions of the issues of each project in the index, changed by {@link IssueIndexer} each time issues are indexed or
+ * deleted. They allow {@link IssueFacetCache} to drop only the facets of the projects which changed.
+ * <p>
+ * Changes done in the current process are applied immediately. So that the other processes (Compute Engine,
+ * other web servers of a cluster) detect them, each change is also recorded in database as a counter followed by
+ * the uuid of the changed project. This internal property is read at most once every {@link #CHECK_INTERVAL_MS}
+ * by {@link #getVersion(Collection)}. If some changes were missed between two reads, all the projects are
+ * considered as changed.
+ * </p>
+ */
+@ServerSide
+@ComputeEngineSide
+public class IssueIndexRefreshMarker {
+
+  static final String PROPERTY_KEY = "issues.index.refreshMarker";
+  @VisibleForTesting
+  static final long CHECK_INTERVAL_MS = 1_000L;
+  private static final int MAX_ATTEMPTS = 3;
+  private static final char SEPARATOR = ':';
+  private static final Logger LOG = Loggers.get(IssueIndexRefreshMarker.class);
+
+  private final DbClient dbClient;
+  private final System2 system2;
+  private final AtomicLong sequence = new AtomicLong();
+  private final Map<String, Long> versionByProjectUuid = new ConcurrentHashMap<>();
+  private volatile long allProjectsVersion = 0L;
+  private final AtomicLong lastCheck = new AtomicLong(Long.MIN_VALUE);
+  // counter of the last change of database which has been applied, -1 if not read yet
+  private long lastAppliedCounter = -1L;
+
+  public IssueIndexRefreshMarker(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  /**
+   * Must be called once the changes are visible in the index, i.e. after the refresh. Issues of all the projects
+   * are considered as changed if there are several {@code projectUuids}.
+   */
+  public void bump(Collection<String> projectUuids) {
+    if (projectUuids.isEmpty()) {
+      return;
+    }
+    String projectUuid = projectUuids.size() == 1 ? projectUuids.iterator().next() : null;
+    applyChange(projectUuid);
+    persistChange(projectUuid);
+  }
+
+  /**
+   * Version of the issues of the given projects, or of all the projects if {@code projectUuids} is empty. It
+   * changes each time some of these issues are changed.
+   */
+  public long getVersion(Collection<String> projectUuids) {
+    checkDatabase();
+    if (projectUuids.isEmpty()) {
+      return sequence.get();
+    }
+    long version = allProjectsVersion;
+    for (String projectUuid : projectUuids) {
+      version = Math.max(version, versionByProjectUuid.getOrDefault(projectUuid, 0L));
+    }
+    return version;
+  }
+
+  private void applyChange(@Nullable String projectUuid) {
+    long version = sequence.incrementAndGet();
+    if (projectUuid == null) {
+      allProjectsVersion = version;
+      versionByProjectUuid.clear();
+    } else {
+      versionByProjectUuid.put(projectUuid, version);
+    }
+  }
+
+  private void persistChange(@Nullable String projectUuid) {
+    RuntimeException failure = null;
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        Optional<String> value = dbClient.internalPropertiesDao().selectByKey(dbSession, PROPERTY_KEY);
+        long counter = value.map(IssueIndexRefreshMarker::parseCounter).orElse(0L) + 1;
+        String newValue = String.valueOf(counter) + SEPARATOR + (projectUuid == null ? "" : projectUuid);
+        boolean saved;
+        if (value.isPresent()) {
+          saved = dbClient.internalPropertiesDao().replaceValue(dbSession, PROPERTY_KEY, value.get(), newValue);
+        } else {
+          // fails on the unique key if the property is inserted concurrently, then it's replaced by the next attempt
+          dbClient.internalPropertiesDao().save(dbSession, PROPERTY_KEY, newValue);
+          saved = true;
+        }
+        dbSession.commit();
+        if (saved) {
+          onPersisted(counter);
+          return;
+        }
+      } catch (RuntimeException e) {
+        failure = e;
+      }
+    }
+    LOG.warn("Fail to record change of issues index in database. Issue facets cached by other processes may be stale until they expire.", failure);
+  }
+
+  private synchronized void onPersisted(long counter) {
+    // the change is already applied locally. If a change of another process was not read yet, it's detected on next check.
+    if (lastAppliedCounter == counter - 1) {
+      lastAppliedCounter = counter;
+    }
+  }
+
+  private void checkDatabase() {
+    long now = system2.now();
+    long previousCheck = lastCheck.get();
+    if (previousCheck != Long.MIN_VALUE && now - previousCheck < CHECK_INTERVAL_MS) {
+      return;
+    }
+    if (!lastCheck.compareAndSet(previousCheck, now)) {
+      // checked concurrently
+      return;
+    }
+    Optional<String> value;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      value = dbClient.internalPropertiesDao().selectByKey(dbSession, PROPERTY_KEY);
+    }
+    onRead(value.map(IssueIndexRefreshMarker::parseCounter).orElse(0L), value.map(IssueIndexRefreshMarker::parseProjectUuid).orElse(null));
+  }
+
+  private synchronized void onRead(long counter, @Nullable String projectUuid) {
+    if (counter == lastAppliedCounter) {
+      return;
+    }
+    if (lastAppliedCounter >= 0) {
+      if (counter == lastAppliedCounter + 1) {
+        applyChange(projectUuid);
+      } else {
+        // some changes have been missed
+        applyChange(null);
+      }
+    }
+    lastAppliedCounter = counter;
+  }
+
+  private static long parseCounter(String value) {
+    int separator = value.indexOf(SEPARATOR);
+    try {
+      return separator > 0 ? Long.parseLong(value.substring(0, separator)) : 0L;
+    } catch (NumberFormatException e) {
+      return 0L;
+    }
+  }
+
+  @CheckForNull
+  private static String parseProjectUuid(String value) {
+    int separator = value.indexOf(SEPARATOR);
+    if (separator < 0 || separator == value.length() - 1) {
+      return null;
+    }
+    return value.substring(separator + 1);
+  }
+}
@@ -21,6 +21,7 @@ package org.sonar.server.issue.index;
 
 import com.google.common.collect.ImmutableSet;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -39,6 +40,7 @@ import org.sonar.server.es.StartupIndexer;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
 
+import static java.util.Collections.singleton;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID;
@@ -52,10 +54,12 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, S
 
   private final EsClient esClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  private final IssueIndexRefreshMarker refreshMarker;
 
-  public IssueIndexer(EsClient esClient, IssueIteratorFactory issueIteratorFactory) {
+  public IssueIndexer(EsClient esClient, IssueIteratorFactory issueIteratorFactory, IssueIndexRefreshMarker refreshMarker) {
     this.esClient = esClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.refreshMarker = refreshMarker;
   }
 
   @Override
@@ -114,13 +118,16 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, S
     }
   }
 
-  private static void doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
+  private void doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
+    Set<String> projectUuids = new HashSet<>();
     bulk.start();
     while (issues.hasNext()) {
       IssueDoc issue = issues.next();
       bulk.add(newIndexRequest(issue));
+      projectUuids.add(issue.projectUuid());
     }
     bulk.stop();
+    refreshMarker.bump(projectUuids);
   }
 
   @Override
@@ -132,6 +139,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, S
       .setQuery(boolQuery().must(termQuery(FIELD_ISSUE_PROJECT_UUID, uuid)));
     bulk.addDeletion(search);
     bulk.stop();
+    refreshMarker.bump(singleton(uuid));
   }
 
   public void deleteByKeys(String projectUuid, List<String> issueKeys) {
@@ -154,6 +162,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer, S
     }
     EsUtils.executeBulkRequest(builder, DELETE_ERROR_MESSAGE, projectUuid);
     esClient.prepareRefresh(INDEX_TYPE_ISSUE.getIndex()).get();
+    refreshMarker.bump(singleton(projectUuid));
   }
 
   private BulkIndexer createBulkIndexer(Size bulkSize) {
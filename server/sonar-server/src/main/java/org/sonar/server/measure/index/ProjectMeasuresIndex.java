@@ -281,7 +281,7 @@ public class ProjectMeasuresIndex {
 
   private Map<String, QueryBuilder> createFilters(ProjectMeasuresQuery query) {
     Map<String, QueryBuilder> filters = new HashMap<>();
-    filters.put("__authorization", authorizationTypeSupport.createQueryFilter());
+    filters.put("__authorization", authorizationTypeSupport.createQueryFilter(INDEX_TYPE_PROJECT_MEASURES));
     Multimap<String, MetricCriterion> metricCriterionMultimap = ArrayListMultimap.create();
     query.getMetricCriteria().forEach(metricCriterion -> metricCriterionMultimap.put(metricCriterion.getMetricKey(), metricCriterion));
     metricCriterionMultimap.asMap().entrySet().forEach(entry -> {
@@ -365,7 +365,7 @@ public class ProjectMeasuresIndex {
 
     SearchRequestBuilder searchQuery = client
       .prepareSearch(INDEX_TYPE_PROJECT_MEASURES)
-      .setQuery(authorizationTypeSupport.createQueryFilter())
+      .setQuery(authorizationTypeSupport.createQueryFilter(INDEX_TYPE_PROJECT_MEASURES))
       .setFetchSource(false)
       .setSize(0)
       .addAggregation(tagFacet);
@@ -72,11 +72,12 @@ public class ProjectMeasuresIndexer implements ProjectIndexer, NeedAuthorization
   public void indexProject(String projectUuid, Cause cause) {
     switch (cause) {
       case PROJECT_KEY_UPDATE:
-        // project must be re-indexed because key is used in this index
+      case PROJECT_TAGS_UPDATE:
+        // key and tags are stored in this index. Source of documents is disabled, so they can't
+        // be partially updated. The single project is re-indexed from db.
       case PROJECT_CREATION:
         // provisioned projects are supported by WS api/components/search_projects
       case NEW_ANALYSIS:
-      case PROJECT_TAGS_UPDATE:
         doIndex(createBulkIndexer(Size.REGULAR), projectUuid);
         break;
       default:
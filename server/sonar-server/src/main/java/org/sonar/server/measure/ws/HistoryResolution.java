@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.ws;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import org.sonar.db.component.SnapshotDto;
+
+/**
+ * Resolution of the history returned by api/measures/search_history when downsampling is requested. The longer
+ * the requested range, the coarser the resolution, so that activity charts of old projects do not load measures of
+ * thousands of analyses. Only the last analysis of each day, week or month is kept. Days start at midnight UTC, so that
+ * the result does not depend on the time zone of the server.
+ */
+enum HistoryResolution {
+  ALL(null),
+  DAY(UnaryOperator.identity()),
+  WEEK(day -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))),
+  MONTH(day -> day.withDayOfMonth(1));
+
+  private static final long DAY_MS = 24L * 60 * 60 * 1000;
+  private static final long MAX_SPAN_OF_ALL_MS = 183 * DAY_MS;
+  private static final long MAX_SPAN_OF_DAY_MS = 2 * 366 * DAY_MS;
+  private static final long MAX_SPAN_OF_WEEK_MS = 5 * 366 * DAY_MS;
+
+  private final UnaryOperator<LocalDate> bucket;
+
+  HistoryResolution(UnaryOperator<LocalDate> bucket) {
+    this.bucket = bucket;
+  }
+
+  static HistoryResolution ofSpan(long spanMs) {
+    if (spanMs <= MAX_SPAN_OF_ALL_MS) {
+      return ALL;
+    }
+    if (spanMs <= MAX_SPAN_OF_DAY_MS) {
+      return DAY;
+    }
+    if (spanMs <= MAX_SPAN_OF_WEEK_MS) {
+      return WEEK;
+    }
+    return MONTH;
+  }
+
+  /**
+   * @param analyses analyses sorted by ascending date
+   */
+  List<SnapshotDto> downsample(List<SnapshotDto> analyses) {
+    if (bucket == null) {
+      return analyses;
+    }
+    List<SnapshotDto> result = new ArrayList<>();
+    LocalDate previousBucket = null;
+    for (SnapshotDto analysis : analyses) {
+      LocalDate analysisBucket = bucket.apply(Instant.ofEpochMilli(analysis.getCreatedAt()).atZone(ZoneOffset.UTC).toLocalDate());
+      if (Objects.equals(analysisBucket, previousBucket)) {
+        result.set(result.size() - 1, analysis);
+      } else {
+        result.add(analysis);
+      }
+      previousBucket = analysisBucket;
+    }
+    return result;
+  }
+}
@@ -26,6 +26,7 @@ import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Change;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.WebService.Param;
@@ -39,7 +40,6 @@ import org.sonar.db.component.SnapshotQuery;
 import org.sonar.db.component.SnapshotQuery.SORT_FIELD;
 import org.sonar.db.component.SnapshotQuery.SORT_ORDER;
 import org.sonar.db.measure.MeasureDto;
-import org.sonar.db.measure.PastMeasureQuery;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.user.UserSession;
@@ -55,6 +55,7 @@ import static org.sonar.db.component.SnapshotDto.STATUS_PROCESSED;
 import static org.sonar.server.ws.WsUtils.writeProtobuf;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.ACTION_SEARCH_HISTORY;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_COMPONENT;
+import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_DOWNSAMPLE;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_FROM;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_METRICS;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_TO;
@@ -78,6 +79,7 @@ public class SearchHistoryAction implements MeasuresWsAction {
       .setMetrics(request.mandatoryParamAsStrings(PARAM_METRICS))
       .setFrom(request.param(PARAM_FROM))
       .setTo(request.param(PARAM_TO))
+      .setDownsample(request.mandatoryParamAsBoolean(PARAM_DOWNSAMPLE))
       .setPage(request.mandatoryParamAsInt(Param.PAGE))
       .setPageSize(request.mandatoryParamAsInt(Param.PAGE_SIZE))
       .build();
@@ -89,9 +91,12 @@ public class SearchHistoryAction implements MeasuresWsAction {
       .setDescription("Search measures history of a component.<br>" +
         "Measures are ordered chronologically.<br>" +
         "Pagination applies to the number of measures for each metric.<br>" +
+        "When downsampling is requested and the history spans more than 6 months, only the last analysis of each day is returned. " +
+        "Beyond 2 years, only the last analysis of each week, and beyond 5 years, of each month. Days, weeks and months are in UTC.<br>" +
         "Requires the following permission: 'Browse' on the specified component")
       .setResponseExample(getClass().getResource("search_history-example.json"))
       .setSince("6.3")
+      .setChangelog(new Change("6.5", format("Parameter '%s' is added", PARAM_DOWNSAMPLE)))
       .setHandler(this);
 
     action.createParam(PARAM_COMPONENT)
@@ -112,6 +117,12 @@ public class SearchHistoryAction implements MeasuresWsAction {
       .setDescription("Filter issues created before the given date (inclusive). Format: date or datetime ISO formats")
       .setExampleValue("2013-05-01 (or 2013-05-01T13:00:00+0100)");
 
+    action.createParam(PARAM_DOWNSAMPLE)
+      .setDescription("Downsample the history when it spans more than 6 months, to one analysis per day, week or month")
+      .setBooleanPossibleValues()
+      .setDefaultValue(false)
+      .setSince("6.5");
+
     action.addPagingParams(DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
   }
 
@@ -135,7 +146,7 @@ public class SearchHistoryAction implements MeasuresWsAction {
           .setComponent(component)
           .setAnalyses(searchAnalyses(dbSession, request, component))
           .setMetrics(searchMetrics(dbSession, request));
-        return result.setMeasures(searchMeasures(dbSession, request, result));
+        return result.setMeasures(searchMeasures(dbSession, result));
       }
     };
   }
@@ -146,15 +157,11 @@ public class SearchHistoryAction implements MeasuresWsAction {
     return component;
   }
 
-  private List<MeasureDto> searchMeasures(DbSession dbSession, SearchHistoryRequest request, SearchHistoryResult result) {
-    Date from = parseStartingDateOrDateTime(request.getFrom());
-    Date to = parseEndingDateOrDateTime(request.getTo());
-    PastMeasureQuery dbQuery = new PastMeasureQuery(
+  private List<MeasureDto> searchMeasures(DbSession dbSession, SearchHistoryResult result) {
+    return dbClient.measureDao().selectPastMeasures(dbSession,
       result.getComponent().uuid(),
-      result.getMetrics().stream().map(MetricDto::getId).collect(MoreCollectors.toList()),
-      from == null ? null : from.getTime(),
-      to == null ? null : (to.getTime() + 1_000L));
-    return dbClient.measureDao().selectPastMeasures(dbSession, dbQuery);
+      result.getAnalyses().stream().map(SnapshotDto::getUuid).collect(MoreCollectors.toList()),
+      result.getMetrics().stream().map(MetricDto::getId).collect(MoreCollectors.toList()));
   }
 
   private List<SnapshotDto> searchAnalyses(DbSession dbSession, SearchHistoryRequest request, ComponentDto component) {
@@ -162,10 +169,18 @@ public class SearchHistoryAction implements MeasuresWsAction {
       .setComponentUuid(component.projectUuid())
       .setStatus(STATUS_PROCESSED)
       .setSort(SORT_FIELD.BY_DATE, SORT_ORDER.ASC);
-    setNullable(request.getFrom(), from -> dbQuery.setCreatedAfter(parseStartingDateOrDateTime(from).getTime()));
-    setNullable(request.getTo(), to -> dbQuery.setCreatedBefore(parseEndingDateOrDateTime(to).getTime() + 1_000L));
+    Date from = parseStartingDateOrDateTime(request.getFrom());
+    Date to = parseEndingDateOrDateTime(request.getTo());
+    setNullable(from, d -> dbQuery.setCreatedAfter(d.getTime()));
+    setNullable(to, d -> dbQuery.setCreatedBefore(d.getTime() + 1_000L));
 
-    return dbClient.snapshotDao().selectAnalysesByQuery(dbSession, dbQuery);
+    List<SnapshotDto> analyses = dbClient.snapshotDao().selectAnalysesByQuery(dbSession, dbQuery);
+    if (!request.isDownsample() || analyses.isEmpty()) {
+      return analyses;
+    }
+    long start = from == null ? analyses.get(0).getCreatedAt() : from.getTime();
+    long end = to == null ? analyses.get(analyses.size() - 1).getCreatedAt() : to.getTime();
+    return HistoryResolution.ofSpan(end - start).downsample(analyses);
   }
 
   private List<MetricDto> searchMetrics(DbSession dbSession, SearchHistoryRequest request) {
@@ -32,6 +32,7 @@ import org.sonar.server.component.ComponentCleanerService;
 import org.sonar.server.organization.DefaultOrganization;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationFlags;
+import org.sonar.server.permission.PermissionCache;
 import org.sonar.server.qualityprofile.QProfileFactory;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.index.UserIndexer;
@@ -53,9 +54,11 @@ public class DeleteAction implements OrganizationsWsAction {
   private final OrganizationFlags organizationFlags;
   private final UserIndexer userIndexer;
   private final QProfileFactory qProfileFactory;
+  private final PermissionCache permissionCache;
 
   public DeleteAction(UserSession userSession, DbClient dbClient, DefaultOrganizationProvider defaultOrganizationProvider,
-    ComponentCleanerService componentCleanerService, OrganizationFlags organizationFlags, UserIndexer userIndexer, QProfileFactory qProfileFactory) {
+    ComponentCleanerService componentCleanerService, OrganizationFlags organizationFlags, UserIndexer userIndexer, QProfileFactory qProfileFactory,
+    PermissionCache permissionCache) {
     this.userSession = userSession;
     this.dbClient = dbClient;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
@@ -63,6 +66,7 @@ public class DeleteAction implements OrganizationsWsAction {
     this.organizationFlags = organizationFlags;
     this.userIndexer = userIndexer;
     this.qProfileFactory = qProfileFactory;
+    this.permissionCache = permissionCache;
   }
 
   @Override
@@ -142,6 +146,7 @@ public class DeleteAction implements OrganizationsWsAction {
     dbClient.organizationMemberDao().deleteByOrganizationUuid(dbSession, organization.getUuid());
     dbClient.organizationDao().deleteByUuid(dbSession, organization.getUuid());
     dbSession.commit();
+    permissionCache.invalidateOrganization(organization.getUuid());
     userIndexer.index(logins);
   }
 
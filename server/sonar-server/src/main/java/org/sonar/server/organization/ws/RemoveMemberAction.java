@@ -28,6 +28,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.organization.OrganizationDto;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.permission.PermissionCache;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.user.index.UserIndexer;
 
@@ -45,11 +46,13 @@ public class RemoveMemberAction implements OrganizationsWsAction {
   private final DbClient dbClient;
   private final UserSession userSession;
   private final UserIndexer userIndexer;
+  private final PermissionCache permissionCache;
 
-  public RemoveMemberAction(DbClient dbClient, UserSession userSession, UserIndexer userIndexer) {
+  public RemoveMemberAction(DbClient dbClient, UserSession userSession, UserIndexer userIndexer, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.userIndexer = userIndexer;
+    this.permissionCache = permissionCache;
   }
 
   @Override
@@ -104,6 +107,7 @@ public class RemoveMemberAction implements OrganizationsWsAction {
 
     dbClient.organizationMemberDao().delete(dbSession, organizationUuid, userId);
     dbSession.commit();
+    permissionCache.invalidateUser(userId);
     userIndexer.index(user.getLogin());
   }
 
@@ -0,0 +1,199 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.permission.OrganizationPermission;
+import org.sonar.db.user.GroupDto;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Server-wide cache of the permissions loaded by {@link org.sonar.server.user.ServerUserSession}, so that
+ * permissions are not read again from database on each HTTP request.
+ * <p>
+ * Entries are keyed by the user and the groups of the user, so that changes of group membership
+ * never hit stale entries. Changes of permissions must be notified through {@link #invalidateProject(String)},
+ * {@link #invalidateOrganization(String)} or {@link #invalidateAll()} once they are committed. Entries also
+ * expire after {@link #EXPIRATION_SECONDS} to bound the effect of changes done out of these code paths.
+ * <p>
+ * The cache is local to the web server process: there is no invalidation across the nodes of a cluster, so
+ * a change done on a node is seen by the other nodes only when their entries expire.
+ */
+@ServerSide
+public class PermissionCache {
+
+  static final int MAX_SIZE = 50_000;
+  static final long EXPIRATION_SECONDS = 60L;
+
+  private final Object lock = new Object();
+  private final Cache<Key, Set<OrganizationPermission>> organizationPermissions = newCache();
+  private final Cache<Key, Set<String>> projectPermissions = newCache();
+  private long generation = 0L;
+
+  private static <V> Cache<Key, V> newCache() {
+    return CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(EXPIRATION_SECONDS, TimeUnit.SECONDS)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * @param userId id of the user, {@code null} for anonymous
+   * @param groups groups the user belongs to
+   */
+  public static String userKey(@Nullable Integer userId, Collection<GroupDto> groups) {
+    if (userId == null) {
+      return "anyone";
+    }
+    return userId + groups.stream()
+      .map(GroupDto::getId)
+      .sorted(naturalOrder())
+      .map(String::valueOf)
+      .collect(joining(",", "[", "]"));
+  }
+
+  public Set<OrganizationPermission> getOrganizationPermissions(String userKey, String organizationUuid, Supplier<Set<OrganizationPermission>> loader) {
+    return get(organizationPermissions, new Key(userKey, organizationUuid), loader);
+  }
+
+  public Set<String> getProjectPermissions(String userKey, String projectUuid, Supplier<Set<String>> loader) {
+    return get(projectPermissions, new Key(userKey, projectUuid), loader);
+  }
+
+  private <V> V get(Cache<Key, V> cache, Key key, Supplier<V> loader) {
+    V value = cache.getIfPresent(key);
+    if (value != null) {
+      return value;
+    }
+    long generationBeforeLoad = currentGeneration();
+    value = loader.get();
+    synchronized (lock) {
+      // do not cache a value that may have been loaded before the commit of a concurrent change
+      if (generation == generationBeforeLoad) {
+        cache.put(key, value);
+      }
+    }
+    return value;
+  }
+
+  private long currentGeneration() {
+    synchronized (lock) {
+      return generation;
+    }
+  }
+
+  public void invalidateProject(String projectUuid) {
+    invalidate(projectPermissions, key -> key.scopeUuid.equals(projectUuid));
+  }
+
+  public void invalidateProjects(Collection<String> projectUuids) {
+    Set<String> uuids = new HashSet<>(projectUuids);
+    invalidate(projectPermissions, key -> uuids.contains(key.scopeUuid));
+  }
+
+  /**
+   * Drops the entries of a user whose permissions or memberships have been removed, whatever their groups.
+   */
+  public void invalidateUser(int userId) {
+    String prefix = userId + "[";
+    synchronized (lock) {
+      generation++;
+      organizationPermissions.asMap().keySet().removeIf(key -> key.userKey.startsWith(prefix));
+      projectPermissions.asMap().keySet().removeIf(key -> key.userKey.startsWith(prefix));
+    }
+  }
+
+  /**
+   * Organization permissions also apply to the projects of the organization (for example administrators
+   * of organization have implicit permissions on projects), so all the project entries are dropped too.
+   */
+  public void invalidateOrganization(String organizationUuid) {
+    synchronized (lock) {
+      generation++;
+      organizationPermissions.asMap().keySet().removeIf(key -> key.scopeUuid.equals(organizationUuid));
+      projectPermissions.invalidateAll();
+    }
+  }
+
+  public void invalidateAll() {
+    synchronized (lock) {
+      generation++;
+      organizationPermissions.invalidateAll();
+      projectPermissions.invalidateAll();
+    }
+  }
+
+  private <V> void invalidate(Cache<Key, V> cache, Predicate<Key> predicate) {
+    synchronized (lock) {
+      generation++;
+      cache.asMap().keySet().removeIf(predicate);
+    }
+  }
+
+  public long size() {
+    return organizationPermissions.size() + projectPermissions.size();
+  }
+
+  public CacheStats stats() {
+    return organizationPermissions.stats().plus(projectPermissions.stats());
+  }
+
+  private static final class Key {
+    private final String userKey;
+    private final String scopeUuid;
+
+    private Key(String userKey, String scopeUuid) {
+      this.userKey = userKey;
+      this.scopeUuid = scopeUuid;
+    }
+
+    @Override
+    public boolean equals(@CheckForNull Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return userKey.equals(key.userKey) && scopeUuid.equals(key.scopeUuid);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userKey, scopeUuid);
+    }
+  }
+}
@@ -62,13 +62,15 @@ public class PermissionTemplateService {
   private final PermissionIndexer permissionIndexer;
   private final UserSession userSession;
   private final DefaultTemplatesResolver defaultTemplatesResolver;
+  private final PermissionCache permissionCache;
 
   public PermissionTemplateService(DbClient dbClient, PermissionIndexer permissionIndexer, UserSession userSession,
-    DefaultTemplatesResolver defaultTemplatesResolver) {
+    DefaultTemplatesResolver defaultTemplatesResolver, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.permissionIndexer = permissionIndexer;
     this.userSession = userSession;
     this.defaultTemplatesResolver = defaultTemplatesResolver;
+    this.permissionCache = permissionCache;
   }
 
   public boolean wouldUserHaveScanPermissionWithDefaultTemplate(DbSession dbSession,
@@ -131,6 +133,7 @@ public class PermissionTemplateService {
   }
 
   private void indexProjectPermissions(DbSession dbSession, List<String> projectOrViewUuids) {
+    permissionCache.invalidateProjects(projectOrViewUuids);
     permissionIndexer.indexProjectsByUuids(dbSession, projectOrViewUuids);
   }
 
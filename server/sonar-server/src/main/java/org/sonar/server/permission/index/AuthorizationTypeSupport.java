@@ -20,7 +20,12 @@
 package org.sonar.server.permission.index;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -35,6 +40,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
 
 @ServerSide
 @ComputeEngineSide
@@ -53,9 +60,11 @@ public class AuthorizationTypeSupport {
   public static final String FIELD_ALLOW_ANYONE = "allowAnyone";
 
   private final UserSession userSession;
+  private final AuthorizedProjectsCache authorizedProjectsCache;
 
-  public AuthorizationTypeSupport(UserSession userSession) {
+  public AuthorizationTypeSupport(UserSession userSession, AuthorizedProjectsCache authorizedProjectsCache) {
     this.userSession = userSession;
+    this.authorizedProjectsCache = authorizedProjectsCache;
   }
 
   /**
@@ -101,8 +110,45 @@ public class AuthorizationTypeSupport {
     if (userSession.isRoot()) {
       return QueryBuilders.matchAllQuery();
     }
+    return QueryBuilders.hasParentQuery(TYPE_AUTHORIZATION,
+      QueryBuilders.boolQuery().filter(createAuthorizationFilter(userSession.getUserId(), getGroupIds())));
+  }
 
-    Integer userId = userSession.getUserId();
+  /**
+   * Same as {@link #createQueryFilter()}, but the documents of {@code indexType} may be filtered
+   * on the uuids of the projects visible to the user, as loaded by {@link AuthorizedProjectsCache}, when
+   * this strategy is enabled and the user does not see too many projects.
+   */
+  public QueryBuilder createQueryFilter(IndexType indexType) {
+    if (userSession.isRoot() || authorizedProjectsCache.getStrategy() != AuthorizedProjectsCache.Strategy.PROJECT_UUIDS) {
+      return createQueryFilter();
+    }
+    Optional<Set<String>> projectUuids = authorizedProjectsCache.getAuthorizedProjectUuids(getAuthorizationIndexType(indexType),
+      userSession.getUserId(), getGroupIds());
+    if (!projectUuids.isPresent()) {
+      return createQueryFilter();
+    }
+    return termsQuery("_parent", projectUuids.get());
+  }
+
+  /**
+   * Sessions with the same signature are filtered on the same documents by {@link #createQueryFilter()}
+   */
+  public String getPermissionSignature() {
+    if (userSession.isRoot()) {
+      return "root";
+    }
+    return userSession.getUserId() + ":" + getGroupIds().stream().sorted().map(String::valueOf).collect(Collectors.joining(","));
+  }
+
+  private List<Integer> getGroupIds() {
+    return userSession.getGroups()
+      .stream()
+      .map(GroupDto::getId)
+      .collect(toList());
+  }
+
+  static BoolQueryBuilder createAuthorizationFilter(@Nullable Integer userId, Collection<Integer> groupIds) {
     BoolQueryBuilder filter = boolQuery();
 
     // anyone
@@ -114,12 +160,8 @@ public class AuthorizationTypeSupport {
       .ifPresent(id -> filter.should(termQuery(FIELD_USER_IDS, id)));
 
     // groups
-    userSession.getGroups()
-      .stream()
-      .map(GroupDto::getId)
-      .forEach(groupId -> filter.should(termQuery(FIELD_GROUP_IDS, groupId)));
+    groupIds.forEach(groupId -> filter.should(termQuery(FIELD_GROUP_IDS, groupId)));
 
-    return QueryBuilders.hasParentQuery(TYPE_AUTHORIZATION,
-      QueryBuilders.boolQuery().filter(filter));
+    return filter;
   }
 }
@@ -0,0 +1,192 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Settings;
+import org.sonar.api.server.ServerSide;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.IndexType;
+
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Cache of the uuids of the projects that are visible to a user and its groups, in the authorization type
+ * of an index. It is used by {@link AuthorizationTypeSupport} when the property {@link #STRATEGY_PROPERTY} is set to
+ * {@link Strategy#PROJECT_UUIDS}: searches are then restricted with a terms filter on the parent of the documents
+ * instead of a has_parent query, which joins the authorization type on each request.
+ * <p>
+ * Entries are keyed by the authorization type, the user id and the ids of the groups of the user, the order
+ * of the groups being ignored. All entries are dropped by {@link PermissionIndexer} when
+ * permissions are indexed or deleted. They also expire after a configurable delay, which bounds the effect
+ * of the changes that do not go through {@link PermissionIndexer} of this process.
+ * </p>
+ */
+@ServerSide
+@ComputeEngineSide
+public class AuthorizedProjectsCache {
+
+  static final String STRATEGY_PROPERTY = "sonar.search.authorizationFilter";
+  static final String SIZE_PROPERTY = "sonar.search.authorizedProjectsCache.size";
+  static final String TTL_PROPERTY = "sonar.search.authorizedProjectsCache.ttlInSeconds";
+  static final int DEFAULT_SIZE = 1_000;
+  static final long DEFAULT_TTL_SECONDS = 60L;
+
+  /**
+   * Above this number of visible projects, a terms filter costs more to send and to parse on each request
+   * than the has_parent query. It's also the maximum number of hits of a search without scroll.
+   */
+  static final int MAX_PROJECT_UUIDS = 10_000;
+  private static final Optional<Set<String>> TOO_MANY_PROJECTS = Optional.empty();
+
+  /**
+   * The strategies used to restrict searches to the projects visible to the user
+   */
+  public enum Strategy {
+    /**
+     * has_parent query on the authorization type, evaluated by Elasticsearch on each request. This is the default.
+     */
+    HAS_PARENT,
+    /**
+     * terms filter on the uuids of the visible projects, which are loaded once and cached
+     */
+    PROJECT_UUIDS;
+
+    /**
+     * Accepts the names of constants as well as their camel case, for example "projectUuids"
+     */
+    static Strategy parse(String value) {
+      String name = value.replace("_", "");
+      return Arrays.stream(values())
+        .filter(s -> s.name().replace("_", "").equalsIgnoreCase(name))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException(format("Unsupported value of property %s: %s", STRATEGY_PROPERTY, value)));
+    }
+  }
+
+  private final EsClient esClient;
+  private final Strategy strategy;
+  private final Cache<Key, Optional<Set<String>>> cache;
+
+  public AuthorizedProjectsCache(EsClient esClient, Settings settings) {
+    this.esClient = esClient;
+    this.strategy = settings.hasKey(STRATEGY_PROPERTY) ? Strategy.parse(settings.getString(STRATEGY_PROPERTY)) : Strategy.HAS_PARENT;
+    int size = settings.hasKey(SIZE_PROPERTY) ? settings.getInt(SIZE_PROPERTY) : DEFAULT_SIZE;
+    long ttl = settings.hasKey(TTL_PROPERTY) ? settings.getLong(TTL_PROPERTY) : DEFAULT_TTL_SECONDS;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(Math.max(size, 0))
+      .expireAfterWrite(Math.max(ttl, 0), TimeUnit.SECONDS)
+      .build();
+  }
+
+  public Strategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * Uuids of the projects of the authorization type {@code authorizationType} that are visible
+   * to the user {@code userId} (null if anonymous) or to one of the groups {@code groupIds}. Empty if
+   * they are more than {@link #MAX_PROJECT_UUIDS}, then the has_parent query must be used.
+   */
+  public Optional<Set<String>> getAuthorizedProjectUuids(IndexType authorizationType, @Nullable Integer userId, Collection<Integer> groupIds) {
+    Key key = new Key(authorizationType, userId, groupIds);
+    try {
+      return cache.get(key, () -> loadAuthorizedProjectUuids(authorizationType,
+        AuthorizationTypeSupport.createAuthorizationFilter(userId, key.groupIds)));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to load the projects visible in " + authorizationType, e.getCause());
+    }
+  }
+
+  private Optional<Set<String>> loadAuthorizedProjectUuids(IndexType authorizationType, QueryBuilder authorizationFilter) {
+    SearchResponse response = esClient.prepareSearch(authorizationType)
+      .setSize(MAX_PROJECT_UUIDS)
+      .setFetchSource(false)
+      .setQuery(QueryBuilders.boolQuery().filter(authorizationFilter))
+      .get();
+    if (response.getHits().getTotalHits() > MAX_PROJECT_UUIDS) {
+      return TOO_MANY_PROJECTS;
+    }
+    Set<String> projectUuids = new HashSet<>();
+    for (SearchHit hit : response.getHits().getHits()) {
+      projectUuids.add(hit.getId());
+    }
+    return Optional.of(unmodifiableSet(projectUuids));
+  }
+
+  /**
+   * Called when permissions of projects are indexed or deleted
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  @Immutable
+  private static final class Key {
+    private final IndexType authorizationType;
+    @Nullable
+    private final Integer userId;
+    private final Set<Integer> groupIds;
+
+    private Key(IndexType authorizationType, @Nullable Integer userId, Collection<Integer> groupIds) {
+      this.authorizationType = authorizationType;
+      this.userId = userId;
+      this.groupIds = new HashSet<>(groupIds);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return authorizationType.equals(that.authorizationType) && Objects.equals(userId, that.userId) && groupIds.equals(that.groupIds);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(authorizationType, userId, groupIds);
+    }
+  }
+}
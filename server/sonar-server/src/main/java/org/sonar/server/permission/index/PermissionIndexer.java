@@ -58,18 +58,20 @@ public class PermissionIndexer implements ProjectIndexer, StartupIndexer {
   private final DbClient dbClient;
   private final EsClient esClient;
   private final Collection<AuthorizationScope> authorizationScopes;
+  private final AuthorizedProjectsCache authorizedProjectsCache;
 
-  public PermissionIndexer(DbClient dbClient, EsClient esClient, NeedAuthorizationIndexer... needAuthorizationIndexers) {
-    this(dbClient, esClient, Arrays.stream(needAuthorizationIndexers)
-      .map(NeedAuthorizationIndexer::getAuthorizationScope)
-      .collect(MoreCollectors.toList(needAuthorizationIndexers.length)));
-  }
-
-  @VisibleForTesting
-  public PermissionIndexer(DbClient dbClient, EsClient esClient, Collection<AuthorizationScope> authorizationScopes) {
+  public PermissionIndexer(DbClient dbClient, EsClient esClient, AuthorizedProjectsCache authorizedProjectsCache,
+    NeedAuthorizationIndexer... needAuthorizationIndexers) {
     this.dbClient = dbClient;
     this.esClient = esClient;
-    this.authorizationScopes = authorizationScopes;
+    this.authorizationScopes = toAuthorizationScopes(needAuthorizationIndexers);
+    this.authorizedProjectsCache = authorizedProjectsCache;
+  }
+
+  private static List<AuthorizationScope> toAuthorizationScopes(NeedAuthorizationIndexer... needAuthorizationIndexers) {
+    return Arrays.stream(needAuthorizationIndexers)
+      .map(NeedAuthorizationIndexer::getAuthorizationScope)
+      .collect(MoreCollectors.toList(needAuthorizationIndexers.length));
   }
 
   @Override
@@ -129,6 +131,11 @@ public class PermissionIndexer implements ProjectIndexer, StartupIndexer {
       .setRouting(projectUuid)
       .setRefresh(true)
       .get());
+    invalidateAuthorizedProjects();
+  }
+
+  private void invalidateAuthorizedProjects() {
+    authorizedProjectsCache.invalidateAll();
   }
 
   private Stream<AuthorizationScope> getScopes(Set<IndexType> indexTypes) {
@@ -143,6 +150,7 @@ public class PermissionIndexer implements ProjectIndexer, StartupIndexer {
 
     // index each authorization in each scope
     scopes.forEach(scope -> index(authorizations, scope, bulkSize));
+    invalidateAuthorizedProjects();
   }
 
   private void index(Collection<PermissionIndexerDao.Dto> authorizations, AuthorizationScope scope, Size bulkSize) {
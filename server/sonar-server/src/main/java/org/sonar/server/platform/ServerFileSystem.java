@@ -59,6 +59,12 @@ public interface ServerFileSystem {
    */
   File getDeployedPluginsDir();
 
+  /**
+   * Plugins exploded by web server and compute engine, reused across restarts
+   * @return a non-null directory that MAY exist
+   */
+  File getExplodedPluginsCacheDir();
+
   /**
    * Directory of plugins downloaded through update center. Files
    * will be moved to {@link #getInstalledPluginsDir()} on startup.
@@ -80,6 +80,11 @@ public class ServerFileSystemImpl implements ServerFileSystem, org.sonar.api.pla
     return new File(getDeployDir(), "plugins");
   }
 
+  @Override
+  public File getExplodedPluginsCacheDir() {
+    return new File(getDataDir(), "exploded-plugins");
+  }
+
   @Override
   public File getDownloadedPluginsDir() {
     return new File(getHomeDir(), "extensions/downloads");
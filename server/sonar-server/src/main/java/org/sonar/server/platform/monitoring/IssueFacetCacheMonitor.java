@@ -0,0 +1,84 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.server.issue.index.IssueFacetCache;
+
+/**
+ * Efficiency of the cache of issue facets
+ */
+public class IssueFacetCacheMonitor extends BaseMonitorMBean implements IssueFacetCacheMonitorMBean {
+
+  private final IssueFacetCache facetCache;
+
+  public IssueFacetCacheMonitor(IssueFacetCache facetCache) {
+    this.facetCache = facetCache;
+  }
+
+  @Override
+  public String name() {
+    return "IssueFacetCache";
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return facetCache.isEnabled();
+  }
+
+  @Override
+  public long getSize() {
+    return facetCache.size();
+  }
+
+  @Override
+  public long getHitCount() {
+    return facetCache.hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return facetCache.missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    long total = getHitCount() + getMissCount();
+    return total == 0L ? 1.0 : ((double) getHitCount() / total);
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return facetCache.evictionCount();
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Enabled", isEnabled());
+    attributes.put("Size", getSize());
+    attributes.put("Hits", getHitCount());
+    attributes.put("Misses", getMissCount());
+    attributes.put("Hit Rate", getHitRate());
+    attributes.put("Evictions", getEvictionCount());
+    return attributes;
+  }
+}
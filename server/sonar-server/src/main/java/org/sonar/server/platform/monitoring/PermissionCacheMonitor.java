@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.server.permission.PermissionCache;
+
+/**
+ * Efficiency of the server-wide cache of user permissions
+ */
+public class PermissionCacheMonitor extends BaseMonitorMBean implements PermissionCacheMonitorMBean {
+
+  private final PermissionCache permissionCache;
+
+  public PermissionCacheMonitor(PermissionCache permissionCache) {
+    this.permissionCache = permissionCache;
+  }
+
+  @Override
+  public String name() {
+    return "PermissionCache";
+  }
+
+  @Override
+  public long getSize() {
+    return permissionCache.size();
+  }
+
+  @Override
+  public long getHitCount() {
+    return permissionCache.stats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return permissionCache.stats().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return permissionCache.stats().hitRate();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return permissionCache.stats().evictionCount();
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Size", getSize());
+    attributes.put("Hits", getHitCount());
+    attributes.put("Misses", getMissCount());
+    attributes.put("Hit Rate", getHitRate());
+    attributes.put("Evictions", getEvictionCount());
+    return attributes;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sonar.server.ws.WebServiceMetrics;
+
+/**
+ * Statistics of web service requests, globally and by action
+ */
+public class WebServiceMonitor extends BaseMonitorMBean implements WebServiceMonitorMBean {
+
+  private final WebServiceMetrics metrics;
+
+  public WebServiceMonitor(WebServiceMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String name() {
+    return "WebServices";
+  }
+
+  @Override
+  public int getInFlightRequests() {
+    return metrics.inFlightRequests();
+  }
+
+  @Override
+  public long getRequests() {
+    return metrics.requests();
+  }
+
+  @Override
+  public long getErrors() {
+    return metrics.errors();
+  }
+
+  @Override
+  public long getSlowRequests() {
+    return metrics.slowRequests();
+  }
+
+  @Override
+  public Map<String, Object> attributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("In Flight Requests", getInFlightRequests());
+    attributes.put("Requests", getRequests());
+    attributes.put("Errors", getErrors());
+    attributes.put("Slow Requests", getSlowRequests());
+    attributes.putAll(metrics.statisticsByAction());
+    return attributes;
+  }
+}
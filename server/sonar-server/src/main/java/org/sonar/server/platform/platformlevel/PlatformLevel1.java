@@ -40,7 +40,9 @@ import org.sonar.process.logging.LogbackHelper;
 import org.sonar.server.app.ProcessCommandWrapperImpl;
 import org.sonar.server.app.RestartFlagHolderImpl;
 import org.sonar.server.app.WebServerProcessLogging;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueIndexRefreshMarker;
 import org.sonar.server.platform.LogServerVersion;
 import org.sonar.server.platform.Platform;
 import org.sonar.server.platform.ServerFileSystemImpl;
@@ -111,6 +113,8 @@ public class PlatformLevel1 extends PlatformLevel {
 
       // issues
       IssueIndex.class,
+      IssueFacetCache.class,
+      IssueIndexRefreshMarker.class,
 
       new OkHttpClientProvider(),
       // Classes kept for backward compatibility of plugins/libs (like sonar-license) that are directly calling classes from the core
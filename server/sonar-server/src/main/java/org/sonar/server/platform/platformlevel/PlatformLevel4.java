@@ -89,6 +89,7 @@ import org.sonar.server.organization.OrganizationCreationImpl;
 import org.sonar.server.organization.OrganizationValidationImpl;
 import org.sonar.server.organization.ws.OrganizationsWsModule;
 import org.sonar.server.permission.GroupPermissionChanger;
+import org.sonar.server.permission.PermissionCache;
 import org.sonar.server.permission.PermissionTemplateService;
 import org.sonar.server.permission.PermissionUpdater;
 import org.sonar.server.permission.UserPermissionChanger;
@@ -100,6 +101,9 @@ import org.sonar.server.platform.PersistentSettings;
 import org.sonar.server.platform.ServerLogging;
 import org.sonar.server.platform.SettingsChangeNotifier;
 import org.sonar.server.platform.monitoring.DatabaseMonitor;
+import org.sonar.server.platform.monitoring.IssueFacetCacheMonitor;
+import org.sonar.server.platform.monitoring.PermissionCacheMonitor;
+import org.sonar.server.platform.monitoring.WebServiceMonitor;
 import org.sonar.server.platform.monitoring.EsMonitor;
 import org.sonar.server.platform.monitoring.JvmPropsMonitor;
 import org.sonar.server.platform.monitoring.PluginsMonitor;
@@ -161,6 +165,7 @@ import org.sonar.server.root.ws.RootWsModule;
 import org.sonar.server.rule.CommonRuleDefinitionsImpl;
 import org.sonar.server.rule.DeprecatedRulesDefinitionLoader;
 import org.sonar.server.rule.RuleCreator;
+import org.sonar.server.rule.RuleDefinitionsCache;
 import org.sonar.server.rule.RuleDefinitionsLoader;
 import org.sonar.server.rule.RuleUpdater;
 import org.sonar.server.rule.WebServerRuleFinderImpl;
@@ -215,6 +220,7 @@ import org.sonar.server.view.index.ViewIndexer;
 import org.sonar.server.webhook.ws.WebhooksWsModule;
 import org.sonar.server.ws.DeprecatedPropertiesWsFilter;
 import org.sonar.server.ws.WebServiceEngine;
+import org.sonar.server.ws.WebServiceMetrics;
 import org.sonar.server.ws.WebServiceFilter;
 import org.sonar.server.ws.WebServiceReroutingFilter;
 import org.sonar.server.ws.ws.WebServicesWsModule;
@@ -284,6 +290,7 @@ public class PlatformLevel4 extends PlatformLevel {
       RuleIndexer.class,
       AnnotationRuleParser.class,
       XMLRuleParser.class,
+      RuleDefinitionsCache.class,
       WebServerRuleFinderImpl.class,
       DeprecatedRulesDefinitionLoader.class,
       RuleDefinitionsLoader.class,
@@ -323,6 +330,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
       // web services
       WebServiceEngine.class,
+      WebServiceMetrics.class,
       WebServicesWsModule.class,
       WebServiceFilter.class,
       DeprecatedPropertiesWsFilter.class,
@@ -356,6 +364,7 @@ public class PlatformLevel4 extends PlatformLevel {
       // permissions
       DefaultTemplatesResolverImpl.class,
       PermissionsWsModule.class,
+      PermissionCache.class,
       PermissionTemplateService.class,
       PermissionUpdater.class,
       UserPermissionChanger.class,
@@ -480,6 +489,9 @@ public class PlatformLevel4 extends PlatformLevel {
       PluginsMonitor.class,
       JvmPropsMonitor.class,
       DatabaseMonitor.class,
+      PermissionCacheMonitor.class,
+      IssueFacetCacheMonitor.class,
+      WebServiceMonitor.class,
       MigrateDbAction.class,
       LogsAction.class,
       ChangeLogLevelAction.class,
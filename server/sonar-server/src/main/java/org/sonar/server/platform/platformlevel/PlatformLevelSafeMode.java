@@ -33,6 +33,7 @@ import org.sonar.server.platform.ws.MigrateDbAction;
 import org.sonar.server.platform.ws.StatusAction;
 import org.sonar.server.platform.ws.SystemWs;
 import org.sonar.server.ws.WebServiceEngine;
+import org.sonar.server.ws.WebServiceMetrics;
 import org.sonar.server.ws.WebServiceFilter;
 import org.sonar.server.ws.ws.WebServicesWsModule;
 
@@ -62,6 +63,7 @@ public class PlatformLevelSafeMode extends PlatformLevel {
 
       // WS engine
       WebServiceEngine.class,
+      WebServiceMetrics.class,
       WebServiceFilter.class,
 
       NoopDefaultOrganizationCache.class);
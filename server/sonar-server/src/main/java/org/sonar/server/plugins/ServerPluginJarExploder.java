@@ -20,10 +20,10 @@
 package org.sonar.server.plugins;
 
 import java.io.File;
+import java.util.Collection;
 import org.apache.commons.io.FileUtils;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.server.ServerSide;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.core.platform.ExplodedPlugin;
 import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.PluginJarExploder;
@@ -43,8 +43,9 @@ public class ServerPluginJarExploder extends PluginJarExploder {
 
   /**
    * JAR files of directory extensions/plugins can be moved when server is up and plugins are uninstalled.
-   * For this reason these files must not be locked by classloaders. They are copied to the directory
-   * web/deploy/plugins in order to be loaded by {@link org.sonar.core.platform.PluginLoader}.
+   * For this reason these files must not be locked by classloaders. The files loaded by classloaders
+   * are taken from the cache of exploded plugins, which is shared with compute engine and kept across restarts.
+   * JAR is also copied to the directory web/deploy/plugins in order to be downloaded by scanners.
    */
   @Override
   public ExplodedPlugin explode(PluginInfo pluginInfo) {
@@ -54,13 +55,19 @@ public class ServerPluginJarExploder extends PluginJarExploder {
       org.sonar.core.util.FileUtils.cleanDirectory(toDir);
 
       File jarSource = pluginInfo.getNonNullJarFile();
-      File jarTarget = new File(toDir, jarSource.getName());
-      FileUtils.copyFile(jarSource, jarTarget);
-      ZipUtils.unzip(jarSource, toDir, newLibFilter());
-      return explodeFromUnzippedDir(pluginInfo.getKey(), jarTarget, toDir);
+      FileUtils.copyFile(jarSource, new File(toDir, jarSource.getName()));
     } catch (Exception e) {
       throw new IllegalStateException(String.format(
-        "Fail to unzip plugin [%s] %s to %s", pluginInfo.getKey(), pluginInfo.getNonNullJarFile().getAbsolutePath(), toDir.getAbsolutePath()), e);
+        "Fail to copy plugin [%s] %s to %s", pluginInfo.getKey(), pluginInfo.getNonNullJarFile().getAbsolutePath(), toDir.getAbsolutePath()), e);
     }
+    return explodeInCache(pluginInfo, fs.getExplodedPluginsCacheDir());
+  }
+
+  /**
+   * Removes the stale versions of plugins from the cache of exploded plugins. Called at startup of web server,
+   * before compute engine starts loading plugins.
+   */
+  public void cleanCache(Collection<PluginInfo> installedPlugins) {
+    cleanCache(fs.getExplodedPluginsCacheDir(), installedPlugins);
   }
 }
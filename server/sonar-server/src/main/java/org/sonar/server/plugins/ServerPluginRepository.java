@@ -87,6 +87,7 @@ public class ServerPluginRepository implements PluginRepository, Startable {
   private final ServerFileSystem fs;
   private final ServerUpgradeStatus upgradeStatus;
   private final PluginLoader loader;
+  private final ServerPluginJarExploder jarExploder;
   private final AtomicBoolean started = new AtomicBoolean(false);
   private Set<String> blacklistedPluginKeys = DEFAULT_BLACKLISTED_PLUGINS;
 
@@ -95,11 +96,12 @@ public class ServerPluginRepository implements PluginRepository, Startable {
   private final Map<String, Plugin> pluginInstancesByKeys = new HashMap<>();
 
   public ServerPluginRepository(SonarRuntime runtime, ServerUpgradeStatus upgradeStatus,
-    ServerFileSystem fs, PluginLoader loader) {
+    ServerFileSystem fs, PluginLoader loader, ServerPluginJarExploder jarExploder) {
     this.runtime = runtime;
     this.upgradeStatus = upgradeStatus;
     this.fs = fs;
     this.loader = loader;
+    this.jarExploder = jarExploder;
   }
 
   @VisibleForTesting
@@ -285,6 +287,7 @@ public class ServerPluginRepository implements PluginRepository, Startable {
   }
 
   private void loadInstances() {
+    jarExploder.cleanCache(pluginInfosByKeys.values());
     pluginInstancesByKeys.putAll(loader.load(pluginInfosByKeys));
   }
 
@@ -22,7 +22,8 @@ package org.sonar.server.qualityprofile;
 import com.google.common.base.Splitter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.CheckForNull;
@@ -31,12 +32,14 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.server.rule.RuleParamType;
 import org.sonar.api.utils.System2;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.qualityprofile.ActiveRuleDao;
 import org.sonar.db.qualityprofile.ActiveRuleDto;
 import org.sonar.db.qualityprofile.ActiveRuleKey;
 import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.OrgActiveRuleDto;
 import org.sonar.db.qualityprofile.QProfileDto;
 import org.sonar.db.qualityprofile.RulesProfileDto;
 import org.sonar.db.rule.RuleDefinitionDto;
@@ -80,15 +83,20 @@ public class RuleActivator {
   public List<ActiveRuleChange> activateOnBuiltInRulesProfile(DbSession dbSession, RuleActivation activation, RulesProfileDto rulesProfile) {
     checkArgument(rulesProfile.isBuiltIn(), "Rules profile must be a built-in profile: " + rulesProfile.getKee());
     RuleActivatorContext context = contextFactory.createForBuiltIn(dbSession, activation.getRuleKey(), rulesProfile);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
   public List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QProfileDto profile) {
     RuleActivatorContext context = contextFactory.create(dbSession, activation.getRuleKey(), profile, false);
-    return doActivate(dbSession, activation, context);
+    return doActivate(dbSession, activation, context, null);
   }
 
-  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context) {
+  private List<ActiveRuleChange> activate(DbSession dbSession, RuleActivation activation, QProfileDto profile, RuleActivatorPreload preload) {
+    RuleActivatorContext context = contextFactory.create(preload, activation.getRuleKey(), profile, false);
+    return doActivate(dbSession, activation, context, preload);
+  }
+
+  private List<ActiveRuleChange> doActivate(DbSession dbSession, RuleActivation activation, RuleActivatorContext context, @Nullable RuleActivatorPreload preload) {
     context.verifyForActivation();
     List<ActiveRuleChange> changes = new ArrayList<>();
     ActiveRuleChange change;
@@ -133,27 +141,26 @@ public class RuleActivator {
 
     if (change != null) {
       changes.add(change);
-      persist(change, context, dbSession);
+      persist(change, context, dbSession, preload);
     }
 
     if (!stopPropagation) {
-      changes.addAll(cascadeActivation(dbSession, activation, context));
+      changes.addAll(cascadeActivation(dbSession, activation, context, preload));
     }
 
     if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
+      updateProfileDates(dbSession, context, preload);
     }
     return changes;
   }
 
-  private void updateProfileDates(DbSession dbSession, RuleActivatorContext context) {
+  private void updateProfileDates(DbSession dbSession, RuleActivatorContext context, @Nullable RuleActivatorPreload preload) {
     QProfileDto profile = context.getProfile();
-    if (profile != null) {
-      profile.setRulesUpdatedAtAsDate(context.getInitDate());
-      if (userSession.isLoggedIn()) {
-        profile.setUserUpdatedAt(context.getInitDate().getTime());
-      }
-      db.qualityProfileDao().update(dbSession, profile);
+    if (profile != null && preload != null) {
+      // profiles are updated once at the end of bulk changes
+      preload.markAsUpdated(profile);
+    } else if (profile != null) {
+      updateProfileDates(dbSession, profile, context.getInitDate());
     } else {
       // built-in profile, change rules_profiles.rules_updated_at
       RulesProfileDto rulesProfile = context.getRulesProfile();
@@ -162,6 +169,19 @@ public class RuleActivator {
     }
   }
 
+  private void updateProfileDates(DbSession dbSession, QProfileDto profile, Date date) {
+    profile.setRulesUpdatedAtAsDate(date);
+    if (userSession.isLoggedIn()) {
+      profile.setUserUpdatedAt(date.getTime());
+    }
+    db.qualityProfileDao().update(dbSession, profile);
+  }
+
+  private void updateProfileDates(DbSession dbSession, RuleActivatorPreload preload) {
+    Date now = new Date(system2.now());
+    preload.getUpdatedProfiles().forEach(profile -> updateProfileDates(dbSession, profile, now));
+  }
+
   /**
    * Severity and parameter values are :
    * 1. defined by end-user
@@ -232,40 +252,50 @@ public class RuleActivator {
     return null;
   }
 
-  private List<ActiveRuleChange> cascadeActivation(DbSession dbSession, RuleActivation activation, RuleActivatorContext context) {
+  private List<ActiveRuleChange> cascadeActivation(DbSession dbSession, RuleActivation activation, RuleActivatorContext context,
+    @Nullable RuleActivatorPreload preload) {
     List<ActiveRuleChange> changes = new ArrayList<>();
 
     // get all inherited profiles
-    getChildren(dbSession, context).forEach(child -> {
-      RuleActivatorContext childContext = contextFactory.create(dbSession, activation.getRuleKey(), child, true);
-      changes.addAll(doActivate(dbSession, activation, childContext));
+    getChildren(dbSession, context, preload).forEach(child -> {
+      RuleActivatorContext childContext = preload == null ? contextFactory.create(dbSession, activation.getRuleKey(), child, true)
+        : contextFactory.create(preload, activation.getRuleKey(), child, true);
+      changes.addAll(doActivate(dbSession, activation, childContext, preload));
     });
     return changes;
   }
 
-  protected List<QProfileDto> getChildren(DbSession session, RuleActivatorContext context) {
-    if (context.getProfile() != null) {
-      return db.qualityProfileDao().selectChildren(session, context.getProfile());
+  protected List<QProfileDto> getChildren(DbSession session, RuleActivatorContext context, @Nullable RuleActivatorPreload preload) {
+    QProfileDto profile = context.getProfile();
+    if (profile != null && preload != null) {
+      return preload.getChildren(profile);
+    }
+    if (profile != null) {
+      return db.qualityProfileDao().selectChildren(session, profile);
     }
     return db.qualityProfileDao().selectChildrenOfBuiltInRulesProfile(session, context.getRulesProfile());
   }
 
-  private void persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private void persist(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, @Nullable RuleActivatorPreload preload) {
     ActiveRuleDto activeRule = null;
+    Map<String, ActiveRuleParamDto> activeRuleParams = new HashMap<>(context.activeRuleParamsAsMap());
     if (change.getType() == ActiveRuleChange.Type.ACTIVATED) {
-      activeRule = doInsert(change, context, dbSession);
+      activeRule = doInsert(change, context, dbSession, activeRuleParams);
     } else if (change.getType() == ActiveRuleChange.Type.DEACTIVATED) {
       ActiveRuleDao dao = db.activeRuleDao();
       activeRule = dao.delete(dbSession, change.getKey()).orElse(null);
 
     } else if (change.getType() == ActiveRuleChange.Type.UPDATED) {
-      activeRule = doUpdate(change, context, dbSession);
+      activeRule = doUpdate(change, context, dbSession, activeRuleParams);
     }
     change.setActiveRule(activeRule);
     db.qProfileChangeDao().insert(dbSession, change.toDto(userSession.getLogin()));
+    if (preload != null) {
+      preload.onPersisted(change.getKey(), change.getType() == ActiveRuleChange.Type.DEACTIVATED ? null : activeRule, activeRuleParams.values());
+    }
   }
 
-  private ActiveRuleDto doInsert(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto doInsert(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, Map<String, ActiveRuleParamDto> activeRuleParams) {
     ActiveRuleDao dao = db.activeRuleDao();
     ActiveRuleDto activeRule = new ActiveRuleDto();
     activeRule.setProfileId(context.getRulesProfile().getId());
@@ -287,12 +317,13 @@ public class RuleActivator {
         ActiveRuleParamDto paramDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
         paramDto.setValue(param.getValue());
         dao.insertParam(dbSession, activeRule, paramDto);
+        activeRuleParams.put(param.getKey(), paramDto);
       }
     }
     return activeRule;
   }
 
-  private ActiveRuleDto doUpdate(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession) {
+  private ActiveRuleDto doUpdate(ActiveRuleChange change, RuleActivatorContext context, DbSession dbSession, Map<String, ActiveRuleParamDto> activeRuleParams) {
     ActiveRuleDao dao = db.activeRuleDao();
     ActiveRuleDto activeRule = context.activeRule();
     if (activeRule != null) {
@@ -315,6 +346,7 @@ public class RuleActivator {
             activeRuleParamDto = ActiveRuleParamDto.createFor(context.ruleParamsByKeys().get(param.getKey()));
             activeRuleParamDto.setValue(param.getValue());
             dao.insertParam(dbSession, activeRule, activeRuleParamDto);
+            activeRuleParams.put(param.getKey(), activeRuleParamDto);
           }
         } else {
           if (param.getValue() != null) {
@@ -322,6 +354,7 @@ public class RuleActivator {
             dao.updateParam(dbSession, activeRuleParamDto);
           } else {
             dao.deleteParam(dbSession, activeRuleParamDto);
+            activeRuleParams.remove(param.getKey());
           }
         }
       }
@@ -369,16 +402,22 @@ public class RuleActivator {
    */
   public List<ActiveRuleChange> deactivate(DbSession dbSession, QProfileDto profile, RuleKey ruleKey, boolean force) {
     RuleActivatorContext context = contextFactory.create(dbSession, ruleKey, profile, false);
-    return cascadeDeactivation(dbSession, context, ruleKey, force);
+    return cascadeDeactivation(dbSession, context, ruleKey, force, null);
+  }
+
+  private List<ActiveRuleChange> deactivate(DbSession dbSession, QProfileDto profile, RuleKey ruleKey, boolean force, RuleActivatorPreload preload) {
+    RuleActivatorContext context = contextFactory.create(preload, ruleKey, profile, false);
+    return cascadeDeactivation(dbSession, context, ruleKey, force, preload);
   }
 
   public List<ActiveRuleChange> deactivateOnBuiltInRulesProfile(DbSession dbSession, RulesProfileDto rulesProfile, RuleKey ruleKey, boolean force) {
     checkArgument(rulesProfile.isBuiltIn(), "Rules profile must be a built-in profile: " + rulesProfile.getKee());
     RuleActivatorContext context = contextFactory.createForBuiltIn(dbSession, ruleKey, rulesProfile);
-    return cascadeDeactivation(dbSession, context, ruleKey, force);
+    return cascadeDeactivation(dbSession, context, ruleKey, force, null);
   }
 
-  private List<ActiveRuleChange> cascadeDeactivation(DbSession dbSession, RuleActivatorContext context, RuleKey ruleKey, boolean force) {
+  private List<ActiveRuleChange> cascadeDeactivation(DbSession dbSession, RuleActivatorContext context, RuleKey ruleKey, boolean force,
+    @Nullable RuleActivatorPreload preload) {
     List<ActiveRuleChange> changes = new ArrayList<>();
     ActiveRuleChange change;
     ActiveRuleDto activeRuleDto = context.activeRule();
@@ -388,17 +427,18 @@ public class RuleActivator {
     checkRequest(force || context.isCascade() || activeRuleDto.getInheritance() == null, "Cannot deactivate inherited rule '%s'", ruleKey);
     change = new ActiveRuleChange(ActiveRuleChange.Type.DEACTIVATED, activeRuleDto);
     changes.add(change);
-    persist(change, context, dbSession);
+    persist(change, context, dbSession, preload);
 
     // get all inherited profiles (they are not built-in by design)
 
-    getChildren(dbSession, context).forEach(child -> {
-      RuleActivatorContext childContext = contextFactory.create(dbSession, ruleKey, child, true);
-      changes.addAll(cascadeDeactivation(dbSession, childContext, ruleKey, force));
+    getChildren(dbSession, context, preload).forEach(child -> {
+      RuleActivatorContext childContext = preload == null ? contextFactory.create(dbSession, ruleKey, child, true)
+        : contextFactory.create(preload, ruleKey, child, true);
+      changes.addAll(cascadeDeactivation(dbSession, childContext, ruleKey, force, preload));
     });
 
     if (!changes.isEmpty()) {
-      updateProfileDates(dbSession, context);
+      updateProfileDates(dbSession, context, preload);
     }
 
     return changes;
@@ -420,12 +460,13 @@ public class RuleActivator {
 
   public BulkChangeResult bulkActivate(DbSession dbSession, RuleQuery ruleQuery, QProfileDto profile, @Nullable String severity) {
     BulkChangeResult result = new BulkChangeResult();
-    Iterator<RuleKey> rules = ruleIndex.searchAll(ruleQuery);
-    while (rules.hasNext()) {
-      RuleKey ruleKey = rules.next();
+    List<RuleKey> ruleKeys = new ArrayList<>();
+    ruleIndex.searchAll(ruleQuery).forEachRemaining(ruleKeys::add);
+    RuleActivatorPreload preload = contextFactory.preload(dbSession, ruleKeys, profile);
+    for (RuleKey ruleKey : ruleKeys) {
       try {
         RuleActivation activation = RuleActivation.create(ruleKey, severity, null);
-        List<ActiveRuleChange> changes = activate(dbSession, activation, profile);
+        List<ActiveRuleChange> changes = activate(dbSession, activation, profile, preload);
         result.addChanges(changes);
         if (!changes.isEmpty()) {
           result.incrementSucceeded();
@@ -437,6 +478,7 @@ public class RuleActivator {
         result.getErrors().addAll(e.errors());
       }
     }
+    updateProfileDates(dbSession, preload);
     dbSession.commit();
     activeRuleIndexer.indexChanges(dbSession, result.getChanges());
     return result;
@@ -444,11 +486,12 @@ public class RuleActivator {
 
   public BulkChangeResult bulkDeactivate(DbSession dbSession, RuleQuery ruleQuery, QProfileDto profile) {
     BulkChangeResult result = new BulkChangeResult();
-    Iterator<RuleKey> rules = ruleIndex.searchAll(ruleQuery);
-    while (rules.hasNext()) {
+    List<RuleKey> ruleKeys = new ArrayList<>();
+    ruleIndex.searchAll(ruleQuery).forEachRemaining(ruleKeys::add);
+    RuleActivatorPreload preload = contextFactory.preload(dbSession, ruleKeys, profile);
+    for (RuleKey ruleKey : ruleKeys) {
       try {
-        RuleKey ruleKey = rules.next();
-        List<ActiveRuleChange> changes = deactivate(dbSession, profile, ruleKey);
+        List<ActiveRuleChange> changes = deactivate(dbSession, profile, ruleKey, false, preload);
         result.addChanges(changes);
         if (!changes.isEmpty()) {
           result.incrementSucceeded();
@@ -459,6 +502,7 @@ public class RuleActivator {
         result.getErrors().addAll(e.errors());
       }
     }
+    updateProfileDates(dbSession, preload);
     dbSession.commit();
     activeRuleIndexer.indexChanges(dbSession, result.getChanges());
     return result;
@@ -482,15 +526,20 @@ public class RuleActivator {
       // set new parent
       profile.setParentKee(parent.getKee());
       db.qualityProfileDao().update(dbSession, profile);
-      for (ActiveRuleDto parentActiveRule : db.activeRuleDao().selectByProfile(dbSession, parent)) {
+      List<RuleKey> ruleKeys = db.activeRuleDao().selectByProfile(dbSession, parent).stream()
+        .map(ActiveRuleDto::getRuleKey)
+        .collect(MoreCollectors.toList());
+      RuleActivatorPreload preload = contextFactory.preload(dbSession, ruleKeys, profile);
+      for (RuleKey ruleKey : ruleKeys) {
         try {
-          RuleActivation activation = RuleActivation.create(parentActiveRule.getRuleKey(), null, null);
-          changes.addAll(activate(dbSession, activation, profile));
+          RuleActivation activation = RuleActivation.create(ruleKey, null, null);
+          changes.addAll(activate(dbSession, activation, profile, preload));
         } catch (BadRequestException e) {
           // for example because rule status is REMOVED
           // TODO return errors
         }
       }
+      updateProfileDates(dbSession, preload);
     }
     dbSession.commit();
     activeRuleIndexer.indexChanges(dbSession, changes);
@@ -505,9 +554,12 @@ public class RuleActivator {
       List<ActiveRuleChange> changes = new ArrayList<>();
       profile.setParentKee(null);
       db.qualityProfileDao().update(dbSession, profile);
-      for (ActiveRuleDto activeRule : db.activeRuleDao().selectByProfile(dbSession, profile)) {
+      List<OrgActiveRuleDto> activeRules = db.activeRuleDao().selectByProfile(dbSession, profile);
+      RuleActivatorPreload preload = contextFactory.preload(dbSession,
+        activeRules.stream().filter(ActiveRuleDto::isInherited).map(ActiveRuleDto::getRuleKey).collect(MoreCollectors.toList()), profile);
+      for (ActiveRuleDto activeRule : activeRules) {
         if (ActiveRuleDto.INHERITED.equals(activeRule.getInheritance())) {
-          changes.addAll(deactivate(dbSession, profile, activeRule.getRuleKey(), true));
+          changes.addAll(deactivate(dbSession, profile, activeRule.getRuleKey(), true, preload));
         } else if (ActiveRuleDto.OVERRIDES.equals(activeRule.getInheritance())) {
           activeRule.setInheritance(null);
           activeRule.setUpdatedAt(system2.now());
@@ -515,6 +567,7 @@ public class RuleActivator {
           changes.add(new ActiveRuleChange(ActiveRuleChange.Type.UPDATED, activeRule).setInheritance(null));
         }
       }
+      updateProfileDates(dbSession, preload);
       return changes;
     }
     return Collections.emptyList();
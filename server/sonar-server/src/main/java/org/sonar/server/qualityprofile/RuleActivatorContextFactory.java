@@ -19,11 +19,15 @@
  */
 package org.sonar.server.qualityprofile;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.server.ServerSide;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.qualityprofile.ActiveRuleDto;
@@ -55,6 +59,61 @@ public class RuleActivatorContextFactory {
     return init(dbSession, ruleKey, context);
   }
 
+  /**
+   * Same as {@link #create(DbSession, RuleKey, QProfileDto, boolean)}, but reads the preloaded data instead of db
+   */
+  RuleActivatorContext create(RuleActivatorPreload preload, RuleKey ruleKey, QProfileDto profile, boolean cascade) {
+    RuleActivatorContext context = new RuleActivatorContext(profile, cascade);
+    Optional<RuleDefinitionDto> rule = preload.getRule(ruleKey);
+    checkRequest(rule.isPresent(), "Rule not found: %s", ruleKey);
+    context.setRule(rule.get());
+    context.setRuleParams(preload.getRuleParams(rule.get()));
+
+    Optional<ActiveRuleDto> activeRule = preload.getActiveRule(ActiveRuleKey.of(context.getRulesProfile(), ruleKey));
+    context.setActiveRule(activeRule.orElse(null));
+    context.setActiveRuleParams(activeRule.map(preload::getActiveRuleParams).orElse(null));
+
+    String parentUuid = profile.getParentKee();
+    QProfileDto parent = parentUuid == null ? null : preload.getProfile(parentUuid);
+    if (parent != null) {
+      Optional<ActiveRuleDto> parentActiveRule = preload.getActiveRule(ActiveRuleKey.of(RulesProfileDto.from(parent), ruleKey));
+      context.setParentActiveRule(parentActiveRule.orElse(null));
+      context.setParentActiveRuleParams(parentActiveRule.map(preload::getActiveRuleParams).orElse(null));
+    }
+    return context;
+  }
+
+  /**
+   * Load at once the data required to activate or deactivate the given rules on a profile and its descendants:
+   * the rules and their parameters, the profile, its parent and its descendants, and the related active rules.
+   */
+  RuleActivatorPreload preload(DbSession dbSession, Collection<RuleKey> ruleKeys, QProfileDto profile) {
+    RuleActivatorPreload preload = new RuleActivatorPreload();
+    List<RuleDefinitionDto> rules = db.ruleDao().selectDefinitionByKeys(dbSession, ruleKeys);
+    List<Integer> ruleIds = rules.stream().map(RuleDefinitionDto::getId).collect(MoreCollectors.toList(rules.size()));
+    preload.addRules(rules, db.ruleDao().selectRuleParamsByRuleIds(dbSession, ruleIds));
+
+    List<QProfileDto> profiles = new ArrayList<>();
+    profiles.add(profile);
+    profiles.addAll(db.qualityProfileDao().selectDescendants(dbSession, profile));
+    if (profile.getParentKee() != null) {
+      QProfileDto parent = db.qualityProfileDao().selectByUuid(dbSession, profile.getParentKee());
+      if (parent != null) {
+        profiles.add(parent);
+      }
+    }
+    Set<Integer> ruleIdSet = new HashSet<>(ruleIds);
+    for (QProfileDto p : profiles) {
+      preload.addProfile(p);
+      List<ActiveRuleDto> activeRules = db.activeRuleDao().selectByRuleProfile(dbSession, RulesProfileDto.from(p)).stream()
+        .filter(activeRule -> ruleIdSet.contains(activeRule.getRuleId()))
+        .collect(MoreCollectors.toList());
+      List<Integer> activeRuleIds = activeRules.stream().map(ActiveRuleDto::getId).collect(MoreCollectors.toList(activeRules.size()));
+      preload.addActiveRules(activeRules, db.activeRuleDao().selectParamsByActiveRuleIds(dbSession, activeRuleIds));
+    }
+    return preload;
+  }
+
   private RuleActivatorContext init(DbSession dbSession, RuleKey ruleKey, RuleActivatorContext context) {
     initRule(ruleKey, context, dbSession);
     initActiveRules(context.getRulesProfile(), ruleKey, context, dbSession, false);
@@ -0,0 +1,126 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.qualityprofile;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleKey;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QProfileDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.rule.RuleParamDto;
+
+/**
+ * Rules, quality profiles (a profile, its parent and its descendants) and active rules loaded at once
+ * by {@link RuleActivatorContextFactory#preload}, so that bulk changes of {@link RuleActivator} do not read
+ * db for each rule and each profile.
+ * <p>
+ * Active rules are updated as soon as changes are persisted, so that descendant profiles see the changes
+ * applied on their parent. Profiles are updated once, at the end of the bulk change.
+ */
+class RuleActivatorPreload {
+
+  private final Map<RuleKey, RuleDefinitionDto> rulesByKey = new HashMap<>();
+  private final ListMultimap<Integer, RuleParamDto> ruleParamsByRuleId = ArrayListMultimap.create();
+  private final Map<String, QProfileDto> profilesByUuid = new HashMap<>();
+  private final ListMultimap<String, QProfileDto> childrenByParentUuid = ArrayListMultimap.create();
+  private final Map<ActiveRuleKey, ActiveRuleDto> activeRulesByKey = new HashMap<>();
+  private final ListMultimap<Integer, ActiveRuleParamDto> activeRuleParamsByActiveRuleId = ArrayListMultimap.create();
+  private final Map<String, QProfileDto> updatedProfilesByUuid = new LinkedHashMap<>();
+
+  RuleActivatorPreload addRules(Collection<RuleDefinitionDto> rules, Collection<RuleParamDto> ruleParams) {
+    rules.forEach(rule -> rulesByKey.put(rule.getKey(), rule));
+    ruleParams.forEach(param -> ruleParamsByRuleId.put(param.getRuleId(), param));
+    return this;
+  }
+
+  RuleActivatorPreload addProfile(QProfileDto profile) {
+    profilesByUuid.put(profile.getKee(), profile);
+    String parentUuid = profile.getParentKee();
+    if (parentUuid != null) {
+      childrenByParentUuid.put(parentUuid, profile);
+    }
+    return this;
+  }
+
+  RuleActivatorPreload addActiveRules(Collection<? extends ActiveRuleDto> activeRules, Collection<ActiveRuleParamDto> activeRuleParams) {
+    activeRules.forEach(activeRule -> activeRulesByKey.put(activeRule.getKey(), activeRule));
+    activeRuleParams.forEach(param -> activeRuleParamsByActiveRuleId.put(param.getActiveRuleId(), param));
+    return this;
+  }
+
+  Optional<RuleDefinitionDto> getRule(RuleKey ruleKey) {
+    return Optional.ofNullable(rulesByKey.get(ruleKey));
+  }
+
+  List<RuleParamDto> getRuleParams(RuleDefinitionDto rule) {
+    return ruleParamsByRuleId.get(rule.getId());
+  }
+
+  @CheckForNull
+  QProfileDto getProfile(String uuid) {
+    return profilesByUuid.get(uuid);
+  }
+
+  List<QProfileDto> getChildren(QProfileDto profile) {
+    return childrenByParentUuid.get(profile.getKee());
+  }
+
+  Optional<ActiveRuleDto> getActiveRule(ActiveRuleKey key) {
+    return Optional.ofNullable(activeRulesByKey.get(key));
+  }
+
+  List<ActiveRuleParamDto> getActiveRuleParams(ActiveRuleDto activeRule) {
+    return activeRuleParamsByActiveRuleId.get(activeRule.getId());
+  }
+
+  /**
+   * Register the state of an active rule once a change is persisted.
+   *
+   * @param activeRule the persisted active rule, {@code null} if it has been deleted
+   */
+  void onPersisted(ActiveRuleKey key, @Nullable ActiveRuleDto activeRule, Collection<ActiveRuleParamDto> activeRuleParams) {
+    ActiveRuleDto previous = activeRule == null ? activeRulesByKey.remove(key) : activeRulesByKey.put(key, activeRule);
+    if (previous != null) {
+      activeRuleParamsByActiveRuleId.removeAll(previous.getId());
+    }
+    if (activeRule != null) {
+      activeRuleParamsByActiveRuleId.putAll(activeRule.getId(), activeRuleParams);
+    }
+  }
+
+  void markAsUpdated(QProfileDto profile) {
+    updatedProfilesByUuid.put(profile.getKee(), profile);
+  }
+
+  Collection<QProfileDto> getUpdatedProfiles() {
+    return updatedProfilesByUuid.values();
+  }
+}
@@ -19,9 +19,7 @@
  */
 package org.sonar.server.rule;
 
-import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Ordering;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,7 +27,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.rule.RuleKey;
@@ -38,21 +35,20 @@ import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.rules.RulePriority;
 import org.sonar.api.rules.RuleQuery;
+import org.sonar.api.utils.System2;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
-import org.sonar.db.DbSession;
 import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleParamDto;
 import org.sonar.markdown.Markdown;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static org.sonar.core.util.stream.MoreCollectors.toSet;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 
 /**
- * A {@link RuleFinder} implementation that retrieves all rule definitions and their parameter when instantiated, cache
- * them in memory and provide implementation of {@link RuleFinder}'s method which only read from this data in memory.
+ * A {@link RuleFinder} implementation that retrieves all rule definitions and their parameter from {@link RuleDefinitionsCache}
+ * when instantiated, and provide implementation of {@link RuleFinder}'s method which only read from this data in memory.
  */
 public class CachingRuleFinder implements RuleFinder {
 
@@ -63,33 +59,23 @@ public class CachingRuleFinder implements RuleFinder {
   private final Map<RuleKey, Rule> rulesByKey;
 
   public CachingRuleFinder(DbClient dbClient) {
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      this.rulesByRuleDefinition = buildRulesByRuleDefinitionDto(dbClient, dbSession);
-      this.rulesById = this.rulesByRuleDefinition.entrySet().stream()
-        .collect(uniqueIndex(entry -> entry.getKey().getId(), Map.Entry::getValue));
-      this.rulesByKey = this.rulesByRuleDefinition.entrySet().stream()
-        .collect(uniqueIndex(entry -> entry.getKey().getKey(), Map.Entry::getValue));
-    }
+    this(new RuleDefinitionsCache(dbClient, System2.INSTANCE));
   }
 
-  private static Map<RuleDefinitionDto, Rule> buildRulesByRuleDefinitionDto(DbClient dbClient, DbSession dbSession) {
-    List<RuleDefinitionDto> dtos = dbClient.ruleDao().selectAllDefinitions(dbSession);
-    Set<RuleKey> ruleKeys = dtos.stream().map(RuleDefinitionDto::getKey).collect(toSet(dtos.size()));
-    ListMultimap<Integer, RuleParamDto> ruleParamsByRuleId = retrieveRuleParameters(dbClient, dbSession, ruleKeys);
-    Map<RuleDefinitionDto, Rule> rulesByDefinition = new HashMap<>(dtos.size());
-    for (RuleDefinitionDto definition : dtos) {
-      rulesByDefinition.put(definition, toRule(definition, ruleParamsByRuleId.get(definition.getId())));
-    }
-    return ImmutableMap.copyOf(rulesByDefinition);
+  public CachingRuleFinder(RuleDefinitionsCache ruleDefinitionsCache) {
+    this.rulesByRuleDefinition = buildRulesByRuleDefinitionDto(ruleDefinitionsCache.get());
+    this.rulesById = this.rulesByRuleDefinition.entrySet().stream()
+      .collect(uniqueIndex(entry -> entry.getKey().getId(), Map.Entry::getValue));
+    this.rulesByKey = this.rulesByRuleDefinition.entrySet().stream()
+      .collect(uniqueIndex(entry -> entry.getKey().getKey(), Map.Entry::getValue));
   }
 
-  private static ImmutableListMultimap<Integer, RuleParamDto> retrieveRuleParameters(DbClient dbClient, DbSession dbSession, Set<RuleKey> ruleKeys) {
-    if (ruleKeys.isEmpty()) {
-      return ImmutableListMultimap.of();
+  private static Map<RuleDefinitionDto, Rule> buildRulesByRuleDefinitionDto(RuleDefinitionsCache.Snapshot rules) {
+    Map<RuleDefinitionDto, Rule> rulesByDefinition = new HashMap<>(rules.size());
+    for (RuleDefinitionDto definition : rules.getDefinitions()) {
+      rulesByDefinition.put(definition, toRule(definition, rules.getParams(definition.getId())));
     }
-    return dbClient.ruleDao().selectRuleParamsByRuleKeys(dbSession, ruleKeys)
-      .stream()
-      .collect(MoreCollectors.index(RuleParamDto::getRuleId));
+    return ImmutableMap.copyOf(rulesByDefinition);
   }
 
   @Override
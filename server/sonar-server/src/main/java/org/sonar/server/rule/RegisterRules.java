@@ -25,14 +25,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
+import org.sonar.api.SonarRuntime;
 import org.sonar.api.resources.Languages;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.RuleStatus;
@@ -69,6 +72,11 @@ public class RegisterRules implements Startable {
 
   private static final Logger LOG = Loggers.get(RegisterRules.class);
 
+  /**
+   * Internal property storing the {@link RuleRepositoryFingerprint} of each repository registered at last startup
+   */
+  static final String FINGERPRINTS_PROPERTY = "rules.fingerprints";
+
   private final RuleDefinitionsLoader defLoader;
   private final RuleActivator ruleActivator;
   private final DbClient dbClient;
@@ -78,10 +86,12 @@ public class RegisterRules implements Startable {
   private final System2 system2;
   private final OrganizationFlags organizationFlags;
   private final WebServerRuleFinder webServerRuleFinder;
+  private final RuleDefinitionsCache ruleDefinitionsCache;
+  private final SonarRuntime sonarRuntime;
 
   public RegisterRules(RuleDefinitionsLoader defLoader, RuleActivator ruleActivator, DbClient dbClient, RuleIndexer ruleIndexer,
     ActiveRuleIndexer activeRuleIndexer, Languages languages, System2 system2, OrganizationFlags organizationFlags,
-    WebServerRuleFinder webServerRuleFinder) {
+    WebServerRuleFinder webServerRuleFinder, RuleDefinitionsCache ruleDefinitionsCache, SonarRuntime sonarRuntime) {
     this.defLoader = defLoader;
     this.ruleActivator = ruleActivator;
     this.dbClient = dbClient;
@@ -91,18 +101,53 @@ public class RegisterRules implements Startable {
     this.system2 = system2;
     this.organizationFlags = organizationFlags;
     this.webServerRuleFinder = webServerRuleFinder;
+    this.ruleDefinitionsCache = ruleDefinitionsCache;
+    this.sonarRuntime = sonarRuntime;
   }
 
   @Override
   public void start() {
     Profiler profiler = Profiler.create(LOG).startInfo("Register rules");
     try (DbSession dbSession = dbClient.openSession(false)) {
-      Map<RuleKey, RuleDefinitionDto> allRules = loadRules(dbSession);
-      List<RuleKey> keysToIndex = new ArrayList<>();
-
       RulesDefinition.Context context = defLoader.load();
       boolean orgsEnabled = organizationFlags.isEnabled(dbSession);
-      for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
+      Map<String, List<RulesDefinition.ExtendedRepository>> repositoriesByKey = getRepositories(context);
+
+      Map<String, String> fingerprints = new HashMap<>();
+      repositoriesByKey.forEach((key, repositories) -> fingerprints.put(key,
+        RuleRepositoryFingerprint.of(repositories, languages, orgsEnabled, sonarRuntime.getApiVersion())));
+      Map<String, String> previousFingerprints = loadFingerprints(dbSession);
+      if (!fingerprints.isEmpty() && fingerprints.equals(previousFingerprints)) {
+        LOG.info("Rule repositories are unchanged since last startup");
+      } else {
+        Set<String> unchangedRepositoryKeys = fingerprints.entrySet().stream()
+          .filter(entry -> entry.getValue().equals(previousFingerprints.get(entry.getKey())))
+          .map(Map.Entry::getKey)
+          .collect(MoreCollectors.toSet());
+        registerRules(dbSession, context, orgsEnabled, repositoriesByKey, unchangedRepositoryKeys);
+        persistFingerprints(dbSession, fingerprints);
+        // many rules may have changed, loading all of them at once is cheaper than merging them into the cache
+        ruleDefinitionsCache.invalidate();
+      }
+      profiler.stopDebug();
+
+      webServerRuleFinder.startCaching();
+    }
+  }
+
+  private void registerRules(DbSession dbSession, RulesDefinition.Context context, boolean orgsEnabled,
+    Map<String, List<RulesDefinition.ExtendedRepository>> repositoriesByKey, Set<String> unchangedRepositoryKeys) {
+    Map<RuleKey, RuleDefinitionDto> allRules = loadRules(dbSession, unchangedRepositoryKeys);
+    Map<Integer, RuleDefinitionDto> rulesById = allRules.values().stream().collect(MoreCollectors.uniqueIndex(RuleDefinitionDto::getId));
+    Map<Integer, List<RuleParamDto>> paramsByRuleId = loadParams(dbSession, rulesById.keySet());
+    List<RuleKey> keysToIndex = new ArrayList<>();
+
+    for (Map.Entry<String, List<RulesDefinition.ExtendedRepository>> entry : repositoriesByKey.entrySet()) {
+      if (unchangedRepositoryKeys.contains(entry.getKey())) {
+        LOG.debug("Rule repository {} is unchanged since last startup", entry.getKey());
+        continue;
+      }
+      for (RulesDefinition.ExtendedRepository repoDef : entry.getValue()) {
         if (languages.get(repoDef.language()) != null) {
           for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
             RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
@@ -116,26 +161,55 @@ public class RegisterRules implements Startable {
               }
               continue;
             }
-            boolean relevantForIndex = registerRule(ruleDef, allRules, dbSession);
+            boolean relevantForIndex = registerRule(ruleDef, allRules, paramsByRuleId, dbSession);
             if (relevantForIndex) {
               keysToIndex.add(ruleKey);
             }
           }
-          dbSession.commit();
         }
       }
-      List<RuleDefinitionDto> removedRules = processRemainingDbRules(allRules.values(), dbSession);
-      List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(dbSession, removedRules, context);
       dbSession.commit();
-      keysToIndex.addAll(removedRules.stream().map(RuleDefinitionDto::getKey).collect(Collectors.toList()));
+    }
+    List<RuleDefinitionDto> removedRules = processRemainingDbRules(allRules.values(), rulesById, dbSession);
+    List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(dbSession, removedRules, context);
+    dbSession.commit();
+    keysToIndex.addAll(removedRules.stream().map(RuleDefinitionDto::getKey).collect(Collectors.toList()));
 
-      persistRepositories(dbSession, context.repositories());
-      ruleIndexer.indexRuleDefinitions(keysToIndex);
-      activeRuleIndexer.indexChanges(dbSession, changes);
-      profiler.stopDebug();
+    persistRepositories(dbSession, context.repositories());
+    ruleIndexer.indexRuleDefinitions(keysToIndex);
+    activeRuleIndexer.indexChanges(dbSession, changes);
+  }
 
-      webServerRuleFinder.startCaching();
+  private Map<String, String> loadFingerprints(DbSession dbSession) {
+    Optional<String> value = dbClient.internalPropertiesDao().selectByKey(dbSession, FINGERPRINTS_PROPERTY);
+    if (!value.isPresent()) {
+      return Collections.emptyMap();
     }
+    Map<String, String> fingerprints = new HashMap<>();
+    for (String line : StringUtils.split(value.get(), '\n')) {
+      int separator = line.lastIndexOf('=');
+      if (separator > 0) {
+        fingerprints.put(line.substring(0, separator), line.substring(separator + 1));
+      }
+    }
+    return fingerprints;
+  }
+
+  /**
+   * Fingerprints are saved once rules are persisted and indexed, so that an interrupted registration
+   * is replayed at next startup.
+   */
+  private void persistFingerprints(DbSession dbSession, Map<String, String> fingerprints) {
+    if (fingerprints.isEmpty()) {
+      dbClient.internalPropertiesDao().saveAsEmpty(dbSession, FINGERPRINTS_PROPERTY);
+    } else {
+      String value = fingerprints.entrySet().stream()
+        .map(entry -> entry.getKey() + "=" + entry.getValue())
+        .sorted()
+        .collect(Collectors.joining("\n"));
+      dbClient.internalPropertiesDao().save(dbSession, FINGERPRINTS_PROPERTY, value);
+    }
+    dbSession.commit();
   }
 
   private void persistRepositories(DbSession dbSession, List<RulesDefinition.Repository> repositories) {
@@ -153,14 +227,15 @@ public class RegisterRules implements Startable {
     // nothing
   }
 
-  private boolean registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDefinitionDto> allRules, DbSession session) {
+  private boolean registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDefinitionDto> allRules, Map<Integer, List<RuleParamDto>> paramsByRuleId,
+    DbSession session) {
     RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
 
     RuleDefinitionDto existingRule = allRules.remove(ruleKey);
     boolean newRule;
     RuleDefinitionDto rule;
     if (existingRule == null) {
-      rule = createRuleDto(ruleDef, session);
+      rule = createRuleDto(ruleDef);
       newRule = true;
     } else {
       rule = existingRule;
@@ -180,38 +255,58 @@ public class RegisterRules implements Startable {
       executeUpdate = true;
     }
 
-    if (executeUpdate) {
+    // new rules are merged before being inserted, so that they are written only once
+    if (newRule) {
+      dbClient.ruleDao().insert(session, rule);
+    } else if (executeUpdate) {
       update(session, rule);
     }
 
-    mergeParams(ruleDef, rule, session);
+    boolean paramsChanged = mergeParams(ruleDef, rule, paramsByRuleId.getOrDefault(rule.getId(), Collections.emptyList()), session);
+    if (paramsChanged && !newRule && !executeUpdate) {
+      // the update date of rules is used by RuleDefinitionsCache to detect the changes of their parameters
+      update(session, rule);
+    }
     return newRule || executeUpdate;
   }
 
-  private Map<RuleKey, RuleDefinitionDto> loadRules(DbSession session) {
+  private Map<RuleKey, RuleDefinitionDto> loadRules(DbSession session, Set<String> excludedRepositoryKeys) {
     Map<RuleKey, RuleDefinitionDto> rules = new HashMap<>();
     for (RuleDefinitionDto rule : dbClient.ruleDao().selectAllDefinitions(session)) {
-      rules.put(rule.getKey(), rule);
+      if (!excludedRepositoryKeys.contains(rule.getRepositoryKey())) {
+        rules.put(rule.getKey(), rule);
+      }
     }
     return rules;
   }
 
-  private List<RulesDefinition.ExtendedRepository> getRepositories(RulesDefinition.Context context) {
-    List<RulesDefinition.ExtendedRepository> repositories = new ArrayList<>();
+  private Map<Integer, List<RuleParamDto>> loadParams(DbSession session, Collection<Integer> ruleIds) {
+    Map<Integer, List<RuleParamDto>> paramsByRuleId = new HashMap<>();
+    for (RuleParamDto param : dbClient.ruleDao().selectRuleParamsByRuleIds(session, new ArrayList<>(ruleIds))) {
+      paramsByRuleId.computeIfAbsent(param.getRuleId(), id -> new ArrayList<>()).add(param);
+    }
+    return paramsByRuleId;
+  }
+
+  /**
+   * Repositories and their extensions, grouped by repository key
+   */
+  private static Map<String, List<RulesDefinition.ExtendedRepository>> getRepositories(RulesDefinition.Context context) {
+    Map<String, List<RulesDefinition.ExtendedRepository>> repositories = new LinkedHashMap<>();
     for (RulesDefinition.Repository repoDef : context.repositories()) {
-      repositories.add(repoDef);
+      repositories.computeIfAbsent(repoDef.key(), k -> new ArrayList<>()).add(repoDef);
     }
     for (RulesDefinition.ExtendedRepository extendedRepoDef : context.extendedRepositories()) {
       if (context.repository(extendedRepoDef.key()) == null) {
         LOG.warn(format("Extension is ignored, repository %s does not exist", extendedRepoDef.key()));
       } else {
-        repositories.add(extendedRepoDef);
+        repositories.get(extendedRepoDef.key()).add(extendedRepoDef);
       }
     }
     return repositories;
   }
 
-  private RuleDefinitionDto createRuleDto(RulesDefinition.Rule ruleDef, DbSession session) {
+  private RuleDefinitionDto createRuleDto(RulesDefinition.Rule ruleDef) {
     RuleDefinitionDto ruleDto = new RuleDefinitionDto()
       .setRuleKey(RuleKey.of(ruleDef.repository().key(), ruleDef.key()))
       .setIsTemplate(ruleDef.template())
@@ -232,8 +327,6 @@ public class RegisterRules implements Startable {
       ruleDto.setDescription(ruleDef.markdownDescription());
       ruleDto.setDescriptionFormat(Format.MARKDOWN);
     }
-
-    dbClient.ruleDao().insert(session, ruleDto);
     return ruleDto;
   }
 
@@ -327,9 +420,9 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDefinitionDto rule, DbSession session) {
-    List<RuleParamDto> paramDtos = dbClient.ruleDao().selectRuleParamsByRuleKey(session, rule.getKey());
+  private boolean mergeParams(RulesDefinition.Rule ruleDef, RuleDefinitionDto rule, List<RuleParamDto> paramDtos, DbSession session) {
     Map<String, RuleParamDto> existingParamsByName = Maps.newHashMap();
+    boolean changed = false;
 
     Profiler profiler = Profiler.create(Loggers.get(getClass()));
     for (RuleParamDto paramDto : paramDtos) {
@@ -339,9 +432,11 @@ public class RegisterRules implements Startable {
         dbClient.activeRuleDao().deleteParamsByRuleParamOfAllOrganizations(session, paramDto);
         profiler.stopDebug(format("Propagate deleted param with name %s to active rules of rule %s", paramDto.getName(), rule.getKey()));
         dbClient.ruleDao().deleteRuleParam(session, paramDto.getId());
+        changed = true;
       } else {
         if (mergeParam(paramDto, paramDef)) {
           dbClient.ruleDao().updateRuleParam(session, rule, paramDto);
+          changed = true;
         }
         existingParamsByName.put(paramDto.getName(), paramDto);
       }
@@ -359,6 +454,7 @@ public class RegisterRules implements Startable {
         .setDefaultValue(param.defaultValue())
         .setType(param.type().toString());
       dbClient.ruleDao().insertRuleParam(session, rule, paramDto);
+      changed = true;
       if (StringUtils.isEmpty(param.defaultValue())) {
         continue;
       }
@@ -370,6 +466,7 @@ public class RegisterRules implements Startable {
       }
       profiler.stopDebug(format("Propagate new param with name %s to active rules of rule %s", paramDto.getName(), rule.getKey()));
     }
+    return changed;
   }
 
   private boolean mergeParam(RuleParamDto paramDto, RulesDefinition.Param paramDef) {
@@ -405,7 +502,8 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private List<RuleDefinitionDto> processRemainingDbRules(Collection<RuleDefinitionDto> existingRules, DbSession session) {
+  private List<RuleDefinitionDto> processRemainingDbRules(Collection<RuleDefinitionDto> existingRules, Map<Integer, RuleDefinitionDto> rulesById,
+    DbSession session) {
     // custom rules check status of template, so they must be processed at the end
     List<RuleDefinitionDto> customRules = newArrayList();
     List<RuleDefinitionDto> removedRules = newArrayList();
@@ -421,7 +519,8 @@ public class RegisterRules implements Startable {
     for (RuleDefinitionDto customRule : customRules) {
       Integer templateId = customRule.getTemplateId();
       checkNotNull(templateId, "Template id of the custom rule '%s' is null", customRule);
-      Optional<RuleDefinitionDto> template = dbClient.ruleDao().selectDefinitionById(templateId, session);
+      Optional<RuleDefinitionDto> template = rulesById.containsKey(templateId) ? Optional.of(rulesById.get(templateId))
+        : dbClient.ruleDao().selectDefinitionById(templateId, session);
       if (template.isPresent() && template.get().getStatus() != RuleStatus.REMOVED) {
         if (updateCustomRuleFromTemplateRule(customRule, template.get())) {
           update(session, customRule);
@@ -49,6 +49,7 @@ import org.sonar.server.util.TypeValidations;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
+import static java.util.Collections.singletonList;
 import static org.sonar.server.ws.WsUtils.checkRequest;
 
 @ServerSide
@@ -59,13 +60,16 @@ public class RuleCreator {
   private final DbClient dbClient;
   private final TypeValidations typeValidations;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final RuleDefinitionsCache ruleDefinitionsCache;
 
-  public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations, DefaultOrganizationProvider defaultOrganizationProvider) {
+  public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations, DefaultOrganizationProvider defaultOrganizationProvider,
+    RuleDefinitionsCache ruleDefinitionsCache) {
     this.system2 = system2;
     this.ruleIndexer = ruleIndexer;
     this.dbClient = dbClient;
     this.typeValidations = typeValidations;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.ruleDefinitionsCache = ruleDefinitionsCache;
   }
 
   public RuleKey create(DbSession dbSession, NewCustomRule newRule) {
@@ -87,6 +91,7 @@ public class RuleCreator {
       .orElseGet(() -> createCustomRule(customRuleKey, newRule, templateRule, dbSession));
 
     dbSession.commit();
+    ruleDefinitionsCache.refresh(dbSession, singletonList(customRuleKey));
     ruleIndexer.indexRuleDefinition(customRuleKey);
     return customRuleKey;
   }
@@ -0,0 +1,277 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.ListMultimap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.stream.MoreCollectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.rule.RuleParamDto;
+
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+import static org.sonar.core.util.stream.MoreCollectors.toSet;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
+
+/**
+ * Process-wide cache of the definitions of rules and of their parameters, shared by the components
+ * which need all the rules, for example {@link CachingRuleFinder} in the Web Server or the rule repository
+ * of the Compute Engine tasks.
+ * <p>
+ * All the rules are loaded from database on first access. The version of the cache is then the most recent
+ * update date of the loaded rules. Each call to {@link #get(DbSession)} reads the most recent update date in table RULES
+ * and, if it is greater than the version, reloads the rules updated since the version minus {@link #SAFETY_MARGIN_MS}.
+ * <p>
+ * A rule committed late by another transaction, or by the other process (Web Server or Compute Engine) whose clock
+ * may differ, can have an update date older than the version, so that the most recent update date does not change.
+ * That's why the rules updated since the version minus the margin are also reloaded as long as the version
+ * is less than {@link #SAFETY_MARGIN_MS} old. Rules committed more than the margin after their update date
+ * are still missed until they are updated again or until the cache is invalidated.
+ * </p>
+ * </p>
+ * <p>
+ * Components which update the parameters of rules in the current process, without changing
+ * the update date of the rules, must call {@link #refresh(DbSession, Collection)}.
+ * </p>
+ * <p>
+ * {@link Snapshot}s are immutable. The DTOs they hold are shared, so they must not be modified.
+ * </p>
+ */
+@ServerSide
+@ComputeEngineSide
+public class RuleDefinitionsCache {
+
+  private static final Logger LOG = Loggers.get(RuleDefinitionsCache.class);
+  private static final Interner<String> INTERNER = Interners.newWeakInterner();
+  @VisibleForTesting
+  static final long SAFETY_MARGIN_MS = 60_000L;
+
+  private final DbClient dbClient;
+  private final System2 system2;
+  @Nullable
+  private volatile Snapshot snapshot;
+
+  public RuleDefinitionsCache(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  public Snapshot get() {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return get(dbSession);
+    }
+  }
+
+  /**
+   * Up-to-date rules, loaded when called for the first time or when some rules have been updated since the last call
+   */
+  public Snapshot get(DbSession dbSession) {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return loadAll(dbSession);
+    }
+    long maxUpdatedAt = dbClient.ruleDao().selectMaxUpdatedAt(dbSession);
+    if (!isReloadRequired(current, maxUpdatedAt)) {
+      return current;
+    }
+    return loadUpdatedSince(dbSession, maxUpdatedAt);
+  }
+
+  private boolean isReloadRequired(Snapshot current, long maxUpdatedAt) {
+    return maxUpdatedAt > current.getVersion() || system2.now() < current.getVersion() + SAFETY_MARGIN_MS;
+  }
+
+  private synchronized Snapshot loadAll(DbSession dbSession) {
+    Snapshot current = snapshot;
+    if (current == null) {
+      List<RuleDefinitionDto> definitions = dbClient.ruleDao().selectAllDefinitions(dbSession);
+      current = Snapshot.EMPTY.merge(definitions, selectParams(dbSession, definitions), maxUpdatedAt(definitions, 0L));
+      snapshot = current;
+      LOG.debug("{} rules loaded", current.size());
+    }
+    return current;
+  }
+
+  private synchronized Snapshot loadUpdatedSince(DbSession dbSession, long maxUpdatedAt) {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return loadAll(dbSession);
+    }
+    if (isReloadRequired(current, maxUpdatedAt)) {
+      Snapshot loaded = current;
+      List<RuleDefinitionDto> definitions = dbClient.ruleDao().selectDefinitionsUpdatedSince(dbSession, current.getVersion() - SAFETY_MARGIN_MS)
+        .stream()
+        .filter(definition -> !loaded.getById(definition.getId()).filter(d -> d.getUpdatedAt() == definition.getUpdatedAt()).isPresent())
+        .collect(toList());
+      if (!definitions.isEmpty()) {
+        current = current.merge(definitions, selectParams(dbSession, definitions), maxUpdatedAt(definitions, current.getVersion()));
+        snapshot = current;
+        LOG.debug("{} rules reloaded", definitions.size());
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Reloads the definitions and the parameters of some rules, if the cache is already loaded. Must be called
+   * once the changes are committed.
+   */
+  public synchronized void refresh(DbSession dbSession, Collection<RuleKey> ruleKeys) {
+    Snapshot current = snapshot;
+    if (current == null || ruleKeys.isEmpty()) {
+      return;
+    }
+    List<RuleDefinitionDto> definitions = dbClient.ruleDao().selectDefinitionByKeys(dbSession, ruleKeys);
+    // version is unchanged, so that the rules updated in the meantime by the other process are still loaded by next call to get()
+    snapshot = current.merge(definitions, selectParams(dbSession, definitions), current.getVersion());
+  }
+
+  /**
+   * Drops all the rules. They are loaded again on next call to {@link #get(DbSession)}.
+   */
+  public synchronized void invalidate() {
+    snapshot = null;
+  }
+
+  @VisibleForTesting
+  boolean isLoaded() {
+    return snapshot != null;
+  }
+
+  private static long maxUpdatedAt(List<RuleDefinitionDto> definitions, long initialValue) {
+    return definitions.stream().mapToLong(RuleDefinitionDto::getUpdatedAt).reduce(initialValue, Math::max);
+  }
+
+  private ListMultimap<Integer, RuleParamDto> selectParams(DbSession dbSession, List<RuleDefinitionDto> definitions) {
+    if (definitions.isEmpty()) {
+      return ImmutableListMultimap.of();
+    }
+    List<Integer> ruleIds = definitions.stream().map(RuleDefinitionDto::getId).collect(toList(definitions.size()));
+    return dbClient.ruleDao().selectRuleParamsByRuleIds(dbSession, ruleIds)
+      .stream()
+      .map(RuleDefinitionsCache::intern)
+      .collect(MoreCollectors.index(RuleParamDto::getRuleId));
+  }
+
+  private static RuleDefinitionDto intern(RuleDefinitionDto definition) {
+    return definition
+      .setRepositoryKey(INTERNER.intern(definition.getRepositoryKey()))
+      .setLanguage(internNullable(definition.getLanguage()))
+      .setDefRemediationFunction(internNullable(definition.getDefRemediationFunction()))
+      .setDefRemediationGapMultiplier(internNullable(definition.getDefRemediationGapMultiplier()))
+      .setDefRemediationBaseEffort(internNullable(definition.getDefRemediationBaseEffort()));
+  }
+
+  private static RuleParamDto intern(RuleParamDto param) {
+    return param
+      .setName(INTERNER.intern(param.getName()))
+      .setType(INTERNER.intern(param.getType()));
+  }
+
+  @CheckForNull
+  private static String internNullable(@Nullable String s) {
+    return s == null ? null : INTERNER.intern(s);
+  }
+
+  @Immutable
+  public static final class Snapshot {
+    private static final Snapshot EMPTY = new Snapshot(0L, ImmutableMap.of(), ImmutableListMultimap.of());
+
+    private final long version;
+    private final Map<Integer, RuleDefinitionDto> definitionsById;
+    private final Map<RuleKey, RuleDefinitionDto> definitionsByKey;
+    private final ListMultimap<Integer, RuleParamDto> paramsByRuleId;
+
+    private Snapshot(long version, Map<Integer, RuleDefinitionDto> definitionsById, ListMultimap<Integer, RuleParamDto> paramsByRuleId) {
+      this.version = version;
+      this.definitionsById = definitionsById;
+      this.definitionsByKey = definitionsById.values().stream().collect(uniqueIndex(RuleDefinitionDto::getKey, definitionsById.size()));
+      this.paramsByRuleId = paramsByRuleId;
+    }
+
+    /**
+     * Copy of this snapshot in which the rules {@code definitions} and their parameters replace
+     * the ones with the same ids
+     */
+    private Snapshot merge(List<RuleDefinitionDto> definitions, ListMultimap<Integer, RuleParamDto> params, long newVersion) {
+      if (definitions.isEmpty()) {
+        return this;
+      }
+      Map<Integer, RuleDefinitionDto> newDefinitionsById = new HashMap<>(definitionsById);
+      definitions.forEach(definition -> newDefinitionsById.put(definition.getId(), intern(definition)));
+      Set<Integer> reloadedRuleIds = definitions.stream().map(RuleDefinitionDto::getId).collect(toSet(definitions.size()));
+      ImmutableListMultimap.Builder<Integer, RuleParamDto> newParams = ImmutableListMultimap.builder();
+      paramsByRuleId.asMap().forEach((ruleId, ruleParams) -> {
+        if (!reloadedRuleIds.contains(ruleId)) {
+          newParams.putAll(ruleId, ruleParams);
+        }
+      });
+      newParams.putAll(params);
+      return new Snapshot(newVersion, ImmutableMap.copyOf(newDefinitionsById), newParams.build());
+    }
+
+    /**
+     * Most recent update date of the rules
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    public int size() {
+      return definitionsById.size();
+    }
+
+    public Collection<RuleDefinitionDto> getDefinitions() {
+      return definitionsById.values();
+    }
+
+    public Optional<RuleDefinitionDto> getById(int id) {
+      return Optional.ofNullable(definitionsById.get(id));
+    }
+
+    public Optional<RuleDefinitionDto> getByKey(RuleKey key) {
+      return Optional.ofNullable(definitionsByKey.get(key));
+    }
+
+    public List<RuleParamDto> getParams(int ruleId) {
+      return paramsByRuleId.get(ruleId);
+    }
+  }
+}
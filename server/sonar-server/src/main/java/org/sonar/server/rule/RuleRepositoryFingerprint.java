@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.TreeSet;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.resources.Languages;
+import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.server.rule.RulesDefinition;
+import org.sonar.api.utils.Version;
+
+/**
+ * Hash of all the definitions contributed to a rule repository (the repository itself and its extensions).
+ * It is persisted at the end of {@link RegisterRules} so that the repositories which did not change since
+ * the previous startup can be skipped. Any attribute read by {@link RegisterRules} must be part of the hash, as well as
+ * the version of the server.
+ */
+class RuleRepositoryFingerprint {
+
+  private static final char DELIMITER = ',';
+  private static final char END = ';';
+
+  private RuleRepositoryFingerprint() {
+    // only static methods
+  }
+
+  static String of(Collection<RulesDefinition.ExtendedRepository> repositories, Languages languages, boolean organizationsEnabled,
+    Version serverVersion) {
+    StringBuilder sb = new StringBuilder();
+    // rules are registered again on each upgrade, as the way they are stored may have changed
+    append(sb, serverVersion, organizationsEnabled);
+    sb.append(END);
+    for (RulesDefinition.ExtendedRepository repository : repositories) {
+      // only the main definition of a repository has a name, extensions do not
+      String name = repository instanceof RulesDefinition.Repository ? ((RulesDefinition.Repository) repository).name() : null;
+      append(sb, repository.key(), name, repository.language(), languages.get(repository.language()) != null);
+      sb.append(END);
+      repository.rules().stream()
+        .sorted(Comparator.comparing(RulesDefinition.Rule::key))
+        .forEach(rule -> appendRule(sb, rule));
+    }
+    return DigestUtils.sha256Hex(sb.toString());
+  }
+
+  private static void appendRule(StringBuilder sb, RulesDefinition.Rule rule) {
+    append(sb, rule.key(), rule.name(), rule.htmlDescription(), rule.markdownDescription(), rule.internalKey(), rule.severity(),
+      rule.template(), rule.status(), rule.type(), rule.gapDescription(), new TreeSet<>(rule.tags()));
+    DebtRemediationFunction debt = rule.debtRemediationFunction();
+    if (debt != null) {
+      append(sb, debt.type(), debt.gapMultiplier(), debt.baseEffort());
+    }
+    sb.append(END);
+    rule.params().stream()
+      .sorted(Comparator.comparing(RulesDefinition.Param::key))
+      .forEach(param -> {
+        append(sb, param.key(), param.description(), param.defaultValue(), param.type());
+        sb.append(END);
+      });
+  }
+
+  private static void append(StringBuilder sb, Object... values) {
+    for (Object value : values) {
+      // lengths prevent collisions between values containing the delimiters
+      String s = String.valueOf(value);
+      sb.append(s.length()).append(':').append(s).append(DELIMITER);
+    }
+  }
+}
@@ -62,11 +62,13 @@ public class RuleUpdater {
   private final DbClient dbClient;
   private final RuleIndexer ruleIndexer;
   private final System2 system;
+  private final RuleDefinitionsCache ruleDefinitionsCache;
 
-  public RuleUpdater(DbClient dbClient, RuleIndexer ruleIndexer, System2 system) {
+  public RuleUpdater(DbClient dbClient, RuleIndexer ruleIndexer, System2 system, RuleDefinitionsCache ruleDefinitionsCache) {
     this.dbClient = dbClient;
     this.ruleIndexer = ruleIndexer;
     this.system = system;
+    this.ruleDefinitionsCache = ruleDefinitionsCache;
   }
 
   /**
@@ -85,6 +87,7 @@ public class RuleUpdater {
     dbSession.commit();
 
     RuleKey ruleKey = rule.getKey();
+    ruleDefinitionsCache.refresh(dbSession, Collections.singletonList(ruleKey));
     ruleIndexer.indexRuleDefinition(ruleKey);
     ruleIndexer.indexRuleExtension(organization, ruleKey);
     return true;
@@ -30,20 +30,20 @@ import org.sonar.db.DbClient;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 
 public class WebServerRuleFinderImpl implements WebServerRuleFinder {
-  private final DbClient dbClient;
+  private final RuleDefinitionsCache ruleDefinitionsCache;
   private final RuleFinder defaultFinder;
   @VisibleForTesting
   RuleFinder delegate;
 
-  public WebServerRuleFinderImpl(DbClient dbClient, DefaultOrganizationProvider defaultOrganizationProvider) {
-    this.dbClient = dbClient;
+  public WebServerRuleFinderImpl(DbClient dbClient, DefaultOrganizationProvider defaultOrganizationProvider, RuleDefinitionsCache ruleDefinitionsCache) {
+    this.ruleDefinitionsCache = ruleDefinitionsCache;
     this.defaultFinder = new DefaultRuleFinder(dbClient, defaultOrganizationProvider);
     this.delegate = this.defaultFinder;
   }
 
   @Override
   public void startCaching() {
-    this.delegate = new CachingRuleFinder(dbClient);
+    this.delegate = new CachingRuleFinder(ruleDefinitionsCache);
   }
 
   @Override
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.source;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
 import org.sonar.core.util.stream.MoreCollectors;
@@ -60,18 +61,39 @@ public class SourceService {
     return getLines(dbSession, fileUuid, from, toInclusive, lineToHtml());
   }
 
+  /**
+   * Returns a range of lines that contain only the line number and the SCM fields. Source blob is not loaded.
+   * @see #getLines(DbSession, String, int, int)
+   */
+  public Optional<Iterable<DbFileSources.Line>> getScmLines(DbSession dbSession, String fileUuid, int from, int toInclusive) {
+    verifyRange(from, toInclusive);
+    FileSourceDto dto = dbClient.fileSourceDao().selectScmByFileUuid(dbSession, fileUuid);
+    if (dto == null) {
+      return Optional.empty();
+    }
+    return Optional.of(filter(dto.getScmLines(), from, toInclusive, Function.identity()));
+  }
+
   private <E> Optional<Iterable<E>> getLines(DbSession dbSession, String fileUuid, int from, int toInclusive, Function<DbFileSources.Line, E> function) {
-    verifyLine(from);
-    checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
+    verifyRange(from, toInclusive);
     FileSourceDto dto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, fileUuid);
     if (dto == null) {
       return Optional.empty();
     }
-    return Optional.of(dto.getSourceData().getLinesList().stream()
+    return Optional.of(filter(dto.getSourceData().getLinesList(), from, toInclusive, function));
+  }
+
+  private static <E> Iterable<E> filter(List<DbFileSources.Line> lines, int from, int toInclusive, Function<DbFileSources.Line, E> function) {
+    return lines.stream()
       .filter(line -> line.hasLine() && line.getLine() >= from)
       .limit((toInclusive - from) + 1L)
       .map(function)
-      .collect(MoreCollectors.toList()));
+      .collect(MoreCollectors.toList());
+  }
+
+  private static void verifyRange(int from, int toInclusive) {
+    verifyLine(from);
+    checkArgument(toInclusive >= from, String.format("Line number must greater than or equal to %d, got %d", from, toInclusive));
   }
 
   private static void verifyLine(int line) {
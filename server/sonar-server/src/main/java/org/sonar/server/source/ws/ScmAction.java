@@ -104,7 +104,7 @@ public class ScmAction implements SourcesWsAction {
     try (DbSession dbSession = dbClient.openSession(false)) {
       ComponentDto file = componentFinder.getByKey(dbSession, fileKey);
       userSession.checkComponentPermission(UserRole.CODEVIEWER, file);
-      Iterable<DbFileSources.Line> sourceLines = checkFoundWithOptional(sourceService.getLines(dbSession, file.uuid(), from, to), "File '%s' has no sources", fileKey);
+      Iterable<DbFileSources.Line> sourceLines = checkFoundWithOptional(sourceService.getScmLines(dbSession, file.uuid(), from, to), "File '%s' has no sources", fileKey);
       JsonWriter json = response.newJsonWriter().beginObject();
       writeSource(sourceLines, commitsByLine, json);
       json.endObject().close();
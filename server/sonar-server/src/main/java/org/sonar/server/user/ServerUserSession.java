@@ -41,6 +41,7 @@ import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationFlags;
+import org.sonar.server.permission.PermissionCache;
 
 import static com.google.common.collect.Maps.newHashMap;
 
@@ -53,17 +54,20 @@ public class ServerUserSession extends AbstractUserSession {
   private final DbClient dbClient;
   private final OrganizationFlags organizationFlags;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final PermissionCache permissionCache;
   private final Supplier<Collection<GroupDto>> groups = Suppliers.memoize(this::loadGroups);
+  private final Supplier<String> permissionCacheKey = Suppliers.memoize(this::loadPermissionCacheKey);
   private final Supplier<Boolean> isSystemAdministratorSupplier = Suppliers.memoize(this::loadIsSystemAdministrator);
   private final Map<String, String> projectUuidByComponentUuid = newHashMap();
   private Map<String, Set<OrganizationPermission>> permissionsByOrganizationUuid;
   private Map<String, Set<String>> permissionsByProjectUuid;
 
   ServerUserSession(DbClient dbClient, OrganizationFlags organizationFlags,
-    DefaultOrganizationProvider defaultOrganizationProvider, @Nullable UserDto userDto) {
+    DefaultOrganizationProvider defaultOrganizationProvider, PermissionCache permissionCache, @Nullable UserDto userDto) {
     this.dbClient = dbClient;
     this.organizationFlags = organizationFlags;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.permissionCache = permissionCache;
     this.userDto = userDto;
   }
 
@@ -76,6 +80,10 @@ public class ServerUserSession extends AbstractUserSession {
     }
   }
 
+  private String loadPermissionCacheKey() {
+    return PermissionCache.userKey(getUserId(), getGroups());
+  }
+
   @Override
   @CheckForNull
   public String getLogin() {
@@ -114,7 +122,8 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByOrganizationUuid == null) {
       permissionsByOrganizationUuid = new HashMap<>();
     }
-    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid, this::loadOrganizationPermissions);
+    Set<OrganizationPermission> permissions = permissionsByOrganizationUuid.computeIfAbsent(organizationUuid,
+      uuid -> permissionCache.getOrganizationPermissions(permissionCacheKey.get(), uuid, () -> loadOrganizationPermissions(uuid)));
     return permissions.contains(permission);
   }
 
@@ -154,7 +163,8 @@ public class ServerUserSession extends AbstractUserSession {
     if (permissionsByProjectUuid == null) {
       permissionsByProjectUuid = new HashMap<>();
     }
-    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid, this::loadProjectPermissions);
+    Set<String> permissions = permissionsByProjectUuid.computeIfAbsent(projectUuid,
+      uuid -> permissionCache.getProjectPermissions(permissionCacheKey.get(), uuid, () -> loadProjectPermissions(uuid)));
     return permissions.contains(permission);
   }
 
@@ -24,6 +24,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.OrganizationFlags;
+import org.sonar.server.permission.PermissionCache;
 
 import static java.util.Objects.requireNonNull;
 
@@ -33,22 +34,24 @@ public class UserSessionFactoryImpl implements UserSessionFactory {
   private final DbClient dbClient;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
   private final OrganizationFlags organizationFlags;
+  private final PermissionCache permissionCache;
 
   public UserSessionFactoryImpl(DbClient dbClient, DefaultOrganizationProvider defaultOrganizationProvider,
-    OrganizationFlags organizationFlags) {
+    OrganizationFlags organizationFlags, PermissionCache permissionCache) {
     this.dbClient = dbClient;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
     this.organizationFlags = organizationFlags;
+    this.permissionCache = permissionCache;
   }
 
   @Override
   public ServerUserSession create(UserDto user) {
     requireNonNull(user, "UserDto must not be null");
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, user);
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, permissionCache, user);
   }
 
   @Override
   public ServerUserSession createAnonymous() {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, null);
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, permissionCache, null);
   }
 }
@@ -62,7 +62,9 @@ public class WebhookDeliveriesAction implements WebhooksWsAction {
       .setSince("6.2")
       .setDescription("Get the recent deliveries for a specified project or Compute Engine task.<br/>" +
         "Require 'Administer' permission on the related project.<br/>" +
-        "Note that additional information are returned by api/webhooks/delivery.")
+        "Note that additional information are returned by api/webhooks/delivery.<br/>" +
+        "Deliveries are sent asynchronously by the Compute Engine. Failed deliveries are retried, except on read timeouts. " +
+        "Retries which are not started when the Compute Engine stops are dropped and are not listed.")
       .setResponseExample(Resources.getResource(this.getClass(), "example-deliveries.json"))
       .setHandler(this);
 
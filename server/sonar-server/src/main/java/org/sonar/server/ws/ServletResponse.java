@@ -23,10 +23,12 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.sonarqube.ws.MediaTypes.JSON;
 import static org.sonarqube.ws.MediaTypes.XML;
 
+import com.google.common.io.CountingOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.Collection;
+import javax.annotation.CheckForNull;
 import javax.servlet.http.HttpServletResponse;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.utils.text.JsonWriter;
@@ -42,6 +44,8 @@ public class ServletResponse implements Response {
 
   public static class ServletStream implements Stream {
     private final HttpServletResponse response;
+    @CheckForNull
+    private CountingOutputStream output;
 
     public ServletStream(HttpServletResponse response) {
       this.response = response;
@@ -64,11 +68,21 @@ public class ServletResponse implements Response {
 
     @Override
     public OutputStream output() {
-      try {
-        return response.getOutputStream();
-      } catch (IOException e) {
-        throw new IllegalStateException(e);
+      if (output == null) {
+        try {
+          output = new CountingOutputStream(response.getOutputStream());
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
       }
+      return output;
+    }
+
+    /**
+     * Number of bytes written to {@link #output()} since creation or last {@link #reset()}
+     */
+    long outputSize() {
+      return output == null ? 0L : output.getCount();
     }
 
     HttpServletResponse response() {
@@ -77,6 +91,7 @@ public class ServletResponse implements Response {
 
     public ServletStream reset() {
       response.reset();
+      output = null;
       return this;
     }
   }
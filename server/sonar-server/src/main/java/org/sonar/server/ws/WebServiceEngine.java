@@ -59,8 +59,10 @@ public class WebServiceEngine implements LocalConnector, Startable {
   private static final Logger LOGGER = Loggers.get(WebServiceEngine.class);
 
   private final WebService.Context context;
+  private final WebServiceMetrics metrics;
 
-  public WebServiceEngine(WebService[] webServices) {
+  public WebServiceEngine(WebService[] webServices, WebServiceMetrics metrics) {
+    this.metrics = metrics;
     context = new WebService.Context();
     for (WebService webService : webServices) {
       webService.define(context);
@@ -90,10 +92,13 @@ public class WebServiceEngine implements LocalConnector, Startable {
   }
 
   public void execute(Request request, Response response) {
+    WebServiceMetrics.Call call = null;
+    boolean failed = true;
     try {
       ActionExtractor actionExtractor = new ActionExtractor(request.getPath());
       WebService.Action action = getAction(actionExtractor);
       checkFound(action, "Unknown url : %s", request.getPath());
+      call = metrics.start(action);
       if (request instanceof ValidatingRequest) {
         ((ValidatingRequest) request).setAction(action);
         ((ValidatingRequest) request).setLocalConnector(this);
@@ -101,6 +106,7 @@ public class WebServiceEngine implements LocalConnector, Startable {
       checkActionExtension(actionExtractor.getExtension());
       verifyRequest(action, request);
       action.handler().handle(request, response);
+      failed = false;
     } catch (IllegalArgumentException e) {
       sendErrors(response, 400, singletonList(e.getMessage()));
     } catch (BadRequestException e) {
@@ -118,7 +124,19 @@ public class WebServiceEngine implements LocalConnector, Startable {
       // Sending exception message into response is a vulnerability. Error must be
       // displayed only in logs.
       sendErrors(response, 500, singletonList("An error has occurred. Please contact your administrator"));
+    } finally {
+      if (call != null) {
+        call.stop(request, responseSize(response), failed);
+      }
+    }
+  }
+
+  private static long responseSize(Response response) {
+    Response.Stream stream = response.stream();
+    if (stream instanceof ServletResponse.ServletStream) {
+      return ((ServletResponse.ServletStream) stream).outputSize();
     }
+    return 0L;
   }
 
   @CheckForNull
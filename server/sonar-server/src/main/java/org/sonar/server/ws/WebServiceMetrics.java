@@ -0,0 +1,221 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.sonar.api.config.Settings;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.profiling.SqlStatementCounter;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Latency, throughput, response size and error rate of each web service action executed by
+ * {@link WebServiceEngine}. Requests lasting more than {@link #SLOW_REQUEST_THRESHOLD_PROPERTY} milliseconds
+ * are logged with their parameters and the number of SQL statements they executed. Like the other
+ * sonar.web.* properties, the threshold is defined in conf/sonar.properties.
+ */
+@ServerSide
+public class WebServiceMetrics {
+
+  public static final String SLOW_REQUEST_THRESHOLD_PROPERTY = "sonar.web.slowRequestThresholdMs";
+  private static final int SLOW_REQUEST_THRESHOLD_DEFAULT_VALUE_MS = 5_000;
+
+  /**
+   * Upper bounds, in milliseconds, of the buckets of latency histograms. Last bucket is unbounded.
+   */
+  static final long[] LATENCY_BUCKETS_MS = {10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000};
+
+  private static final Logger LOGGER = Loggers.get(WebServiceMetrics.class);
+  private static final String MASKED_VALUE = "******";
+
+  private final System2 system2;
+  private final int slowRequestThresholdMs;
+  private final ConcurrentMap<String, ActionMetrics> metricsByAction = new ConcurrentHashMap<>();
+
+  public WebServiceMetrics(Settings settings, System2 system2) {
+    this.system2 = system2;
+    this.slowRequestThresholdMs = settings.hasKey(SLOW_REQUEST_THRESHOLD_PROPERTY) ? settings.getInt(SLOW_REQUEST_THRESHOLD_PROPERTY)
+      : SLOW_REQUEST_THRESHOLD_DEFAULT_VALUE_MS;
+  }
+
+  Call start(WebService.Action action) {
+    ActionMetrics metrics = metricsByAction.computeIfAbsent(action.path(), path -> new ActionMetrics());
+    metrics.inFlight.incrementAndGet();
+    return new Call(action, metrics, system2.now(), SqlStatementCounter.get());
+  }
+
+  public int inFlightRequests() {
+    return metricsByAction.values().stream().mapToInt(m -> m.inFlight.get()).sum();
+  }
+
+  public long requests() {
+    return metricsByAction.values().stream().mapToLong(m -> m.requests.sum()).sum();
+  }
+
+  public long errors() {
+    return metricsByAction.values().stream().mapToLong(m -> m.errors.sum()).sum();
+  }
+
+  public long slowRequests() {
+    return metricsByAction.values().stream().mapToLong(m -> m.slowRequests.sum()).sum();
+  }
+
+  /**
+   * Statistics by action path, sorted by decreasing total time, so that most expensive actions come first
+   */
+  public Map<String, Map<String, Object>> statisticsByAction() {
+    Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+    metricsByAction.entrySet().stream()
+      .sorted(comparing((Map.Entry<String, ActionMetrics> e) -> e.getValue().totalTimeMs.sum()).reversed())
+      .forEach(e -> result.put(e.getKey(), e.getValue().toMap()));
+    return result;
+  }
+
+  private static class ActionMetrics {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder slowRequests = new LongAdder();
+    private final LongAdder totalTimeMs = new LongAdder();
+    private final LongAdder totalResponseBytes = new LongAdder();
+    private final AtomicLong maxTimeMs = new AtomicLong();
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+
+    private void record(long durationMs, long responseBytes, boolean failed) {
+      requests.increment();
+      if (failed) {
+        errors.increment();
+      }
+      totalTimeMs.add(durationMs);
+      totalResponseBytes.add(responseBytes);
+      maxTimeMs.accumulateAndGet(durationMs, Math::max);
+      latencyHistogram.incrementAndGet(bucketOf(durationMs));
+    }
+
+    private static int bucketOf(long durationMs) {
+      for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+        if (durationMs <= LATENCY_BUCKETS_MS[i]) {
+          return i;
+        }
+      }
+      return LATENCY_BUCKETS_MS.length;
+    }
+
+    /**
+     * Upper bound of the bucket containing the given percentile, -1 if the percentile is in the unbounded bucket
+     */
+    private static long percentile(long[] histogram, long count, double percentile) {
+      long threshold = (long) Math.ceil(count * percentile);
+      long cumulated = 0L;
+      for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+        cumulated += histogram[i];
+        if (cumulated >= threshold) {
+          return LATENCY_BUCKETS_MS[i];
+        }
+      }
+      return -1L;
+    }
+
+    private Map<String, Object> toMap() {
+      long[] histogram = new long[latencyHistogram.length()];
+      long count = 0L;
+      for (int i = 0; i < histogram.length; i++) {
+        histogram[i] = latencyHistogram.get(i);
+        count += histogram[i];
+      }
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("Requests", count);
+      map.put("In Flight", inFlight.get());
+      map.put("Errors", errors.sum());
+      map.put("Slow Requests", slowRequests.sum());
+      map.put("Total Time (ms)", totalTimeMs.sum());
+      map.put("Max Time (ms)", maxTimeMs.get());
+      if (count > 0) {
+        map.put("Average Time (ms)", totalTimeMs.sum() / count);
+        map.put("Median Time (ms)", percentile(histogram, count, 0.5d));
+        map.put("95th Percentile Time (ms)", percentile(histogram, count, 0.95d));
+        map.put("99th Percentile Time (ms)", percentile(histogram, count, 0.99d));
+        map.put("Average Response Size (bytes)", totalResponseBytes.sum() / count);
+      }
+      return map;
+    }
+  }
+
+  class Call {
+    private final WebService.Action action;
+    private final ActionMetrics metrics;
+    private final long startedAt;
+    private final long sqlCountAtStart;
+
+    private Call(WebService.Action action, ActionMetrics metrics, long startedAt, long sqlCountAtStart) {
+      this.action = action;
+      this.metrics = metrics;
+      this.startedAt = startedAt;
+      this.sqlCountAtStart = sqlCountAtStart;
+    }
+
+    void stop(Request request, long responseBytes, boolean failed) {
+      long durationMs = system2.now() - startedAt;
+      metrics.inFlight.decrementAndGet();
+      metrics.record(durationMs, responseBytes, failed);
+      if (slowRequestThresholdMs > 0 && durationMs >= slowRequestThresholdMs) {
+        metrics.slowRequests.increment();
+        LOGGER.warn("Slow request {} | time={}ms | sql={} | params={}", action.path(), durationMs, SqlStatementCounter.get() - sqlCountAtStart,
+          formatParams(request));
+      }
+    }
+
+    private String formatParams(Request request) {
+      Map<String, String> params = new TreeMap<>();
+      for (WebService.Param param : action.params()) {
+        String key = param.key();
+        try {
+          if (request.hasParam(key)) {
+            params.put(key, isSensitive(key) ? MASKED_VALUE : request.param(key));
+          }
+        } catch (RuntimeException e) {
+          // for example binary parts of multipart requests
+          params.put(key, "?");
+        }
+      }
+      return params.toString();
+    }
+  }
+
+  private static boolean isSensitive(String paramKey) {
+    String key = paramKey.toLowerCase(Locale.ENGLISH);
+    return key.contains("password") || key.contains("token") || key.contains("secret");
+  }
+}
@@ -37,11 +37,14 @@ import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.server.component.TestComponentFinder;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexDefinition;
+import org.sonar.server.issue.index.IssueIndexRefreshMarker;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.issue.index.IssueIteratorFactory;
 import org.sonar.server.permission.index.AuthorizationTypeSupport;
+import org.sonar.server.permission.index.AuthorizedProjectsCache;
 import org.sonar.server.permission.index.PermissionIndexerTester;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.TestResponse;
@@ -76,10 +79,12 @@ public class IssuesActionTest {
 
   private static RuleDefinitionDto RULE_DEFINITION = newRule(RuleKey.of("squid", "AvoidCycle"));
 
-  private IssueIndexer issueIndexer = new IssueIndexer(es.client(), new IssueIteratorFactory(db.getDbClient()));
+  private IssueIndexRefreshMarker refreshMarker = new IssueIndexRefreshMarker(db.getDbClient(), System2.INSTANCE);
+  private IssueFacetCache facetCache = new IssueFacetCache(new MapSettings(), refreshMarker);
+  private IssueIndexer issueIndexer = new IssueIndexer(es.client(), new IssueIteratorFactory(db.getDbClient()), refreshMarker);
   private PermissionIndexerTester authorizationIndexerTester = new PermissionIndexerTester(es, issueIndexer);
   private WsActionTester tester = new WsActionTester(new IssuesAction(db.getDbClient(),
-    new IssueIndex(es.client(), system2, userSessionRule, new AuthorizationTypeSupport(userSessionRule)),
+    new IssueIndex(es.client(), system2, userSessionRule, new AuthorizationTypeSupport(userSessionRule, new AuthorizedProjectsCache(es.client(), new MapSettings())), facetCache),
     userSessionRule, TestComponentFinder.from(db)));
 
   @Test
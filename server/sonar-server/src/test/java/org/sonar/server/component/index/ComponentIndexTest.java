@@ -36,6 +36,7 @@ import org.sonar.db.organization.OrganizationTesting;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.textsearch.ComponentTextSearchFeatureRule;
 import org.sonar.server.permission.index.AuthorizationTypeSupport;
+import org.sonar.server.permission.index.AuthorizedProjectsCache;
 import org.sonar.server.permission.index.PermissionIndexerTester;
 import org.sonar.server.tester.UserSessionRule;
 
@@ -60,7 +61,7 @@ public abstract class ComponentIndexTest {
   public ComponentTextSearchFeatureRule features = new ComponentTextSearchFeatureRule();
 
   protected ComponentIndexer indexer = new ComponentIndexer(db.getDbClient(), es.client());
-  protected ComponentIndex index = new ComponentIndex(es.client(), new AuthorizationTypeSupport(userSession));
+  protected ComponentIndex index = new ComponentIndex(es.client(), new AuthorizationTypeSupport(userSession, new AuthorizedProjectsCache(es.client(), new MapSettings())));
   protected PermissionIndexerTester authorizationIndexerTester = new PermissionIndexerTester(es, indexer);
   private OrganizationDto organization;
 
@@ -27,6 +27,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.internal.JUnitTempFolder;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
@@ -72,7 +73,9 @@ public class BatchReportReaderImplTest {
 
   @Test
   public void readMetadata_result_is_cached() {
-    ScannerReport.Metadata metadata = ScannerReport.Metadata.newBuilder().build();
+    ScannerReport.Metadata metadata = ScannerReport.Metadata.newBuilder()
+      .setReportFormatVersion(FileStructure.SEGMENTED_FORMAT_VERSION)
+      .build();
 
     writer.writeMetadata(metadata);
 
@@ -0,0 +1,175 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.formula;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.SetMultimap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.PathAwareCrawler;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.measure.Measure;
+import org.sonar.server.computation.task.projectanalysis.measure.MeasureRepository;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricRepositoryRule;
+
+import static org.sonar.server.computation.task.projectanalysis.formula.SumFormula.createIntSumFormula;
+import static org.sonar.server.computation.task.projectanalysis.formula.SumFormula.createLongSumFormula;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+
+/**
+ * Time taken by {@link FormulaExecutorComponentVisitor} to aggregate five sum formulas (lines, ncloc, functions,
+ * statements and technical debt) from the files up to the project. By default, the tree has 10 modules of 100
+ * directories of 100 files. The measures of files are constant and the aggregated measures are only counted,
+ * so that the time is spent in the visitor and the counters.
+ * <p>
+ * Run {@link #main(String[])}, for example from IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormulaExecutorComponentVisitorBenchmark {
+
+  private static final List<Formula> FORMULAS = ImmutableList.of(
+    createIntSumFormula(CoreMetrics.LINES_KEY),
+    createIntSumFormula(CoreMetrics.NCLOC_KEY),
+    createIntSumFormula(CoreMetrics.FUNCTIONS_KEY),
+    createIntSumFormula(CoreMetrics.STATEMENTS_KEY),
+    createLongSumFormula(CoreMetrics.TECHNICAL_DEBT_KEY));
+
+  @Param({"10"})
+  public int modules;
+
+  @Param({"100"})
+  public int directoriesPerModule;
+
+  @Param({"100"})
+  public int filesPerDirectory;
+
+  private Component root;
+  private MetricRepositoryRule metricRepository;
+  private CountingMeasureRepository measureRepository;
+
+  @Setup
+  public void setUp() {
+    root = newTree(modules, directoriesPerModule, filesPerDirectory);
+    metricRepository = new MetricRepositoryRule()
+      .add(CoreMetrics.LINES)
+      .add(CoreMetrics.NCLOC)
+      .add(CoreMetrics.FUNCTIONS)
+      .add(CoreMetrics.STATEMENTS)
+      .add(CoreMetrics.TECHNICAL_DEBT);
+    measureRepository = new CountingMeasureRepository();
+  }
+
+  @Benchmark
+  public int execute_sum_formulas() {
+    measureRepository.addedMeasures = 0;
+    new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
+      .visit(root);
+    return measureRepository.addedMeasures;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(FormulaExecutorComponentVisitorBenchmark.class.getSimpleName())
+      .build())
+        .run();
+  }
+
+  private static Component newTree(int modules, int directoriesPerModule, int filesPerDirectory) {
+    int ref = 1;
+    ReportComponent.Builder project = ReportComponent.builder(Component.Type.PROJECT, ref++);
+    for (int m = 0; m < modules; m++) {
+      ReportComponent.Builder module = ReportComponent.builder(Component.Type.MODULE, ref++);
+      for (int d = 0; d < directoriesPerModule; d++) {
+        ReportComponent.Builder directory = ReportComponent.builder(Component.Type.DIRECTORY, ref++);
+        for (int f = 0; f < filesPerDirectory; f++) {
+          directory.addChildren(ReportComponent.builder(Component.Type.FILE, ref++).build());
+        }
+        module.addChildren(directory.build());
+      }
+      project.addChildren(module.build());
+    }
+    return project.build();
+  }
+
+  /**
+   * Returns the same raw measure for every file and metric, and only counts the measures added by the formulas,
+   * so that the benchmark measures the formula execution rather than the storage of measures.
+   */
+  private static class CountingMeasureRepository implements MeasureRepository {
+    private static final Optional<Measure> INT_MEASURE = Optional.of(newMeasureBuilder().create(10));
+    private static final Optional<Measure> LONG_MEASURE = Optional.of(newMeasureBuilder().create(10L));
+
+    private int addedMeasures = 0;
+
+    @Override
+    public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+      return Optional.absent();
+    }
+
+    @Override
+    public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+      return metric.getType() == Metric.MetricType.WORK_DUR ? LONG_MEASURE : INT_MEASURE;
+    }
+
+    @Override
+    public Set<Measure> getRawMeasures(Component component, Metric metric) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SetMultimap<String, Measure> getRawMeasures(Component component) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(Component component, Metric metric, Measure measure) {
+      addedMeasures++;
+    }
+
+    @Override
+    public void update(Component component, Metric metric, Measure measure) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -21,17 +21,22 @@ package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.RuleStatus;
 import org.sonar.api.rules.RuleType;
+import org.sonar.api.server.debt.DebtRemediationFunction;
+import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.rule.RuleDao;
 import org.sonar.db.rule.RuleDto;
+import org.sonar.db.rule.RuleMetadataDto;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
+import org.sonar.server.rule.RuleDefinitionsCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.guava.api.Assertions.assertThat;
@@ -62,13 +67,13 @@ public class RuleRepositoryImplTest {
   private DbSession dbSession = mock(DbSession.class);
   private RuleDao ruleDao = mock(RuleDao.class);
 
-  RuleRepositoryImpl underTest = new RuleRepositoryImpl(dbClient, analysisMetadataHolder);
+  RuleRepositoryImpl underTest = new RuleRepositoryImpl(dbClient, analysisMetadataHolder, new RuleDefinitionsCache(dbClient, System2.INSTANCE));
 
   @Before
   public void setUp() throws Exception {
     when(dbClient.openSession(anyBoolean())).thenReturn(dbSession);
     when(dbClient.ruleDao()).thenReturn(ruleDao);
-    when(ruleDao.selectAll(any(DbSession.class), eq(ORGANIZATION_UUID))).thenReturn(ImmutableList.of(AB_RULE));
+    when(ruleDao.selectAllDefinitions(any(DbSession.class))).thenReturn(ImmutableList.of(AB_RULE.getDefinition()));
   }
 
   @Test
@@ -80,7 +85,8 @@ public class RuleRepositoryImplTest {
   public void first_call_to_getByKey_triggers_call_to_db_and_any_subsequent_get_or_find_call_does_not() {
     underTest.getByKey(AB_RULE.getKey());
 
-    verify(ruleDao, times(1)).selectAll(any(DbSession.class), eq(ORGANIZATION_UUID));
+    verify(ruleDao, times(1)).selectAllDefinitions(any(DbSession.class));
+    verify(ruleDao, times(1)).selectMetadataByOrganization(any(DbSession.class), eq(ORGANIZATION_UUID));
 
     verifyNoMethodCallTriggersCallToDB();
   }
@@ -89,7 +95,8 @@ public class RuleRepositoryImplTest {
   public void first_call_to_findByKey_triggers_call_to_db_and_any_subsequent_get_or_find_call_does_not() {
     underTest.findByKey(AB_RULE.getKey());
 
-    verify(ruleDao, times(1)).selectAll(any(DbSession.class), eq(ORGANIZATION_UUID));
+    verify(ruleDao, times(1)).selectAllDefinitions(any(DbSession.class));
+    verify(ruleDao, times(1)).selectMetadataByOrganization(any(DbSession.class), eq(ORGANIZATION_UUID));
 
     verifyNoMethodCallTriggersCallToDB();
   }
@@ -98,7 +105,8 @@ public class RuleRepositoryImplTest {
   public void first_call_to_getById_triggers_call_to_db_and_any_subsequent_get_or_find_call_does_not() {
     underTest.getById(AB_RULE.getId());
 
-    verify(ruleDao, times(1)).selectAll(any(DbSession.class), eq(ORGANIZATION_UUID));
+    verify(ruleDao, times(1)).selectAllDefinitions(any(DbSession.class));
+    verify(ruleDao, times(1)).selectMetadataByOrganization(any(DbSession.class), eq(ORGANIZATION_UUID));
 
     verifyNoMethodCallTriggersCallToDB();
   }
@@ -107,7 +115,8 @@ public class RuleRepositoryImplTest {
   public void first_call_to_findById_triggers_call_to_db_and_any_subsequent_get_or_find_call_does_not() {
     underTest.findById(AB_RULE.getId());
 
-    verify(ruleDao, times(1)).selectAll(any(DbSession.class), eq(ORGANIZATION_UUID));
+    verify(ruleDao, times(1)).selectAllDefinitions(any(DbSession.class));
+    verify(ruleDao, times(1)).selectMetadataByOrganization(any(DbSession.class), eq(ORGANIZATION_UUID));
 
     verifyNoMethodCallTriggersCallToDB();
   }
@@ -202,6 +211,23 @@ public class RuleRepositoryImplTest {
     assertIsABRule(rule.get());
   }
 
+  @Test
+  public void rule_definitions_are_shared_and_metadata_are_loaded_by_organization() {
+    RuleDefinitionsCache ruleDefinitionsCache = new RuleDefinitionsCache(dbClient, System2.INSTANCE);
+    when(ruleDao.selectMetadataByOrganization(any(DbSession.class), eq(ORGANIZATION_UUID))).thenReturn(ImmutableList.of(
+      new RuleMetadataDto().setRuleId(AB_RULE.getId()).setOrganizationUuid(ORGANIZATION_UUID).setTags(ImmutableSet.of("tag1"))
+        .setRemediationFunction("LINEAR").setRemediationGapMultiplier("5min")));
+
+    Rule rule = new RuleRepositoryImpl(dbClient, analysisMetadataHolder, ruleDefinitionsCache).getByKey(AB_RULE.getKey());
+    new RuleRepositoryImpl(dbClient, analysisMetadataHolder, ruleDefinitionsCache).getByKey(AB_RULE.getKey());
+
+    assertThat(rule.getTags()).containsOnly("tag1");
+    assertThat(rule.getRemediationFunction().type()).isEqualTo(DebtRemediationFunction.Type.LINEAR);
+    assertThat(rule.getRemediationFunction().gapMultiplier()).isEqualTo("5min");
+    verify(ruleDao, times(1)).selectAllDefinitions(any(DbSession.class));
+    verify(ruleDao, times(2)).selectMetadataByOrganization(any(DbSession.class), eq(ORGANIZATION_UUID));
+  }
+
   private void expectNullRuleKeyNPE() {
     expectedException.expect(NullPointerException.class);
     expectedException.expectMessage("RuleKey can not be null");
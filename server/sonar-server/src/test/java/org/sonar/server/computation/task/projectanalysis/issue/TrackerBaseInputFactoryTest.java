@@ -20,24 +20,41 @@
 package org.sonar.server.computation.task.projectanalysis.issue;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.core.issue.DefaultIssue;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDao;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.filemove.MovedFilesRepository;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TrackerBaseInputFactoryTest {
   private static final String FILE_UUID = "uuid";
-  private static final ReportComponent FILE = ReportComponent.builder(Component.Type.FILE, 1).setUuid(FILE_UUID).build();
+  private static final String OTHER_FILE_UUID = "other uuid";
+  private static final ReportComponent FILE = ReportComponent.builder(Component.Type.FILE, 2).setUuid(FILE_UUID).build();
+  private static final ReportComponent OTHER_FILE = ReportComponent.builder(Component.Type.FILE, 3).setUuid(OTHER_FILE_UUID).build();
+  private static final ReportComponent PROJECT = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid("project uuid").addChildren(FILE, OTHER_FILE).build();
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
 
   private BaseIssuesLoader baseIssuesLoader = mock(BaseIssuesLoader.class);
   private DbClient dbClient = mock(DbClient.class);
@@ -46,7 +63,7 @@ public class TrackerBaseInputFactoryTest {
 
   private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
 
-  private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(baseIssuesLoader, dbClient, movedFilesRepository);
+  private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(treeRootHolder, baseIssuesLoader, dbClient, movedFilesRepository);
 
   @Before
   public void setUp() throws Exception {
@@ -81,7 +98,7 @@ public class TrackerBaseInputFactoryTest {
   public void create_returns_Input_which_retrieves_issues_of_specified_file_component_when_it_has_no_original_file() {
     underTest.create(FILE).getIssues();
 
-    verify(baseIssuesLoader).loadForComponentUuid(FILE_UUID);
+    verify(baseIssuesLoader).loadForComponentUuids(asList(FILE_UUID, OTHER_FILE_UUID));
   }
 
   @Test
@@ -94,7 +111,33 @@ public class TrackerBaseInputFactoryTest {
 
     underTest.create(FILE).getIssues();
 
-    verify(baseIssuesLoader).loadForComponentUuid(originalUuid);
-    verify(baseIssuesLoader, times(0)).loadForComponentUuid(FILE_UUID);
+    verify(baseIssuesLoader).loadForComponentUuids(asList(originalUuid, OTHER_FILE_UUID));
+  }
+
+  @Test
+  public void create_returns_Input_which_retrieves_issues_of_non_file_component() {
+    underTest.create(PROJECT).getIssues();
+
+    verify(baseIssuesLoader).loadForComponentUuid(PROJECT.getUuid());
+    verify(baseIssuesLoader, never()).loadForComponentUuids(anyCollectionOf(String.class));
+  }
+
+  @Test
+  public void issues_and_line_hashes_of_next_files_are_read_ahead() {
+    DefaultIssue issue = new DefaultIssue();
+    when(baseIssuesLoader.loadForComponentUuids(asList(FILE_UUID, OTHER_FILE_UUID)))
+      .thenReturn(ImmutableMap.of(FILE_UUID, new ArrayList<>(), OTHER_FILE_UUID, new ArrayList<>(singletonList(issue))));
+    when(fileSourceDao.selectLineHashesByFileUuids(dbSession, singletonList(OTHER_FILE_UUID)))
+      .thenReturn(ImmutableMap.of(OTHER_FILE_UUID, asList("hash1", "hash2")));
+
+    assertThat(underTest.create(FILE).getIssues()).isEmpty();
+    Collection<DefaultIssue> otherFileIssues = underTest.create(OTHER_FILE).getIssues();
+    int otherFileLines = underTest.create(OTHER_FILE).getLineHashSequence().length();
+
+    assertThat(otherFileIssues).containsOnly(issue);
+    assertThat(otherFileLines).isEqualTo(2);
+    verify(baseIssuesLoader, times(1)).loadForComponentUuids(anyCollectionOf(String.class));
+    verify(baseIssuesLoader, never()).loadForComponentUuid(any(String.class));
+    verify(fileSourceDao, never()).selectLineHashes(any(DbSession.class), any(String.class));
   }
 }
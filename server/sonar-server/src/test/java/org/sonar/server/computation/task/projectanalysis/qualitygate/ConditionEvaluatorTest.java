@@ -245,6 +245,18 @@ public class ConditionEvaluatorTest {
     assertThat(underTest.evaluate(new Condition(metric, LESS_THAN.getDbValue(), "10.3", "10.2", false), measure)).hasLevel(Measure.Level.ERROR);
   }
 
+  @Test
+  public void evaluate_thresholds_parsed_when_condition_is_created() {
+    Metric metric = createMetric(INT);
+    Condition condition = new Condition(metric, GREATER_THAN.getDbValue(), "20", "10", false);
+
+    assertThat(condition.getErrorThresholdValue()).isEqualTo(20);
+    assertThat(condition.getWarningThresholdValue()).isEqualTo(10);
+    assertThat(underTest.evaluate(condition, newMeasureBuilder().create(25, null))).hasLevel(ERROR).hasValue(25);
+    assertThat(underTest.evaluate(condition, newMeasureBuilder().create(15, null))).hasLevel(Measure.Level.WARN).hasValue(15);
+    assertThat(underTest.evaluate(condition, newMeasureBuilder().create(5, null))).hasLevel(OK).hasValue(5);
+  }
+
   @Test
   public void condition_is_always_ok_when_measure_is_noValue() {
     for (MetricType metricType : from(asList(values())).filter(not(in(ImmutableSet.of(DATA, LEVEL))))) {
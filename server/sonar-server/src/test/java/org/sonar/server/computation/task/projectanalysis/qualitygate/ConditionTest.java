@@ -23,6 +23,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -68,6 +69,30 @@ public class ConditionTest {
     assertThat(condition.getWarningThreshold()).isEqualTo(warning);
   }
 
+  @Test
+  public void thresholds_are_converted_to_value_type_of_metric() {
+    Condition condition = new Condition(new MetricImpl(1, "key", "name", Metric.MetricType.WORK_DUR), SOME_OPERATOR, "60", "30", false);
+
+    assertThat(condition.getErrorThresholdValue()).isEqualTo(60L);
+    assertThat(condition.getWarningThresholdValue()).isEqualTo(30L);
+  }
+
+  @Test
+  public void thresholds_are_not_converted_if_they_are_not_set_or_not_parsable() {
+    Condition condition = new Condition(new MetricImpl(1, "key", "name", Metric.MetricType.INT), SOME_OPERATOR, "polop", null, false);
+
+    assertThat(condition.getErrorThresholdValue()).isNull();
+    assertThat(condition.getWarningThresholdValue()).isNull();
+  }
+
+  @Test
+  public void thresholds_are_not_converted_if_type_of_metric_is_unknown() {
+    Condition condition = new Condition(SOME_METRIC, SOME_OPERATOR, "10", "5", false);
+
+    assertThat(condition.getErrorThresholdValue()).isNull();
+    assertThat(condition.getWarningThresholdValue()).isNull();
+  }
+
   @Test
   public void all_fields_are_displayed_in_toString() {
     when(SOME_METRIC.toString()).thenReturn("metric1");
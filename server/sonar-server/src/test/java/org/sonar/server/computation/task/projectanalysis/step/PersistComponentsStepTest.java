@@ -20,30 +20,54 @@
 
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import java.util.Map;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDao;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.organization.OrganizationDto;
 import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolder;
+import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetadataHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDbIdsRepository;
 import org.sonar.server.computation.task.projectanalysis.component.MutableDisabledComponentsHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 
-import static java.util.Collections.emptyList;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
 
 public class PersistComponentsStepTest {
 
+  private static final String ORGANIZATION_UUID = "org1";
+  private static final String DIRECTORY_UUID = "CDEF";
+  private static final String FILE_UUID = "DEFG";
+
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+  @Rule
+  public AnalysisMetadataHolderRule analysisMetadataHolder = new AnalysisMetadataHolderRule()
+    .setOrganizationUuid(ORGANIZATION_UUID);
 
   @Test
   public void should_fail_if_project_is_not_stored_in_database_yet() {
@@ -56,7 +80,7 @@ public class PersistComponentsStepTest {
     doReturn(component).when(treeRootHolder).getRoot();
     doReturn(projectKey).when(component).getKey();
     doReturn(componentDao).when(dbClient).componentDao();
-    doReturn(emptyList()).when(componentDao).selectAllComponentsFromProjectKey(any(DbSession.class), eq(projectKey));
+    doNothing().when(componentDao).selectAllComponentsFromProjectKey(any(DbSession.class), eq(projectKey), any(ResultHandler.class));
 
     thrown.expect(IllegalStateException.class);
     thrown.expectMessage("The project '" + projectKey + "' is not stored in the database, during a project analysis");
@@ -69,4 +93,82 @@ public class PersistComponentsStepTest {
       mock(MutableDisabledComponentsHolder.class),
       mock(AnalysisMetadataHolder.class)).execute();
   }
+
+  @Test
+  public void do_not_update_components_which_did_not_change() {
+    ComponentDto project = insertProject();
+    treeRootHolder.setRoot(newTree(project, "java"));
+    persistAndCommitFunctionalTransaction(project);
+
+    treeRootHolder.setRoot(newTree(project, "java"));
+    newStep().execute();
+
+    assertThat(isBChanged(project.uuid())).isFalse();
+    assertThat(isBChanged(DIRECTORY_UUID)).isFalse();
+    assertThat(isBChanged(FILE_UUID)).isFalse();
+  }
+
+  @Test
+  public void update_only_components_which_changed() {
+    ComponentDto project = insertProject();
+    treeRootHolder.setRoot(newTree(project, "java"));
+    persistAndCommitFunctionalTransaction(project);
+
+    treeRootHolder.setRoot(newTree(project, "groovy"));
+    newStep().execute();
+
+    assertThat(isBChanged(project.uuid())).isFalse();
+    assertThat(isBChanged(DIRECTORY_UUID)).isFalse();
+    assertThat(isBChanged(FILE_UUID)).isTrue();
+    assertThat(selectBLanguage(FILE_UUID)).isEqualTo("groovy");
+  }
+
+  private ComponentDto insertProject() {
+    OrganizationDto organization = dbTester.organizations().insertForUuid(ORGANIZATION_UUID);
+    return dbTester.components().insertPrivateProject(organization);
+  }
+
+  private static Component newTree(ComponentDto project, String fileLanguage) {
+    return builder(PROJECT, 1).setUuid(project.uuid()).setKey(project.key()).setName(project.name())
+      .addChildren(
+        builder(DIRECTORY, 2).setUuid(DIRECTORY_UUID).setKey(project.key() + ":src/main/java/dir")
+          .setPath("src/main/java/dir")
+          .addChildren(
+            builder(FILE, 3).setUuid(FILE_UUID).setKey(project.key() + ":src/main/java/dir/Foo.java")
+              .setPath("src/main/java/dir/Foo.java")
+              .setFileAttributes(new FileAttributes(false, fileLanguage, 1))
+              .build())
+          .build())
+      .build();
+  }
+
+  private void persistAndCommitFunctionalTransaction(ComponentDto project) {
+    newStep().execute();
+    dbTester.getDbClient().componentDao().applyBChangesForRootComponentUuid(dbTester.getSession(), project.uuid());
+    dbTester.getSession().commit();
+  }
+
+  private PersistComponentsStep newStep() {
+    return new PersistComponentsStep(
+      dbTester.getDbClient(),
+      treeRootHolder,
+      mock(MutableDbIdsRepository.class),
+      System2.INSTANCE,
+      mock(MutableDisabledComponentsHolder.class),
+      analysisMetadataHolder);
+  }
+
+  private boolean isBChanged(String uuid) {
+    Object bChanged = selectBColumns(uuid).get("bChanged");
+    // Oracle returns numbers
+    return Boolean.TRUE.equals(bChanged) || Long.valueOf(1L).equals(bChanged) || Integer.valueOf(1).equals(bChanged);
+  }
+
+  private Object selectBLanguage(String uuid) {
+    return selectBColumns(uuid).get("bLanguage");
+  }
+
+  private Map<String, Object> selectBColumns(String uuid) {
+    return dbTester.selectFirst("select b_changed as \"bChanged\", b_language as \"bLanguage\" from projects where uuid='" + uuid + "'");
+  }
 }
@@ -313,6 +313,39 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(past);
   }
 
+  @Test
+  public void update_sources_when_scm_data_is_missing() {
+    // Existing sources, persisted before column scm_data was added
+    long past = 150000L;
+    dbClient.fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(FILE_UUID)
+      .setSrcHash("137f72c3708c6bd0de00a0e5a69c699b")
+      .setLineHashes("137f72c3708c6bd0de00a0e5a69c699b")
+      .setDataHash("29f25900140c94db38035128cb6de6a2")
+      .setSourceData(DbFileSources.Data.newBuilder()
+        .addLines(DbFileSources.Line.newBuilder()
+          .setLine(1)
+          .setSource("line1")
+          .build())
+        .build())
+      // SCM data is missing, update will be made
+      .setScmData(null)
+      .setCreatedAt(past)
+      .setUpdatedAt(past));
+    dbTester.getSession().commit();
+
+    initBasicReport(1);
+
+    underTest.execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+    assertThat(dbClient.fileSourceDao().selectScmByFileUuid(session, FILE_UUID).getScmData()).isNotNull();
+  }
+
   @Test
   public void update_sources_when_source_updated() {
     // Existing sources
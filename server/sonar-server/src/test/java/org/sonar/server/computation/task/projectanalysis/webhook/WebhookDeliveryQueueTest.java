@@ -0,0 +1,203 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.webhook;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class WebhookDeliveryQueueTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+  private static final Webhook WEBHOOK = new Webhook("P1_UUID", "TASK_1", "First", "http://url1");
+  private static final WebhookPayload PAYLOAD = new WebhookPayload("P1", "{json}");
+
+  @Rule
+  public LogTester logTester = new LogTester().setLevel(LoggerLevel.DEBUG);
+
+  private final TestWebhookCaller caller = new TestWebhookCaller();
+  private final RecordingStorage storage = new RecordingStorage();
+  private final WebhookDeliveryQueue underTest = new WebhookDeliveryQueue(caller, storage, 1L);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void send_in_calling_thread_if_not_started() {
+    caller.enqueueSuccess(NOW, 200, 1_234);
+
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Sent webhook 'First' | url=http://url1 | time=1234ms | status=200");
+    assertThat(storage.persisted).hasSize(1);
+    assertThat(storage.purged).containsExactly("P1_UUID");
+  }
+
+  @Test
+  public void send_asynchronously_then_persist_by_batch_on_stop() {
+    underTest.start();
+    caller.enqueueSuccess(NOW, 200, 1_234);
+    caller.enqueueSuccess(NOW, 201, 10);
+
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+    underTest.enqueue(new Webhook("P1_UUID", "TASK_1", "Second", "http://url2"), PAYLOAD);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(2);
+    assertThat(underTest.getPendingCount()).isEqualTo(0);
+    assertThat(underTest.getSuccessCount()).isEqualTo(2);
+    assertThat(storage.persisted).hasSize(2);
+    assertThat(storage.purged).containsExactly("P1_UUID");
+  }
+
+  @Test
+  public void retry_on_network_error_and_server_error() {
+    underTest.start();
+    caller.enqueueFailure(NOW, new IOException("Fail to connect"));
+    caller.enqueueSuccess(NOW, 503, 10);
+    caller.enqueueSuccess(NOW, 200, 20);
+
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(3);
+    assertThat(underTest.getRetryCount()).isEqualTo(2);
+    assertThat(underTest.getSuccessCount()).isEqualTo(1);
+    assertThat(storage.persisted).extracting(d -> d.getHttpStatus().get()).containsExactly(200);
+  }
+
+  @Test
+  public void stop_retrying_after_max_attempts() {
+    underTest.start();
+    for (int i = 0; i < WebhookDeliveryQueue.MAX_ATTEMPTS; i++) {
+      caller.enqueueFailure(NOW, new IOException("Fail to connect"));
+    }
+
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(WebhookDeliveryQueue.MAX_ATTEMPTS);
+    assertThat(underTest.getFailureCount()).isEqualTo(1);
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).contains("Failed to send webhook 'First' | url=http://url1 | message=Fail to connect");
+    assertThat(storage.persisted).hasSize(1);
+  }
+
+  @Test
+  public void do_not_retry_client_errors() {
+    underTest.start();
+    caller.enqueueSuccess(NOW, 404, 10);
+
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(underTest.getRetryCount()).isEqualTo(0);
+    assertThat(underTest.getFailureCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void do_not_retry_read_timeouts() {
+    underTest.start();
+    caller.enqueueFailure(NOW, new SocketTimeoutException("Read timed out"));
+
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(1);
+    assertThat(underTest.getRetryCount()).isEqualTo(0);
+    assertThat(underTest.getFailureCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void retry_connect_timeouts() {
+    underTest.start();
+    caller.enqueueFailure(NOW, new SocketTimeoutException("connect timed out"));
+    caller.enqueueSuccess(NOW, 200, 20);
+
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+    underTest.stop();
+
+    assertThat(caller.countSent()).isEqualTo(2);
+    assertThat(underTest.getRetryCount()).isEqualTo(1);
+    assertThat(underTest.getSuccessCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void delivery_is_not_pending_anymore_if_caller_fails_unexpectedly() {
+    underTest.start();
+    // no delivery is enqueued in caller, so it fails
+
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+    underTest.stop();
+
+    assertThat(underTest.getPendingCount()).isEqualTo(0);
+    assertThat(logTester.logs(LoggerLevel.WARN)).isEmpty();
+  }
+
+  @Test
+  public void test_system_info_section() {
+    caller.enqueueSuccess(NOW, 200, 30);
+    caller.enqueueSuccess(NOW, 200, 10);
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+    underTest.enqueue(WEBHOOK, PAYLOAD);
+
+    ProtobufSystemInfo.Section section = underTest.toProtobuf();
+
+    assertThat(section.getName()).isEqualTo("Compute Engine Webhooks");
+    assertThat(section.getAttributesList())
+      .extracting(ProtobufSystemInfo.Attribute::getKey, ProtobufSystemInfo.Attribute::getLongValue)
+      .contains(
+        tuple("Delivered With Success", 2L),
+        tuple("Mean Delivery Time (ms)", 20L));
+  }
+
+  private static class RecordingStorage extends WebhookDeliveryStorage {
+    private final List<WebhookDelivery> persisted = new ArrayList<>();
+    private final List<String> purged = new ArrayList<>();
+
+    RecordingStorage() {
+      super(null, null, null);
+    }
+
+    @Override
+    public void persist(Collection<WebhookDelivery> deliveries) {
+      persisted.addAll(deliveries);
+    }
+
+    @Override
+    public void purge(String componentUuid) {
+      purged.add(componentUuid);
+    }
+  }
+}
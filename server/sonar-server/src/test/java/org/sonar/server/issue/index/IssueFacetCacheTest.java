@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.LinkedHashMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.server.es.Facets;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+
+public class IssueFacetCacheTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private IssueIndexRefreshMarker refreshMarker = new IssueIndexRefreshMarker(db.getDbClient(), System2.INSTANCE);
+  private IssueFacetCache underTest = new IssueFacetCache(new MapSettings(), refreshMarker);
+
+  @Test
+  public void enabled_by_default() {
+    IssueIndexRefreshMarker marker = mock(IssueIndexRefreshMarker.class);
+    assertThat(underTest.isEnabled()).isTrue();
+    assertThat(new IssueFacetCache(new MapSettings().setProperty(IssueFacetCache.SIZE_PROPERTY, 0), marker).isEnabled()).isFalse();
+    assertThat(new IssueFacetCache(new MapSettings().setProperty(IssueFacetCache.TTL_PROPERTY, 0), marker).isEnabled()).isFalse();
+  }
+
+  @Test
+  public void entry_is_invalidated_when_issues_of_its_projects_are_changed() {
+    underTest.put("key", underTest.currentVersion(singletonList("P1")), newFacets());
+    assertThat(underTest.get("key", underTest.currentVersion(singletonList("P1")))).isNotNull();
+
+    refreshMarker.bump(singletonList("P1"));
+
+    assertThat(underTest.get("key", underTest.currentVersion(singletonList("P1")))).isNull();
+    assertThat(underTest.size()).isZero();
+    assertThat(underTest.hitCount()).isEqualTo(1);
+    assertThat(underTest.missCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void entry_is_not_invalidated_when_issues_of_other_projects_are_changed() {
+    underTest.put("key", underTest.currentVersion(singletonList("P1")), newFacets());
+
+    refreshMarker.bump(singletonList("P2"));
+
+    assertThat(underTest.get("key", underTest.currentVersion(singletonList("P1")))).isNotNull();
+  }
+
+  @Test
+  public void entry_of_request_not_restricted_to_projects_is_invalidated_when_issues_of_any_project_are_changed() {
+    underTest.put("key", underTest.currentVersion(emptyList()), newFacets());
+
+    refreshMarker.bump(singletonList("P2"));
+
+    assertThat(underTest.get("key", underTest.currentVersion(emptyList()))).isNull();
+  }
+
+  @Test
+  public void cached_facets_are_not_altered_by_callers() {
+    underTest.put("key", underTest.currentVersion(emptyList()), newFacets());
+
+    Facets facets = underTest.get("key", underTest.currentVersion(emptyList()));
+    facets.get("severities").put("BLOCKER", 0L);
+
+    assertThat(underTest.get("key", underTest.currentVersion(emptyList())).get("severities")).containsOnly(entry("MAJOR", 3L));
+    assertThat(underTest.hitCount()).isEqualTo(2);
+  }
+
+  private static Facets newFacets() {
+    LinkedHashMap<String, Long> severities = new LinkedHashMap<>();
+    severities.put("MAJOR", 3L);
+    LinkedHashMap<String, LinkedHashMap<String, Long>> facets = new LinkedHashMap<>();
+    facets.put("severities", severities);
+    return new Facets(facets);
+  }
+}
@@ -41,6 +41,7 @@ import org.sonar.server.issue.IssueDocTesting;
 import org.sonar.server.issue.IssueQuery;
 import org.sonar.server.issue.IssueQuery.Builder;
 import org.sonar.server.permission.index.AuthorizationTypeSupport;
+import org.sonar.server.permission.index.AuthorizedProjectsCache;
 import org.sonar.server.permission.index.PermissionIndexerDao;
 import org.sonar.server.permission.index.PermissionIndexerTester;
 import org.sonar.server.tester.UserSessionRule;
@@ -66,7 +67,9 @@ public class IssueIndexDebtTest {
 
   private System2 system2 = System2.INSTANCE;
   private IssueIndex index;
-  private IssueIndexer issueIndexer = new IssueIndexer(tester.client(), new IssueIteratorFactory(null));
+  private IssueIndexRefreshMarker refreshMarker = mock(IssueIndexRefreshMarker.class);
+  private IssueFacetCache facetCache = new IssueFacetCache(new MapSettings(), refreshMarker);
+  private IssueIndexer issueIndexer = new IssueIndexer(tester.client(), new IssueIteratorFactory(null), refreshMarker);
   private PermissionIndexerTester authorizationIndexerTester = new PermissionIndexerTester(tester, issueIndexer);
 
   @Before
@@ -74,7 +77,7 @@ public class IssueIndexDebtTest {
     System2 system = mock(System2.class);
     when(system.getDefaultTimeZone()).thenReturn(TimeZone.getTimeZone("+01:00"));
     when(system.now()).thenReturn(System.currentTimeMillis());
-    index = new IssueIndex(tester.client(), system, userSessionRule, new AuthorizationTypeSupport(userSessionRule));
+    index = new IssueIndex(tester.client(), system, userSessionRule, new AuthorizationTypeSupport(userSessionRule, new AuthorizedProjectsCache(tester.client(), new MapSettings())), facetCache);
   }
 
   @Test
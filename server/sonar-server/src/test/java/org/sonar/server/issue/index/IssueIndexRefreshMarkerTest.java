@@ -0,0 +1,128 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbTester;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.issue.index.IssueIndexRefreshMarker.CHECK_INTERVAL_MS;
+import static org.sonar.server.issue.index.IssueIndexRefreshMarker.PROPERTY_KEY;
+
+public class IssueIndexRefreshMarkerTest {
+
+  private static final long NOW = 1_500_000_000_000L;
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private TestSystem2 system2 = new TestSystem2().setNow(NOW);
+  private IssueIndexRefreshMarker underTest = new IssueIndexRefreshMarker(db.getDbClient(), system2);
+  // for example the marker of Compute Engine
+  private IssueIndexRefreshMarker otherProcess = new IssueIndexRefreshMarker(db.getDbClient(), system2);
+
+  @Test
+  public void bump_changes_version_of_project() {
+    long p1 = underTest.getVersion(singletonList("P1"));
+    long p2 = underTest.getVersion(singletonList("P2"));
+    long all = underTest.getVersion(emptyList());
+
+    underTest.bump(singletonList("P1"));
+
+    assertThat(underTest.getVersion(singletonList("P1"))).isGreaterThan(p1);
+    assertThat(underTest.getVersion(singletonList("P2"))).isEqualTo(p2);
+    assertThat(underTest.getVersion(asList("P1", "P2"))).isGreaterThan(p1);
+    assertThat(underTest.getVersion(emptyList())).isGreaterThan(all);
+    assertThat(db.getDbClient().internalPropertiesDao().selectByKey(db.getSession(), PROPERTY_KEY)).contains("1:P1");
+  }
+
+  @Test
+  public void bump_of_several_projects_changes_version_of_all_projects() {
+    long p3 = underTest.getVersion(singletonList("P3"));
+
+    underTest.bump(asList("P1", "P2"));
+
+    assertThat(underTest.getVersion(singletonList("P3"))).isGreaterThan(p3);
+    assertThat(db.getDbClient().internalPropertiesDao().selectByKey(db.getSession(), PROPERTY_KEY)).contains("1:");
+  }
+
+  @Test
+  public void bump_does_nothing_if_no_projects() {
+    long all = underTest.getVersion(emptyList());
+
+    underTest.bump(emptyList());
+
+    assertThat(underTest.getVersion(emptyList())).isEqualTo(all);
+    assertThat(db.getDbClient().internalPropertiesDao().selectByKey(db.getSession(), PROPERTY_KEY)).isEmpty();
+  }
+
+  @Test
+  public void changes_of_other_processes_are_read_from_database_at_most_once_per_interval() {
+    long p1 = underTest.getVersion(singletonList("P1"));
+    long p2 = underTest.getVersion(singletonList("P2"));
+
+    otherProcess.bump(singletonList("P1"));
+
+    assertThat(underTest.getVersion(singletonList("P1"))).isEqualTo(p1);
+
+    system2.setNow(NOW + CHECK_INTERVAL_MS);
+    assertThat(underTest.getVersion(singletonList("P1"))).isGreaterThan(p1);
+    assertThat(underTest.getVersion(singletonList("P2"))).isEqualTo(p2);
+  }
+
+  @Test
+  public void all_projects_are_changed_if_changes_of_other_processes_have_been_missed() {
+    long p2 = underTest.getVersion(singletonList("P2"));
+
+    otherProcess.bump(singletonList("P1"));
+    otherProcess.bump(singletonList("P1"));
+
+    system2.setNow(NOW + CHECK_INTERVAL_MS);
+    assertThat(underTest.getVersion(singletonList("P2"))).isGreaterThan(p2);
+  }
+
+  @Test
+  public void own_changes_are_not_applied_again_when_read_from_database() {
+    underTest.getVersion(emptyList());
+    underTest.bump(singletonList("P1"));
+    long p1 = underTest.getVersion(singletonList("P1"));
+    long p2 = underTest.getVersion(singletonList("P2"));
+
+    system2.setNow(NOW + CHECK_INTERVAL_MS);
+    assertThat(underTest.getVersion(singletonList("P1"))).isEqualTo(p1);
+    assertThat(underTest.getVersion(singletonList("P2"))).isEqualTo(p2);
+  }
+
+  @Test
+  public void marker_of_previous_versions_is_replaced() {
+    db.getDbClient().internalPropertiesDao().save(db.getSession(), PROPERTY_KEY, "AV1234");
+    db.commit();
+
+    underTest.bump(singletonList("P1"));
+
+    assertThat(db.getDbClient().internalPropertiesDao().selectByKey(db.getSession(), PROPERTY_KEY)).contains("1:P1");
+  }
+}
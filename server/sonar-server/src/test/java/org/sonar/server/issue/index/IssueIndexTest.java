@@ -51,6 +51,7 @@ import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.issue.IssueQuery;
 import org.sonar.server.permission.index.AuthorizationTypeSupport;
+import org.sonar.server.permission.index.AuthorizedProjectsCache;
 import org.sonar.server.permission.index.PermissionIndexerDao;
 import org.sonar.server.permission.index.PermissionIndexerTester;
 import org.sonar.server.rule.index.RuleIndexDefinition;
@@ -94,12 +95,14 @@ public class IssueIndexTest {
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
 
-  private IssueIndexer issueIndexer = new IssueIndexer(tester.client(), new IssueIteratorFactory(null));
+  private IssueIndexRefreshMarker refreshMarker = new IssueIndexRefreshMarker(db.getDbClient(), System2.INSTANCE);
+  private IssueFacetCache facetCache = new IssueFacetCache(new MapSettings(), refreshMarker);
+  private IssueIndexer issueIndexer = new IssueIndexer(tester.client(), new IssueIteratorFactory(null), refreshMarker);
   private ViewIndexer viewIndexer = new ViewIndexer(null, tester.client());
   private RuleIndexer ruleIndexer = new RuleIndexer(tester.client(), db.getDbClient());
   private PermissionIndexerTester authorizationIndexerTester = new PermissionIndexerTester(tester, issueIndexer);
 
-  private IssueIndex underTest = new IssueIndex(tester.client(), system2, userSessionRule, new AuthorizationTypeSupport(userSessionRule));
+  private IssueIndex underTest = new IssueIndex(tester.client(), system2, userSessionRule, new AuthorizationTypeSupport(userSessionRule, new AuthorizedProjectsCache(tester.client(), new MapSettings())), facetCache);
 
   @Before
   public void setUp() {
@@ -412,6 +415,66 @@ public class IssueIndexTest {
     assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 2L), entry("MAJOR", 1L));
   }
 
+  @Test
+  public void facets_are_cached_until_issues_are_indexed() {
+    ComponentDto project = ComponentTesting.newPrivateProjectDto(newOrganizationDto());
+    ComponentDto file = newFileDto(project, null);
+    indexIssues(
+      newDoc("ISSUE1", file).setSeverity(Severity.INFO),
+      newDoc("ISSUE2", file).setSeverity(Severity.INFO));
+    SearchOptions options = new SearchOptions().addFacets(newArrayList("severities"));
+
+    underTest.search(IssueQuery.builder().build(), options);
+    SearchResult<IssueDoc> result = underTest.search(IssueQuery.builder().build(), options);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 2L));
+    assertThat(result.getDocs()).hasSize(2);
+    assertThat(facetCache.hitCount()).isEqualTo(1);
+
+    indexIssues(newDoc("ISSUE3", file).setSeverity(Severity.MAJOR));
+
+    result = underTest.search(IssueQuery.builder().build(), options);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 2L), entry("MAJOR", 1L));
+    assertThat(facetCache.hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void facets_on_project_are_still_cached_when_issues_of_other_projects_are_indexed() {
+    OrganizationDto org = newOrganizationDto();
+    ComponentDto project1 = ComponentTesting.newPrivateProjectDto(org);
+    ComponentDto project2 = ComponentTesting.newPrivateProjectDto(org);
+    indexIssues(newDoc("ISSUE1", newFileDto(project1, null)).setSeverity(Severity.INFO));
+    IssueQuery query = IssueQuery.builder().projectUuids(newArrayList(project1.uuid())).build();
+    SearchOptions options = new SearchOptions().addFacets(newArrayList("severities"));
+    underTest.search(query, options);
+
+    indexIssues(newDoc("ISSUE2", newFileDto(project2, null)).setSeverity(Severity.MAJOR));
+
+    SearchResult<IssueDoc> result = underTest.search(query, options);
+    assertThat(result.getFacets().get("severities")).containsOnly(entry("INFO", 1L));
+    assertThat(facetCache.hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void facets_are_not_shared_by_users_having_different_permissions() {
+    OrganizationDto org = newOrganizationDto();
+    ComponentDto project1 = ComponentTesting.newPrivateProjectDto(org);
+    ComponentDto project2 = ComponentTesting.newPrivateProjectDto(org);
+    GroupDto group1 = newGroupDto();
+    GroupDto group2 = newGroupDto();
+    indexIssue(newDoc("ISSUE1", newFileDto(project1, null)).setSeverity(Severity.INFO));
+    authorizationIndexerTester.allowOnlyGroup(project1, group1);
+    indexIssue(newDoc("ISSUE2", newFileDto(project2, null)).setSeverity(Severity.MAJOR));
+    authorizationIndexerTester.allowOnlyGroup(project2, group2);
+    SearchOptions options = new SearchOptions().addFacets(newArrayList("severities"));
+
+    userSessionRule.logIn().setGroups(group1);
+    assertThat(underTest.search(IssueQuery.builder().build(), options).getFacets().get("severities")).containsOnly(entry("INFO", 1L));
+    userSessionRule.logIn().setGroups(group2);
+    assertThat(underTest.search(IssueQuery.builder().build(), options).getFacets().get("severities")).containsOnly(entry("MAJOR", 1L));
+
+    assertThat(facetCache.hitCount()).isZero();
+  }
+
   @Test
   public void filter_by_statuses() {
     ComponentDto project = ComponentTesting.newPrivateProjectDto(newOrganizationDto());
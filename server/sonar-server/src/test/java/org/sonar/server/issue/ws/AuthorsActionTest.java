@@ -27,11 +27,14 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.issue.IssueService;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexDefinition;
+import org.sonar.server.issue.index.IssueIndexRefreshMarker;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.issue.index.IssueIteratorFactory;
 import org.sonar.server.permission.index.AuthorizationTypeSupport;
+import org.sonar.server.permission.index.AuthorizedProjectsCache;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.ws.WsActionTester;
 
@@ -49,8 +52,10 @@ public class AuthorsActionTest {
   @Rule
   public UserSessionRule userSession = UserSessionRule.standalone();
 
-  private IssueIndexer issueIndexer = new IssueIndexer(es.client(), new IssueIteratorFactory(db.getDbClient()));
-  private IssueIndex issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSession, new AuthorizationTypeSupport(userSession));
+  private IssueIndexRefreshMarker refreshMarker = new IssueIndexRefreshMarker(db.getDbClient(), System2.INSTANCE);
+  private IssueFacetCache facetCache = new IssueFacetCache(new MapSettings(), refreshMarker);
+  private IssueIndexer issueIndexer = new IssueIndexer(es.client(), new IssueIteratorFactory(db.getDbClient()), refreshMarker);
+  private IssueIndex issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSession, new AuthorizationTypeSupport(userSession, new AuthorizedProjectsCache(es.client(), new MapSettings())), facetCache);
   private IssueService issueService = new IssueService(issueIndex);
 
   private WsActionTester ws = new WsActionTester(new AuthorsAction(issueService));
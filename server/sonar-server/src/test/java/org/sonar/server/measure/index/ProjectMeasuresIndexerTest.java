@@ -119,6 +119,28 @@ public class ProjectMeasuresIndexerTest {
     assertThat(esTester.getIds(INDEX_TYPE_PROJECT_MEASURES)).containsOnly(project.uuid());
   }
 
+  @Test
+  public void indexProject_updates_key_of_indexed_project() {
+    ComponentDto project = componentDbTester.insertPrivateProject();
+    underTest.indexOnStartup(null);
+    dbTester.getDbClient().componentKeyUpdaterDao().updateKey(dbTester.getSession(), project.uuid(), "new_key");
+    dbTester.commit();
+
+    underTest.indexProject(project.uuid(), ProjectIndexer.Cause.PROJECT_KEY_UPDATE);
+
+    assertThat(esTester.client()
+      .prepareSearch(INDEX_TYPE_PROJECT_MEASURES)
+      .setQuery(boolQuery().must(matchAllQuery()).filter(termQuery(FIELD_KEY, "new_key")))
+      .get().getHits().getTotalHits()).isEqualTo(1L);
+  }
+
+  @Test
+  public void indexProject_does_nothing_when_updating_tags_of_unknown_project() {
+    underTest.indexProject("UNKNOWN", ProjectIndexer.Cause.PROJECT_TAGS_UPDATE);
+
+    assertThat(esTester.getIds(INDEX_TYPE_PROJECT_MEASURES)).isEmpty();
+  }
+
   @Test
   public void index_one_project() throws Exception {
     OrganizationDto organizationDto = dbTester.organizations().insert();
@@ -65,6 +65,7 @@ import static org.sonar.db.measure.MeasureTesting.newMeasureDto;
 import static org.sonar.db.metric.MetricTesting.newMetricDto;
 import static org.sonar.test.JsonAssert.assertJson;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_COMPONENT;
+import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_DOWNSAMPLE;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_FROM;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_METRICS;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_TO;
@@ -209,6 +210,65 @@ public class SearchHistoryActionTest {
       analysisDates.get(1), analysisDates.get(2), analysisDates.get(3));
   }
 
+  @Test
+  public void keep_last_analysis_of_each_day_when_history_is_longer_than_6_months() {
+    long firstAnalysisDate = parseDateTime("2015-01-05T08:00:00+0100").getTime();
+    List<String> analysisDates = insertAnalyses(firstAnalysisDate, firstAnalysisDate + 3_600_000L, firstAnalysisDate + 300L * 24 * 60 * 60 * 1000);
+    wsRequest.setComponent(project.getKey()).setDownsample(true);
+
+    SearchHistoryResponse result = call();
+
+    assertThat(result.getPaging().getTotal()).isEqualTo(2);
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate).containsExactly(analysisDates.get(1), analysisDates.get(2));
+  }
+
+  @Test
+  public void keep_last_analysis_of_each_month_when_history_is_longer_than_5_years() {
+    long firstAnalysisDate = parseDateTime("2015-01-05T08:00:00+0100").getTime();
+    long dayMs = 24L * 60 * 60 * 1000;
+    List<String> analysisDates = insertAnalyses(firstAnalysisDate, firstAnalysisDate + dayMs, firstAnalysisDate + 40 * dayMs, firstAnalysisDate + 6 * 366 * dayMs);
+    wsRequest.setComponent(project.getKey()).setDownsample(true);
+
+    SearchHistoryResponse result = call();
+
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate)
+      .containsExactly(analysisDates.get(1), analysisDates.get(2), analysisDates.get(3));
+  }
+
+  @Test
+  public void history_is_not_downsampled_by_default() {
+    long firstAnalysisDate = parseDateTime("2015-01-05T08:00:00+0100").getTime();
+    List<String> analysisDates = insertAnalyses(firstAnalysisDate, firstAnalysisDate + 3_600_000L, firstAnalysisDate + 300L * 24 * 60 * 60 * 1000);
+    wsRequest.setComponent(project.getKey());
+
+    SearchHistoryResponse result = call();
+
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate).containsExactlyElementsOf(analysisDates);
+  }
+
+  @Test
+  public void days_of_downsampled_history_are_in_utc() {
+    // same day in UTC, but not in Europe/Paris nor in time zones further east
+    long firstAnalysisDate = parseDateTime("2015-01-05T23:30:00+0000").getTime();
+    List<String> analysisDates = insertAnalyses(firstAnalysisDate - 3_600_000L, firstAnalysisDate, firstAnalysisDate + 300L * 24 * 60 * 60 * 1000);
+    wsRequest.setComponent(project.getKey()).setDownsample(true);
+
+    SearchHistoryResponse result = call();
+
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate).containsExactly(analysisDates.get(1), analysisDates.get(2));
+  }
+
+  @Test
+  public void resolution_depends_on_requested_range() {
+    long firstAnalysisDate = parseDateTime("2015-01-05T08:00:00+0100").getTime();
+    List<String> analysisDates = insertAnalyses(firstAnalysisDate, firstAnalysisDate + 3_600_000L, firstAnalysisDate + 300L * 24 * 60 * 60 * 1000);
+    wsRequest.setComponent(project.getKey()).setTo(analysisDates.get(1)).setDownsample(true);
+
+    SearchHistoryResponse result = call();
+
+    assertThat(result.getMeasures(0).getHistoryList()).extracting(HistoryValue::getDate).containsExactly(analysisDates.get(0), analysisDates.get(1));
+  }
+
   @Test
   public void return_best_values_for_files() {
     dbClient.metricDao().insert(dbSession, newMetricDto().setKey("optimized").setValueType(ValueType.INT.name()).setOptimizedBestValue(true).setBestValue(456d));
@@ -327,6 +387,18 @@ public class SearchHistoryActionTest {
     assertJson(result).isSimilarTo(ws.getDef().responseExampleAsString());
   }
 
+  private List<String> insertAnalyses(long... dates) {
+    project = db.components().insertPrivateProject();
+    userSession.addProjectPermission(UserRole.USER, project);
+    List<String> analysisDates = LongStream.of(dates)
+      .mapToObj(date -> dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setCreatedAt(date)))
+      .peek(a -> dbClient.measureDao().insert(dbSession, newMeasureDto(complexityMetric, project, a).setValue(101d)))
+      .map(a -> formatDateTime(a.getCreatedAt()))
+      .collect(MoreCollectors.toList());
+    db.commit();
+    return analysisDates;
+  }
+
   private SearchHistoryResponse call() {
     SearchHistoryRequest wsRequest = this.wsRequest.build();
 
@@ -336,6 +408,7 @@ public class SearchHistoryActionTest {
     request.setParam(PARAM_METRICS, String.join(",", wsRequest.getMetrics()));
     setNullable(wsRequest.getFrom(), from -> request.setParam(PARAM_FROM, from));
     setNullable(wsRequest.getTo(), to -> request.setParam(PARAM_TO, to));
+    request.setParam(PARAM_DOWNSAMPLE, String.valueOf(wsRequest.isDownsample()));
     setNullable(wsRequest.getPage(), p -> request.setParam(Param.PAGE, String.valueOf(p)));
     setNullable(wsRequest.getPageSize(), ps -> request.setParam(Param.PAGE_SIZE, String.valueOf(ps)));
 
@@ -0,0 +1,136 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.sonar.db.user.GroupDto;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.permission.OrganizationPermission.ADMINISTER;
+
+public class PermissionCacheTest {
+
+  private PermissionCache underTest = new PermissionCache();
+  private AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void userKey_depends_on_user_and_groups() {
+    GroupDto group1 = new GroupDto().setId(1);
+    GroupDto group2 = new GroupDto().setId(2);
+
+    assertThat(PermissionCache.userKey(null, Collections.emptyList())).isEqualTo("anyone");
+    assertThat(PermissionCache.userKey(10, Collections.emptyList())).isEqualTo("10[]");
+    assertThat(PermissionCache.userKey(10, asList(group2, group1))).isEqualTo("10[1,2]");
+  }
+
+  @Test
+  public void load_project_permissions_only_once() {
+    assertThat(getProjectPermissions("u1", "P1")).containsOnly("user");
+    assertThat(getProjectPermissions("u1", "P1")).containsOnly("user");
+    assertThat(loads.get()).isEqualTo(1);
+
+    getProjectPermissions("u2", "P1");
+    getProjectPermissions("u1", "P2");
+    assertThat(loads.get()).isEqualTo(3);
+    assertThat(underTest.size()).isEqualTo(3);
+    assertThat(underTest.stats().hitCount()).isEqualTo(1);
+    assertThat(underTest.stats().missCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void invalidateProject_drops_entries_of_all_users_on_project() {
+    getProjectPermissions("u1", "P1");
+    getProjectPermissions("u2", "P1");
+    getProjectPermissions("u1", "P2");
+
+    underTest.invalidateProject("P1");
+
+    assertThat(underTest.size()).isEqualTo(1);
+    getProjectPermissions("u1", "P2");
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void invalidateProjects_drops_entries_of_given_projects() {
+    getProjectPermissions("u1", "P1");
+    getProjectPermissions("u1", "P2");
+    getProjectPermissions("u1", "P3");
+
+    underTest.invalidateProjects(asList("P1", "P3"));
+
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidateUser_drops_entries_of_user_whatever_its_groups() {
+    underTest.getOrganizationPermissions("10[]", "O1", () -> ImmutableSet.of(ADMINISTER));
+    getProjectPermissions("10[1,2]", "P1");
+    getProjectPermissions("100[]", "P1");
+    getProjectPermissions("anyone", "P1");
+
+    underTest.invalidateUser(10);
+
+    assertThat(underTest.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidateOrganization_drops_entries_of_organization_and_all_projects() {
+    underTest.getOrganizationPermissions("u1", "O1", () -> ImmutableSet.of(ADMINISTER));
+    underTest.getOrganizationPermissions("u1", "O2", () -> ImmutableSet.of(ADMINISTER));
+    getProjectPermissions("u1", "P1");
+
+    underTest.invalidateOrganization("O1");
+
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidateAll() {
+    underTest.getOrganizationPermissions("u1", "O1", () -> ImmutableSet.of(ADMINISTER));
+    getProjectPermissions("u1", "P1");
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void do_not_cache_permissions_loaded_while_cache_is_invalidated() {
+    Set<String> permissions = underTest.getProjectPermissions("u1", "P1", () -> {
+      underTest.invalidateProject("P1");
+      return ImmutableSet.of("user");
+    });
+
+    assertThat(permissions).containsOnly("user");
+    assertThat(underTest.size()).isZero();
+  }
+
+  private Set<String> getProjectPermissions(String userKey, String projectUuid) {
+    return underTest.getProjectPermissions(userKey, projectUuid, () -> {
+      loads.incrementAndGet();
+      return ImmutableSet.of("user");
+    });
+  }
+}
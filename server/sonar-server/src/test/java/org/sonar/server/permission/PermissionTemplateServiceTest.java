@@ -68,7 +68,8 @@ public class PermissionTemplateServiceTest {
   private UserDto user;
   private UserDto creator;
 
-  private PermissionTemplateService underTest = new PermissionTemplateService(dbTester.getDbClient(), permissionIndexer, userSession, defaultTemplatesResolver);
+  private PermissionTemplateService underTest = new PermissionTemplateService(dbTester.getDbClient(), permissionIndexer, userSession, defaultTemplatesResolver,
+    new PermissionCache());
 
   @Before
   public void setUp() throws Exception {
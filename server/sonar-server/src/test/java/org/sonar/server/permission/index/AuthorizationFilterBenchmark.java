@@ -0,0 +1,158 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.db.user.GroupDto;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.tester.MockUserSession;
+
+import static org.sonar.server.permission.index.FooIndexDefinition.INDEX_TYPE_FOO;
+
+/**
+ * Compares the strategies of {@link AuthorizedProjectsCache} to restrict searches to the projects visible
+ * to a user member of some groups, on 10'000 projects which permissions are granted to 1'000 groups.
+ * <p>
+ * It's not executed by the build. Run {@link #main(String[])} from IDE, or
+ * {@code mvn test-compile exec:java -Dexec.mainClass=org.sonar.server.permission.index.AuthorizationFilterBenchmark -Dexec.classpathScope=test}
+ * from the directory server/sonar-server.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationFilterBenchmark {
+
+  private static final int GROUPS_PER_PROJECT = 3;
+  private static final int GROUPS_PER_USER = 10;
+  private static final int DOCS_PER_PROJECT = 5;
+
+  @Param({"HAS_PARENT", "PROJECT_UUIDS"})
+  public String strategy;
+
+  @Param({"10000"})
+  public int projects;
+
+  @Param({"1000"})
+  public int groups;
+
+  private BenchmarkEsTester esTester;
+  private AuthorizationTypeSupport authorizationTypeSupport;
+
+  @Setup
+  public void setUp() throws Throwable {
+    esTester = new BenchmarkEsTester();
+    esTester.start();
+
+    Random random = new Random(42);
+    List<PermissionIndexerDao.Dto> authorizations = new ArrayList<>(projects);
+    BulkIndexer bulkIndexer = new BulkIndexer(esTester.client(), INDEX_TYPE_FOO.getIndex(), BulkIndexer.Size.LARGE);
+    bulkIndexer.start();
+    for (int i = 0; i < projects; i++) {
+      String projectUuid = "P" + i;
+      PermissionIndexerDao.Dto authorization = new PermissionIndexerDao.Dto(projectUuid, 1_000L, "TRK");
+      if (i % 10 == 0) {
+        authorization.allowAnyone();
+      } else {
+        for (int j = 0; j < GROUPS_PER_PROJECT; j++) {
+          authorization.addGroupId(random.nextInt(groups));
+        }
+      }
+      authorizations.add(authorization);
+      for (int j = 0; j < DOCS_PER_PROJECT; j++) {
+        bulkIndexer.add(esTester.client().prepareIndex(INDEX_TYPE_FOO)
+          .setRouting(projectUuid)
+          .setParent(projectUuid)
+          .setSource(ImmutableMap.of(FooIndexDefinition.FIELD_NAME, "doc" + j, FooIndexDefinition.FIELD_PROJECT_UUID, projectUuid))
+          .request());
+      }
+    }
+    bulkIndexer.stop();
+    AuthorizedProjectsCache cache = new AuthorizedProjectsCache(esTester.client(),
+      new MapSettings().setProperty(AuthorizedProjectsCache.STRATEGY_PROPERTY, strategy));
+    new PermissionIndexer(null, esTester.client(), cache, new FooIndexer(esTester.client())).index(authorizations);
+
+    GroupDto[] userGroups = new GroupDto[GROUPS_PER_USER];
+    for (int i = 0; i < GROUPS_PER_USER; i++) {
+      userGroups[i] = new GroupDto().setId(random.nextInt(groups));
+    }
+    MockUserSession userSession = new MockUserSession("john").setGroups(userGroups);
+    authorizationTypeSupport = new AuthorizationTypeSupport(userSession, cache);
+  }
+
+  @TearDown
+  public void tearDown() {
+    esTester.stop();
+  }
+
+  @Benchmark
+  public long search() {
+    return esTester.client().prepareSearch(INDEX_TYPE_FOO)
+      .setSize(0)
+      .setQuery(QueryBuilders.boolQuery().filter(authorizationTypeSupport.createQueryFilter(INDEX_TYPE_FOO)))
+      .get()
+      .getHits()
+      .getTotalHits();
+  }
+
+  private static class BenchmarkEsTester extends EsTester {
+    private BenchmarkEsTester() {
+      super(new FooIndexDefinition());
+    }
+
+    private void start() throws Throwable {
+      before();
+    }
+
+    private void stop() {
+      after();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(AuthorizationFilterBenchmark.class.getSimpleName())
+      .build()).run();
+  }
+}
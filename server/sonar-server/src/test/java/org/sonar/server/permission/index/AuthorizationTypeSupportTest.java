@@ -19,24 +19,35 @@
  */
 package org.sonar.server.permission.index;
 
+import java.util.Optional;
 import org.elasticsearch.index.query.HasParentQueryBuilder;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.GroupTesting;
+import org.sonar.server.es.IndexType;
 import org.sonar.server.tester.UserSessionRule;
 
+import static com.google.common.collect.Sets.newHashSet;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.sonar.test.JsonAssert.assertJson;
 
 public class AuthorizationTypeSupportTest {
 
+  private static final IndexType FOO_TYPE = new IndexType("foos", "foo");
+
   @Rule
   public UserSessionRule userSession = UserSessionRule.standalone();
 
-  private AuthorizationTypeSupport underTest = new AuthorizationTypeSupport(userSession);
+  private AuthorizedProjectsCache authorizedProjectsCache = mock(AuthorizedProjectsCache.class);
+  private AuthorizationTypeSupport underTest = new AuthorizationTypeSupport(userSession, authorizedProjectsCache);
 
   @Test
   public void createQueryFilter_does_not_include_permission_filters_if_user_is_flagged_as_root() {
@@ -150,4 +161,48 @@ public class AuthorizationTypeSupportTest {
       "  }" +
       "}");
   }
+
+  @Test
+  public void createQueryFilter_on_type_uses_has_parent_query_by_default() {
+    userSession.logIn().setUserId(1234);
+    when(authorizedProjectsCache.getStrategy()).thenReturn(AuthorizedProjectsCache.Strategy.HAS_PARENT);
+
+    QueryBuilder filter = underTest.createQueryFilter(FOO_TYPE);
+
+    assertThat(filter).isInstanceOf(HasParentQueryBuilder.class);
+  }
+
+  @Test
+  public void createQueryFilter_on_type_filters_on_uuids_of_authorized_projects() {
+    userSession.logIn().setUserId(1234);
+    when(authorizedProjectsCache.getStrategy()).thenReturn(AuthorizedProjectsCache.Strategy.PROJECT_UUIDS);
+    when(authorizedProjectsCache.getAuthorizedProjectUuids(any(IndexType.class), any(Integer.class), anyCollection()))
+      .thenReturn(Optional.of(newHashSet("P1", "P2")));
+
+    QueryBuilder filter = underTest.createQueryFilter(FOO_TYPE);
+
+    assertThat(filter).isInstanceOf(TermsQueryBuilder.class);
+  }
+
+  @Test
+  public void createQueryFilter_on_type_falls_back_to_has_parent_query_if_too_many_projects_are_authorized() {
+    userSession.logIn().setUserId(1234);
+    when(authorizedProjectsCache.getStrategy()).thenReturn(AuthorizedProjectsCache.Strategy.PROJECT_UUIDS);
+    when(authorizedProjectsCache.getAuthorizedProjectUuids(any(IndexType.class), any(Integer.class), anyCollection()))
+      .thenReturn(Optional.empty());
+
+    QueryBuilder filter = underTest.createQueryFilter(FOO_TYPE);
+
+    assertThat(filter).isInstanceOf(HasParentQueryBuilder.class);
+  }
+
+  @Test
+  public void createQueryFilter_on_type_does_not_include_permission_filters_if_user_is_flagged_as_root() {
+    userSession.logIn().setRoot();
+    when(authorizedProjectsCache.getStrategy()).thenReturn(AuthorizedProjectsCache.Strategy.PROJECT_UUIDS);
+
+    QueryBuilder filter = underTest.createQueryFilter(FOO_TYPE);
+
+    assertThat(filter).isInstanceOf(MatchAllQueryBuilder.class);
+  }
 }
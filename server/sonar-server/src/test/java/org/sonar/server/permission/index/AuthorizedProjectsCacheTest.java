@@ -0,0 +1,187 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.permission.index;
+
+import java.util.Collections;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.user.GroupDto;
+import org.sonar.db.user.UserDbTester;
+import org.sonar.db.user.UserDto;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.IndexType;
+import org.sonar.server.es.ProjectIndexer;
+import org.sonar.server.tester.UserSessionRule;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.api.web.UserRole.USER;
+
+public class AuthorizedProjectsCacheTest {
+
+  private static final IndexType INDEX_TYPE_FOO_AUTH = AuthorizationTypeSupport.getAuthorizationIndexType(FooIndexDefinition.INDEX_TYPE_FOO);
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public EsTester esTester = new EsTester(new FooIndexDefinition());
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+
+  private ComponentDbTester componentDbTester = new ComponentDbTester(dbTester);
+  private UserDbTester userDbTester = new UserDbTester(dbTester);
+  private Settings settings = new MapSettings().setProperty(AuthorizedProjectsCache.STRATEGY_PROPERTY, "projectUuids");
+  private AuthorizedProjectsCache underTest = new AuthorizedProjectsCache(esTester.client(), settings);
+  private FooIndex fooIndex = new FooIndex(esTester.client(), new AuthorizationTypeSupport(userSession, underTest));
+  private FooIndexer fooIndexer = new FooIndexer(esTester.client());
+  private PermissionIndexer permissionIndexer = new PermissionIndexer(dbTester.getDbClient(), esTester.client(), underTest, fooIndexer);
+
+  @Test
+  public void has_parent_is_the_default_strategy() {
+    assertThat(new AuthorizedProjectsCache(esTester.client(), new MapSettings()).getStrategy()).isEqualTo(AuthorizedProjectsCache.Strategy.HAS_PARENT);
+    assertThat(underTest.getStrategy()).isEqualTo(AuthorizedProjectsCache.Strategy.PROJECT_UUIDS);
+  }
+
+  @Test
+  public void fail_if_strategy_is_not_supported() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Unsupported value of property sonar.search.authorizationFilter: foo");
+
+    new AuthorizedProjectsCache(esTester.client(), new MapSettings().setProperty(AuthorizedProjectsCache.STRATEGY_PROPERTY, "foo"));
+  }
+
+  @Test
+  public void filter_searches_on_projects_visible_to_user_and_groups() {
+    ComponentDto publicProject = createAndIndexProject(componentDbTester.insertPublicProject());
+    ComponentDto userProject = createAndIndexProject(componentDbTester.insertPrivateProject());
+    ComponentDto groupProject = createAndIndexProject(componentDbTester.insertPrivateProject());
+    ComponentDto otherProject = createAndIndexProject(componentDbTester.insertPrivateProject());
+    UserDto user = userDbTester.insertUser();
+    GroupDto group = userDbTester.insertGroup();
+    userDbTester.insertProjectPermissionOnUser(user, USER, userProject);
+    userDbTester.insertProjectPermissionOnGroup(group, USER, groupProject);
+    indexOnStartup();
+
+    userSession.logIn(user.getLogin()).setUserId(user.getId()).setGroups(group);
+
+    assertThat(fooIndex.hasAccessToProject(publicProject.uuid())).isTrue();
+    assertThat(fooIndex.hasAccessToProject(userProject.uuid())).isTrue();
+    assertThat(fooIndex.hasAccessToProject(groupProject.uuid())).isTrue();
+    assertThat(fooIndex.hasAccessToProject(otherProject.uuid())).isFalse();
+    assertThat(underTest.getAuthorizedProjectUuids(INDEX_TYPE_FOO_AUTH, user.getId(), Collections.singletonList(group.getId())).get())
+      .containsOnly(publicProject.uuid(), userProject.uuid(), groupProject.uuid());
+  }
+
+  @Test
+  public void projects_are_loaded_once_per_user_and_groups() {
+    ComponentDto project = createAndIndexProject(componentDbTester.insertPublicProject());
+    UserDto user1 = userDbTester.insertUser();
+    UserDto user2 = userDbTester.insertUser();
+    GroupDto group1 = userDbTester.insertGroup();
+    GroupDto group2 = userDbTester.insertGroup();
+    indexOnStartup();
+
+    userSession.anonymous();
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isTrue();
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isTrue();
+    assertThat(underTest.size()).isEqualTo(1);
+
+    userSession.logIn(user1.getLogin()).setUserId(user1.getId()).setGroups(group1, group2);
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isTrue();
+    assertThat(underTest.size()).isEqualTo(2);
+
+    userSession.logIn(user2.getLogin()).setUserId(user2.getId()).setGroups(group1, group2);
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isTrue();
+    assertThat(underTest.size()).isEqualTo(3);
+
+    // order of groups does not matter
+    assertThat(underTest.getAuthorizedProjectUuids(INDEX_TYPE_FOO_AUTH, user2.getId(), asList(group2.getId(), group1.getId())).get())
+      .containsOnly(project.uuid());
+    assertThat(underTest.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void indexing_permissions_invalidates_cache() {
+    ComponentDto project = createAndIndexProject(componentDbTester.insertPrivateProject());
+    UserDto user = userDbTester.insertUser();
+    userDbTester.insertProjectPermissionOnUser(user, USER, project);
+    indexOnStartup();
+    userSession.logIn(user.getLogin()).setUserId(user.getId());
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isTrue();
+
+    userDbTester.deletePermissionFromUser(project, user, USER);
+    permissionIndexer.indexProjectsByUuids(dbTester.getSession(), asList(project.uuid()));
+
+    assertThat(underTest.size()).isZero();
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isFalse();
+  }
+
+  @Test
+  public void deleting_project_invalidates_cache() {
+    ComponentDto project = createAndIndexProject(componentDbTester.insertPublicProject());
+    indexOnStartup();
+    userSession.anonymous();
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isTrue();
+
+    permissionIndexer.deleteProject(project.uuid());
+
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void root_is_not_filtered() {
+    ComponentDto project = createAndIndexProject(componentDbTester.insertPrivateProject());
+    indexOnStartup();
+
+    userSession.logIn().setRoot();
+
+    assertThat(fooIndex.hasAccessToProject(project.uuid())).isTrue();
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void cache_is_disabled_when_size_is_zero() {
+    settings.setProperty(AuthorizedProjectsCache.SIZE_PROPERTY, 0);
+    underTest = new AuthorizedProjectsCache(esTester.client(), settings);
+    ComponentDto project = createAndIndexProject(componentDbTester.insertPublicProject());
+    indexOnStartup();
+
+    assertThat(underTest.getAuthorizedProjectUuids(INDEX_TYPE_FOO_AUTH, null, Collections.emptyList()).get()).containsOnly(project.uuid());
+    assertThat(underTest.size()).isZero();
+  }
+
+  private void indexOnStartup() {
+    permissionIndexer.indexOnStartup(permissionIndexer.getIndexTypes());
+  }
+
+  private ComponentDto createAndIndexProject(ComponentDto project) {
+    fooIndexer.indexProject(project.uuid(), ProjectIndexer.Cause.PROJECT_CREATION);
+    return project;
+  }
+}
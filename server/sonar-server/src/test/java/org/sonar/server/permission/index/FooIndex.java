@@ -44,7 +44,7 @@ public class FooIndex {
       .setTypes(FOO_TYPE)
       .setQuery(QueryBuilders.boolQuery()
         .must(QueryBuilders.termQuery(FooIndexDefinition.FIELD_PROJECT_UUID, projectUuid))
-        .filter(authorizationTypeSupport.createQueryFilter()))
+        .filter(authorizationTypeSupport.createQueryFilter(FooIndexDefinition.INDEX_TYPE_FOO)))
       .get()
       .getHits();
     List<String> names = Arrays.stream(hits.hits())
@@ -22,6 +22,7 @@ package org.sonar.server.permission.index;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDbTester;
@@ -54,9 +55,10 @@ public class PermissionIndexerTest {
 
   private ComponentDbTester componentDbTester = new ComponentDbTester(dbTester);
   private UserDbTester userDbTester = new UserDbTester(dbTester);
-  private FooIndex fooIndex = new FooIndex(esTester.client(), new AuthorizationTypeSupport(userSession));
+  private AuthorizedProjectsCache authorizedProjectsCache = new AuthorizedProjectsCache(esTester.client(), new MapSettings());
+  private FooIndex fooIndex = new FooIndex(esTester.client(), new AuthorizationTypeSupport(userSession, authorizedProjectsCache));
   private FooIndexer fooIndexer = new FooIndexer(esTester.client());
-  private PermissionIndexer underTest = new PermissionIndexer(dbTester.getDbClient(), esTester.client(), fooIndexer);
+  private PermissionIndexer underTest = new PermissionIndexer(dbTester.getDbClient(), esTester.client(), authorizedProjectsCache, fooIndexer);
 
   @Test
   public void initalizeOnStartup_grants_access_to_any_user_and_to_group_Anyone_on_public_projects() {
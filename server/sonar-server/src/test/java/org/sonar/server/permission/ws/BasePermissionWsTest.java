@@ -32,6 +32,7 @@ import org.sonar.db.permission.template.PermissionTemplateDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.permission.GroupPermissionChanger;
+import org.sonar.server.permission.PermissionCache;
 import org.sonar.server.permission.PermissionUpdater;
 import org.sonar.server.permission.UserPermissionChanger;
 import org.sonar.server.permission.index.PermissionIndexer;
@@ -80,7 +81,8 @@ public abstract class BasePermissionWsTest<A extends PermissionsWsAction> {
     return new PermissionUpdater(db.getDbClient(),
       mock(PermissionIndexer.class),
       new UserPermissionChanger(db.getDbClient()),
-      new GroupPermissionChanger(db.getDbClient()));
+      new GroupPermissionChanger(db.getDbClient()),
+      new PermissionCache());
   }
 
   protected TestRequest newRequest() {
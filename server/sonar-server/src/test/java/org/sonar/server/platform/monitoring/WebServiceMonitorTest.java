@@ -0,0 +1,46 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import org.junit.Test;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.server.ws.WebServiceMetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebServiceMonitorTest {
+
+  private WebServiceMonitor underTest = new WebServiceMonitor(new WebServiceMetrics(new MapSettings(), System2.INSTANCE));
+
+  @Test
+  public void name_is_not_empty() {
+    assertThat(underTest.name()).isNotEmpty();
+  }
+
+  @Test
+  public void attributes() {
+    assertThat(underTest.attributes())
+      .containsEntry("In Flight Requests", 0)
+      .containsEntry("Requests", 0L)
+      .containsEntry("Errors", 0L)
+      .containsEntry("Slow Requests", 0L);
+  }
+}
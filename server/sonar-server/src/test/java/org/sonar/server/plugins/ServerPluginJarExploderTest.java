@@ -42,22 +42,27 @@ public class ServerPluginJarExploderTest {
   @Test
   public void copy_all_classloader_files_to_dedicated_directory() throws Exception {
     File deployDir = temp.newFolder();
+    File cacheDir = temp.newFolder();
     when(fs.getDeployedPluginsDir()).thenReturn(deployDir);
+    when(fs.getExplodedPluginsCacheDir()).thenReturn(cacheDir);
     File jar = TestProjectUtils.jarOf("test-libs-plugin");
     PluginInfo info = PluginInfo.create(jar);
 
     ExplodedPlugin exploded = underTest.explode(info);
 
-    // all the files loaded by classloaders (JAR + META-INF/libs/*.jar) are copied to the dedicated directory
-    // web/deploy/{pluginKey}
-    File pluginDeployDir = new File(deployDir, "testlibs");
+    // JAR is copied to the directory web/deploy/{pluginKey} for scanners
+    assertThat(new File(new File(deployDir, "testlibs"), jar.getName())).isFile().exists();
 
+    // all the files loaded by classloaders (JAR + META-INF/libs/*.jar) are copied to the cache directory
+    // {cacheDir}/{pluginKey}/{checksum}
+    File pluginCacheDir = new File(cacheDir, "testlibs");
     assertThat(exploded.getKey()).isEqualTo("testlibs");
-    assertThat(exploded.getMain()).isFile().exists().hasParent(pluginDeployDir);
+    assertThat(exploded.getMain()).isFile().exists();
+    assertThat(exploded.getMain().getParentFile()).hasParent(pluginCacheDir);
     assertThat(exploded.getLibs()).extracting("name").containsOnly("commons-daemon-1.0.15.jar", "commons-email-20030310.165926.jar");
     for (File lib : exploded.getLibs()) {
       assertThat(lib).exists().isFile();
-      assertThat(lib.getCanonicalPath()).startsWith(pluginDeployDir.getCanonicalPath());
+      assertThat(lib.getCanonicalPath()).startsWith(pluginCacheDir.getCanonicalPath());
     }
   }
 }
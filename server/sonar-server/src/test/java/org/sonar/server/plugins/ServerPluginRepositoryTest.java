@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import org.apache.commons.io.FileUtils;
@@ -32,6 +33,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.sonar.api.SonarRuntime;
 import org.sonar.api.platform.ServerUpgradeStatus;
@@ -44,6 +47,7 @@ import org.sonar.updatecenter.common.Version;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyMap;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -62,7 +66,8 @@ public class ServerPluginRepositoryTest {
   ServerUpgradeStatus upgradeStatus = mock(ServerUpgradeStatus.class);
   ServerFileSystem fs = mock(ServerFileSystem.class, Mockito.RETURNS_DEEP_STUBS);
   PluginLoader pluginLoader = mock(PluginLoader.class);
-  ServerPluginRepository underTest = new ServerPluginRepository(runtime, upgradeStatus, fs, pluginLoader);
+  ServerPluginJarExploder jarExploder = mock(ServerPluginJarExploder.class);
+  ServerPluginRepository underTest = new ServerPluginRepository(runtime, upgradeStatus, fs, pluginLoader, jarExploder);
 
   @Before
   public void setUp() throws IOException {
@@ -113,6 +118,19 @@ public class ServerPluginRepositoryTest {
     assertThat(underTest.getPluginInfosByKeys()).containsOnlyKeys("testbase");
   }
 
+  @Test
+  public void clean_cache_of_exploded_plugins_before_loading_plugins() throws Exception {
+    copyTestPluginTo("test-base-plugin", fs.getInstalledPluginsDir());
+
+    underTest.start();
+
+    ArgumentCaptor<Collection> installed = ArgumentCaptor.forClass(Collection.class);
+    InOrder inOrder = Mockito.inOrder(jarExploder, pluginLoader);
+    inOrder.verify(jarExploder).cleanCache(installed.capture());
+    inOrder.verify(pluginLoader).load(anyMap());
+    assertThat(installed.getValue()).extracting("key").containsOnly("testbase");
+  }
+
   @Test
   public void no_plugins_at_all_on_startup() {
     underTest.start();
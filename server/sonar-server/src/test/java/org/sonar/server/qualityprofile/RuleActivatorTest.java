@@ -868,6 +868,33 @@ public class RuleActivatorTest {
       r -> assertThatRuleIsActivated(profile, r.getDefinition(), null, MINOR, null, emptyMap()));
   }
 
+  @Test
+  public void bulk_activation_is_propagated_to_descendants() {
+    RuleDefinitionDto rule1 = createJavaRule();
+    RuleDefinitionDto rule2 = createJavaRule();
+    QProfileDto parentProfile = createProfile(rule1);
+    QProfileDto childProfile = createChildProfile(parentProfile);
+    QProfileDto grandchildProfile = createChildProfile(childProfile);
+    activate(childProfile, RuleActivation.create(rule2.getKey(), CRITICAL, null));
+
+    ruleIndexer.indexOnStartup(ruleIndexer.getIndexTypes());
+
+    RuleQuery query = new RuleQuery().setLanguages(singletonList(rule1.getLanguage()));
+    BulkChangeResult result = underTest.bulkActivate(db.getSession(), query, parentProfile, MINOR);
+
+    assertThat(result.countSucceeded()).isEqualTo(2);
+    assertThat(result.countFailed()).isEqualTo(0);
+    assertThatRuleIsActivated(parentProfile, rule1, null, MINOR, null, emptyMap());
+    assertThatRuleIsActivated(childProfile, rule1, null, MINOR, INHERITED, emptyMap());
+    assertThatRuleIsActivated(grandchildProfile, rule1, null, MINOR, INHERITED, emptyMap());
+    assertThatRuleIsActivated(parentProfile, rule2, null, MINOR, null, emptyMap());
+    // rule2 was already activated on child, which now overrides the parent
+    assertThatRuleIsUpdated(childProfile, rule2, CRITICAL, ActiveRule.Inheritance.OVERRIDES, emptyMap());
+    assertThatRuleIsUpdated(grandchildProfile, rule2, CRITICAL, INHERITED, emptyMap());
+    assertThatProfileIsUpdatedBySystem(parentProfile);
+    assertThatProfileIsUpdatedBySystem(childProfile);
+  }
+
   @Test
   public void bulk_deactivation() {
     int bulkSize = SearchOptions.MAX_LIMIT + 10 + new Random().nextInt(100);
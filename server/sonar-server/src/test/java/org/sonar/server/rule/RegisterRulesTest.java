@@ -23,7 +23,9 @@ import java.util.Date;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonar.api.SonarQubeSide;
 import org.sonar.api.config.MapSettings;
+import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.Languages;
 import org.sonar.api.rule.RuleKey;
@@ -33,6 +35,7 @@ import org.sonar.api.server.debt.DebtRemediationFunction;
 import org.sonar.api.server.rule.RulesDefinition;
 import org.sonar.api.utils.DateUtils;
 import org.sonar.api.utils.System2;
+import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.db.DbClient;
@@ -317,6 +320,41 @@ public class RegisterRulesTest {
     assertThat(ruleIndex.search(new RuleQuery().setQueryText("Name1"), new SearchOptions()).getTotal()).isEqualTo(0);
   }
 
+  @Test
+  public void update_date_of_rule_when_only_its_parameters_change() {
+    when(system.now()).thenReturn(DATE1.getTime());
+    execute(new RulesDefinition() {
+      @Override
+      public void define(Context context) {
+        NewRepository repo = context.createRepository("fake", "java");
+        repo.createRule("rule")
+          .setName("Name")
+          .setHtmlDescription("Description")
+          .createParam("param").setDefaultValue("default1");
+        repo.done();
+      }
+    });
+
+    when(system.now()).thenReturn(DATE2.getTime());
+    execute(new RulesDefinition() {
+      @Override
+      public void define(Context context) {
+        NewRepository repo = context.createRepository("fake", "java");
+        repo.createRule("rule")
+          .setName("Name")
+          .setHtmlDescription("Description")
+          .createParam("param").setDefaultValue("default2");
+        repo.done();
+      }
+    });
+
+    RuleDto rule = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), defaultOrganization, RuleKey.of("fake", "rule"));
+    assertThat(rule.getUpdatedAt()).isEqualTo(DATE2.getTime());
+    assertThat(dbClient.ruleDao().selectRuleParamsByRuleKey(dbTester.getSession(), rule.getKey()))
+      .extracting(RuleParamDto::getDefaultValue)
+      .containsExactly("default2");
+  }
+
   @Test
   public void update_only_rule_description() throws Exception {
     when(system.now()).thenReturn(DATE1.getTime());
@@ -389,6 +427,31 @@ public class RegisterRulesTest {
     assertThat(rule1.getUpdatedAt()).isEqualTo(DATE1.getTime());
   }
 
+  @Test
+  public void skip_repositories_which_did_not_change_since_last_startup() {
+    execute(new FakeRepositoryV1());
+    assertThat(dbClient.internalPropertiesDao().selectByKey(dbTester.getSession(), RegisterRules.FINGERPRINTS_PROPERTY)).isPresent();
+
+    // rule is modified in db, but as the repository definition did not change it is not synchronized
+    RuleDefinitionDto rule1 = dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RULE_KEY1);
+    dbClient.ruleDao().update(dbTester.getSession(), rule1.setName("Changed"));
+    dbTester.getSession().commit();
+    when(system.now()).thenReturn(DATE2.getTime());
+    execute(new FakeRepositoryV1());
+
+    rule1 = dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RULE_KEY1);
+    assertThat(rule1.getName()).isEqualTo("Changed");
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Rule repositories are unchanged since last startup");
+
+    // repository changed
+    when(system.now()).thenReturn(DATE3.getTime());
+    execute(new FakeRepositoryV2());
+
+    rule1 = dbClient.ruleDao().selectOrFailDefinitionByKey(dbTester.getSession(), RULE_KEY1);
+    assertThat(rule1.getName()).isEqualTo("One v2");
+    assertThat(rule1.getUpdatedAt()).isEqualTo(DATE3.getTime());
+  }
+
   @Test
   public void do_not_update_already_removed_rules() {
     execute(new FakeRepositoryV1());
@@ -487,7 +550,8 @@ public class RegisterRulesTest {
     when(languages.get("java")).thenReturn(mock(Language.class));
     reset(webServerRuleFinder);
 
-    RegisterRules task = new RegisterRules(loader, ruleActivator, dbClient, ruleIndexer, activeRuleIndexer, languages, system, organizationFlags, webServerRuleFinder);
+    RegisterRules task = new RegisterRules(loader, ruleActivator, dbClient, ruleIndexer, activeRuleIndexer, languages, system, organizationFlags, webServerRuleFinder,
+      new RuleDefinitionsCache(dbClient, System2.INSTANCE), SonarRuntimeImpl.forSonarQube(Version.create(6, 5), SonarQubeSide.SERVER));
     task.start();
     // Execute a commit to refresh session state as the task is using its own session
     dbTester.getSession().commit();
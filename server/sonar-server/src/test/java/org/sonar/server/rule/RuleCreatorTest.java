@@ -73,7 +73,7 @@ public class RuleCreatorTest {
   private DbSession dbSession = db.getSession();
 
   private RuleCreator underTest = new RuleCreator(system2, new RuleIndexer(es.client(), db.getDbClient()), db.getDbClient(), newFullTypeValidations(),
-    TestDefaultOrganizationProvider.from(db));
+    TestDefaultOrganizationProvider.from(db), new RuleDefinitionsCache(db.getDbClient(), System2.INSTANCE));
 
   @Test
   public void create_custom_rule() {
@@ -0,0 +1,188 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.RuleStatus;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.internal.TestSystem2;
+import org.sonar.db.DbTester;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.rule.RuleParamDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.rule.RuleDefinitionsCache.SAFETY_MARGIN_MS;
+
+public class RuleDefinitionsCacheTest {
+
+  @org.junit.Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private TestSystem2 system2 = new TestSystem2().setNow(10_000_000L);
+  private RuleDefinitionsCache underTest = new RuleDefinitionsCache(dbTester.getDbClient(), system2);
+
+  @Test
+  public void rules_are_loaded_on_first_call() {
+    RuleDefinitionDto rule1 = dbTester.rules().insert(r -> r.setUpdatedAt(1_000L));
+    RuleDefinitionDto rule2 = dbTester.rules().insert(r -> r.setUpdatedAt(2_000L));
+    RuleParamDto param = dbTester.rules().insertRuleParam(rule1);
+    assertThat(underTest.isLoaded()).isFalse();
+
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+
+    assertThat(underTest.isLoaded()).isTrue();
+    assertThat(snapshot.getVersion()).isEqualTo(2_000L);
+    assertThat(snapshot.getDefinitions()).extracting(RuleDefinitionDto::getKey).containsOnly(rule1.getKey(), rule2.getKey());
+    assertThat(snapshot.getByKey(rule1.getKey()).get().getId()).isEqualTo(rule1.getId());
+    assertThat(snapshot.getById(rule2.getId()).get().getKey()).isEqualTo(rule2.getKey());
+    assertThat(snapshot.getByKey(RuleKey.of("foo", "bar"))).isEmpty();
+    assertThat(snapshot.getParams(rule1.getId())).extracting(RuleParamDto::getName).containsExactly(param.getName());
+    assertThat(snapshot.getParams(rule2.getId())).isEmpty();
+  }
+
+  @Test
+  public void snapshot_is_reused_if_rules_are_not_updated() {
+    dbTester.rules().insert(r -> r.setUpdatedAt(1_000L));
+
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+
+    assertThat(underTest.get(dbTester.getSession())).isSameAs(snapshot);
+  }
+
+  @Test
+  public void only_rules_updated_since_last_call_are_loaded() {
+    RuleDefinitionDto rule1 = dbTester.rules().insert(r -> r.setUpdatedAt(100_000L));
+    RuleDefinitionDto rule2 = dbTester.rules().insert(r -> r.setUpdatedAt(1_000L));
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+
+    // for example by the other process
+    dbTester.rules().update(rule1.setStatus(RuleStatus.REMOVED).setUpdatedAt(200_000L));
+    RuleDefinitionDto rule3 = dbTester.rules().insert(r -> r.setUpdatedAt(300_000L));
+    RuleDefinitionsCache.Snapshot newSnapshot = underTest.get(dbTester.getSession());
+
+    assertThat(newSnapshot).isNotSameAs(snapshot);
+    assertThat(newSnapshot.getVersion()).isEqualTo(300_000L);
+    assertThat(newSnapshot.getDefinitions()).extracting(RuleDefinitionDto::getKey).containsOnly(rule1.getKey(), rule2.getKey(), rule3.getKey());
+    assertThat(newSnapshot.getByKey(rule1.getKey()).get().getStatus()).isEqualTo(RuleStatus.REMOVED);
+    assertThat(newSnapshot.getByKey(rule2.getKey()).get()).isSameAs(snapshot.getByKey(rule2.getKey()).get());
+    // previous snapshot is not modified
+    assertThat(snapshot.getByKey(rule1.getKey()).get().getStatus()).isNotEqualTo(RuleStatus.REMOVED);
+    assertThat(snapshot.getByKey(rule3.getKey())).isEmpty();
+  }
+
+  @Test
+  public void rules_committed_late_with_an_older_update_date_are_loaded_within_safety_margin() {
+    dbTester.rules().insert(r -> r.setUpdatedAt(1_000_000L));
+    underTest.get(dbTester.getSession());
+
+    // committed after the last call, but updated before the version of the cache
+    RuleDefinitionDto lateRule = dbTester.rules().insert(r -> r.setUpdatedAt(1_000_000L - SAFETY_MARGIN_MS + 1));
+    RuleDefinitionDto tooLateRule = dbTester.rules().insert(r -> r.setUpdatedAt(1_000_000L - SAFETY_MARGIN_MS - 1));
+    RuleDefinitionDto newRule = dbTester.rules().insert(r -> r.setUpdatedAt(2_000_000L));
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+
+    assertThat(snapshot.getVersion()).isEqualTo(2_000_000L);
+    assertThat(snapshot.getByKey(lateRule.getKey())).isPresent();
+    assertThat(snapshot.getByKey(newRule.getKey())).isPresent();
+    assertThat(snapshot.getByKey(tooLateRule.getKey())).isEmpty();
+  }
+
+  @Test
+  public void rules_committed_late_with_an_older_update_date_are_loaded_while_version_is_within_safety_margin() {
+    dbTester.rules().insert(r -> r.setUpdatedAt(1_000_000L));
+    system2.setNow(1_000_000L + SAFETY_MARGIN_MS - 1);
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+    assertThat(underTest.get(dbTester.getSession())).isSameAs(snapshot);
+
+    // committed after the last call, without changing the most recent update date
+    RuleDefinitionDto lateRule = dbTester.rules().insert(r -> r.setUpdatedAt(999_000L));
+    RuleDefinitionsCache.Snapshot newSnapshot = underTest.get(dbTester.getSession());
+
+    assertThat(newSnapshot.getVersion()).isEqualTo(1_000_000L);
+    assertThat(newSnapshot.getByKey(lateRule.getKey())).isPresent();
+  }
+
+  @Test
+  public void rules_committed_late_with_an_older_update_date_are_missed_once_version_is_older_than_safety_margin() {
+    dbTester.rules().insert(r -> r.setUpdatedAt(1_000_000L));
+    system2.setNow(1_000_000L + SAFETY_MARGIN_MS);
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+
+    RuleDefinitionDto lateRule = dbTester.rules().insert(r -> r.setUpdatedAt(999_000L));
+
+    assertThat(underTest.get(dbTester.getSession())).isSameAs(snapshot);
+    assertThat(snapshot.getByKey(lateRule.getKey())).isEmpty();
+  }
+
+  @Test
+  public void refresh_reloads_parameters_of_rules_without_changing_version() {
+    RuleDefinitionDto rule1 = dbTester.rules().insert(r -> r.setUpdatedAt(1_000L));
+    RuleDefinitionDto rule2 = dbTester.rules().insert(r -> r.setUpdatedAt(2_000L));
+    RuleParamDto param1 = dbTester.rules().insertRuleParam(rule1);
+    RuleParamDto param2 = dbTester.rules().insertRuleParam(rule2);
+    underTest.get(dbTester.getSession());
+
+    dbTester.getDbClient().ruleDao().updateRuleParam(dbTester.getSession(), rule1, param1.setDefaultValue("new value"));
+    dbTester.commit();
+    underTest.refresh(dbTester.getSession(), singletonList(rule1.getKey()));
+
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+    assertThat(snapshot.getVersion()).isEqualTo(2_000L);
+    assertThat(snapshot.getParams(rule1.getId())).extracting(RuleParamDto::getDefaultValue).containsExactly("new value");
+    assertThat(snapshot.getParams(rule2.getId())).extracting(RuleParamDto::getId).containsExactly(param2.getId());
+  }
+
+  @Test
+  public void refresh_does_nothing_if_cache_is_not_loaded() {
+    RuleDefinitionDto rule = dbTester.rules().insert();
+
+    underTest.refresh(dbTester.getSession(), asList(rule.getKey()));
+
+    assertThat(underTest.isLoaded()).isFalse();
+  }
+
+  @Test
+  public void invalidate_drops_rules() {
+    RuleDefinitionDto rule = dbTester.rules().insert(r -> r.setUpdatedAt(1_000L));
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+
+    underTest.invalidate();
+
+    assertThat(underTest.isLoaded()).isFalse();
+    RuleDefinitionsCache.Snapshot newSnapshot = underTest.get(dbTester.getSession());
+    assertThat(newSnapshot).isNotSameAs(snapshot);
+    assertThat(newSnapshot.getDefinitions()).extracting(RuleDefinitionDto::getKey).containsOnly(rule.getKey());
+  }
+
+  @Test
+  public void repeated_strings_are_shared() {
+    dbTester.rules().insert(r -> r.setRepositoryKey("java").setLanguage("java"));
+    dbTester.rules().insert(r -> r.setRepositoryKey("java").setLanguage("java"));
+
+    RuleDefinitionsCache.Snapshot snapshot = underTest.get(dbTester.getSession());
+
+    RuleDefinitionDto[] definitions = snapshot.getDefinitions().toArray(new RuleDefinitionDto[0]);
+    assertThat(definitions[0].getRepositoryKey()).isSameAs(definitions[1].getRepositoryKey());
+    assertThat(definitions[0].getLanguage()).isSameAs(definitions[1].getLanguage());
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.rule;
+
+import java.util.Collections;
+import java.util.function.Consumer;
+import org.junit.Test;
+import org.sonar.api.resources.Language;
+import org.sonar.api.resources.Languages;
+import org.sonar.api.server.rule.RuleParamType;
+import org.sonar.api.server.rule.RulesDefinition;
+import org.sonar.api.utils.Version;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RuleRepositoryFingerprintTest {
+
+  private static final Version VERSION = Version.create(6, 5);
+
+  private Languages languages = mock(Languages.class);
+
+  @Test
+  public void fingerprint_is_stable() {
+    when(languages.get("java")).thenReturn(mock(Language.class));
+
+    assertThat(fingerprint(repo -> {
+    }, VERSION, false)).isEqualTo(fingerprint(repo -> {
+    }, VERSION, false));
+  }
+
+  @Test
+  public void fingerprint_changes_with_server_version() {
+    assertThat(fingerprint(repo -> {
+    }, Version.create(6, 6), false)).isNotEqualTo(fingerprint(repo -> {
+    }, VERSION, false));
+  }
+
+  @Test
+  public void fingerprint_changes_when_organizations_are_enabled() {
+    assertThat(fingerprint(repo -> {
+    }, VERSION, true)).isNotEqualTo(fingerprint(repo -> {
+    }, VERSION, false));
+  }
+
+  @Test
+  public void fingerprint_changes_when_language_is_installed() {
+    String withoutLanguage = fingerprint(repo -> {
+    }, VERSION, false);
+    when(languages.get("java")).thenReturn(mock(Language.class));
+
+    assertThat(fingerprint(repo -> {
+    }, VERSION, false)).isNotEqualTo(withoutLanguage);
+  }
+
+  @Test
+  public void fingerprint_changes_with_repository_name() {
+    assertThat(fingerprint(repo -> repo.setName("Other"), VERSION, false)).isNotEqualTo(fingerprint(repo -> {
+    }, VERSION, false));
+  }
+
+  @Test
+  public void fingerprint_changes_with_rule_attributes() {
+    String reference = fingerprint(repo -> {
+    }, VERSION, false);
+
+    assertThat(fingerprint(repo -> repo.rule("rule1").setName("Other"), VERSION, false)).isNotEqualTo(reference);
+    assertThat(fingerprint(repo -> repo.rule("rule1").setHtmlDescription("Other"), VERSION, false)).isNotEqualTo(reference);
+    assertThat(fingerprint(repo -> repo.rule("rule1").setSeverity("BLOCKER"), VERSION, false)).isNotEqualTo(reference);
+    assertThat(fingerprint(repo -> repo.rule("rule1").setInternalKey("other"), VERSION, false)).isNotEqualTo(reference);
+    assertThat(fingerprint(repo -> repo.rule("rule1").addTags("other"), VERSION, false)).isNotEqualTo(reference);
+    assertThat(fingerprint(repo -> repo.createRule("rule2").setName("Rule 2").setHtmlDescription("Description 2"), VERSION, false))
+      .isNotEqualTo(reference);
+  }
+
+  @Test
+  public void fingerprint_changes_with_rule_params() {
+    String reference = fingerprint(repo -> {
+    }, VERSION, false);
+
+    assertThat(fingerprint(repo -> repo.rule("rule1").param("param1").setDefaultValue("other"), VERSION, false)).isNotEqualTo(reference);
+    assertThat(fingerprint(repo -> repo.rule("rule1").param("param1").setDescription("other"), VERSION, false)).isNotEqualTo(reference);
+    assertThat(fingerprint(repo -> repo.rule("rule1").param("param1").setType(RuleParamType.INTEGER), VERSION, false)).isNotEqualTo(reference);
+    assertThat(fingerprint(repo -> repo.rule("rule1").createParam("param2"), VERSION, false)).isNotEqualTo(reference);
+  }
+
+  private String fingerprint(Consumer<RulesDefinition.NewRepository> customizer, Version version, boolean organizationsEnabled) {
+    RulesDefinition.Context context = new RulesDefinition.Context();
+    RulesDefinition.NewRepository repo = context.createRepository("squid", "java").setName("Squid");
+    repo.createRule("rule1")
+      .setName("Rule 1")
+      .setHtmlDescription("Description 1")
+      .createParam("param1")
+      .setDefaultValue("10");
+    customizer.accept(repo);
+    repo.done();
+    return RuleRepositoryFingerprint.of(Collections.singletonList(context.repository("squid")), languages, organizationsEnabled, version);
+  }
+}
@@ -84,7 +84,7 @@ public class RuleUpdaterTest {
   private DbSession dbSession = db.getSession();
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
 
-  private RuleUpdater underTest = new RuleUpdater(db.getDbClient(), ruleIndexer, system2);
+  private RuleUpdater underTest = new RuleUpdater(db.getDbClient(), ruleIndexer, system2, new RuleDefinitionsCache(db.getDbClient(), system2));
 
   @Test
   public void do_not_update_rule_with_removed_status() {
@@ -22,6 +22,7 @@ package org.sonar.server.rule;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.rules.RuleFinder;
+import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.rule.RuleDao;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
@@ -34,7 +35,7 @@ public class WebServerRuleFinderImplTest {
 
   private DbClient dbClient = mock(DbClient.class);
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.fromUuid("1111");
-  private WebServerRuleFinderImpl underTest = new WebServerRuleFinderImpl(dbClient, defaultOrganizationProvider);
+  private WebServerRuleFinderImpl underTest = new WebServerRuleFinderImpl(dbClient, defaultOrganizationProvider, new RuleDefinitionsCache(dbClient, System2.INSTANCE));
 
   @Before
   public void setUp() throws Exception {
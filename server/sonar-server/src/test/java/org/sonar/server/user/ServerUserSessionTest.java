@@ -39,6 +39,7 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
 import org.sonar.server.organization.TestOrganizationFlags;
+import org.sonar.server.permission.PermissionCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.core.permission.GlobalPermissions.PROVISIONING;
@@ -75,6 +76,7 @@ public class ServerUserSessionTest {
   private GroupDto groupOfUser;
   private TestOrganizationFlags organizationFlags = TestOrganizationFlags.standalone();
   private TestDefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
+  private PermissionCache permissionCache = new PermissionCache();
   private OrganizationDto organization;
   private ComponentDto publicProject;
   private ComponentDto privateProject;
@@ -389,6 +391,39 @@ public class ServerUserSessionTest {
     assertThat(hasComponentPermissionByDtoOrUuid(underTest, UserRole.ISSUE_ADMIN, publicProject)).isFalse();
   }
 
+  @Test
+  public void permissions_are_shared_between_sessions_until_cache_is_invalidated() {
+    OrganizationDto org = db.organizations().insert();
+    db.users().insertPermissionOnUser(org, user, PROVISIONING);
+    db.users().insertProjectPermissionOnUser(user, UserRole.ADMIN, publicProject);
+
+    // feed the cache
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org.getUuid())).isTrue();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.ADMIN, publicProject)).isTrue();
+
+    db.users().deletePermissionFromUser(org, user, PROVISION_PROJECTS);
+    db.users().deletePermissionFromUser(publicProject, user, UserRole.ADMIN);
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org.getUuid())).isTrue();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.ADMIN, publicProject)).isTrue();
+
+    permissionCache.invalidateProject(publicProject.uuid());
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org.getUuid())).isTrue();
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.ADMIN, publicProject)).isFalse();
+
+    permissionCache.invalidateOrganization(org.getUuid());
+    assertThat(newUserSession(user).hasPermission(PROVISION_PROJECTS, org.getUuid())).isFalse();
+  }
+
+  @Test
+  public void permissions_are_not_shared_between_sessions_if_groups_of_user_changed() {
+    db.users().insertProjectPermissionOnGroup(groupOfUser, UserRole.ADMIN, privateProject);
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.ADMIN, privateProject)).isFalse();
+
+    db.users().insertMember(groupOfUser, user);
+
+    assertThat(newUserSession(user).hasComponentPermission(UserRole.ADMIN, privateProject)).isTrue();
+  }
+
   private boolean hasComponentPermissionByDtoOrUuid(UserSession underTest, String permission, ComponentDto component) {
     return new Random().nextBoolean() ? underTest.hasComponentPermission(permission, component) : underTest.hasComponentUuidPermission(permission, component.uuid());
   }
@@ -513,7 +548,7 @@ public class ServerUserSessionTest {
   }
 
   private ServerUserSession newUserSession(@Nullable UserDto userDto) {
-    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, userDto);
+    return new ServerUserSession(dbClient, organizationFlags, defaultOrganizationProvider, permissionCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
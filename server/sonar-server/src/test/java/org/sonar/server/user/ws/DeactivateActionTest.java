@@ -44,6 +44,7 @@ import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.TestDefaultOrganizationProvider;
+import org.sonar.server.permission.PermissionCache;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexDefinition;
@@ -88,7 +89,7 @@ public class DeactivateActionTest {
   private DbSession dbSession = db.getSession();
 
   private WsActionTester ws = new WsActionTester(new DeactivateAction(
-    dbClient, userIndexer, userSession, new UserJsonWriter(userSession), defaultOrganizationProvider));
+    dbClient, userIndexer, userSession, new UserJsonWriter(userSession), defaultOrganizationProvider, new PermissionCache()));
 
   @Test
   public void deactivate_user_and_delete_his_related_data() {
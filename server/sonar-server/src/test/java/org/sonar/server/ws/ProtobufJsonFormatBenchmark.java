@@ -0,0 +1,270 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ws;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.MapEntry;
+import com.google.protobuf.Message;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.core.util.ProtobufJsonFormat;
+import org.sonarqube.ws.Common;
+import org.sonarqube.ws.Issues;
+import org.sonarqube.ws.WsMeasures;
+
+/**
+ * Compares {@link ProtobufJsonFormat} with the former implementation based on the reflective API
+ * of protobuf, on responses of api/issues/search and api/measures/component_tree with {@link #size} elements.
+ * Both implementations are checked to generate the same JSON during setup. JSON is written to a
+ * {@link NullWriter}, so that only the conversion is measured.
+ * <p>
+ * Run {@link #main(String[])}, for example from IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtobufJsonFormatBenchmark {
+
+  @Param({"500"})
+  public int size;
+
+  private Issues.SearchWsResponse issues;
+  private WsMeasures.ComponentTreeWsResponse componentTree;
+
+  @Setup
+  public void setUp() {
+    issues = newIssuesResponse(size);
+    componentTree = newComponentTreeResponse(size);
+    checkSameOutput(issues);
+    checkSameOutput(componentTree);
+  }
+
+  @Benchmark
+  public void issues_search_precompiled() {
+    ProtobufJsonFormat.write(issues, JsonWriter.of(new NullWriter()));
+  }
+
+  @Benchmark
+  public void issues_search_reflective() {
+    ReflectiveJsonFormat.write(issues, JsonWriter.of(new NullWriter()));
+  }
+
+  @Benchmark
+  public void measures_component_tree_precompiled() {
+    ProtobufJsonFormat.write(componentTree, JsonWriter.of(new NullWriter()));
+  }
+
+  @Benchmark
+  public void measures_component_tree_reflective() {
+    ReflectiveJsonFormat.write(componentTree, JsonWriter.of(new NullWriter()));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(ProtobufJsonFormatBenchmark.class.getSimpleName())
+      .build())
+        .run();
+  }
+
+  private static Issues.SearchWsResponse newIssuesResponse(int size) {
+    Issues.SearchWsResponse.Builder response = Issues.SearchWsResponse.newBuilder()
+      .setTotal(size)
+      .setP(1)
+      .setPs(size)
+      .setPaging(Common.Paging.newBuilder().setPageIndex(1).setPageSize(size).setTotal(size));
+    for (int i = 0; i < size; i++) {
+      response.addIssues(Issues.Issue.newBuilder()
+        .setOrganization("my-org")
+        .setKey("AVhkZ1ck2y2hkXLwXIB" + i)
+        .setRule("squid:S1234")
+        .setSeverity(Common.Severity.MAJOR)
+        .setComponent("org.sonarsource:sonarqube:src/main/java/org/sonar/File" + i + ".java")
+        .setProject("org.sonarsource:sonarqube")
+        .setLine(i)
+        .setTextRange(Common.TextRange.newBuilder().setStartLine(i).setEndLine(i).setStartOffset(2).setEndOffset(40))
+        .setStatus("OPEN")
+        .setMessage("Remove this unused \"foo\" local variable.")
+        .setEffort("5min")
+        .setDebt("5min")
+        .setAuthor("john@sonarsource.com")
+        .addTags("unused")
+        .addTags("pitfall")
+        .setTransitions(Issues.Transitions.newBuilder().addTransitions("confirm").addTransitions("resolve"))
+        .setActions(Issues.Actions.newBuilder().addActions("comment").addActions("assign"))
+        .setCreationDate("2017-06-01T12:00:00+0200")
+        .setUpdateDate("2017-06-02T12:00:00+0200")
+        .setType(Common.RuleType.CODE_SMELL));
+      response.addComponents(Issues.Component.newBuilder()
+        .setKey("org.sonarsource:sonarqube:src/main/java/org/sonar/File" + i + ".java")
+        .setEnabled(true)
+        .setQualifier("FIL")
+        .setName("File" + i + ".java")
+        .setLongName("src/main/java/org/sonar/File" + i + ".java")
+        .setPath("src/main/java/org/sonar/File" + i + ".java"));
+    }
+    return response.build();
+  }
+
+  private static WsMeasures.ComponentTreeWsResponse newComponentTreeResponse(int size) {
+    WsMeasures.ComponentTreeWsResponse.Builder response = WsMeasures.ComponentTreeWsResponse.newBuilder()
+      .setPaging(Common.Paging.newBuilder().setPageIndex(1).setPageSize(size).setTotal(size))
+      .setBaseComponent(WsMeasures.Component.newBuilder().setKey("org.sonarsource:sonarqube").setName("SonarQube").setQualifier("TRK"));
+    for (int i = 0; i < size; i++) {
+      WsMeasures.Component.Builder component = WsMeasures.Component.newBuilder()
+        .setId("AVhkZ1ck2y2hkXLwXIB" + i)
+        .setKey("org.sonarsource:sonarqube:src/main/java/org/sonar/File" + i + ".java")
+        .setName("File" + i + ".java")
+        .setQualifier("FIL")
+        .setPath("src/main/java/org/sonar/File" + i + ".java")
+        .setLanguage("java");
+      for (String metric : new String[] {"ncloc", "complexity", "coverage", "violations", "duplicated_lines_density"}) {
+        component.addMeasures(WsMeasures.Measure.newBuilder()
+          .setMetric(metric)
+          .setValue(String.valueOf(i))
+          .setPeriods(WsMeasures.PeriodsValue.newBuilder()
+            .addPeriodsValue(WsMeasures.PeriodValue.newBuilder().setIndex(1).setValue("3"))));
+      }
+      response.addComponents(component);
+    }
+    return response.build();
+  }
+
+  private static void checkSameOutput(Message message) {
+    StringWriter precompiled = new StringWriter();
+    ProtobufJsonFormat.write(message, JsonWriter.of(precompiled));
+    StringWriter reflective = new StringWriter();
+    ReflectiveJsonFormat.write(message, JsonWriter.of(reflective));
+    if (!precompiled.toString().equals(reflective.toString())) {
+      throw new IllegalStateException("Implementations do not generate the same JSON for " + message.getDescriptorForType().getFullName());
+    }
+  }
+
+  /**
+   * Implementation of {@link ProtobufJsonFormat} up to version 6.4, relying on
+   * {@link Message#hasField(Descriptors.FieldDescriptor)} and {@link Message#getField(Descriptors.FieldDescriptor)}
+   */
+  private static class ReflectiveJsonFormat {
+
+    static void write(Message message, JsonWriter writer) {
+      writer.setSerializeNulls(false).setSerializeEmptys(true);
+      writer.beginObject();
+      writeMessage(message, writer);
+      writer.endObject();
+    }
+
+    private static void writeMessage(Message message, JsonWriter writer) {
+      for (Descriptors.FieldDescriptor fieldDescriptor : message.getDescriptorForType().getFields()) {
+        if (fieldDescriptor.isRepeated()) {
+          writer.name(fieldDescriptor.getName());
+          if (fieldDescriptor.isMapField()) {
+            writeMap((Collection<MapEntry>) message.getField(fieldDescriptor), writer);
+          } else {
+            writeArray(writer, fieldDescriptor, (Collection) message.getField(fieldDescriptor));
+          }
+        } else if (message.hasField(fieldDescriptor)) {
+          writer.name(fieldDescriptor.getName());
+          writeFieldValue(fieldDescriptor, message.getField(fieldDescriptor), writer);
+        }
+      }
+    }
+
+    private static void writeArray(JsonWriter writer, Descriptors.FieldDescriptor fieldDescriptor, Collection array) {
+      writer.beginArray();
+      for (Object o : array) {
+        writeFieldValue(fieldDescriptor, o, writer);
+      }
+      writer.endArray();
+    }
+
+    private static void writeMap(Collection<MapEntry> mapEntries, JsonWriter writer) {
+      writer.beginObject();
+      for (MapEntry mapEntry : mapEntries) {
+        writer.name(mapEntry.getKey().toString());
+        Descriptors.FieldDescriptor valueDescriptor = mapEntry.getDescriptorForType().findFieldByName("value");
+        writeFieldValue(valueDescriptor, mapEntry.getValue(), writer);
+      }
+      writer.endObject();
+    }
+
+    private static void writeFieldValue(Descriptors.FieldDescriptor fieldDescriptor, Object value, JsonWriter writer) {
+      switch (fieldDescriptor.getJavaType()) {
+        case INT:
+          writer.value((Integer) value);
+          break;
+        case LONG:
+          writer.value((Long) value);
+          break;
+        case DOUBLE:
+          writer.value((Double) value);
+          break;
+        case BOOLEAN:
+          writer.value((Boolean) value);
+          break;
+        case STRING:
+          writer.value((String) value);
+          break;
+        case ENUM:
+          writer.value(((Descriptors.EnumValueDescriptor) value).getName());
+          break;
+        case MESSAGE:
+          writeMessageValue((Message) value, writer);
+          break;
+        default:
+          throw new IllegalStateException("Unsupported type " + fieldDescriptor.getJavaType());
+      }
+    }
+
+    private static void writeMessageValue(Message message, JsonWriter writer) {
+      Descriptors.Descriptor descriptor = message.getDescriptorForType();
+      Descriptors.FieldDescriptor first = descriptor.getFields().size() == 1 ? descriptor.getFields().get(0) : null;
+      if (first != null && first.isRepeated() && descriptor.getName().equalsIgnoreCase(first.getName())) {
+        if (first.isMapField()) {
+          writeMap((Collection<MapEntry>) message.getField(first), writer);
+        } else {
+          writeArray(writer, first, (Collection) message.getField(first));
+        }
+      } else {
+        writer.beginObject();
+        writeMessage(message, writer);
+        writer.endObject();
+      }
+    }
+  }
+}
@@ -76,6 +76,18 @@ public class ServletResponseTest {
     verify(response).getHeaderNames();
   }
 
+  @Test
+  public void count_bytes_written_to_output() throws Exception {
+    assertThat(underTest.stream().outputSize()).isZero();
+
+    underTest.stream().output().write(new byte[] {1, 2, 3});
+    underTest.stream().output().write(4);
+    assertThat(underTest.stream().outputSize()).isEqualTo(4);
+
+    underTest.stream().reset();
+    assertThat(underTest.stream().outputSize()).isZero();
+  }
+
   @Test
   public void test_default_status() throws Exception {
     verify(response).setStatus(200);
@@ -90,7 +102,9 @@ public class ServletResponseTest {
 
   @Test
   public void test_output() throws Exception {
-    assertThat(underTest.stream().output()).isEqualTo(output);
+    underTest.stream().output().write(1);
+
+    verify(output).write(1);
   }
 
 
@@ -30,9 +30,11 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.api.server.ws.internal.ValidatingRequest;
+import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.server.exceptions.BadRequestException;
@@ -50,7 +52,10 @@ public class WebServiceEngineTest {
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
 
-  private WebServiceEngine underTest = new WebServiceEngine(new WebService[] {new SystemWs()});
+  private MapSettings settings = new MapSettings();
+  private System2 system2 = mock(System2.class);
+  private WebServiceMetrics metrics = new WebServiceMetrics(settings, system2);
+  private WebServiceEngine underTest = new WebServiceEngine(new WebService[] {new SystemWs()}, metrics);
 
   @Before
   public void start() {
@@ -241,6 +246,43 @@ public class WebServiceEngineTest {
     assertThat(response.stream().outputAsString()).isEqualTo("{\"errors\":[{\"msg\":\"Value of parameter 'format' (html) must be one of: [json, xml]\"}]}");
   }
 
+  @Test
+  public void record_statistics_of_actions() {
+    when(system2.now()).thenReturn(1_000L, 1_020L, 2_000L, 2_300L);
+
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/health"), new DumbResponse());
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/fail"), new DumbResponse());
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/xxx/health"), new DumbResponse());
+
+    assertThat(metrics.requests()).isEqualTo(2);
+    assertThat(metrics.errors()).isEqualTo(1);
+    assertThat(metrics.inFlightRequests()).isZero();
+    assertThat(metrics.statisticsByAction()).containsOnlyKeys("api/system/fail", "api/system/health");
+    assertThat(metrics.statisticsByAction().get("api/system/health"))
+      .containsEntry("Requests", 1L)
+      .containsEntry("Errors", 0L)
+      .containsEntry("Max Time (ms)", 20L)
+      .containsEntry("Median Time (ms)", 25L);
+    assertThat(metrics.statisticsByAction().get("api/system/fail"))
+      .containsEntry("Errors", 1L)
+      .containsEntry("Max Time (ms)", 300L);
+  }
+
+  @Test
+  public void log_slow_requests_with_their_parameters() {
+    settings.setProperty(WebServiceMetrics.SLOW_REQUEST_THRESHOLD_PROPERTY, 100);
+    underTest = new WebServiceEngine(new WebService[] {new SystemWs()}, new WebServiceMetrics(settings, system2));
+    when(system2.now()).thenReturn(1_000L, 1_050L, 2_000L, 2_200L);
+
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/authenticate").setParam("login", "fast").setParam("password", "secret"),
+      new DumbResponse());
+    assertThat(logTester.logs(LoggerLevel.WARN)).filteredOn(l -> l.startsWith("Slow request")).isEmpty();
+
+    underTest.execute(new TestRequest().setMethod("GET").setPath("/api/system/authenticate").setParam("login", "slow").setParam("password", "secret"),
+      new DumbResponse());
+    assertThat(logTester.logs(LoggerLevel.WARN)).filteredOn(l -> l.startsWith("Slow request")).containsExactly("Slow request api/system/authenticate | time=200ms | sql=0 | params={login=slow, password=******}");
+  }
+
   @Test
   public void internal_error() {
     ValidatingRequest request = new TestRequest().setMethod("GET").setPath("/api/system/fail");
@@ -367,6 +409,11 @@ public class WebServiceEngineTest {
       createNewDefaultAction(newController, "fail_with_undeclared_parameter")
         .setHandler((request, response) -> response.newJsonWriter().prop("unknown", request.param("unknown")));
 
+      NewAction authenticate = createNewDefaultAction(newController, "authenticate");
+      authenticate.createParam("login").setDescription("login");
+      authenticate.createParam("password").setDescription("password");
+      authenticate.setHandler((request, response) -> response.noContent());
+
       // parameter "message" is required but not "author"
       NewAction print = createNewDefaultAction(newController, "print");
       print.createParam("message").setDescription("required message").setRequired(true);
@@ -72,7 +72,9 @@ export default class MeasureHistory extends React.PureComponent {
       metricsToRequest.push(comparisonMetric);
     }
 
-    return getTimeMachineData(this.props.component.key, metricsToRequest).then(r => {
+    return getTimeMachineData(this.props.component.key, metricsToRequest, {
+      downsample: true
+    }).then(r => {
       if (r.measures.length === 0) {
         return [];
       }
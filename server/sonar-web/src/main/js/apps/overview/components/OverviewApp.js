@@ -122,7 +122,7 @@ export default class OverviewApp extends React.PureComponent {
   }
 
   loadHistory(component) {
-    return getTimeMachineData(component.key, HISTORY_METRICS_LIST).then(r => {
+    return getTimeMachineData(component.key, HISTORY_METRICS_LIST, { downsample: true }).then(r => {
       if (this.mounted) {
         const history = {};
         r.measures.forEach(measure => {
@@ -49,6 +49,8 @@ public class WebhookProperties {
   private static final String CATEGORY = "webhooks";
   private static final String DESCRIPTION = "Webhooks are used to notify external services when a project analysis is done. " +
     "An HTTP POST request including a JSON payload is sent to each of the first ten provided URLs. <br/>" +
+    "Requests are sent asynchronously by the Compute Engine. Network errors, except read timeouts, and HTTP 5xx responses " +
+    "are retried. Retries which are not started when the Compute Engine stops are dropped. <br/>" +
     "Learn more in the <a href=\"https://redirect.sonarsource.com/doc/webhooks.html\">Webhooks documentation</a>.";
 
   private WebhookProperties() {
@@ -20,16 +20,34 @@
 package org.sonar.core.platform;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.utils.ZipUtils;
 
+import static com.google.common.base.Preconditions.checkState;
+import static org.apache.commons.io.FileUtils.forceMkdir;
 import static org.apache.commons.io.FileUtils.listFiles;
+import static org.sonar.core.util.FileUtils.deleteQuietly;
 
 public abstract class PluginJarExploder {
 
   protected static final String LIB_RELATIVE_PATH_IN_JAR = "META-INF/lib";
+  private static final String TEMP_DIR_PREFIX = ".tmp";
+  private static final String LOCK_FILENAME = ".lock";
 
   public abstract ExplodedPlugin explode(PluginInfo info);
 
@@ -47,4 +65,114 @@ public abstract class PluginJarExploder {
     }
     return new ExplodedPlugin(pluginKey, jarFile, libs);
   }
+
+  /**
+   * Copies the JAR and unzips its libraries into {@code <cacheDir>/<plugin key>/<checksum of JAR>}. This directory
+   * is reused as-is when it already exists, for example when the process is restarted without upgrading the plugin.
+   * Other versions are not deleted, as they may still be used by another process. See {@link #cleanCache(File, Collection)}.
+   * <p>
+   * A shared lock is held on the cache meanwhile, so that the directory is not deleted by a concurrent cleaning
+   * of the cache. File locks are held on behalf of the whole JVM, so plugins must be exploded and the cache cleaned
+   * sequentially within a process, as done at startup.
+   */
+  protected ExplodedPlugin explodeInCache(PluginInfo info, File cacheDir) {
+    File jarSource = info.getNonNullJarFile();
+    File pluginDir = new File(cacheDir, info.getKey());
+    try {
+      forceMkdir(cacheDir);
+      try (FileChannel channel = openLockFile(cacheDir);
+        FileLock lock = channel.lock(0L, Long.MAX_VALUE, true)) {
+        File toDir = new File(pluginDir, checksum(jarSource));
+        if (!toDir.isDirectory()) {
+          forceMkdir(pluginDir);
+          unzipAtomically(jarSource, pluginDir, toDir);
+        }
+        return explodeFromUnzippedDir(info.getKey(), storedJar(toDir), toDir);
+      }
+    } catch (Exception e) {
+      throw new IllegalStateException(String.format(
+        "Fail to unzip plugin [%s] %s to %s", info.getKey(), jarSource.getAbsolutePath(), pluginDir.getAbsolutePath()), e);
+    }
+  }
+
+  /**
+   * Deletes from the cache the plugins which are not in {@code plugins}, the other versions of the plugins which are in
+   * {@code plugins} and the temporary directories left by interrupted processes. It must be called only when no other
+   * process uses the cache. An exclusive lock is held on the cache meanwhile, so that plugins being exploded by
+   * another process are not deleted.
+   */
+  protected void cleanCache(File cacheDir, Collection<PluginInfo> plugins) {
+    try {
+      forceMkdir(cacheDir);
+      try (FileChannel channel = openLockFile(cacheDir);
+        FileLock lock = channel.lock()) {
+        Map<String, String> checksumsByKey = new HashMap<>();
+        for (PluginInfo plugin : plugins) {
+          checksumsByKey.put(plugin.getKey(), checksum(plugin.getNonNullJarFile()));
+        }
+        File[] pluginDirs = cacheDir.listFiles(File::isDirectory);
+        if (pluginDirs != null) {
+          for (File pluginDir : pluginDirs) {
+            deleteOtherVersions(pluginDir, checksumsByKey.get(pluginDir.getName()));
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to clean cache of exploded plugins " + cacheDir.getAbsolutePath(), e);
+    }
+  }
+
+  private static FileChannel openLockFile(File cacheDir) throws IOException {
+    // shared locks require the channel to be readable
+    return FileChannel.open(new File(cacheDir, LOCK_FILENAME).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  private void unzipAtomically(File jarSource, File pluginDir, File toDir) throws IOException {
+    // files are unzipped in a temporary directory then moved, so that the processes sharing the cache
+    // never see a partially exploded plugin
+    File tempDir = Files.createTempDirectory(pluginDir.toPath(), TEMP_DIR_PREFIX).toFile();
+    try {
+      FileUtils.copyFile(jarSource, new File(tempDir, jarSource.getName()));
+      ZipUtils.unzip(jarSource, tempDir, newLibFilter());
+      Files.move(tempDir.toPath(), toDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      if (!toDir.isDirectory()) {
+        throw e;
+      }
+      // exploded concurrently by another process
+    } finally {
+      deleteQuietly(tempDir);
+    }
+  }
+
+  /**
+   * The name of the JAR stored in the directory is the name of the JAR which has been exploded first. It
+   * may differ from the name of the current JAR, for example if the file has been renamed without being changed.
+   */
+  private static File storedJar(File dir) {
+    File[] jars = dir.listFiles((d, name) -> name.endsWith(".jar"));
+    checkState(jars != null && jars.length == 1, "Directory %s does not contain a single JAR file", dir);
+    return jars[0];
+  }
+
+  private static void deleteOtherVersions(File pluginDir, @Nullable String keptChecksum) {
+    if (keptChecksum == null) {
+      deleteQuietly(pluginDir);
+      return;
+    }
+    File[] versions = pluginDir.listFiles();
+    if (versions != null) {
+      for (File version : versions) {
+        if (!version.getName().equals(keptChecksum)) {
+          deleteQuietly(version);
+        }
+      }
+    }
+  }
+
+  private static String checksum(File jar) throws IOException {
+    try (InputStream input = Files.newInputStream(jar.toPath())) {
+      return DigestUtils.md5Hex(input);
+    }
+  }
 }
@@ -21,12 +21,18 @@ package org.sonar.core.platform;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.Closeable;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.SystemUtils;
 import org.sonar.api.Plugin;
 import org.sonar.api.utils.log.Loggers;
@@ -59,6 +65,8 @@ public class PluginLoader {
 
   public static final Version COMPATIBILITY_MODE_MAX_VERSION = Version.create("5.2");
 
+  private static final int MAX_EXPLODER_THREADS = 4;
+
   private final PluginJarExploder jarExploder;
   private final PluginClassloaderFactory classloaderFactory;
 
@@ -68,9 +76,15 @@ public class PluginLoader {
   }
 
   public Map<String, Plugin> load(Map<String, PluginInfo> infoByKeys) {
+    long startedAt = System.currentTimeMillis();
     Collection<PluginClassLoaderDef> defs = defineClassloaders(infoByKeys);
+    long explodedAt = System.currentTimeMillis();
     Map<PluginClassLoaderDef, ClassLoader> classloaders = classloaderFactory.create(defs);
-    return instantiatePluginClasses(classloaders);
+    long classloadersCreatedAt = System.currentTimeMillis();
+    Map<String, Plugin> plugins = instantiatePluginClasses(classloaders);
+    Loggers.get(getClass()).info("Load {} plugins (explode: {}ms, classloaders: {}ms, instantiation: {}ms)",
+      infoByKeys.size(), explodedAt - startedAt, classloadersCreatedAt - explodedAt, System.currentTimeMillis() - classloadersCreatedAt);
+    return plugins;
   }
 
   /**
@@ -80,6 +94,7 @@ public class PluginLoader {
   @VisibleForTesting
   Collection<PluginClassLoaderDef> defineClassloaders(Map<String, PluginInfo> infoByKeys) {
     Map<String, PluginClassLoaderDef> classloadersByBasePlugin = new HashMap<>();
+    Map<String, ExplodedPlugin> explodedByKey = explode(infoByKeys.values());
 
     for (PluginInfo info : infoByKeys.values()) {
       String baseKey = basePluginKey(info, infoByKeys);
@@ -88,7 +103,7 @@ public class PluginLoader {
         def = new PluginClassLoaderDef(baseKey);
         classloadersByBasePlugin.put(baseKey, def);
       }
-      ExplodedPlugin explodedPlugin = jarExploder.explode(info);
+      ExplodedPlugin explodedPlugin = explodedByKey.get(info.getKey());
       def.addFiles(asList(explodedPlugin.getMain()));
       def.addFiles(explodedPlugin.getLibs());
       def.addMainClass(info.getKey(), info.getMainClass());
@@ -115,6 +130,43 @@ public class PluginLoader {
     return classloadersByBasePlugin.values();
   }
 
+  /**
+   * Plugins are independent, so they are exploded concurrently. A dedicated pool is used instead of the common
+   * fork-join pool, which is shared with the other tasks of the process and is not meant for blocking I/O.
+   */
+  private Map<String, ExplodedPlugin> explode(Collection<PluginInfo> infos) {
+    int threads = Math.max(1, Math.min(infos.size(), Math.min(MAX_EXPLODER_THREADS, Runtime.getRuntime().availableProcessors())));
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("PluginExploder-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      Map<String, Future<ExplodedPlugin>> futuresByKey = new HashMap<>();
+      for (PluginInfo info : infos) {
+        futuresByKey.put(info.getKey(), executor.submit(() -> jarExploder.explode(info)));
+      }
+      Map<String, ExplodedPlugin> explodedByKey = new HashMap<>();
+      for (Map.Entry<String, Future<ExplodedPlugin>> entry : futuresByKey.entrySet()) {
+        explodedByKey.put(entry.getKey(), getExploded(entry.getValue()));
+      }
+      return explodedByKey;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static ExplodedPlugin getExploded(Future<ExplodedPlugin> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while exploding plugins", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
   private static boolean isPrivileged(String basePluginKey) {
     return PRIVILEGED_PLUGINS_BASE_KEYS.contains(basePluginKey);
   }
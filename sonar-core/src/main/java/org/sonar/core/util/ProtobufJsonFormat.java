@@ -23,9 +23,14 @@ import com.google.protobuf.Descriptors;
 import com.google.protobuf.MapEntry;
 import com.google.protobuf.Message;
 import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
 import org.sonar.api.utils.text.JsonWriter;
 
 /**
@@ -124,6 +129,15 @@ import org.sonar.api.utils.text.JsonWriter;
  *     }
  *   }
  * </pre>
+ *
+ * <h3>Performance</h3>
+ * <p>
+ * The way to write a type of message is computed once and then reused: field names, JSON types and the
+ * accessors generated by protoc are resolved from the descriptor at first use, so that writing a message does not
+ * go through the reflective API of protobuf ({@link Message#hasField(Descriptors.FieldDescriptor)},
+ * {@link Message#getField(Descriptors.FieldDescriptor)}) for each field. Map fields and the messages which do not
+ * have the expected accessors still use the reflective API.
+ * </p>
  */
 public class ProtobufJsonFormat {
 
@@ -132,23 +146,22 @@ public class ProtobufJsonFormat {
   }
 
   static class MessageType {
-    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new HashMap<>();
+    private static final Map<Class<? extends Message>, MessageType> TYPES_BY_CLASS = new ConcurrentHashMap<>();
 
-    private final Descriptors.FieldDescriptor[] fieldDescriptors;
+    private final FieldWriter[] fieldWriters;
     private final boolean doesWrapRepeated;
 
-    private MessageType(Descriptors.Descriptor descriptor) {
-      this.fieldDescriptors = descriptor.getFields().toArray(new Descriptors.FieldDescriptor[descriptor.getFields().size()]);
-      this.doesWrapRepeated = fieldDescriptors.length == 1 && fieldDescriptors[0].isRepeated() && descriptor.getName().equalsIgnoreCase(fieldDescriptors[0].getName());
+    private MessageType(Class<? extends Message> messageClass, Descriptors.Descriptor descriptor) {
+      List<Descriptors.FieldDescriptor> fields = descriptor.getFields();
+      this.fieldWriters = new FieldWriter[fields.size()];
+      for (int i = 0; i < fieldWriters.length; i++) {
+        fieldWriters[i] = FieldWriter.of(messageClass, fields.get(i));
+      }
+      this.doesWrapRepeated = fields.size() == 1 && fields.get(0).isRepeated() && descriptor.getName().equalsIgnoreCase(fields.get(0).getName());
     }
 
     static MessageType of(Message message) {
-      MessageType type = TYPES_BY_CLASS.get(message.getClass());
-      if (type == null) {
-        type = new MessageType(message.getDescriptorForType());
-        TYPES_BY_CLASS.put(message.getClass(), type);
-      }
-      return type;
+      return TYPES_BY_CLASS.computeIfAbsent(message.getClass(), c -> new MessageType(c, message.getDescriptorForType()));
     }
   }
 
@@ -168,83 +181,241 @@ public class ProtobufJsonFormat {
   }
 
   private static void writeMessage(Message message, JsonWriter writer) {
-    MessageType type = MessageType.of(message);
-    for (Descriptors.FieldDescriptor fieldDescriptor : type.fieldDescriptors) {
-      if (fieldDescriptor.isRepeated()) {
-        writer.name(fieldDescriptor.getName());
-        if (fieldDescriptor.isMapField()) {
-          writeMap((Collection<MapEntry>) message.getField(fieldDescriptor), writer);
-        } else {
-          writeArray(writer, fieldDescriptor, (Collection) message.getField(fieldDescriptor));
-        }
-      } else if (message.hasField(fieldDescriptor)) {
-        writer.name(fieldDescriptor.getName());
-        Object fieldValue = message.getField(fieldDescriptor);
-        writeFieldValue(fieldDescriptor, fieldValue, writer);
+    for (FieldWriter fieldWriter : MessageType.of(message).fieldWriters) {
+      fieldWriter.write(message, writer);
+    }
+  }
+
+  private static void writeMessageValue(Message message, JsonWriter writer) {
+    MessageType messageType = MessageType.of(message);
+    if (messageType.doesWrapRepeated) {
+      messageType.fieldWriters[0].writeValue(message, writer);
+    } else {
+      writer.beginObject();
+      for (FieldWriter fieldWriter : messageType.fieldWriters) {
+        fieldWriter.write(message, writer);
       }
+      writer.endObject();
     }
   }
 
-  private static void writeArray(JsonWriter writer, Descriptors.FieldDescriptor fieldDescriptor, Collection array) {
-    writer.beginArray();
-    for (Object o : array) {
-      writeFieldValue(fieldDescriptor, o, writer);
+  /**
+   * Writes a field of a given type of message. Accessors are resolved once.
+   */
+  private abstract static class FieldWriter {
+    final Descriptors.FieldDescriptor descriptor;
+    final String name;
+    final ValueWriter valueWriter;
+
+    FieldWriter(Descriptors.FieldDescriptor descriptor) {
+      this.descriptor = descriptor;
+      this.name = descriptor.getName();
+      this.valueWriter = ValueWriter.of(descriptor);
+    }
+
+    static FieldWriter of(Class<? extends Message> messageClass, Descriptors.FieldDescriptor descriptor) {
+      if (descriptor.isMapField()) {
+        return new ReflectiveFieldWriter(descriptor);
+      }
+      String camelCaseName = toCamelCase(descriptor.getName());
+      if (descriptor.isRepeated()) {
+        MethodHandle listGetter = findGetter(messageClass, "get" + camelCaseName + "List", Object.class);
+        return listGetter == null ? new ReflectiveFieldWriter(descriptor) : new RepeatedFieldWriter(descriptor, listGetter);
+      }
+      MethodHandle hasser = findGetter(messageClass, "has" + camelCaseName, boolean.class);
+      MethodHandle getter = findGetter(messageClass, "get" + camelCaseName, Object.class);
+      if (hasser == null || getter == null) {
+        return new ReflectiveFieldWriter(descriptor);
+      }
+      return new SingularFieldWriter(descriptor, hasser, getter);
+    }
+
+    /**
+     * Writes the name and the value of field, if present
+     */
+    abstract void write(Message message, JsonWriter writer);
+
+    /**
+     * Writes only the array or map of a repeated field, used when the field is inlined
+     */
+    abstract void writeValue(Message message, JsonWriter writer);
+
+    void writeArray(Collection<?> values, JsonWriter writer) {
+      writer.beginArray();
+      for (Object value : values) {
+        valueWriter.write(value, writer);
+      }
+      writer.endArray();
     }
-    writer.endArray();
   }
 
-  private static void writeMap(Collection<MapEntry> mapEntries, JsonWriter writer) {
-    writer.beginObject();
-    for (MapEntry mapEntry : mapEntries) {
-      // Key fields are always double-quoted in json
-      writer.name(mapEntry.getKey().toString());
-      Descriptors.FieldDescriptor valueDescriptor = mapEntry.getDescriptorForType().findFieldByName("value");
-      writeFieldValue(valueDescriptor, mapEntry.getValue(), writer);
+  private static class SingularFieldWriter extends FieldWriter {
+    private final MethodHandle hasser;
+    private final MethodHandle getter;
+
+    SingularFieldWriter(Descriptors.FieldDescriptor descriptor, MethodHandle hasser, MethodHandle getter) {
+      super(descriptor);
+      this.hasser = hasser;
+      this.getter = getter;
+    }
+
+    @Override
+    void write(Message message, JsonWriter writer) {
+      if ((boolean) invoke(hasser, message)) {
+        writer.name(name);
+        valueWriter.write(invoke(getter, message), writer);
+      }
+    }
+
+    @Override
+    void writeValue(Message message, JsonWriter writer) {
+      valueWriter.write(invoke(getter, message), writer);
     }
-    writer.endObject();
   }
 
-  private static void writeFieldValue(Descriptors.FieldDescriptor fieldDescriptor, Object value, JsonWriter writer) {
-    switch (fieldDescriptor.getJavaType()) {
-      case INT:
-        writer.value((Integer) value);
-        break;
-      case LONG:
-        writer.value((Long) value);
-        break;
-      case DOUBLE:
-        writer.value((Double) value);
-        break;
-      case BOOLEAN:
-        writer.value((Boolean) value);
-        break;
-      case STRING:
-        writer.value((String) value);
-        break;
-      case ENUM:
-        writer.value(((Descriptors.EnumValueDescriptor) value).getName());
-        break;
-      case MESSAGE:
-        writeMessageValue((Message) value, writer);
-        break;
-      default:
-        throw new IllegalStateException(String.format("JSON format does not support type '%s' of field '%s'", fieldDescriptor.getJavaType(), fieldDescriptor.getName()));
+  private static class RepeatedFieldWriter extends FieldWriter {
+    private final MethodHandle listGetter;
+
+    RepeatedFieldWriter(Descriptors.FieldDescriptor descriptor, MethodHandle listGetter) {
+      super(descriptor);
+      this.listGetter = listGetter;
+    }
+
+    @Override
+    void write(Message message, JsonWriter writer) {
+      writer.name(name);
+      writeValue(message, writer);
+    }
+
+    @Override
+    void writeValue(Message message, JsonWriter writer) {
+      writeArray((Collection<?>) invoke(listGetter, message), writer);
     }
   }
 
-  private static void writeMessageValue(Message message, JsonWriter writer) {
-    MessageType messageType = MessageType.of(message);
-    if (messageType.doesWrapRepeated) {
-      Descriptors.FieldDescriptor repeatedDescriptor = messageType.fieldDescriptors[0];
-      if (repeatedDescriptor.isMapField()) {
-        writeMap((Collection<MapEntry>) message.getField(repeatedDescriptor), writer);
+  /**
+   * Relies on the reflective API of protobuf. Used for map fields.
+   */
+  private static class ReflectiveFieldWriter extends FieldWriter {
+    private final ValueWriter mapValueWriter;
+
+    ReflectiveFieldWriter(Descriptors.FieldDescriptor descriptor) {
+      super(descriptor);
+      this.mapValueWriter = descriptor.isMapField() ? ValueWriter.of(descriptor.getMessageType().findFieldByName("value")) : null;
+    }
+
+    @Override
+    void write(Message message, JsonWriter writer) {
+      if (descriptor.isRepeated()) {
+        writer.name(name);
+        writeValue(message, writer);
+      } else if (message.hasField(descriptor)) {
+        writer.name(name);
+        writeValue(message, writer);
+      }
+    }
+
+    @Override
+    void writeValue(Message message, JsonWriter writer) {
+      Object value = message.getField(descriptor);
+      if (descriptor.isMapField()) {
+        writeMap((Collection<MapEntry>) value, writer);
+      } else if (descriptor.isRepeated()) {
+        writeArray((Collection<?>) value, writer);
       } else {
-        writeArray(writer, repeatedDescriptor, (Collection) message.getField(repeatedDescriptor));
+        valueWriter.write(value, writer);
       }
-    } else {
+    }
+
+    private void writeMap(Collection<MapEntry> mapEntries, JsonWriter writer) {
       writer.beginObject();
-      writeMessage(message, writer);
+      for (MapEntry mapEntry : mapEntries) {
+        // Key fields are always double-quoted in json
+        writer.name(mapEntry.getKey().toString());
+        mapValueWriter.write(mapEntry.getValue(), writer);
+      }
       writer.endObject();
     }
   }
+
+  @FunctionalInterface
+  private interface ValueWriter {
+    void write(Object value, JsonWriter writer);
+
+    static ValueWriter of(Descriptors.FieldDescriptor descriptor) {
+      switch (descriptor.getJavaType()) {
+        case INT:
+          return (value, writer) -> writer.value((Integer) value);
+        case LONG:
+          return (value, writer) -> writer.value((Long) value);
+        case DOUBLE:
+          return (value, writer) -> writer.value((Double) value);
+        case BOOLEAN:
+          return (value, writer) -> writer.value((Boolean) value);
+        case STRING:
+          return (value, writer) -> writer.value((String) value);
+        case ENUM:
+          return ValueWriter::writeEnum;
+        case MESSAGE:
+          return (value, writer) -> writeMessageValue((Message) value, writer);
+        default:
+          return (value, writer) -> {
+            throw new IllegalStateException(String.format("JSON format does not support type '%s' of field '%s'", descriptor.getJavaType(), descriptor.getName()));
+          };
+      }
+    }
+
+    static void writeEnum(Object value, JsonWriter writer) {
+      if (value instanceof Descriptors.EnumValueDescriptor) {
+        // value returned by the reflective API
+        writer.value(((Descriptors.EnumValueDescriptor) value).getName());
+      } else {
+        // constants of enums generated by protoc are named as the values declared in .proto files
+        writer.value(((Enum<?>) value).name());
+      }
+    }
+  }
+
+  @CheckForNull
+  private static MethodHandle findGetter(Class<?> messageClass, String methodName, Class<?> returnType) {
+    try {
+      MethodHandle handle = MethodHandles.publicLookup().findVirtual(messageClass, methodName,
+        MethodType.methodType(messageClass.getMethod(methodName).getReturnType()));
+      return handle.asType(MethodType.methodType(returnType, Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static Object invoke(MethodHandle getter, Message message) {
+    try {
+      return getter.invoke((Object) message);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Fail to read field of message " + message.getDescriptorForType().getFullName(), e);
+    }
+  }
+
+  /**
+   * Same conversion as protoc for naming accessors of fields. For example "foo_bar" is converted to "FooBar".
+   */
+  static String toCamelCase(String fieldName) {
+    StringBuilder sb = new StringBuilder(fieldName.length());
+    boolean capitalizeNext = true;
+    for (int i = 0; i < fieldName.length(); i++) {
+      char c = fieldName.charAt(i);
+      if (c >= 'a' && c <= 'z') {
+        sb.append(capitalizeNext ? Character.toUpperCase(c) : c);
+        capitalizeNext = false;
+      } else if (c >= 'A' && c <= 'Z') {
+        sb.append(c);
+        capitalizeNext = false;
+      } else if (c >= '0' && c <= '9') {
+        sb.append(c);
+        capitalizeNext = true;
+      } else {
+        capitalizeNext = true;
+      }
+    }
+    return sb.toString();
+  }
 }
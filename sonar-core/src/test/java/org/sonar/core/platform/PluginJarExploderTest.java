@@ -20,6 +20,7 @@
 package org.sonar.core.platform;
 
 import java.io.File;
+import java.util.Collections;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -74,6 +75,100 @@ public class PluginJarExploderTest {
     assertThat(exploded.getMain()).isSameAs(jarFile);
   }
 
+  @Test
+  public void explode_in_cache_directory_named_after_checksum() throws Exception {
+    File jarFile = getFile("sonar-checkstyle-plugin-2.8.jar");
+    File cacheDir = temp.newFolder();
+    PluginInfo pluginInfo = new PluginInfo("checkstyle").setJarFile(jarFile);
+
+    ExplodedPlugin exploded = new CachingExploder(cacheDir).explode(pluginInfo);
+
+    File explodedDir = exploded.getMain().getParentFile();
+    assertThat(explodedDir.getParentFile()).isEqualTo(new File(cacheDir, "checkstyle"));
+    assertThat(explodedDir.getName()).hasSize(32);
+    assertThat(exploded.getMain()).isFile().hasName(jarFile.getName());
+    assertThat(exploded.getLibs()).extracting("name").containsOnly("antlr-2.7.6.jar", "checkstyle-5.1.jar", "commons-cli-1.0.jar");
+    assertThat(new File(cacheDir, "checkstyle").list()).containsOnly(explodedDir.getName());
+    assertThat(new File(cacheDir, ".lock")).isFile();
+  }
+
+  @Test
+  public void reuse_cache_directory_if_same_checksum() throws Exception {
+    File jarFile = getFile("sonar-checkstyle-plugin-2.8.jar");
+    File cacheDir = temp.newFolder();
+    PluginInfo pluginInfo = new PluginInfo("checkstyle").setJarFile(jarFile);
+    ExplodedPlugin exploded1 = new CachingExploder(cacheDir).explode(pluginInfo);
+    File marker = new File(exploded1.getMain().getParentFile(), "marker");
+    FileUtils.touch(marker);
+
+    ExplodedPlugin exploded2 = new CachingExploder(cacheDir).explode(pluginInfo);
+
+    assertThat(exploded2.getMain()).isEqualTo(exploded1.getMain());
+    assertThat(marker).exists();
+  }
+
+  @Test
+  public void reuse_jar_stored_in_cache_directory_if_renamed() throws Exception {
+    File jarFile = getFile("sonar-checkstyle-plugin-2.8.jar");
+    File renamedJar = new File(temp.newFolder(), "checkstyle.jar");
+    FileUtils.copyFile(jarFile, renamedJar);
+    File cacheDir = temp.newFolder();
+    ExplodedPlugin exploded1 = new CachingExploder(cacheDir).explode(new PluginInfo("checkstyle").setJarFile(jarFile));
+
+    ExplodedPlugin exploded2 = new CachingExploder(cacheDir).explode(new PluginInfo("checkstyle").setJarFile(renamedJar));
+
+    assertThat(exploded2.getMain()).isEqualTo(exploded1.getMain()).isFile().hasName(jarFile.getName());
+  }
+
+  @Test
+  public void do_not_delete_other_versions_when_exploding() throws Exception {
+    File cacheDir = temp.newFolder();
+    File oldVersion = new File(cacheDir, "checkstyle/1234");
+    FileUtils.forceMkdir(oldVersion);
+    PluginInfo pluginInfo = new PluginInfo("checkstyle").setJarFile(getFile("sonar-checkstyle-plugin-2.8.jar"));
+
+    new CachingExploder(cacheDir).explode(pluginInfo);
+
+    assertThat(oldVersion).exists();
+  }
+
+  @Test
+  public void clean_cache_deletes_other_versions_uninstalled_plugins_and_temporary_directories() throws Exception {
+    File cacheDir = temp.newFolder();
+    PluginInfo pluginInfo = new PluginInfo("checkstyle").setJarFile(getFile("sonar-checkstyle-plugin-2.8.jar"));
+    CachingExploder exploder = new CachingExploder(cacheDir);
+    ExplodedPlugin exploded = exploder.explode(pluginInfo);
+    File oldVersion = new File(cacheDir, "checkstyle/1234");
+    File tempDir = new File(cacheDir, "checkstyle/.tmp5678");
+    File uninstalled = new File(cacheDir, "uninstalled/1234");
+    FileUtils.forceMkdir(oldVersion);
+    FileUtils.forceMkdir(tempDir);
+    FileUtils.forceMkdir(uninstalled);
+
+    exploder.cleanCache(cacheDir, Collections.singletonList(pluginInfo));
+
+    assertThat(oldVersion).doesNotExist();
+    assertThat(tempDir).doesNotExist();
+    assertThat(uninstalled.getParentFile()).doesNotExist();
+    assertThat(exploded.getMain()).exists();
+    for (File lib : exploded.getLibs()) {
+      assertThat(lib).exists();
+    }
+  }
+
+  private static class CachingExploder extends PluginJarExploder {
+    private final File cacheDir;
+
+    CachingExploder(File cacheDir) {
+      this.cacheDir = cacheDir;
+    }
+
+    @Override
+    public ExplodedPlugin explode(PluginInfo info) {
+      return explodeInCache(info, cacheDir);
+    }
+  }
+
   private File getFile(String filename) {
     return FileUtils.toFile(getClass().getResource("/org/sonar/core/platform/" + filename));
   }
@@ -214,4 +214,20 @@ public class ProtobufJsonFormatTest {
   public void constructor_is_private() throws Exception {
     assertThat(TestUtils.hasOnlyPrivateConstructors(ProtobufJsonFormat.class)).isTrue();
   }
+
+  @Test
+  public void message_type_is_resolved_once_per_class() {
+    ProtobufJsonFormat.MessageType type = ProtobufJsonFormat.MessageType.of(PrimitiveTypeMsg.newBuilder().setStringField("foo").build());
+
+    assertThat(ProtobufJsonFormat.MessageType.of(PrimitiveTypeMsg.newBuilder().setIntField(10).build())).isSameAs(type);
+    assertThat(ProtobufJsonFormat.MessageType.of(TestArray.getDefaultInstance())).isNotSameAs(type);
+  }
+
+  @Test
+  public void convert_field_names_to_camel_case_as_protoc_does() {
+    assertThat(ProtobufJsonFormat.toCamelCase("name")).isEqualTo("Name");
+    assertThat(ProtobufJsonFormat.toCamelCase("stringField")).isEqualTo("StringField");
+    assertThat(ProtobufJsonFormat.toCamelCase("string_field")).isEqualTo("StringField");
+    assertThat(ProtobufJsonFormat.toCamelCase("field2name")).isEqualTo("Field2Name");
+  }
 }
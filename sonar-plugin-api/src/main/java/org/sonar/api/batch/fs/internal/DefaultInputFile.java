@@ -51,6 +51,8 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private Status status;
   private Charset charset;
   private Metadata metadata;
+  // metadata is lazily generated, possibly by sensors executed in parallel
+  private volatile boolean metadataGenerated;
   private boolean publish;
   private String contents;
 
@@ -69,8 +71,14 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   }
 
   public void checkMetadata() {
-    if (metadata == null) {
-      metadataGenerator.accept(this);
+    if (!metadataGenerated) {
+      synchronized (this) {
+        if (metadata == null) {
+          metadataGenerator.accept(this);
+        }
+        // charset and status are set by the generator as well, so readers must wait for its completion
+        metadataGenerated = metadata != null;
+      }
     }
   }
 
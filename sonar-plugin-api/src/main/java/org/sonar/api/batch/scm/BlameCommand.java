@@ -43,6 +43,16 @@ public abstract class BlameCommand {
    */
   public abstract void blame(BlameInput input, BlameOutput output);
 
+  /**
+   * Whether {@link #blame(BlameInput, BlameOutput)} can be called concurrently on distinct sets of files.
+   * In this case the scanner splits the files to blame into batches that are processed in parallel.
+   * @return false by default
+   * @since 6.5
+   */
+  public boolean isThreadSafe() {
+    return false;
+  }
+
   /**
    * Callback for the provider to report results of blame per file.
    */
@@ -34,6 +34,7 @@ import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 
 /**
  * Utility to zip directories and unzip files.
@@ -198,6 +199,20 @@ public final class ZipUtils {
     }
   }
 
+  /**
+   * Compresses the content of {@code dir} into {@code out}. The stream is not closed, so that
+   * the zip can be written in a stream that is not owned by caller, for example the body of
+   * an HTTP request.
+   *
+   * @since 6.5
+   */
+  public static void zipDir(File dir, OutputStream out) throws IOException {
+    // closing the zip stream releases the deflater, but must not close out
+    try (ZipOutputStream zout = new ZipOutputStream(new CloseShieldOutputStream(out))) {
+      doZipDir(dir, zout);
+    }
+  }
+
   private static void doZip(String entryName, InputStream in, ZipOutputStream out) throws IOException {
     ZipEntry entry = new ZipEntry(entryName);
     out.putNextEntry(entry);
@@ -26,8 +26,14 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -44,6 +50,7 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.resources.Project;
 import org.sonar.api.utils.AnnotationUtils;
 import org.sonar.api.utils.dag.DirectAcyclicGraph;
+import org.sonar.api.utils.dag.Node;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.scanner.postjob.PostJobOptimizer;
 import org.sonar.scanner.postjob.PostJobWrapper;
@@ -159,9 +166,40 @@ public class ScannerExtensionDictionnary {
 
   public <T> Collection<T> sort(Collection<T> extensions) {
     DirectAcyclicGraph dag = new DirectAcyclicGraph();
+    buildDag(dag, extensions);
+    List<?> sortedList = dag.sort();
 
+    return (Collection<T>) sortedList.stream()
+      .filter(extensions::contains)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * For each extension, in the execution order of {@link #sort(Collection)}, the extensions that must be
+   * executed before it. The graph is the same as the one used for sorting: explicit dependencies declared
+   * with {@link DependsUpon} and {@link DependedUpon}, and phases. Extensions that are not related can be
+   * executed concurrently.
+   */
+  public <T> Map<T, Set<T>> predecessors(Collection<T> extensions) {
+    DirectAcyclicGraph dag = new DirectAcyclicGraph();
+    Map<Object, Node> nodes = buildDag(dag, extensions);
+
+    Map<T, Set<T>> result = new LinkedHashMap<>();
+    for (Object object : dag.sort()) {
+      Node node = nodes.get(object);
+      if (node != null) {
+        Set<T> predecessors = new LinkedHashSet<>();
+        collectPredecessors(node, nodes.keySet(), predecessors, new HashSet<>());
+        result.put((T) object, predecessors);
+      }
+    }
+    return result;
+  }
+
+  private <T> Map<Object, Node> buildDag(DirectAcyclicGraph dag, Collection<T> extensions) {
+    Map<Object, Node> nodes = new HashMap<>();
     for (T extension : extensions) {
-      dag.add(extension);
+      nodes.put(extension, dag.add(extension));
       for (Object dependency : getDependencies(extension)) {
         dag.add(extension, dependency);
       }
@@ -170,11 +208,26 @@ public class ScannerExtensionDictionnary {
       }
       completePhaseDependencies(dag, extension);
     }
-    List<?> sortedList = dag.sort();
+    return nodes;
+  }
 
-    return (Collection<T>) sortedList.stream()
-      .filter(extensions::contains)
-      .collect(Collectors.toList());
+  /**
+   * Walks through the nodes that are not extensions (phases, metrics, ...) until reaching extensions.
+   * Transitive dependencies of these extensions are not added, as they are already satisfied when these
+   * extensions are completed.
+   */
+  private static <T> void collectPredecessors(Node node, Set<Object> extensions, Set<T> predecessors, Set<Node> visited) {
+    for (Node dependency : node.getDependencies()) {
+      if (!visited.add(dependency)) {
+        continue;
+      }
+      Object object = dependency.getObject();
+      if (extensions.contains(object)) {
+        predecessors.add((T) object);
+      } else {
+        collectPredecessors(dependency, extensions, predecessors, visited);
+      }
+    }
   }
 
   /**
@@ -27,8 +27,11 @@ import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.CharUtils;
@@ -75,13 +78,18 @@ public class ScannerPluginInstaller implements PluginInstaller {
 
     Profiler profiler = Profiler.create(LOG).startDebug("Load plugins");
 
+    // plugins which are not in cache are downloaded concurrently
+    Map<RemotePlugin, CompletableFuture<File>> downloads = new LinkedHashMap<>();
     for (RemotePlugin remotePlugin : remotePlugins) {
       if (pluginPredicate.apply(remotePlugin.getKey())) {
-        File jarFile = download(remotePlugin);
-        PluginInfo info = PluginInfo.create(jarFile);
-        infosByKey.put(info.getKey(), info);
+        downloads.put(remotePlugin, download(remotePlugin));
       }
     }
+    for (Map.Entry<RemotePlugin, CompletableFuture<File>> download : downloads.entrySet()) {
+      File jarFile = awaitDownload(download.getKey(), download.getValue());
+      PluginInfo info = PluginInfo.create(jarFile);
+      infosByKey.put(info.getKey(), info);
+    }
 
     profiler.stopDebug();
     return infosByKey;
@@ -96,11 +104,40 @@ public class ScannerPluginInstaller implements PluginInstaller {
     return Collections.emptyMap();
   }
 
+  /**
+   * The file is written to cache by the thread receiving the response, so that downloads are not serialized
+   */
   @VisibleForTesting
-  File download(final RemotePlugin remote) {
+  CompletableFuture<File> download(RemotePlugin remote) {
+    RemotePluginFile file = remote.file();
+    File cachedFile = fileCache.get(file.getFilename(), file.getHash());
+    if (cachedFile != null) {
+      return CompletableFuture.completedFuture(cachedFile);
+    }
+    String url = format("/deploy/plugins/%s/%s", remote.getKey(), file.getFilename());
+    LOG.info("Download {}", file.getFilename());
+    CompletableFuture<File> result = new CompletableFuture<>();
+    wsClient.callAsync(new GetRequest(url)).whenComplete((response, failure) -> {
+      if (failure != null) {
+        result.completeExceptionally(failure);
+        return;
+      }
+      try {
+        result.complete(fileCache.get(file.getFilename(), file.getHash(), new FileDownloader(response)));
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+      } finally {
+        response.close();
+      }
+    });
+    return result;
+  }
+
+  private static File awaitDownload(RemotePlugin remote, CompletableFuture<File> download) {
     try {
-      final RemotePluginFile file = remote.file();
-      return fileCache.get(file.getFilename(), file.getHash(), new FileDownloader(remote.getKey()));
+      return download.join();
+    } catch (CompletionException e) {
+      throw new IllegalStateException("Fail to download plugin: " + remote.getKey(), e.getCause());
     } catch (Exception e) {
       throw new IllegalStateException("Fail to download plugin: " + remote.getKey(), e);
     }
@@ -139,23 +176,16 @@ public class ScannerPluginInstaller implements PluginInstaller {
     return str;
   }
 
-  private class FileDownloader implements FileCache.Downloader {
-    private String key;
+  private static class FileDownloader implements FileCache.Downloader {
+    private final WsResponse response;
 
-    FileDownloader(String key) {
-      this.key = key;
+    FileDownloader(WsResponse response) {
+      this.response = response;
     }
 
     @Override
     public void download(String filename, File toFile) throws IOException {
-      String url = format("/deploy/plugins/%s/%s", key, filename);
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("Download plugin {} to {}", filename, toFile);
-      } else {
-        LOG.info("Download {}", filename);
-      }
-
-      WsResponse response = wsClient.call(new GetRequest(url));
+      LOG.debug("Download plugin {} to {}", filename, toFile);
       try (InputStream stream = response.contentStream()) {
         FileUtils.copyInputStreamToFile(stream, toFile);
       }
@@ -28,6 +28,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
@@ -76,6 +77,20 @@ public class ScannerWsClient {
     return response;
   }
 
+  /**
+   * Non-blocking variant of {@link #call(WsRequest)}. Requests are sent concurrently. The future completes
+   * exceptionally with the exceptions thrown by {@link #call(WsRequest)}.
+   */
+  public CompletableFuture<WsResponse> callAsync(WsRequest request) {
+    Preconditions.checkState(!globalMode.isMediumTest(), "No WS call should be made in medium test mode");
+    Profiler profiler = Profiler.createIfDebug(LOG).start();
+    return target.wsConnector().callAsync(request).thenApply(response -> {
+      profiler.stopDebug(format("%s %d %s", request.getMethod(), response.code(), response.requestUrl()));
+      failIfUnauthorized(response);
+      return response;
+    });
+  }
+
   public String baseUrl() {
     return target.wsConnector().baseUrl();
   }
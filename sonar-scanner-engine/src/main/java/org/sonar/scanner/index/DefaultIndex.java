@@ -51,9 +51,9 @@ public class DefaultIndex {
   private final MeasureCache measureCache;
   private final MetricFinder metricFinder;
   // caches
-  private DefaultSensorStorage sensorStorage;
+  private volatile DefaultSensorStorage sensorStorage;
 
-  private InputComponentTree tree;
+  private final InputComponentTree tree;
 
   public DefaultIndex(InputComponentStore componentStore, InputComponentTree tree, MeasureCache measureCache, MetricFinder metricFinder) {
     this.componentStore = componentStore;
@@ -53,7 +53,7 @@ public class ModuleIssues {
     this.reportPublisher = reportPublisher;
   }
 
-  public boolean initAndAddIssue(Issue issue) {
+  public synchronized boolean initAndAddIssue(Issue issue) {
     DefaultInputComponent inputComponent = (DefaultInputComponent) issue.primaryLocation().inputComponent();
 
     Rule rule = validateRule(issue);
@@ -142,7 +142,7 @@ public class ModuleIssues {
     return rule;
   }
 
-  public void write(int batchId, ScannerReport.Issue rawIssue) {
+  public synchronized void write(int batchId, ScannerReport.Issue rawIssue) {
     reportPublisher.getWriter().appendComponentIssue(batchId, rawIssue);
   }
 
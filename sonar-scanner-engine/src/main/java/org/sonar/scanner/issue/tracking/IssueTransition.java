@@ -66,18 +66,18 @@ public class IssueTransition {
       localIssueTracking.init();
     }
 
-    ScannerReportReader reader = new ScannerReportReader(reportPublisher.getReportDir());
     int nbComponents = inputComponentStore.all().size();
 
     if (nbComponents == 0) {
       return;
     }
 
+    reportPublisher.getWriter().flush();
     ProgressReport progressReport = new ProgressReport("issue-tracking-report", TimeUnit.SECONDS.toMillis(10));
     progressReport.start("Performing issue tracking");
     int count = 0;
 
-    try {
+    try (ScannerReportReader reader = new ScannerReportReader(reportPublisher.getReportDir())) {
       for (InputComponent component : inputComponentStore.all()) {
         trackIssues(reader, (DefaultInputComponent) component);
         count++;
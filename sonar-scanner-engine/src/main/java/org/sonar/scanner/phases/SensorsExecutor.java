@@ -20,31 +20,66 @@
 package org.sonar.scanner.phases;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
 import org.sonar.scanner.sensor.SensorStrategy;
+import org.sonar.scanner.util.ScannerUtils;
 
 @ScannerSide
 public class SensorsExecutor {
+
+  /**
+   * Opt-in execution of the sensors that do not depend on each other in parallel. Sensors must be thread-safe.
+   */
+  public static final String PARALLEL_PROP_KEY = "sonar.scanner.parallelSensors";
+
+  /**
+   * Number of threads used when {@link #PARALLEL_PROP_KEY} is enabled. Default is the number of processors.
+   */
+  public static final String THREADS_PROP_KEY = "sonar.scanner.sensorThreads";
+
+  private static final Logger LOG = Loggers.get(SensorsExecutor.class);
+
   private final ScannerExtensionDictionnary selector;
   private final DefaultInputModule module;
   private final EventBus eventBus;
   private final SensorStrategy strategy;
+  private final Settings settings;
   private final boolean isRoot;
 
-  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus, SensorStrategy strategy) {
+  public SensorsExecutor(ScannerExtensionDictionnary selector, DefaultInputModule module, EventBus eventBus, SensorStrategy strategy, Settings settings) {
     this.selector = selector;
     this.module = module;
     this.eventBus = eventBus;
     this.strategy = strategy;
+    this.settings = settings;
     this.isRoot = module.definition().getParent() == null;
   }
 
@@ -77,9 +112,22 @@ public class SensorsExecutor {
   }
 
   private void execute(SensorContext context, Collection<Sensor> sensors) {
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    int threads = threads();
+    if (threads > 1 && sensors.size() > 1) {
+      executeInParallel(context, sensors, threads);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
+    }
+  }
+
+  private int threads() {
+    if (!settings.getBoolean(PARALLEL_PROP_KEY)) {
+      return 1;
     }
+    int threads = settings.getInt(THREADS_PROP_KEY);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
   }
 
   private void executeSensor(SensorContext context, Sensor sensor) {
@@ -87,4 +135,101 @@ public class SensorsExecutor {
     sensor.analyse(new Project(module.definition()), context);
     eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
   }
+
+  /**
+   * A sensor is started as soon as all the sensors it depends upon are completed. Events are fired
+   * by the calling thread only, so that listeners do not have to be thread-safe. On failure, the other
+   * sensors are interrupted and waited for, and the end events of the interrupted sensors are fired as well.
+   */
+  private void executeInParallel(SensorContext context, Collection<Sensor> sensors, int threads) {
+    Map<Sensor, Set<Sensor>> pending = new LinkedHashMap<>();
+    selector.predecessors(sensors).forEach((sensor, predecessors) -> pending.put(sensor, new LinkedHashSet<>(predecessors)));
+    sensors.forEach(sensor -> pending.putIfAbsent(sensor, new LinkedHashSet<>()));
+
+    Map<Sensor, Long> durations = Collections.synchronizedMap(new IdentityHashMap<>());
+    Set<Sensor> running = Collections.newSetFromMap(new IdentityHashMap<>());
+    long start = System.currentTimeMillis();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, sensors.size()),
+      new ThreadFactoryBuilder().setNameFormat("sensor-%d").setDaemon(true).build());
+    try {
+      CompletionService<Sensor> completion = new ExecutorCompletionService<>(executor);
+      Project project = new Project(module.definition());
+      while (!pending.isEmpty() || !running.isEmpty()) {
+        running.addAll(submitReadySensors(pending, completion, project, context, durations));
+        if (running.isEmpty()) {
+          throw new IllegalStateException("Sensors can not be scheduled: " + pending.keySet());
+        }
+        Sensor completed = waitForCompletion(completion);
+        running.remove(completed);
+        eventBus.fireEvent(new SensorExecutionEvent(completed, false));
+        pending.values().forEach(predecessors -> predecessors.remove(completed));
+      }
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+      running.forEach(sensor -> eventBus.fireEvent(new SensorExecutionEvent(sensor, false)));
+    }
+    logReport(sensors, durations, System.currentTimeMillis() - start, threads);
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      while (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        LOG.info("Waiting for the interrupted sensors to stop");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private List<Sensor> submitReadySensors(Map<Sensor, Set<Sensor>> pending, CompletionService<Sensor> completion, Project project,
+    SensorContext context, Map<Sensor, Long> durations) {
+    List<Sensor> submitted = new ArrayList<>();
+    Iterator<Map.Entry<Sensor, Set<Sensor>>> it = pending.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Sensor, Set<Sensor>> entry = it.next();
+      if (entry.getValue().isEmpty()) {
+        it.remove();
+        Sensor sensor = entry.getKey();
+        eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
+        completion.submit(() -> {
+          long sensorStart = System.nanoTime();
+          sensor.analyse(project, context);
+          durations.put(sensor, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sensorStart));
+          return sensor;
+        });
+        submitted.add(sensor);
+      }
+    }
+    return submitted;
+  }
+
+  private static Sensor waitForCompletion(CompletionService<Sensor> completion) {
+    try {
+      Future<Sensor> future = completion.take();
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing sensors", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to execute sensor", cause);
+    }
+  }
+
+  private static void logReport(Collection<Sensor> sensors, Map<Sensor, Long> durations, long wallTime, int threads) {
+    long cumulated = durations.values().stream().mapToLong(Long::longValue).sum();
+    LOG.info("{} sensors executed in {}ms with {} threads, cumulated sensor time: {}ms", sensors.size(), wallTime, threads, cumulated);
+    if (LOG.isDebugEnabled()) {
+      durations.entrySet().stream()
+        .sorted(Comparator.comparing((Map.Entry<Sensor, Long> e) -> e.getValue()).reversed())
+        .forEach(e -> LOG.debug("  {}: {}ms", ScannerUtils.describe(e.getKey()), e.getValue()));
+    }
+  }
 }
@@ -62,9 +62,15 @@ public class ComponentsPublisher implements ReportPublisherStep {
 
   @Override
   public void publish(ScannerReportWriter writer) {
+    // issues are buffered by the writer
+    writer.flush();
     this.reader = new ScannerReportReader(writer.getFileStructure().root());
     this.writer = writer;
-    recursiveWriteComponent((DefaultInputComponent) moduleHierarchy.root());
+    try {
+      recursiveWriteComponent((DefaultInputComponent) moduleHierarchy.root());
+    } finally {
+      reader.close();
+    }
   }
 
   /**
@@ -21,6 +21,7 @@ package org.sonar.scanner.report;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import com.google.common.io.CountingOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,6 +32,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
 import org.apache.commons.io.FileUtils;
@@ -41,7 +43,6 @@ import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
-import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
@@ -65,13 +66,13 @@ public class ReportPublisher implements Startable {
   public static final String KEEP_REPORT_PROP_KEY = "sonar.batch.keepReport";
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
+  private static final String REPORT_ZIP_FILENAME = "batch-report.zip";
 
   private final Settings settings;
   private final ScannerWsClient wsClient;
   private final AnalysisContextReportPublisher contextPublisher;
   private final ImmutableProjectReactor projectReactor;
   private final DefaultAnalysisMode analysisMode;
-  private final TempFolder temp;
   private final ReportPublisherStep[] publishers;
   private final Server server;
 
@@ -79,14 +80,13 @@ public class ReportPublisher implements Startable {
   private ScannerReportWriter writer;
 
   public ReportPublisher(Settings settings, ScannerWsClient wsClient, Server server, AnalysisContextReportPublisher contextPublisher,
-    ImmutableProjectReactor projectReactor, DefaultAnalysisMode analysisMode, TempFolder temp, ReportPublisherStep[] publishers) {
+    ImmutableProjectReactor projectReactor, DefaultAnalysisMode analysisMode, ReportPublisherStep[] publishers) {
     this.settings = settings;
     this.wsClient = wsClient;
     this.server = server;
     this.contextPublisher = contextPublisher;
     this.projectReactor = projectReactor;
     this.analysisMode = analysisMode;
-    this.temp = temp;
     this.publishers = publishers;
   }
 
@@ -106,6 +106,7 @@ public class ReportPublisher implements Startable {
 
   @Override
   public void stop() {
+    writer.close();
     if (!shouldKeepReport()) {
       deleteQuietly(reportDir);
     }
@@ -122,13 +123,15 @@ public class ReportPublisher implements Startable {
   public void execute() {
     // If this is a issues mode analysis then we should not upload reports
     String taskId = null;
-    if (!analysisMode.isIssues()) {
-      File report = generateReportFile();
+    if (analysisMode.isIssues()) {
+      writer.flush();
+    } else {
+      generateReport();
       if (shouldKeepReport()) {
         LOG.info("Analysis report generated in " + reportDir);
       }
       if (!analysisMode.isMediumTest()) {
-        taskId = upload(report);
+        taskId = upload(reportDir);
       }
     }
     logSuccess(taskId);
@@ -138,35 +141,32 @@ public class ReportPublisher implements Startable {
     return settings.getBoolean(KEEP_REPORT_PROP_KEY) || settings.getBoolean(VERBOSE_KEY);
   }
 
-  private File generateReportFile() {
-    try {
-      long startTime = System.currentTimeMillis();
-      for (ReportPublisherStep publisher : publishers) {
-        publisher.publish(writer);
-      }
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
-
-      startTime = System.currentTimeMillis();
-      File reportZip = temp.newFile("batch-report", ".zip");
-      ZipUtils.zipDir(reportDir, reportZip);
-      stopTime = System.currentTimeMillis();
-      LOG.info("Analysis reports compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
-      return reportZip;
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to prepare analysis report", e);
+  private void generateReport() {
+    long startTime = System.currentTimeMillis();
+    for (ReportPublisherStep publisher : publishers) {
+      publisher.publish(writer);
     }
+    writer.close();
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
   }
 
   /**
-   * Uploads the report file to server and returns the generated task id
+   * Compresses the report directory straight into the body of the request, so that no temporary
+   * zip file is written and compression overlaps with the upload. Returns the generated task id.
    */
   @VisibleForTesting
-  String upload(File report) {
+  String upload(File reportDir) {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
     ProjectDefinition projectDefinition = projectReactor.getRoot();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
+    AtomicLong zipSize = new AtomicLong();
+    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, REPORT_ZIP_FILENAME, output -> {
+      // the content is generated again if the request is retried
+      CountingOutputStream countingOutput = new CountingOutputStream(output);
+      ZipUtils.zipDir(reportDir, countingOutput);
+      zipSize.set(countingOutput.getCount());
+    });
     PostRequest post = new PostRequest("api/ce/submit")
       .setMediaType(MediaTypes.PROTOBUF)
       .setParam("organization", settings.getString(CoreProperties.PROJECT_ORGANIZATION_PROPERTY))
@@ -188,7 +188,7 @@ public class ReportPublisher implements Startable {
       throw Throwables.propagate(e);
     } finally {
       long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report uploaded in " + (stopTime - startTime) + "ms");
+      LOG.info("Analysis report compressed and uploaded in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(zipSize.get()));
     }
   }
 
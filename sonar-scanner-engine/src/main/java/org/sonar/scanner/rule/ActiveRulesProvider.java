@@ -19,11 +19,17 @@
  */
 package org.sonar.scanner.rule;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.picocontainer.injectors.ProviderAdapter;
 import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
@@ -40,6 +46,7 @@ import org.sonar.api.utils.log.Profiler;
 public class ActiveRulesProvider extends ProviderAdapter {
   private static final Logger LOG = Loggers.get(ActiveRulesProvider.class);
   private static final String LOG_MSG = "Load active rules";
+  private static final int MAX_LOADER_THREADS = 4;
   private ActiveRules singleton = null;
 
   public ActiveRules provide(ActiveRulesLoader loader, ModuleQProfiles qProfiles) {
@@ -56,10 +63,9 @@ public class ActiveRulesProvider extends ProviderAdapter {
     Collection<String> qProfileKeys = getKeys(qProfiles);
     Map<RuleKey, LoadedActiveRule> loadedRulesByKey = new HashMap<>();
 
-    for (String qProfileKey : qProfileKeys) {
-      Collection<LoadedActiveRule> qProfileRules;
-      qProfileRules = load(loader, qProfileKey);
+    List<List<LoadedActiveRule>> rulesByQProfile = loadConcurrently(loader, qProfileKeys);
 
+    for (Collection<LoadedActiveRule> qProfileRules : rulesByQProfile) {
       for (LoadedActiveRule r : qProfileRules) {
         if (!loadedRulesByKey.containsKey(r.getRuleKey())) {
           loadedRulesByKey.put(r.getRuleKey(), r);
@@ -70,6 +76,40 @@ public class ActiveRulesProvider extends ProviderAdapter {
     return transform(loadedRulesByKey.values());
   }
 
+  /**
+   * Profiles are independent, so they are requested concurrently by a small dedicated pool rather than by the
+   * common fork-join pool, which is not meant for blocking I/O. Results are kept in order of profiles.
+   */
+  private static List<List<LoadedActiveRule>> loadConcurrently(ActiveRulesLoader loader, Collection<String> qProfileKeys) {
+    int threads = Math.max(1, Math.min(qProfileKeys.size(), MAX_LOADER_THREADS));
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("active-rules-loader-%d").setDaemon(true).build());
+    try {
+      List<Future<List<LoadedActiveRule>>> futures = new ArrayList<>(qProfileKeys.size());
+      for (String qProfileKey : qProfileKeys) {
+        futures.add(executor.submit(() -> load(loader, qProfileKey)));
+      }
+      List<List<LoadedActiveRule>> rulesByQProfile = new ArrayList<>(futures.size());
+      for (Future<List<LoadedActiveRule>> future : futures) {
+        rulesByQProfile.add(getLoaded(future));
+      }
+      return rulesByQProfile;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<LoadedActiveRule> getLoaded(Future<List<LoadedActiveRule>> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading active rules", e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
   private static ActiveRules transform(Collection<LoadedActiveRule> loadedRules) {
     ActiveRulesBuilder builder = new ActiveRulesBuilder();
 
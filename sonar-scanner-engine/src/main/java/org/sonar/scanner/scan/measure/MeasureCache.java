@@ -20,6 +20,7 @@
 package org.sonar.scanner.scan.measure;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import javax.annotation.CheckForNull;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.measure.MetricFinder;
@@ -30,6 +31,7 @@ import org.sonar.scanner.storage.Storage.Entry;
 
 /**
  * Cache of all measures. This cache is shared amongst all project modules.
+ * Access is synchronized as the underlying storage is not thread-safe and sensors may be executed in parallel.
  */
 @ScannerSide
 public class MeasureCache {
@@ -41,31 +43,31 @@ public class MeasureCache {
     cache = caches.createCache("measures");
   }
 
-  public Iterable<Entry<DefaultMeasure<?>>> entries() {
-    return cache.entries();
+  public synchronized Iterable<Entry<DefaultMeasure<?>>> entries() {
+    return Lists.newArrayList(cache.entries());
   }
 
-  public Iterable<DefaultMeasure<?>> all() {
-    return cache.values();
+  public synchronized Iterable<DefaultMeasure<?>> all() {
+    return Lists.newArrayList(cache.values());
   }
 
-  public Iterable<DefaultMeasure<?>> byComponentKey(String effectiveKey) {
-    return cache.values(effectiveKey);
+  public synchronized Iterable<DefaultMeasure<?>> byComponentKey(String effectiveKey) {
+    return Lists.newArrayList(cache.values(effectiveKey));
   }
 
   @CheckForNull
-  public DefaultMeasure<?> byMetric(String componentKey, String metricKey) {
+  public synchronized DefaultMeasure<?> byMetric(String componentKey, String metricKey) {
     return cache.get(componentKey, metricKey);
   }
 
-  public MeasureCache put(String componentKey, String metricKey, DefaultMeasure<?> measure) {
+  public synchronized MeasureCache put(String componentKey, String metricKey, DefaultMeasure<?> measure) {
     Preconditions.checkNotNull(componentKey);
     Preconditions.checkNotNull(metricKey);
     cache.put(componentKey, metricKey, measure);
     return this;
   }
 
-  public boolean contains(String componentKey, String metricKey) {
+  public synchronized boolean contains(String componentKey, String metricKey) {
     Preconditions.checkNotNull(componentKey);
     Preconditions.checkNotNull(metricKey);
     return cache.containsKey(componentKey, metricKey);
@@ -0,0 +1,228 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.Protobuf;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+/**
+ * Blame results of previous analyses, stored in the user cache (see sonar.userHome). Entries are keyed
+ * by SCM provider, HEAD revision, module, path and content hash of the file, so that files that were already
+ * blamed on this machine at the same revision, for example by a previous analysis of the same commit, are not
+ * blamed again. As the SCM API does not expose the revision, the cache is used only when the HEAD revision
+ * can be read from the Git repository enclosing the module. Entries not read for {@link #MAX_AGE_PROP_KEY} days are deleted.
+ * Disabled by default.
+ */
+@ScannerSide
+public class BlameCache {
+
+  public static final String ENABLED_PROP_KEY = "sonar.scm.blameCache";
+  public static final String MAX_AGE_PROP_KEY = "sonar.scm.blameCache.maxAgeInDays";
+
+  private static final Logger LOG = Loggers.get(BlameCache.class);
+  private static final String DIR_NAME = "_blame";
+  private static final int DEFAULT_MAX_AGE_IN_DAYS = 30;
+  private static final String GIT_REF_PREFIX = "ref:";
+
+  private final FileCache fileCache;
+  private final System2 system2;
+  private final boolean enabled;
+  private final long maxAgeMs;
+  private boolean purged = false;
+
+  public BlameCache(FileCache fileCache, Settings settings, System2 system2) {
+    this.fileCache = fileCache;
+    this.system2 = system2;
+    this.enabled = settings.getBoolean(ENABLED_PROP_KEY);
+    int maxAgeInDays = settings.hasKey(MAX_AGE_PROP_KEY) ? settings.getInt(MAX_AGE_PROP_KEY) : DEFAULT_MAX_AGE_IN_DAYS;
+    this.maxAgeMs = TimeUnit.DAYS.toMillis(maxAgeInDays);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Revision checked out in the working directory, or {@code null} if it can't be resolved, in which case
+   * the cache must not be used.
+   */
+  @CheckForNull
+  public String headRevision(File baseDir) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      return gitHeadRevision(baseDir.toPath().toAbsolutePath());
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Fail to resolve the Git revision of {}", baseDir, e);
+      return null;
+    }
+  }
+
+  @CheckForNull
+  private static String gitHeadRevision(Path baseDir) throws IOException {
+    for (Path dir = baseDir; dir != null; dir = dir.getParent()) {
+      Path dotGit = dir.resolve(".git");
+      if (Files.isDirectory(dotGit)) {
+        return resolveGitHead(dotGit);
+      }
+      if (Files.isRegularFile(dotGit)) {
+        // worktrees and submodules reference their git directory
+        String content = readFirstLine(dotGit);
+        if (content != null && content.startsWith("gitdir:")) {
+          return resolveGitHead(dir.resolve(content.substring("gitdir:".length()).trim()));
+        }
+        return null;
+      }
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private static String resolveGitHead(Path gitDir) throws IOException {
+    String head = readFirstLine(gitDir.resolve("HEAD"));
+    if (head == null || !head.startsWith(GIT_REF_PREFIX)) {
+      // detached HEAD
+      return head;
+    }
+    String ref = head.substring(GIT_REF_PREFIX.length()).trim();
+    Path commonDir = gitDir;
+    String commonDirPath = readFirstLine(gitDir.resolve("commondir"));
+    if (commonDirPath != null) {
+      commonDir = gitDir.resolve(commonDirPath);
+    }
+    for (Path dir : new Path[] {gitDir, commonDir}) {
+      String revision = readFirstLine(dir.resolve(ref));
+      if (revision != null) {
+        return revision;
+      }
+    }
+    Path packedRefs = commonDir.resolve("packed-refs");
+    if (Files.isRegularFile(packedRefs)) {
+      for (String line : Files.readAllLines(packedRefs, StandardCharsets.UTF_8)) {
+        if (line.endsWith(" " + ref)) {
+          return line.substring(0, line.indexOf(' '));
+        }
+      }
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private static String readFirstLine(Path file) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    return lines.isEmpty() ? null : lines.get(0).trim();
+  }
+
+  /**
+   * Deletes the entries that were not read nor written since {@link #MAX_AGE_PROP_KEY} days. It's done
+   * once per execution.
+   */
+  public synchronized void purgeOldEntries() {
+    if (!enabled || purged) {
+      return;
+    }
+    purged = true;
+    File dir = new File(fileCache.getDir(), DIR_NAME);
+    if (!dir.isDirectory()) {
+      return;
+    }
+    long threshold = system2.now() - maxAgeMs;
+    Collection<File> files = FileUtils.listFiles(dir, null, true);
+    int deleted = 0;
+    for (File file : files) {
+      if (file.lastModified() < threshold && file.delete()) {
+        deleted++;
+      }
+    }
+    LOG.debug("{} obsolete entries deleted from blame cache", deleted);
+  }
+
+  /**
+   * @return the changesets of the file, without component reference, or {@code null} if the file is not in cache
+   */
+  @CheckForNull
+  public ScannerReport.Changesets get(String providerKey, String revision, String moduleKey, DefaultInputFile file) {
+    if (!enabled) {
+      return null;
+    }
+    File cached = cacheFile(providerKey, revision, moduleKey, file);
+    if (!cached.isFile()) {
+      return null;
+    }
+    try {
+      ScannerReport.Changesets changesets = Protobuf.read(cached, ScannerReport.Changesets.parser());
+      if (changesets.getChangesetIndexByLineCount() != file.lines()) {
+        return null;
+      }
+      // entries that are still used are not purged
+      cached.setLastModified(system2.now());
+      return changesets;
+    } catch (RuntimeException e) {
+      LOG.debug("Ignoring corrupted blame cache entry {}", cached, e);
+      return null;
+    }
+  }
+
+  public void put(String providerKey, String revision, String moduleKey, DefaultInputFile file, ScannerReport.Changesets changesets) {
+    if (!enabled) {
+      return;
+    }
+    File cached = cacheFile(providerKey, revision, moduleKey, file);
+    File tmp = null;
+    try {
+      Files.createDirectories(cached.getParentFile().toPath());
+      // write to a temporary file then move it, as the cache can be shared by concurrent analyses
+      tmp = File.createTempFile(cached.getName(), ".tmp", cached.getParentFile());
+      Protobuf.write(changesets.toBuilder().clearComponentRef().build(), tmp);
+      Files.move(tmp.toPath(), cached.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Fail to store blame of {} in cache", file.relativePath(), e);
+      FileUtils.deleteQuietly(tmp);
+    }
+  }
+
+  private File cacheFile(String providerKey, String revision, String moduleKey, DefaultInputFile file) {
+    String key = DigestUtils.sha1Hex(providerKey + ':' + revision + ':' + moduleKey + ':' + file.relativePath() + ':' + file.hash());
+    return new File(new File(new File(fileCache.getDir(), DIR_NAME), key.substring(0, 2)), key);
+  }
+}
@@ -44,13 +44,20 @@ class DefaultBlameOutput implements BlameOutput {
   private static final Logger LOG = Loggers.get(DefaultBlameOutput.class);
 
   private final ScannerReportWriter writer;
+  private final BlameResultListener listener;
   private final Set<InputFile> allFilesToBlame = new HashSet<>();
   private ProgressReport progressReport;
   private int count;
   private int total;
 
   DefaultBlameOutput(ScannerReportWriter writer, List<InputFile> filesToBlame) {
+    this(writer, filesToBlame, (file, changesets) -> {
+    });
+  }
+
+  DefaultBlameOutput(ScannerReportWriter writer, List<InputFile> filesToBlame, BlameResultListener listener) {
     this.writer = writer;
+    this.listener = listener;
     this.allFilesToBlame.addAll(filesToBlame);
     count = 0;
     total = filesToBlame.size();
@@ -86,7 +93,9 @@ class DefaultBlameOutput implements BlameOutput {
       scmBuilder.addChangesetIndexByLine(changesetId);
       lineId++;
     }
-    writer.writeComponentChangesets(scmBuilder.build());
+    ScannerReport.Changesets changesets = scmBuilder.build();
+    writer.writeComponentChangesets(changesets);
+    listener.onResult(inputFile, changesets);
     allFilesToBlame.remove(file);
     count++;
     progressReport.message(count + "/" + total + " files analyzed");
@@ -125,4 +134,9 @@ class DefaultBlameOutput implements BlameOutput {
       LOG.warn("This may lead to missing/broken features in SonarQube");
     }
   }
+
+  @FunctionalInterface
+  interface BlameResultListener {
+    void onResult(DefaultInputFile file, ScannerReport.Changesets changesets);
+  }
 }
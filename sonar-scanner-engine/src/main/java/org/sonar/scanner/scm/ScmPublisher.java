@@ -19,8 +19,15 @@
  */
 package org.sonar.scanner.scm;
 
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.InstantiationStrategy;
@@ -29,6 +36,7 @@ import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.InputFile.Status;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.scm.BlameCommand;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.protocol.output.ScannerReport;
@@ -52,15 +60,17 @@ public final class ScmPublisher {
   private final ModuleInputComponentStore componentStore;
   private final DefaultModuleFileSystem fs;
   private final ScannerReportWriter writer;
+  private final BlameCache blameCache;
 
   public ScmPublisher(DefaultInputModule inputModule, ScmConfiguration configuration, ProjectRepositories projectRepositories,
-    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher) {
+    ModuleInputComponentStore componentStore, DefaultModuleFileSystem fs, ReportPublisher reportPublisher, BlameCache blameCache) {
     this.inputModule = inputModule;
     this.configuration = configuration;
     this.projectRepositories = projectRepositories;
     this.componentStore = componentStore;
     this.fs = fs;
     this.writer = reportPublisher.getWriter();
+    this.blameCache = blameCache;
   }
 
   public void publish() {
@@ -74,12 +84,27 @@ public final class ScmPublisher {
     }
 
     List<InputFile> filesToBlame = collectFilesToBlame(writer);
+    if (filesToBlame.isEmpty()) {
+      return;
+    }
+    String key = configuration.provider().key();
+    LOG.info("SCM provider for this project is: " + key);
+    String revision = blameCache.headRevision(fs.baseDir());
+    DefaultBlameOutput.BlameResultListener listener = (file, changesets) -> {
+      // nothing to do
+    };
+    if (revision != null) {
+      blameCache.purgeOldEntries();
+      filesToBlame = copyFromBlameCache(key, revision, filesToBlame);
+      String moduleKey = inputModule.definition().getKeyWithBranch();
+      listener = (file, changesets) -> blameCache.put(key, revision, moduleKey, file, changesets);
+    } else if (blameCache.isEnabled()) {
+      LOG.info("Blame cache is not used, as the revision of the working directory can't be resolved");
+    }
     if (!filesToBlame.isEmpty()) {
-      String key = configuration.provider().key();
-      LOG.info("SCM provider for this project is: " + key);
-      DefaultBlameOutput output = new DefaultBlameOutput(writer, filesToBlame);
+      DefaultBlameOutput output = new DefaultBlameOutput(writer, filesToBlame, listener);
       try {
-        configuration.provider().blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
+        blame(configuration.provider().blameCommand(), filesToBlame, output);
       } catch (Exception e) {
         output.finish(false);
         throw e;
@@ -88,6 +113,54 @@ public final class ScmPublisher {
     }
   }
 
+  private List<InputFile> copyFromBlameCache(String providerKey, String revision, List<InputFile> filesToBlame) {
+    String moduleKey = inputModule.definition().getKeyWithBranch();
+    List<InputFile> notCached = new ArrayList<>();
+    for (InputFile f : filesToBlame) {
+      DefaultInputFile inputFile = (DefaultInputFile) f;
+      ScannerReport.Changesets cached = blameCache.get(providerKey, revision, moduleKey, inputFile);
+      if (cached == null) {
+        notCached.add(f);
+      } else {
+        writer.writeComponentChangesets(cached.toBuilder().setComponentRef(inputFile.batchId()).build());
+      }
+    }
+    LOG.info("{}/{} files blamed from cache", filesToBlame.size() - notCached.size(), filesToBlame.size());
+    return notCached;
+  }
+
+  /**
+   * Files are split into batches blamed concurrently when the command supports it.
+   */
+  private void blame(BlameCommand blameCommand, List<InputFile> filesToBlame, DefaultBlameOutput output) {
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(), filesToBlame.size());
+    if (!blameCommand.isThreadSafe() || threads < 2) {
+      blameCommand.blame(new DefaultBlameInput(fs, filesToBlame), output);
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("scm-blame-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      int batchSize = (filesToBlame.size() + threads - 1) / threads;
+      for (List<InputFile> batch : Lists.partition(filesToBlame, batchSize)) {
+        futures.add(executor.submit(() -> blameCommand.blame(new DefaultBlameInput(fs, batch), output)));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while computing blame", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to compute blame", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   private List<InputFile> collectFilesToBlame(ScannerReportWriter writer) {
     if (configuration.forceReloadAll()) {
       LOG.warn("Forced reloading of SCM data for all files.");
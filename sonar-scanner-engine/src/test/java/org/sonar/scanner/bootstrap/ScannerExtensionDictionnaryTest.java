@@ -23,6 +23,8 @@ import com.google.common.collect.Lists;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Test;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.BuildBreaker;
@@ -303,6 +305,25 @@ public class ScannerExtensionDictionnaryTest {
     assertThat(extensions).containsExactly(pre, analyze, post);
   }
 
+  @Test
+  public void predecessorsFollowDependenciesAndPhases() {
+    BatchExtension pre = new PreSensor();
+    BatchExtension generates = new GeneratesSomething("foo");
+    BatchExtension dependent = new MethodDependentOf("foo");
+    BatchExtension independent = new ClassDependedUpon();
+    BatchExtension post = new PostSensor();
+
+    ScannerExtensionDictionnary selector = newSelector();
+    Map<BatchExtension, Set<BatchExtension>> predecessors = selector.predecessors(Arrays.asList(post, dependent, independent, generates, pre));
+
+    assertThat(predecessors.keySet()).containsOnly(pre, generates, independent, dependent, post);
+    assertThat(predecessors.get(pre)).isEmpty();
+    assertThat(predecessors.get(generates)).containsOnly(pre);
+    assertThat(predecessors.get(independent)).containsOnly(pre);
+    assertThat(predecessors.get(dependent)).containsOnly(pre, generates);
+    assertThat(predecessors.get(post)).containsOnly(pre, generates, independent, dependent);
+  }
+
   @Test
   public void buildStatusCheckersAreExecutedAfterOtherPostJobs() {
     BuildBreaker checker = new BuildBreaker() {
@@ -22,6 +22,7 @@ package org.sonar.scanner.bootstrap;
 import java.io.File;
 import java.io.StringReader;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -30,11 +31,15 @@ import org.junit.rules.TemporaryFolder;
 import org.sonar.core.platform.RemotePlugin;
 import org.sonar.home.cache.FileCache;
 import org.sonar.scanner.WsTestUtil;
+import org.sonarqube.ws.client.WsRequest;
+import org.sonarqube.ws.client.WsResponse;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class ScannerPluginInstallerTest {
@@ -66,14 +71,43 @@ public class ScannerPluginInstallerTest {
   @Test
   public void should_download_plugin() throws Exception {
     File pluginJar = temp.newFile();
+    WsResponse response = mock(WsResponse.class);
+    when(wsClient.callAsync(any(WsRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
     when(fileCache.get(eq("checkstyle-plugin.jar"), eq("fakemd5_1"), any(FileCache.Downloader.class))).thenReturn(pluginJar);
 
     ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate);
 
     RemotePlugin remote = new RemotePlugin("checkstyle").setFile("checkstyle-plugin.jar", "fakemd5_1");
-    File file = underTest.download(remote);
+    File file = underTest.download(remote).get();
 
     assertThat(file).isEqualTo(pluginJar);
+    verify(response).close();
+  }
+
+  @Test
+  public void should_not_download_plugin_in_cache() throws Exception {
+    File pluginJar = temp.newFile();
+    when(fileCache.get("checkstyle-plugin.jar", "fakemd5_1")).thenReturn(pluginJar);
+
+    ScannerPluginInstaller underTest = new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate);
+
+    RemotePlugin remote = new RemotePlugin("checkstyle").setFile("checkstyle-plugin.jar", "fakemd5_1");
+    assertThat(underTest.download(remote).get()).isEqualTo(pluginJar);
+    verifyZeroInteractions(wsClient);
+  }
+
+  @Test
+  public void should_fail_if_download_fails() {
+    WsTestUtil.mockReader(wsClient, "/deploy/plugins/index.txt", new StringReader("checkstyle,true,checkstyle-plugin.jar|fakemd5_1"));
+    CompletableFuture<WsResponse> failure = new CompletableFuture<>();
+    failure.completeExceptionally(new IllegalStateException("Fail to request"));
+    when(wsClient.callAsync(any(WsRequest.class))).thenReturn(failure);
+    when(pluginPredicate.apply("checkstyle")).thenReturn(true);
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Fail to download plugin: checkstyle");
+
+    new ScannerPluginInstaller(wsClient, fileCache, pluginPredicate).installRemotes();
   }
 
   @Test
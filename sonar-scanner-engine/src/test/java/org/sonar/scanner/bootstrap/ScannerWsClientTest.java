@@ -21,6 +21,8 @@ package org.sonar.scanner.bootstrap;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -35,6 +37,7 @@ import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.isA;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -93,6 +96,29 @@ public class ScannerWsClientTest {
     new ScannerWsClient(wsClient, /* credentials are configured */true, new GlobalMode(new GlobalProperties(Collections.emptyMap()))).call(request);
   }
 
+  @Test
+  public void callAsync_completes_with_response() throws Exception {
+    WsRequest request = newRequest();
+    WsResponse response = newResponse().setRequestUrl("https://local/api/issues/search");
+    when(wsClient.wsConnector().callAsync(request)).thenReturn(CompletableFuture.completedFuture(response));
+
+    ScannerWsClient underTest = new ScannerWsClient(wsClient, false, new GlobalMode(new GlobalProperties(Collections.emptyMap())));
+
+    assertThat(underTest.callAsync(request).get()).isSameAs(response);
+  }
+
+  @Test
+  public void callAsync_fails_if_credentials_are_not_valid() throws Exception {
+    expectedException.expect(ExecutionException.class);
+    expectedException.expectCause(isA(MessageException.class));
+
+    WsRequest request = newRequest();
+    WsResponse response = newResponse().setCode(401);
+    when(wsClient.wsConnector().callAsync(request)).thenReturn(CompletableFuture.completedFuture(response));
+
+    new ScannerWsClient(wsClient, true, new GlobalMode(new GlobalProperties(Collections.emptyMap()))).callAsync(request).get();
+  }
+
   @Test
   public void fail_if_requires_permission() throws Exception {
     expectedException.expect(MessageException.class);
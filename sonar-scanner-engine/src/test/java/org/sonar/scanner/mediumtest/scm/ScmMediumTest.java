@@ -125,6 +125,44 @@ public class ScmMediumTest {
     assertThat(changesetLine5.getAuthor()).isEqualTo("simon");
   }
 
+  @Test
+  public void reuse_blame_from_cache_of_previous_analysis_of_same_revision() throws IOException, URISyntaxException {
+    File baseDir = prepareProject();
+    File gitHead = new File(baseDir, ".git/HEAD");
+    FileUtils.write(gitHead, "6b3aab35a3ea32c1636fee56f996e677653c48ea\n");
+    ImmutableMap<String, String> properties = ImmutableMap.<String, String>builder()
+      .put("sonar.task", "scan")
+      .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+      .put("sonar.projectKey", "com.foo.project")
+      .put("sonar.projectName", "Foo Project")
+      .put("sonar.projectVersion", "1.0-SNAPSHOT")
+      .put("sonar.projectDescription", "Description of Foo Project")
+      .put("sonar.sources", "src")
+      .put("sonar.scm.provider", "xoo")
+      .put("sonar.scm.blameCache", "true")
+      .build();
+    tester.newTask().properties(properties).start();
+    ScannerReport.Changesets firstScm = getChangesets(baseDir, "src/sample.xoo");
+
+    // blame is not available anymore, so it can only come from the cache
+    FileUtils.deleteQuietly(new File(baseDir, "src/sample.xoo.scm"));
+    logTester.clear();
+    tester.newTask().properties(properties).start();
+
+    ScannerReport.Changesets secondScm = getChangesets(baseDir, "src/sample.xoo");
+    assertThat(secondScm.getChangesetIndexByLineList()).isEqualTo(firstScm.getChangesetIndexByLineList());
+    assertThat(secondScm.getChangesetList()).isEqualTo(firstScm.getChangesetList());
+    assertThat(logTester.logs()).contains("1/1 files blamed from cache");
+
+    // another revision is checked out
+    FileUtils.write(gitHead, "ref: refs/heads/master\n");
+    FileUtils.write(new File(baseDir, ".git/refs/heads/master"), "0d9a7b52c1a4dc3ce1b8eda8e0a9b3e52ea5f0b1\n");
+    logTester.clear();
+    tester.newTask().properties(properties).start();
+
+    assertThat(logTester.logs()).contains("0/1 files blamed from cache");
+  }
+
   private ScannerReport.Changesets getChangesets(File baseDir, String path) {
     File reportDir = new File(baseDir, ".sonar/batch-report");
     ScannerReportReader reader = new ScannerReportReader(reportDir);
@@ -19,20 +19,35 @@
  */
 package org.sonar.scanner.phases;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import org.junit.*;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.MapSettings;
 import org.sonar.api.resources.Project;
 import org.sonar.scanner.bootstrap.ScannerExtensionDictionnary;
+import org.sonar.scanner.events.BatchEvent;
 import org.sonar.scanner.events.EventBus;
 import org.sonar.scanner.sensor.SensorStrategy;
 
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 public class SensorsExecutorTest {
@@ -44,6 +59,9 @@ public class SensorsExecutorTest {
   private SensorContext context;
 
   private SensorStrategy strategy = new SensorStrategy();
+  private MapSettings settings = new MapSettings();
+  private ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
+  private DefaultInputModule rootModule;
 
   private TestSensor perModuleSensor = new TestSensor(strategy);
   private TestSensor globalSensor = new TestSensor(strategy);
@@ -74,16 +92,15 @@ public class SensorsExecutorTest {
   public void setUp() throws IOException {
     context = mock(SensorContext.class);
 
-    ScannerExtensionDictionnary selector = mock(ScannerExtensionDictionnary.class);
     when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(Collections.singleton(perModuleSensor));
     when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.singleton(globalSensor));
 
-    DefaultInputModule rootModule = TestInputFileBuilder.newDefaultInputModule("root", temp.newFolder());
-    rootModuleExecutor = new SensorsExecutor(selector, rootModule, mock(EventBus.class), strategy);
+    rootModule = TestInputFileBuilder.newDefaultInputModule("root", temp.newFolder());
+    rootModuleExecutor = new SensorsExecutor(selector, rootModule, mock(EventBus.class), strategy, settings);
 
     DefaultInputModule subModule = TestInputFileBuilder.newDefaultInputModule("sub", temp.newFolder());
     rootModule.definition().addSubProject(subModule.definition());
-    subModuleExecutor = new SensorsExecutor(selector, subModule, mock(EventBus.class), strategy);
+    subModuleExecutor = new SensorsExecutor(selector, subModule, mock(EventBus.class), strategy, settings);
   }
 
   @Test
@@ -104,4 +121,119 @@ public class SensorsExecutorTest {
     assertThat(globalSensor.called).isTrue();
     assertThat(globalSensor.global).isTrue();
   }
+
+  @Test
+  public void should_execute_independent_sensors_in_parallel_after_their_dependencies() {
+    settings.setProperty(SensorsExecutor.PARALLEL_PROP_KEY, true);
+    settings.setProperty(SensorsExecutor.THREADS_PROP_KEY, 4);
+    List<Sensor> executed = new CopyOnWriteArrayList<>();
+    RecordingSensor first = new RecordingSensor(executed);
+    RecordingSensor second = new RecordingSensor(executed);
+    RecordingSensor third = new RecordingSensor(executed);
+    RecordingSensor last = new RecordingSensor(executed);
+    List<Sensor> sensors = Arrays.asList(first, second, third, last);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(sensors);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(true))).thenReturn(Collections.emptyList());
+    when(selector.predecessors(sensors)).thenReturn(ImmutableMap.of(
+      first, emptySet(),
+      second, singleton(first),
+      third, singleton(first),
+      last, ImmutableSet.of(second, third)));
+
+    rootModuleExecutor.execute(context);
+
+    assertThat(executed).hasSize(4);
+    assertThat(executed.get(0)).isSameAs(first);
+    assertThat(executed.subList(1, 3)).containsOnly(second, third);
+    assertThat(executed.get(3)).isSameAs(last);
+  }
+
+  @Test
+  public void should_propagate_failure_of_sensor_executed_in_parallel() {
+    settings.setProperty(SensorsExecutor.PARALLEL_PROP_KEY, true);
+    settings.setProperty(SensorsExecutor.THREADS_PROP_KEY, 2);
+    Sensor failing = mock(Sensor.class);
+    doThrow(new IllegalArgumentException("boom")).when(failing).analyse(any(Project.class), any(SensorContext.class));
+    List<Sensor> sensors = Arrays.asList(failing, perModuleSensor);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(sensors);
+    when(selector.predecessors(sensors)).thenReturn(ImmutableMap.of(failing, emptySet(), perModuleSensor, singleton(failing)));
+
+    try {
+      subModuleExecutor.execute(context);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("boom");
+    }
+    assertThat(perModuleSensor.called).isFalse();
+  }
+
+  @Test
+  public void should_wait_for_interrupted_sensors_and_fire_their_end_events_on_failure() throws Exception {
+    settings.setProperty(SensorsExecutor.PARALLEL_PROP_KEY, true);
+    settings.setProperty(SensorsExecutor.THREADS_PROP_KEY, 2);
+    CountDownLatch slowStarted = new CountDownLatch(1);
+    AtomicBoolean slowStopped = new AtomicBoolean(false);
+    Sensor slow = new RecordingSensor(new CopyOnWriteArrayList<>()) {
+      @Override
+      public void analyse(Project module, SensorContext context) {
+        slowStarted.countDown();
+        try {
+          Thread.sleep(60_000L);
+        } catch (InterruptedException e) {
+          slowStopped.set(true);
+        }
+      }
+    };
+    Sensor failing = new RecordingSensor(new CopyOnWriteArrayList<>()) {
+      @Override
+      public void analyse(Project module, SensorContext context) {
+        try {
+          slowStarted.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        throw new IllegalArgumentException("boom");
+      }
+    };
+    List<Sensor> sensors = Arrays.asList(slow, failing);
+    when(selector.selectSensors(any(DefaultInputModule.class), eq(false))).thenReturn(sensors);
+    when(selector.predecessors(sensors)).thenReturn(ImmutableMap.of(slow, emptySet(), failing, emptySet()));
+    EventBus eventBus = mock(EventBus.class);
+    DefaultInputModule subModule = TestInputFileBuilder.newDefaultInputModule("sub2", temp.newFolder());
+    rootModule.definition().addSubProject(subModule.definition());
+
+    try {
+      new SensorsExecutor(selector, subModule, eventBus, strategy, settings).execute(context);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("boom");
+    }
+
+    assertThat(slowStopped.get()).isTrue();
+    ArgumentCaptor<BatchEvent> events = ArgumentCaptor.forClass(BatchEvent.class);
+    verify(eventBus, atLeastOnce()).fireEvent(events.capture());
+    assertThat(events.getAllValues().stream()
+      .filter(event -> event instanceof SensorExecutionEvent && ((SensorExecutionEvent) event).isEnd())
+      .map(event -> ((SensorExecutionEvent) event).getSensor())
+      .collect(Collectors.toList()))
+      .containsOnly(slow, failing);
+  }
+
+  static class RecordingSensor implements Sensor {
+    final List<Sensor> executed;
+
+    RecordingSensor(List<Sensor> executed) {
+      this.executed = executed;
+    }
+
+    @Override
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+
+    @Override
+    public void analyse(Project module, SensorContext context) {
+      executed.add(this);
+    }
+  }
 }
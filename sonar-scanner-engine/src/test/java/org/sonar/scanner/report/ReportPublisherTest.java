@@ -19,12 +19,15 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -39,15 +42,17 @@ import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
-import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.config.CorePropertyDefinitions;
 import org.sonar.scanner.analysis.DefaultAnalysisMode;
 import org.sonar.scanner.bootstrap.ScannerWsClient;
 import org.sonar.scanner.scan.ImmutableProjectReactor;
+import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.WsCe;
 import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -89,7 +94,7 @@ public class ReportPublisherTest {
 
   @Test
   public void log_and_dump_information_about_report_uploading() throws IOException {
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
     settings.setProperty(CoreProperties.PROJECT_ORGANIZATION_PROPERTY, "MyOrg");
 
     underTest.logSuccess("TASK-123");
@@ -112,7 +117,7 @@ public class ReportPublisherTest {
 
   @Test
   public void parse_upload_error_message() throws IOException {
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
     HttpException ex = new HttpException("url", 404, "{\"errors\":[{\"msg\":\"Organization with key 'MyOrg' does not exist\"}]}");
     WsResponse response = mock(WsResponse.class);
     when(response.failIfNotSuccessful()).thenThrow(ex);
@@ -120,13 +125,13 @@ public class ReportPublisherTest {
 
     exception.expect(MessageException.class);
     exception.expectMessage("Failed to upload report - 404: Organization with key 'MyOrg' does not exist");
-    underTest.upload(temp.newFile());
+    underTest.upload(temp.newFolder());
   }
 
   @Test
   public void log_public_url_if_defined() throws IOException {
     when(server.getPublicRootUrl()).thenReturn("https://publicserver/sonarqube");
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     underTest.logSuccess("TASK-123");
 
@@ -147,7 +152,7 @@ public class ReportPublisherTest {
   @Test
   public void fail_if_public_url_malformed() throws IOException {
     when(server.getPublicRootUrl()).thenReturn("invalid");
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     exception.expect(MessageException.class);
     exception.expectMessage("Failed to parse public URL set in SonarQube server: invalid");
@@ -156,7 +161,7 @@ public class ReportPublisherTest {
 
   @Test
   public void log_but_not_dump_information_when_report_is_not_uploaded() {
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     underTest.logSuccess(/* report not uploaded, no server task */null);
 
@@ -173,7 +178,7 @@ public class ReportPublisherTest {
     settings.setProperty("sonar.batch.keepReport", true);
     Path reportDir = temp.getRoot().toPath().resolve("batch-report");
     Files.createDirectory(reportDir);
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     underTest.start();
     underTest.stop();
@@ -184,7 +189,7 @@ public class ReportPublisherTest {
   public void should_delete_report_by_default() throws IOException {
     Path reportDir = temp.getRoot().toPath().resolve("batch-report");
     Files.createDirectory(reportDir);
-    ReportPublisher job = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher job = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     job.start();
     job.stop();
@@ -193,7 +198,7 @@ public class ReportPublisherTest {
 
   @Test
   public void test_ws_parameters() throws Exception {
-    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, mock(TempFolder.class), new ReportPublisherStep[0]);
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
 
     settings.setProperty(CoreProperties.PROJECT_ORGANIZATION_PROPERTY, "MyOrg");
 
@@ -208,7 +213,7 @@ public class ReportPublisherTest {
     when(response.contentStream()).thenReturn(in);
 
     when(wsClient.call(any(WsRequest.class))).thenReturn(response);
-    underTest.upload(temp.newFile());
+    underTest.upload(temp.newFolder());
 
     ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
     verify(wsClient).call(capture.capture());
@@ -219,4 +224,27 @@ public class ReportPublisherTest {
       entry("projectKey", "struts"));
   }
 
+  @Test
+  public void upload_report_dir_as_streamed_zip() throws Exception {
+    ReportPublisher underTest = new ReportPublisher(settings, wsClient, server, contextPublisher, reactor, mode, new ReportPublisherStep[0]);
+    File reportDir = temp.newFolder();
+    FileUtils.write(new File(reportDir, "metadata.pb"), "metadata");
+    WsResponse response = mock(WsResponse.class);
+    when(response.failIfNotSuccessful()).thenReturn(response);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(WsCe.SubmitResponse.newBuilder().setTaskId("TASK-1").build().toByteArray()));
+    when(wsClient.call(any(WsRequest.class))).thenReturn(response);
+
+    assertThat(underTest.upload(reportDir)).isEqualTo("TASK-1");
+
+    ArgumentCaptor<PostRequest> capture = ArgumentCaptor.forClass(PostRequest.class);
+    verify(wsClient).call(capture.capture());
+    PostRequest.Part part = capture.getValue().getParts().get("report");
+    assertThat(part.getMediaType()).isEqualTo(MediaTypes.ZIP);
+    assertThat(part.getFile()).isNull();
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    part.getContent().writeTo(zip);
+    File unzipped = ZipUtils.unzip(new ByteArrayInputStream(zip.toByteArray()), temp.newFolder());
+    assertThat(readFileToString(new File(unzipped, "metadata.pb"))).isEqualTo("metadata");
+  }
+
 }
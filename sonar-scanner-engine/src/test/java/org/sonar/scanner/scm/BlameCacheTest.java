@@ -0,0 +1,183 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.utils.System2;
+import org.sonar.home.cache.FileCache;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static final String REVISION = "6b3aab35a3ea32c1636fee56f996e677653c48ea";
+
+  private FileCache fileCache = mock(FileCache.class);
+  private MapSettings settings = new MapSettings();
+  private System2 system2 = mock(System2.class);
+
+  @Before
+  public void setUp() throws IOException {
+    when(fileCache.getDir()).thenReturn(temp.newFolder());
+    when(system2.now()).thenReturn(System.currentTimeMillis());
+    settings.setProperty(BlameCache.ENABLED_PROP_KEY, true);
+  }
+
+  @Test
+  public void store_and_load_changesets_without_component_ref() {
+    BlameCache cache = new BlameCache(fileCache, settings, system2);
+    DefaultInputFile file = newFile("src/Foo.java", "h1");
+
+    assertThat(cache.get("git", REVISION, "project", file)).isNull();
+    cache.put("git", REVISION, "project", file, changesets(42));
+
+    ScannerReport.Changesets cached = cache.get("git", REVISION, "project", file);
+    assertThat(cached.getComponentRef()).isEqualTo(0);
+    assertThat(cached.getChangesetIndexByLineList()).containsExactly(0, 0);
+    assertThat(cached.getChangeset(0).getRevision()).isEqualTo("abc");
+  }
+
+  @Test
+  public void miss_if_content_path_module_provider_or_revision_differ() {
+    BlameCache cache = new BlameCache(fileCache, settings, system2);
+    cache.put("git", REVISION, "project", newFile("src/Foo.java", "h1"), changesets(1));
+
+    assertThat(cache.get("git", REVISION, "project", newFile("src/Foo.java", "h2"))).isNull();
+    assertThat(cache.get("git", REVISION, "project", newFile("src/Bar.java", "h1"))).isNull();
+    assertThat(cache.get("git", REVISION, "other", newFile("src/Foo.java", "h1"))).isNull();
+    assertThat(cache.get("svn", REVISION, "project", newFile("src/Foo.java", "h1"))).isNull();
+    assertThat(cache.get("git", "0d9a7b52c1a4dc3ce1b8eda8e0a9b3e52ea5f0b1", "project", newFile("src/Foo.java", "h1"))).isNull();
+    assertThat(cache.get("git", REVISION, "project", newFile("src/Foo.java", "h1"))).isNotNull();
+  }
+
+  @Test
+  public void ignore_corrupted_entries() throws IOException {
+    BlameCache cache = new BlameCache(fileCache, settings, system2);
+    DefaultInputFile file = newFile("src/Foo.java", "h1");
+    cache.put("git", REVISION, "project", file, changesets(1));
+    for (File f : FileUtils.listFiles(fileCache.getDir(), null, true)) {
+      FileUtils.write(f, "not protobuf");
+    }
+
+    assertThat(cache.get("git", REVISION, "project", file)).isNull();
+  }
+
+  @Test
+  public void do_nothing_if_disabled() {
+    BlameCache cache = new BlameCache(fileCache, new MapSettings(), system2);
+    DefaultInputFile file = newFile("src/Foo.java", "h1");
+    cache.put("git", REVISION, "project", file, changesets(1));
+
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.get("git", REVISION, "project", file)).isNull();
+    assertThat(fileCache.getDir().list()).isEmpty();
+  }
+
+  @Test
+  public void purge_entries_not_used_since_max_age() throws IOException {
+    settings.setProperty(BlameCache.MAX_AGE_PROP_KEY, 10);
+    BlameCache cache = new BlameCache(fileCache, settings, system2);
+    DefaultInputFile used = newFile("src/Foo.java", "h1");
+    DefaultInputFile unused = newFile("src/Bar.java", "h1");
+    cache.put("git", REVISION, "project", used, changesets(1));
+    cache.put("git", REVISION, "project", unused, changesets(2));
+    for (File f : FileUtils.listFiles(fileCache.getDir(), null, true)) {
+      f.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(20));
+    }
+    // reading an entry keeps it in cache
+    assertThat(cache.get("git", REVISION, "project", used)).isNotNull();
+
+    cache.purgeOldEntries();
+
+    assertThat(cache.get("git", REVISION, "project", used)).isNotNull();
+    assertThat(cache.get("git", REVISION, "project", unused)).isNull();
+  }
+
+  @Test
+  public void resolve_detached_head_revision_from_parent_directory() throws IOException {
+    File repo = temp.newFolder();
+    FileUtils.write(new File(repo, ".git/HEAD"), REVISION + "\n");
+    File moduleDir = new File(repo, "module");
+    moduleDir.mkdirs();
+
+    assertThat(new BlameCache(fileCache, settings, system2).headRevision(moduleDir)).isEqualTo(REVISION);
+  }
+
+  @Test
+  public void resolve_head_revision_from_loose_or_packed_ref() throws IOException {
+    File repo = temp.newFolder();
+    FileUtils.write(new File(repo, ".git/HEAD"), "ref: refs/heads/feature\n");
+    FileUtils.write(new File(repo, ".git/packed-refs"), "# pack-refs with: peeled fully-peeled\n" + REVISION + " refs/heads/feature\n");
+    BlameCache cache = new BlameCache(fileCache, settings, system2);
+
+    assertThat(cache.headRevision(repo)).isEqualTo(REVISION);
+
+    FileUtils.write(new File(repo, ".git/refs/heads/feature"), "0d9a7b52c1a4dc3ce1b8eda8e0a9b3e52ea5f0b1\n");
+    assertThat(cache.headRevision(repo)).isEqualTo("0d9a7b52c1a4dc3ce1b8eda8e0a9b3e52ea5f0b1");
+  }
+
+  @Test
+  public void resolve_head_revision_of_worktree() throws IOException {
+    File gitDir = temp.newFolder();
+    FileUtils.write(new File(gitDir, "HEAD"), REVISION + "\n");
+    File worktree = temp.newFolder();
+    FileUtils.write(new File(worktree, ".git"), "gitdir: " + gitDir.getAbsolutePath() + "\n");
+
+    assertThat(new BlameCache(fileCache, settings, system2).headRevision(worktree)).isEqualTo(REVISION);
+  }
+
+  @Test
+  public void no_revision_out_of_git_repository_or_if_disabled() throws IOException {
+    File repo = temp.newFolder();
+    FileUtils.write(new File(repo, ".git/HEAD"), REVISION + "\n");
+
+    assertThat(new BlameCache(fileCache, settings, system2).headRevision(temp.newFolder())).isNull();
+    assertThat(new BlameCache(fileCache, new MapSettings(), system2).headRevision(repo)).isNull();
+  }
+
+  private static DefaultInputFile newFile(String path, String hash) {
+    return new TestInputFileBuilder("foo", path).setLines(2).setHash(hash).build();
+  }
+
+  private static ScannerReport.Changesets changesets(int ref) {
+    return ScannerReport.Changesets.newBuilder()
+      .setComponentRef(ref)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setRevision("abc").setAuthor("foo").setDate(1_000L))
+      .addChangesetIndexByLine(0)
+      .addChangesetIndexByLine(0)
+      .build();
+  }
+}
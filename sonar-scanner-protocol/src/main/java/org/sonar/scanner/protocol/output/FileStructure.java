@@ -22,31 +22,53 @@ package org.sonar.scanner.protocol.output;
 import java.io.File;
 
 /**
- * Structure of files in the zipped report
+ * Structure of files in the zipped report.
+ * <p>
+ * Since {@link #SEGMENTED_FORMAT_VERSION}, the data of the {@link Domain#isSegmented() segmented} domains
+ * is not stored in one file per component anymore but is appended to a single segment file per domain.
+ * The companion index file lists, for each chunk of the segment, the component ref, the offset and the length
+ * in bytes, and whether the chunk replaces the previous chunks of the component. Other domains keep the historical
+ * layout of one file per component.
  */
 public class FileStructure {
 
+  /**
+   * Version of the report layout, as stored in {@link ScannerReport.Metadata#getReportFormatVersion()}.
+   * Zero means that all the domains are stored in one file per component.
+   */
+  public static final int SEGMENTED_FORMAT_VERSION = 1;
+
   public enum Domain {
-    ISSUES("issues-", Domain.PB),
-    COMPONENT("component-", Domain.PB),
-    MEASURES("measures-", Domain.PB),
-    DUPLICATIONS("duplications-", Domain.PB),
-    CPD_TEXT_BLOCKS("cpd-text-block-", Domain.PB),
-    SYNTAX_HIGHLIGHTINGS("syntax-highlightings-", Domain.PB),
-    CHANGESETS("changesets-", Domain.PB),
-    SYMBOLS("symbols-", Domain.PB),
-    COVERAGES("coverages-", Domain.PB),
-    TESTS("tests-", Domain.PB),
-    COVERAGE_DETAILS("coverage-details-", Domain.PB),
-    SOURCE("source-", ".txt");
+    ISSUES("issues-", Domain.PB, true),
+    COMPONENT("component-", Domain.PB, true),
+    MEASURES("measures-", Domain.PB, true),
+    DUPLICATIONS("duplications-", Domain.PB, true),
+    CPD_TEXT_BLOCKS("cpd-text-block-", Domain.PB, true),
+    SYNTAX_HIGHLIGHTINGS("syntax-highlightings-", Domain.PB, true),
+    CHANGESETS("changesets-", Domain.PB, true),
+    SYMBOLS("symbols-", Domain.PB, true),
+    COVERAGES("coverages-", Domain.PB, true),
+    TESTS("tests-", Domain.PB, false),
+    COVERAGE_DETAILS("coverage-details-", Domain.PB, false),
+    SOURCE("source-", ".txt", false);
 
     private static final String PB = ".pb";
     private final String filePrefix;
     private final String fileSuffix;
+    private final boolean segmented;
 
-    Domain(String filePrefix, String fileSuffix) {
+    Domain(String filePrefix, String fileSuffix, boolean segmented) {
       this.filePrefix = filePrefix;
       this.fileSuffix = fileSuffix;
+      this.segmented = segmented;
+    }
+
+    /**
+     * Whether the data of this domain is appended to a segment file instead of being
+     * written in one file per component.
+     */
+    public boolean isSegmented() {
+      return segmented;
     }
   }
 
@@ -75,6 +97,14 @@ public class FileStructure {
     return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
   }
 
+  public File segmentFor(Domain domain) {
+    return new File(dir, domain.filePrefix + "segment" + domain.fileSuffix);
+  }
+
+  public File segmentIndexFor(Domain domain) {
+    return new File(dir, domain.filePrefix + "segment.idx");
+  }
+
   public File contextProperties() {
     return new File(dir, "context-props.pb");
   }
@@ -19,16 +19,31 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.Closeable;
 import java.io.File;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
 
 import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
 
-public class ScannerReportReader {
+/**
+ * Reads the reports generated by {@link ScannerReportWriter}, including the legacy layout of one file per component.
+ * The layout is given by {@link ScannerReport.Metadata#getReportFormatVersion()}. As metadata is written last,
+ * a report without metadata is being generated by the current writer and has the segmented layout.
+ * The index of a segmented domain is loaded on first access, so data written afterwards is not visible to this reader.
+ * The reader must be closed to release the handles of segment files.
+ */
+public class ScannerReportReader implements Closeable {
 
   private final FileStructure fileStructure;
+  private final Map<FileStructure.Domain, SegmentReader> segments = new EnumMap<>(FileStructure.Domain.class);
+  private Boolean segmentedLayout;
 
   public ScannerReportReader(File dir) {
     this.fileStructure = new FileStructure(dir);
@@ -51,86 +66,52 @@ public class ScannerReportReader {
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.MEASURES, componentRef, ScannerReport.Measure.parser());
   }
 
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
-    }
-    return null;
+    return readSingle(FileStructure.Domain.CHANGESETS, componentRef, ScannerReport.Changesets.parser());
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
-    if (!fileExists(file)) {
-      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
+    ScannerReport.Component component = readSingle(FileStructure.Domain.COMPONENT, componentRef, ScannerReport.Component.parser());
+    if (component == null) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + " in " + fileStructure.root());
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return component;
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.ISSUES, componentRef, ScannerReport.Issue.parser());
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.DUPLICATIONS, componentRef, ScannerReport.Duplication.parser());
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, ScannerReport.CpdTextBlock.parser());
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.SYMBOLS, componentRef, ScannerReport.Symbol.parser());
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return hasData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   public boolean hasCoverage(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return hasData(FileStructure.Domain.COVERAGES, componentRef);
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
-    }
-    return emptyCloseableIterator();
+    return readStream(FileStructure.Domain.COVERAGES, fileRef, ScannerReport.LineCoverage.parser());
   }
 
   @CheckForNull
@@ -170,6 +151,84 @@ public class ScannerReportReader {
     return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
   }
 
+  private boolean hasData(FileStructure.Domain domain, int componentRef) {
+    SegmentReader segment = segment(domain);
+    if (segment != null) {
+      return segment.contains(componentRef);
+    }
+    return fileStructure.fileFor(domain, componentRef).exists();
+  }
+
+  private <M extends Message> CloseableIterator<M> readStream(FileStructure.Domain domain, int componentRef, Parser<M> parser) {
+    SegmentReader segment = segment(domain);
+    if (segment != null) {
+      InputStream input = segment.open(componentRef);
+      return input == null ? emptyCloseableIterator() : Protobuf.readStream(input, parser);
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (fileExists(file)) {
+      return Protobuf.readStream(file, parser);
+    }
+    return emptyCloseableIterator();
+  }
+
+  /**
+   * Single messages are length-delimited in segments, but not in the legacy files.
+   */
+  @CheckForNull
+  private <M extends Message> M readSingle(FileStructure.Domain domain, int componentRef, Parser<M> parser) {
+    SegmentReader segment = segment(domain);
+    if (segment != null) {
+      InputStream input = segment.open(componentRef);
+      if (input == null) {
+        return null;
+      }
+      try (CloseableIterator<M> it = Protobuf.readStream(input, parser)) {
+        return it.hasNext() ? it.next() : null;
+      }
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (fileExists(file)) {
+      return Protobuf.read(file, parser);
+    }
+    return null;
+  }
+
+  /**
+   * @return null if the domain is stored in one file per component
+   */
+  @CheckForNull
+  private synchronized SegmentReader segment(FileStructure.Domain domain) {
+    if (!domain.isSegmented() || !isSegmentedLayout()) {
+      return null;
+    }
+    SegmentReader segment = segments.get(domain);
+    if (segment == null) {
+      File indexFile = fileStructure.segmentIndexFor(domain);
+      if (!fileExists(indexFile)) {
+        // no data has been written in the domain yet
+        return SegmentReader.EMPTY;
+      }
+      segment = new SegmentReader(fileStructure.segmentFor(domain), indexFile);
+      segments.put(domain, segment);
+    }
+    return segment;
+  }
+
+  private boolean isSegmentedLayout() {
+    if (segmentedLayout == null) {
+      segmentedLayout = !fileExists(fileStructure.metadataFile())
+        || readMetadata().getReportFormatVersion() >= FileStructure.SEGMENTED_FORMAT_VERSION;
+    }
+    return segmentedLayout;
+  }
+
+  @Override
+  public synchronized void close() {
+    segments.values().forEach(SegmentReader::close);
+    segments.clear();
+  }
+
   private static boolean fileExists(File file) {
     return file.exists() && file.isFile();
   }
@@ -19,22 +19,38 @@
  */
 package org.sonar.scanner.protocol.output;
 
-import java.io.BufferedOutputStream;
+import com.google.protobuf.Message;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStream;
-import org.sonar.core.util.ContextException;
+import java.util.EnumMap;
+import java.util.Map;
 import org.sonar.core.util.Protobuf;
 
-public class ScannerReportWriter {
+import static java.util.Collections.singletonList;
+
+/**
+ * Writes the analysis report. Data of {@link FileStructure.Domain#isSegmented() segmented} domains
+ * is appended to long-lived buffered streams, one per domain. Messages written by the
+ * {@code writeXxx} methods are flushed straight away, whereas issues added with
+ * {@link #appendComponentIssue(int, ScannerReport.Issue)} are buffered until {@link #flush()} or
+ * {@link #close()} is called. The writer must be closed before the report directory is compressed.
+ * Writes of a given domain are serialized, so the writer can be shared by several threads.
+ */
+public class ScannerReportWriter implements Closeable {
 
   private final FileStructure fileStructure;
+  private final Map<FileStructure.Domain, SegmentWriter> segments = new EnumMap<>(FileStructure.Domain.class);
 
   public ScannerReportWriter(File dir) {
     if (!dir.exists() && !dir.mkdirs()) {
       throw new IllegalStateException("Unable to create directory: " + dir);
     }
     this.fileStructure = new FileStructure(dir);
+    for (FileStructure.Domain domain : FileStructure.Domain.values()) {
+      if (domain.isSegmented()) {
+        segments.put(domain, new SegmentWriter(fileStructure.segmentFor(domain), fileStructure.segmentIndexFor(domain)));
+      }
+    }
   }
 
   public FileStructure getFileStructure() {
@@ -42,6 +58,9 @@ public class ScannerReportWriter {
   }
 
   public boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    if (domain.isSegmented()) {
+      return segments.get(domain).contains(componentRef);
+    }
     File file = fileStructure.fileFor(domain, componentRef);
     return file.exists() && file.isFile();
   }
@@ -50,7 +69,10 @@ public class ScannerReportWriter {
    * Metadata is mandatory
    */
   public File writeMetadata(ScannerReport.Metadata metadata) {
-    Protobuf.write(metadata, fileStructure.metadataFile());
+    ScannerReport.Metadata versioned = metadata.toBuilder()
+      .setReportFormatVersion(FileStructure.SEGMENTED_FORMAT_VERSION)
+      .build();
+    Protobuf.write(versioned, fileStructure.metadataFile());
     return fileStructure.metadataFile();
   }
 
@@ -60,66 +82,46 @@ public class ScannerReportWriter {
   }
 
   public File writeComponent(ScannerReport.Component component) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, component.getRef());
-    Protobuf.write(component, file);
-    return file;
+    return writeSegment(FileStructure.Domain.COMPONENT, component.getRef(), singletonList(component));
   }
 
   public File writeComponentIssues(int componentRef, Iterable<ScannerReport.Issue> issues) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    Protobuf.writeStream(issues, file, false);
-    return file;
+    return writeSegment(FileStructure.Domain.ISSUES, componentRef, issues);
   }
 
+  /**
+   * The issue is buffered. Call {@link #flush()} before reading the issues of the report.
+   */
   public void appendComponentIssue(int componentRef, ScannerReport.Issue issue) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      issue.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write issue", e).addContext("file", file);
-    }
+    segments.get(FileStructure.Domain.ISSUES).append(componentRef, issue);
   }
 
   public File writeComponentMeasures(int componentRef, Iterable<ScannerReport.Measure> measures) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    Protobuf.writeStream(measures, file, false);
-    return file;
+    return writeSegment(FileStructure.Domain.MEASURES, componentRef, measures);
   }
 
   public File writeComponentChangesets(ScannerReport.Changesets changesets) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, changesets.getComponentRef());
-    Protobuf.write(changesets, file);
-    return file;
+    return writeSegment(FileStructure.Domain.CHANGESETS, changesets.getComponentRef(), singletonList(changesets));
   }
 
   public File writeComponentDuplications(int componentRef, Iterable<ScannerReport.Duplication> duplications) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    Protobuf.writeStream(duplications, file, false);
-    return file;
+    return writeSegment(FileStructure.Domain.DUPLICATIONS, componentRef, duplications);
   }
 
   public File writeCpdTextBlocks(int componentRef, Iterable<ScannerReport.CpdTextBlock> blocks) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    Protobuf.writeStream(blocks, file, false);
-    return file;
+    return writeSegment(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, blocks);
   }
 
   public File writeComponentSymbols(int componentRef, Iterable<ScannerReport.Symbol> symbols) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    Protobuf.writeStream(symbols, file, false);
-    return file;
+    return writeSegment(FileStructure.Domain.SYMBOLS, componentRef, symbols);
   }
 
   public File writeComponentSyntaxHighlighting(int componentRef, Iterable<ScannerReport.SyntaxHighlightingRule> syntaxHighlightingRules) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    Protobuf.writeStream(syntaxHighlightingRules, file, false);
-    return file;
+    return writeSegment(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef, syntaxHighlightingRules);
   }
 
   public File writeComponentCoverage(int componentRef, Iterable<ScannerReport.LineCoverage> coverageList) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    Protobuf.writeStream(coverageList, file, false);
-    return file;
+    return writeSegment(FileStructure.Domain.COVERAGES, componentRef, coverageList);
   }
 
   public File writeTests(int componentRef, Iterable<ScannerReport.Test> tests) {
@@ -144,4 +146,24 @@ public class ScannerReportWriter {
     return fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
   }
 
+  /**
+   * Flushes the buffered data, so that it is visible to the {@link ScannerReportReader}s created afterwards.
+   */
+  public void flush() {
+    segments.values().forEach(SegmentWriter::flush);
+  }
+
+  /**
+   * Flushes and releases the file handles. Data written afterwards is appended to the existing segments.
+   */
+  @Override
+  public void close() {
+    segments.values().forEach(SegmentWriter::close);
+  }
+
+  private File writeSegment(FileStructure.Domain domain, int componentRef, Iterable<? extends Message> messages) {
+    segments.get(domain).write(componentRef, messages);
+    return fileStructure.segmentFor(domain);
+  }
+
 }
@@ -0,0 +1,196 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.IOUtils;
+import org.sonar.core.util.ContextException;
+
+/**
+ * Random access to the chunks of a segment file, as listed by its index file. The index is
+ * loaded once, so data appended afterwards by a {@link SegmentWriter} is not visible.
+ * <p>
+ * All the streams share the same file channel, which is opened on first read and released by {@link #close()}.
+ * Positional reads do not change the position of the channel, so streams can be read concurrently.
+ */
+class SegmentReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Segment of a domain in which no data has been written
+   */
+  static final SegmentReader EMPTY = new SegmentReader();
+
+  private final File segmentFile;
+  private final Map<Integer, List<Chunk>> chunksByRef = new HashMap<>();
+
+  @CheckForNull
+  private RandomAccessFile randomAccessFile;
+
+  SegmentReader(File segmentFile, File indexFile) {
+    this.segmentFile = segmentFile;
+    loadIndex(indexFile);
+  }
+
+  private SegmentReader() {
+    this.segmentFile = null;
+  }
+
+  boolean contains(int componentRef) {
+    return chunksByRef.containsKey(componentRef);
+  }
+
+  /**
+   * Stream of the length-delimited messages of the component, or {@code null} if the
+   * component has no data in this segment. The stream must be closed by caller.
+   */
+  @CheckForNull
+  InputStream open(int componentRef) {
+    List<Chunk> chunks = chunksByRef.get(componentRef);
+    if (chunks == null) {
+      return null;
+    }
+    return new BufferedInputStream(new ChunksInputStream(channel(), chunks), BUFFER_SIZE);
+  }
+
+  private synchronized FileChannel channel() {
+    if (randomAccessFile == null) {
+      try {
+        randomAccessFile = new RandomAccessFile(segmentFile, "r");
+      } catch (IOException e) {
+        throw ContextException.of("Unable to open segment", e).addContext("file", segmentFile);
+      }
+    }
+    return randomAccessFile.getChannel();
+  }
+
+  /**
+   * Releases the file handle. Streams opened before must not be read anymore.
+   */
+  @Override
+  public synchronized void close() {
+    IOUtils.closeQuietly(randomAccessFile);
+    randomAccessFile = null;
+  }
+
+  private void loadIndex(File indexFile) {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+      while (true) {
+        int ref;
+        try {
+          ref = input.readInt();
+        } catch (EOFException e) {
+          break;
+        }
+        Chunk chunk = new Chunk(input.readLong(), input.readLong());
+        boolean replaces = input.readBoolean();
+        List<Chunk> chunks = chunksByRef.computeIfAbsent(ref, k -> new ArrayList<>(1));
+        if (replaces) {
+          // last write of a component wins
+          chunks.clear();
+        }
+        chunks.add(chunk);
+      }
+    } catch (IOException e) {
+      throw ContextException.of("Unable to read segment index", e).addContext("file", indexFile);
+    }
+  }
+
+  private static class Chunk {
+    private final long offset;
+    private final long length;
+
+    private Chunk(long offset, long length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Concatenation of chunks, read with positional reads on the shared channel. Closing the stream
+   * does not close the channel.
+   */
+  private static class ChunksInputStream extends InputStream {
+    private final FileChannel channel;
+    private final List<Chunk> chunks;
+    private int chunkIndex = 0;
+    private long position;
+    private long remaining;
+
+    private ChunksInputStream(FileChannel channel, List<Chunk> chunks) {
+      this.channel = channel;
+      this.chunks = chunks;
+      selectChunk();
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int read = read(b, 0, 1);
+      return read < 0 ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (remaining == 0) {
+        chunkIndex++;
+        if (chunkIndex >= chunks.size()) {
+          return -1;
+        }
+        selectChunk();
+      }
+      int toRead = (int) Math.min(len, remaining);
+      int read = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of segment");
+      }
+      position += read;
+      remaining -= read;
+      return read;
+    }
+
+    private void selectChunk() {
+      if (chunkIndex < chunks.size()) {
+        Chunk chunk = chunks.get(chunkIndex);
+        position = chunk.offset;
+        remaining = chunk.length;
+      }
+    }
+  }
+}
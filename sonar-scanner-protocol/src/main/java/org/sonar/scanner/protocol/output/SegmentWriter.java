@@ -0,0 +1,176 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import com.google.protobuf.Message;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.IOUtils;
+import org.sonar.core.util.ContextException;
+
+/**
+ * Appends the length-delimited messages of a domain to its segment file and records the chunks
+ * (component ref, offset, length, replace flag) in the index file. Consecutive messages of the same component are
+ * coalesced into a single chunk. Like the historical files of one component, {@link #write(int, Iterable)} replaces
+ * the data previously written for the component, whereas {@link #append(int, Message)} adds to it. Streams are kept open until {@link #close()}, and are reopened
+ * in append mode if data is written afterwards. Methods are thread-safe.
+ */
+class SegmentWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File segmentFile;
+  private final File indexFile;
+  private final Set<Integer> refs = new HashSet<>();
+
+  @CheckForNull
+  private CountingOutputStream data;
+  @CheckForNull
+  private DataOutputStream index;
+
+  private boolean created = false;
+  private int chunkRef = -1;
+  private long chunkOffset;
+  private boolean chunkReplaces;
+
+  SegmentWriter(File segmentFile, File indexFile) {
+    this.segmentFile = segmentFile;
+    this.indexFile = indexFile;
+  }
+
+  synchronized boolean contains(int componentRef) {
+    return refs.contains(componentRef);
+  }
+
+  synchronized void append(int componentRef, Message message) {
+    try {
+      startChunk(componentRef, false);
+      message.writeDelimitedTo(data);
+    } catch (IOException e) {
+      throw ContextException.of("Unable to write message", e).addContext("file", segmentFile);
+    }
+  }
+
+  /**
+   * Writes all the messages of a component and flushes them, so that they are visible to readers.
+   * The messages replace the ones previously written or appended for the component.
+   * The component is registered even if {@code messages} is empty.
+   */
+  synchronized void write(int componentRef, Iterable<? extends Message> messages) {
+    try {
+      startChunk(componentRef, true);
+      for (Message message : messages) {
+        message.writeDelimitedTo(data);
+      }
+    } catch (IOException e) {
+      throw ContextException.of("Unable to write messages", e).addContext("file", segmentFile);
+    }
+    flush();
+  }
+
+  synchronized void flush() {
+    if (data == null) {
+      return;
+    }
+    try {
+      endChunk();
+      data.flush();
+      index.flush();
+    } catch (IOException e) {
+      throw ContextException.of("Unable to flush segment", e).addContext("file", segmentFile);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (data == null) {
+      return;
+    }
+    try {
+      flush();
+    } finally {
+      IOUtils.closeQuietly(data);
+      IOUtils.closeQuietly(index);
+      data = null;
+      index = null;
+    }
+  }
+
+  private void startChunk(int componentRef, boolean replaces) throws IOException {
+    if (data == null) {
+      open();
+    }
+    if (replaces || componentRef != chunkRef) {
+      endChunk();
+      chunkRef = componentRef;
+      chunkOffset = data.count;
+      chunkReplaces = replaces;
+      refs.add(componentRef);
+    }
+  }
+
+  private void endChunk() throws IOException {
+    if (chunkRef >= 0) {
+      index.writeInt(chunkRef);
+      index.writeLong(chunkOffset);
+      index.writeLong(data.count - chunkOffset);
+      index.writeBoolean(chunkReplaces);
+      chunkRef = -1;
+    }
+  }
+
+  private void open() throws IOException {
+    // files left by a previous execution are overwritten, then data is appended
+    boolean append = created;
+    data = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(segmentFile, append), BUFFER_SIZE), append ? segmentFile.length() : 0L);
+    index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, append)));
+    created = true;
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    CountingOutputStream(OutputStream out, long initialCount) {
+      super(out);
+      this.count = initialCount;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
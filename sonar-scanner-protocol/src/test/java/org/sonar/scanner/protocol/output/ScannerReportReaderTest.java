@@ -30,6 +30,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
 import org.sonar.scanner.protocol.output.ScannerReport.Measure.StringValue;
 import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType;
 import org.sonar.scanner.protocol.output.ScannerReport.Test.TestStatus;
@@ -377,4 +378,73 @@ public class ScannerReportReaderTest {
   public void return_null_when_no_file_source() throws Exception {
     assertThat(underTest.readFileSource(UNKNOWN_COMPONENT_REF)).isNull();
   }
+
+  @Test
+  public void read_report_with_one_file_per_component() {
+    FileStructure fileStructure = new FileStructure(dir);
+    Protobuf.write(ScannerReport.Component.newBuilder().setRef(1).setPath("src/Foo.java").build(), fileStructure.fileFor(FileStructure.Domain.COMPONENT, 1));
+    Protobuf.write(ScannerReport.Changesets.newBuilder().setComponentRef(1).build(), fileStructure.fileFor(FileStructure.Domain.CHANGESETS, 1));
+    Protobuf.writeStream(asList(ScannerReport.Issue.getDefaultInstance(), ScannerReport.Issue.getDefaultInstance()),
+      fileStructure.fileFor(FileStructure.Domain.ISSUES, 1), false);
+    Protobuf.writeStream(singletonList(ScannerReport.LineCoverage.getDefaultInstance()), fileStructure.fileFor(FileStructure.Domain.COVERAGES, 1), false);
+
+    assertThat(underTest.readComponent(1).getPath()).isEqualTo("src/Foo.java");
+    assertThat(underTest.readChangesets(1).getComponentRef()).isEqualTo(1);
+    assertThat(underTest.readChangesets(2)).isNull();
+    assertThat(underTest.readComponentIssues(1)).hasSize(2);
+    assertThat(underTest.hasCoverage(1)).isTrue();
+    assertThat(underTest.hasCoverage(2)).isFalse();
+    assertThat(underTest.readComponentCoverage(1)).hasSize(1);
+  }
+
+  @Test
+  public void read_chunks_of_segment_in_write_order() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("first").build());
+    writer.appendComponentIssue(2, ScannerReport.Issue.newBuilder().setMsg("other").build());
+    writer.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("second").build());
+    writer.close();
+
+    try (CloseableIterator<ScannerReport.Issue> it = underTest.readComponentIssues(1)) {
+      assertThat(it.next().getMsg()).isEqualTo("first");
+      assertThat(it.next().getMsg()).isEqualTo("second");
+      assertThat(it.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  public void read_legacy_layout_of_one_file_per_component() {
+    Protobuf.write(ScannerReport.Metadata.newBuilder().setReportFormatVersion(0).build(), new FileStructure(dir).metadataFile());
+    Protobuf.writeStream(singletonList(ScannerReport.Issue.newBuilder().setMsg("legacy").build()),
+      new FileStructure(dir).fileFor(FileStructure.Domain.ISSUES, 1), false);
+
+    try (CloseableIterator<ScannerReport.Issue> it = underTest.readComponentIssues(1)) {
+      assertThat(it.next().getMsg()).isEqualTo("legacy");
+      assertThat(it.hasNext()).isFalse();
+    }
+    assertThat(underTest.readComponentIssues(2)).isEmpty();
+  }
+
+  @Test
+  public void ignore_segments_of_legacy_layout() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponentIssues(1, singletonList(ScannerReport.Issue.newBuilder().setMsg("segmented").build()));
+    writer.close();
+    Protobuf.write(ScannerReport.Metadata.newBuilder().setReportFormatVersion(0).build(), new FileStructure(dir).metadataFile());
+
+    assertThat(underTest.readComponentIssues(1)).isEmpty();
+  }
+
+  @Test
+  public void segments_can_be_read_again_after_close() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponentIssues(1, singletonList(ScannerReport.Issue.newBuilder().setMsg("first").build()));
+    writer.writeComponentIssues(2, singletonList(ScannerReport.Issue.newBuilder().setMsg("second").build()));
+    writer.close();
+
+    assertThat(underTest.readComponentIssues(1)).hasSize(1);
+    underTest.close();
+    assertThat(underTest.readComponentIssues(2)).hasSize(1);
+    underTest.close();
+  }
 }
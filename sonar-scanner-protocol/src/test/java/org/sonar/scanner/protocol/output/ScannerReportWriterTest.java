@@ -21,6 +21,7 @@ package org.sonar.scanner.protocol.output;
 
 import com.google.common.collect.Iterators;
 import java.io.File;
+import java.util.Collections;
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
@@ -65,6 +66,7 @@ public class ScannerReportWriterTest {
     underTest.writeMetadata(metadata.build());
 
     ScannerReport.Metadata read = Protobuf.read(underTest.getFileStructure().metadataFile(), ScannerReport.Metadata.parser());
+    assertThat(read.getReportFormatVersion()).isEqualTo(FileStructure.SEGMENTED_FORMAT_VERSION);
     assertThat(read.getAnalysisDate()).isEqualTo(15000000L);
     assertThat(read.getProjectKey()).isEqualTo("PROJECT_A");
     assertThat(read.getRootComponentRef()).isEqualTo(1);
@@ -87,9 +89,9 @@ public class ScannerReportWriterTest {
     underTest.writeComponent(component.build());
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
-    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.COMPONENT, 1);
-    assertThat(file).exists().isFile();
-    ScannerReport.Component read = Protobuf.read(file, ScannerReport.Component.parser());
+    assertThat(underTest.getFileStructure().segmentFor(FileStructure.Domain.COMPONENT)).exists().isFile();
+    assertThat(underTest.getFileStructure().fileFor(FileStructure.Domain.COMPONENT, 1)).doesNotExist();
+    ScannerReport.Component read = new ScannerReportReader(dir).readComponent(1);
     assertThat(read.getRef()).isEqualTo(1);
     assertThat(read.getChildRefList()).containsOnly(5, 42);
     assertThat(read.getName()).isEmpty();
@@ -109,9 +111,7 @@ public class ScannerReportWriterTest {
     underTest.writeComponentIssues(1, asList(issue));
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.ISSUES, 1)).isTrue();
-    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.ISSUES, 1);
-    assertThat(file).exists().isFile();
-    try (CloseableIterator<ScannerReport.Issue> read = Protobuf.readStream(file, ScannerReport.Issue.parser())) {
+    try (CloseableIterator<ScannerReport.Issue> read = new ScannerReportReader(dir).readComponentIssues(1)) {
       assertThat(Iterators.size(read)).isEqualTo(1);
     }
   }
@@ -127,9 +127,7 @@ public class ScannerReportWriterTest {
     underTest.writeComponentMeasures(1, asList(measure));
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.MEASURES, 1)).isTrue();
-    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.MEASURES, 1);
-    assertThat(file).exists().isFile();
-    try (CloseableIterator<ScannerReport.Measure> read = Protobuf.readStream(file, ScannerReport.Measure.parser())) {
+    try (CloseableIterator<ScannerReport.Measure> read = new ScannerReportReader(dir).readComponentMeasures(1)) {
       assertThat(Iterators.size(read)).isEqualTo(1);
     }
   }
@@ -150,9 +148,7 @@ public class ScannerReportWriterTest {
     underTest.writeComponentChangesets(scm);
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.CHANGESETS, 1)).isTrue();
-    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.CHANGESETS, 1);
-    assertThat(file).exists().isFile();
-    ScannerReport.Changesets read = Protobuf.read(file, ScannerReport.Changesets.parser());
+    ScannerReport.Changesets read = new ScannerReportReader(dir).readChangesets(1);
     assertThat(read.getComponentRef()).isEqualTo(1);
     assertThat(read.getChangesetCount()).isEqualTo(1);
     assertThat(read.getChangesetList()).hasSize(1);
@@ -179,9 +175,7 @@ public class ScannerReportWriterTest {
     underTest.writeComponentDuplications(1, asList(duplication));
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.DUPLICATIONS, 1)).isTrue();
-    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.DUPLICATIONS, 1);
-    assertThat(file).exists().isFile();
-    try (CloseableIterator<ScannerReport.Duplication> duplications = Protobuf.readStream(file, ScannerReport.Duplication.parser())) {
+    try (CloseableIterator<ScannerReport.Duplication> duplications = new ScannerReportReader(dir).readComponentDuplications(1)) {
       ScannerReport.Duplication dup = duplications.next();
       assertThat(dup.getOriginPosition()).isNotNull();
       assertThat(dup.getDuplicateList()).hasSize(1);
@@ -202,9 +196,7 @@ public class ScannerReportWriterTest {
     underTest.writeCpdTextBlocks(1, asList(duplicationBlock));
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.CPD_TEXT_BLOCKS, 1)).isTrue();
-    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, 1);
-    assertThat(file).exists().isFile();
-    try (CloseableIterator<ScannerReport.CpdTextBlock> duplicationBlocks = Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser())) {
+    try (CloseableIterator<ScannerReport.CpdTextBlock> duplicationBlocks = new ScannerReportReader(dir).readCpdTextBlocks(1)) {
       ScannerReport.CpdTextBlock duplicationBlockResult = duplicationBlocks.next();
       assertThat(duplicationBlockResult.getHash()).isEqualTo("abcdefghijklmnop");
       assertThat(duplicationBlockResult.getStartLine()).isEqualTo(1);
@@ -239,9 +231,7 @@ public class ScannerReportWriterTest {
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.SYMBOLS, 1)).isTrue();
 
-    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.SYMBOLS, 1);
-    assertThat(file).exists().isFile();
-    try (CloseableIterator<ScannerReport.Symbol> read = Protobuf.readStream(file, ScannerReport.Symbol.parser())) {
+    try (CloseableIterator<ScannerReport.Symbol> read = new ScannerReportReader(dir).readComponentSymbols(1)) {
       assertThat(read).hasSize(1);
     }
   }
@@ -299,4 +289,79 @@ public class ScannerReportWriterTest {
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.COVERAGE_DETAILS, 1)).isTrue();
   }
+
+  @Test
+  public void appended_issues_are_visible_after_flush() {
+    ScannerReport.Issue issue = ScannerReport.Issue.newBuilder().setMsg("the message").build();
+    underTest.appendComponentIssue(1, issue);
+    underTest.appendComponentIssue(2, issue);
+    underTest.appendComponentIssue(1, issue);
+
+    assertThat(underTest.hasComponentData(FileStructure.Domain.ISSUES, 1)).isTrue();
+    assertThat(underTest.hasComponentData(FileStructure.Domain.ISSUES, 3)).isFalse();
+
+    underTest.flush();
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    assertThat(reader.readComponentIssues(1)).hasSize(2);
+    assertThat(reader.readComponentIssues(2)).hasSize(1);
+    assertThat(reader.readComponentIssues(3)).isEmpty();
+  }
+
+  @Test
+  public void write_after_close_appends_to_segment() {
+    ScannerReport.Issue issue = ScannerReport.Issue.newBuilder().setMsg("the message").build();
+    underTest.writeComponentIssues(1, asList(issue));
+    underTest.close();
+    underTest.writeComponentIssues(2, asList(issue, issue));
+    underTest.close();
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    assertThat(reader.readComponentIssues(1)).hasSize(1);
+    assertThat(reader.readComponentIssues(2)).hasSize(2);
+  }
+
+  @Test
+  public void overwrite_segments_of_previous_report() {
+    ScannerReport.Issue issue = ScannerReport.Issue.newBuilder().setMsg("the message").build();
+    underTest.writeComponentIssues(1, asList(issue));
+    underTest.close();
+
+    underTest = new ScannerReportWriter(dir);
+    underTest.writeComponentIssues(2, asList(issue));
+    underTest.close();
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    assertThat(reader.readComponentIssues(1)).isEmpty();
+    assertThat(reader.readComponentIssues(2)).hasSize(1);
+  }
+
+  @Test
+  public void register_component_without_data() {
+    underTest.writeComponentSyntaxHighlighting(1, Collections.emptyList());
+
+    assertThat(underTest.hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, 1)).isTrue();
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    assertThat(reader.hasSyntaxHighlighting(1)).isTrue();
+    assertThat(reader.readComponentSyntaxHighlighting(1)).isEmpty();
+  }
+
+  @Test
+  public void last_write_of_component_wins() {
+    ScannerReport.Issue first = ScannerReport.Issue.newBuilder().setMsg("first").build();
+    ScannerReport.Issue second = ScannerReport.Issue.newBuilder().setMsg("second").build();
+    underTest.writeComponentIssues(1, asList(first, first));
+    underTest.writeComponentIssues(2, asList(first));
+    underTest.writeComponentIssues(1, asList(second));
+    underTest.appendComponentIssue(1, second);
+    underTest.close();
+
+    ScannerReportReader reader = new ScannerReportReader(dir);
+    try (CloseableIterator<ScannerReport.Issue> it = reader.readComponentIssues(1)) {
+      assertThat(it.next().getMsg()).isEqualTo("second");
+      assertThat(it.next().getMsg()).isEqualTo("second");
+      assertThat(it.hasNext()).isFalse();
+    }
+    assertThat(reader.readComponentIssues(2)).hasSize(1);
+  }
 }
@@ -19,13 +19,17 @@
  */
 package org.sonarqube.ws.client;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Proxy;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.X509TrustManager;
 import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Credentials;
 import okhttp3.FormBody;
 import okhttp3.HttpUrl;
@@ -35,6 +39,7 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Strings.isNullOrEmpty;
@@ -95,6 +100,33 @@ public class HttpConnector implements WsConnector {
 
   @Override
   public WsResponse call(WsRequest httpRequest) {
+    return doCall(newOkRequest(httpRequest));
+  }
+
+  /**
+   * Request is executed by the dispatcher of OkHttp, which limits the number of concurrent requests to the server.
+   * Connections are kept alive and reused between requests, and responses are transparently
+   * decompressed when the server supports gzip.
+   */
+  @Override
+  public CompletableFuture<WsResponse> callAsync(WsRequest httpRequest) {
+    Request okRequest = newOkRequest(httpRequest);
+    CompletableFuture<WsResponse> future = new CompletableFuture<>();
+    okHttpClient.newCall(okRequest).enqueue(new Callback() {
+      @Override
+      public void onFailure(Call call, IOException e) {
+        future.completeExceptionally(new IllegalStateException("Fail to request " + okRequest.url(), e));
+      }
+
+      @Override
+      public void onResponse(Call call, Response okResponse) {
+        future.complete(new OkHttpResponse(okResponse));
+      }
+    });
+    return future;
+  }
+
+  private Request newOkRequest(WsRequest httpRequest) {
     if (httpRequest instanceof GetRequest) {
       return get((GetRequest) httpRequest);
     }
@@ -104,15 +136,15 @@ public class HttpConnector implements WsConnector {
     throw new IllegalArgumentException(format("Unsupported implementation: %s", httpRequest.getClass()));
   }
 
-  private WsResponse get(GetRequest getRequest) {
+  private Request get(GetRequest getRequest) {
     HttpUrl.Builder urlBuilder = prepareUrlBuilder(getRequest);
     completeUrlQueryParameters(getRequest, urlBuilder);
 
     Request.Builder okRequestBuilder = prepareOkRequestBuilder(getRequest, urlBuilder).get();
-    return doCall(okRequestBuilder.build());
+    return okRequestBuilder.build();
   }
 
-  private WsResponse post(PostRequest postRequest) {
+  private Request post(PostRequest postRequest) {
     HttpUrl.Builder urlBuilder = prepareUrlBuilder(postRequest);
 
     RequestBody body;
@@ -134,13 +166,13 @@ public class HttpConnector implements WsConnector {
         PostRequest.Part part = param.getValue();
         bodyBuilder.addFormDataPart(
           param.getKey(),
-          part.getFile().getName(),
-          RequestBody.create(MediaType.parse(part.getMediaType()), part.getFile()));
+          part.getFileName(),
+          createPartBody(part));
       });
       body = bodyBuilder.build();
     }
     Request.Builder reqBuilder = prepareOkRequestBuilder(postRequest, urlBuilder);
-    return doCall(reqBuilder.post(body).build());
+    return reqBuilder.post(body).build();
   }
 
   private HttpUrl.Builder prepareUrlBuilder(WsRequest wsRequest) {
@@ -150,6 +182,15 @@ public class HttpConnector implements WsConnector {
       .newBuilder();
   }
 
+  private static RequestBody createPartBody(PostRequest.Part part) {
+    MediaType mediaType = MediaType.parse(part.getMediaType());
+    File file = part.getFile();
+    if (file != null) {
+      return RequestBody.create(mediaType, file);
+    }
+    return new StreamedRequestBody(mediaType, part.getContent());
+  }
+
   private static void completeUrlQueryParameters(BaseRequest request, HttpUrl.Builder urlBuilder) {
     request.getParameters().getKeys()
       .forEach(key -> request.getParameters().getValues(key)
@@ -291,4 +332,29 @@ public class HttpConnector implements WsConnector {
     }
   }
 
+  /**
+   * Body of unknown length, sent with chunked transfer encoding
+   */
+  private static class StreamedRequestBody extends RequestBody {
+    private final MediaType mediaType;
+    private final PostRequest.Content content;
+
+    private StreamedRequestBody(MediaType mediaType, PostRequest.Content content) {
+      this.mediaType = mediaType;
+      this.content = content;
+    }
+
+    @Override
+    public MediaType contentType() {
+      return mediaType;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      // closing this stream would close the sink, which is owned by OkHttp
+      OutputStream output = sink.outputStream();
+      content.writeTo(output);
+      output.flush();
+    }
+  }
 }
@@ -20,8 +20,11 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -50,20 +53,69 @@ public class PostRequest extends BaseRequest<PostRequest> {
 
   public static class Part {
     private final String mediaType;
+    private final String fileName;
     private final File file;
+    private final Content content;
 
     public Part(String mediaType, File file) {
       this.mediaType = mediaType;
+      this.fileName = file.getName();
       this.file = file;
+      this.content = null;
+    }
+
+    /**
+     * Part which content is generated while the request is being sent, so that it does
+     * not have to be stored in a file first. Its length is unknown, so the request is sent
+     * with chunked transfer encoding. {@code content} can be called again if the request is retried.
+     *
+     * @since 6.5
+     */
+    public Part(String mediaType, String fileName, Content content) {
+      this.mediaType = mediaType;
+      this.fileName = fileName;
+      this.file = null;
+      this.content = content;
     }
 
     public String getMediaType() {
       return mediaType;
     }
 
+    /**
+     * @since 6.5
+     */
+    public String getFileName() {
+      return fileName;
+    }
+
+    /**
+     * @return null if the part is streamed, see {@link #getContent()}
+     */
+    @CheckForNull
     public File getFile() {
       return file;
     }
+
+    /**
+     * @return null if the part is a file, see {@link #getFile()}
+     * @since 6.5
+     */
+    @CheckForNull
+    public Content getContent() {
+      return content;
+    }
+  }
+
+  /**
+   * @since 6.5
+   */
+  @FunctionalInterface
+  public interface Content {
+    /**
+     * Writes the content of the part. The stream must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
   }
 
 }
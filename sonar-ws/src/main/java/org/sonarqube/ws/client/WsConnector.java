@@ -19,6 +19,8 @@
  */
 package org.sonarqube.ws.client;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @since 5.3
  */
@@ -37,4 +39,22 @@ public interface WsConnector {
    */
   WsResponse call(WsRequest wsRequest);
 
+  /**
+   * Non-blocking variant of {@link #call(WsRequest)}. The returned future completes as soon as the response headers
+   * are received, the body is streamed when reading {@link WsResponse#contentStream()}. Response must be closed.
+   * <p>The default implementation executes the request in the calling thread.</p>
+   * The future completes exceptionally with {@link IllegalStateException} in the same cases as {@link #call(WsRequest)}.
+   *
+   * @since 6.5
+   */
+  default CompletableFuture<WsResponse> callAsync(WsRequest wsRequest) {
+    CompletableFuture<WsResponse> future = new CompletableFuture<>();
+    try {
+      future.complete(call(wsRequest));
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
 }
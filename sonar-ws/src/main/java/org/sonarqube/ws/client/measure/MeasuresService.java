@@ -40,6 +40,7 @@ import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_COMPONE
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_COMPONENT_KEY;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_DEVELOPER_ID;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_DEVELOPER_KEY;
+import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_DOWNSAMPLE;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_FROM;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_METRICS;
 import static org.sonarqube.ws.client.measure.MeasuresWsParameters.PARAM_METRIC_KEYS;
@@ -94,6 +95,7 @@ public class MeasuresService extends BaseService {
       .setParam(PARAM_METRICS, inlineMultipleParamValue(request.getMetrics()))
       .setParam(PARAM_FROM, request.getFrom())
       .setParam(PARAM_TO, request.getTo())
+      .setParam(PARAM_DOWNSAMPLE, request.isDownsample())
       .setParam(Param.PAGE, request.getPage())
       .setParam(Param.PAGE_SIZE, request.getPageSize());
 
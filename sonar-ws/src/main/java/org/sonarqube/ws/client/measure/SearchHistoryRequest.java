@@ -32,6 +32,7 @@ public class SearchHistoryRequest {
   private final List<String> metrics;
   private final String from;
   private final String to;
+  private final boolean downsample;
   private final int page;
   private final int pageSize;
 
@@ -40,6 +41,7 @@ public class SearchHistoryRequest {
     this.metrics = builder.metrics;
     this.from = builder.from;
     this.to = builder.to;
+    this.downsample = builder.downsample;
     this.page = builder.page;
     this.pageSize = builder.pageSize;
   }
@@ -62,6 +64,10 @@ public class SearchHistoryRequest {
     return to;
   }
 
+  public boolean isDownsample() {
+    return downsample;
+  }
+
   public int getPage() {
     return page;
   }
@@ -79,6 +85,7 @@ public class SearchHistoryRequest {
     private List<String> metrics;
     private String from;
     private String to;
+    private boolean downsample = false;
     private int page = 1;
     private int pageSize = DEFAULT_PAGE_SIZE;
 
@@ -106,6 +113,11 @@ public class SearchHistoryRequest {
       return this;
     }
 
+    public Builder setDownsample(boolean downsample) {
+      this.downsample = downsample;
+      return this;
+    }
+
     public Builder setPage(int page) {
       this.page = page;
       return this;
@@ -23,6 +23,9 @@ import java.io.File;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLSocketFactory;
 import okhttp3.ConnectionSpec;
 import okhttp3.mockwebserver.MockResponse;
@@ -39,7 +42,9 @@ import org.junit.rules.TemporaryFolder;
 import org.sonarqube.ws.MediaTypes;
 
 import static okhttp3.Credentials.basic;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.isA;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.sonarqube.ws.client.HttpConnector.newBuilder;
@@ -249,6 +254,27 @@ public class HttpConnectorTest {
       .contains("the report content");
   }
 
+  @Test
+  public void upload_streamed_content() throws Exception {
+    answerHelloWorld();
+    PostRequest request = new PostRequest("api/report/upload")
+      .setParam("project", "theKey")
+      .setPart("report", new PostRequest.Part(MediaTypes.TXT, "report.txt", output -> output.write("the report content".getBytes(UTF_8))))
+      .setMediaType(MediaTypes.PROTOBUF);
+
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    WsResponse response = underTest.call(request);
+
+    assertThat(response.hasContent()).isTrue();
+    RecordedRequest recordedRequest = server.takeRequest();
+    assertThat(recordedRequest.getHeader("Transfer-Encoding")).isEqualTo("chunked");
+    String body = IOUtils.toString(recordedRequest.getBody().inputStream());
+    assertThat(body)
+      .contains("Content-Disposition: form-data; name=\"report\"; filename=\"report.txt\"")
+      .contains("Content-Type: text/plain")
+      .contains("the report content");
+  }
+
   @Test
   public void http_error() throws Exception {
     server.enqueue(new MockResponse().setResponseCode(404));
@@ -259,6 +285,43 @@ public class HttpConnectorTest {
     assertThat(wsResponse.code()).isEqualTo(404);
   }
 
+  @Test
+  public void callAsync_completes_with_response() throws Exception {
+    answerHelloWorld();
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+
+    WsResponse response = underTest.callAsync(new GetRequest("api/issues/search")).get(10, TimeUnit.SECONDS);
+
+    assertThat(response.code()).isEqualTo(200);
+    assertThat(response.content()).isEqualTo("hello, world!");
+    assertThat(server.takeRequest().getPath()).isEqualTo("/api/issues/search");
+  }
+
+  @Test
+  public void callAsync_reuses_connections() throws Exception {
+    answerHelloWorld();
+    answerHelloWorld();
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+
+    underTest.callAsync(new GetRequest("api/issues/search")).get(10, TimeUnit.SECONDS).close();
+    underTest.callAsync(new GetRequest("api/issues/search")).get(10, TimeUnit.SECONDS).close();
+
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(0);
+    assertThat(server.takeRequest().getSequenceNumber()).isEqualTo(1);
+  }
+
+  @Test
+  public void callAsync_completes_exceptionally_if_server_is_not_reachable() throws Exception {
+    underTest = HttpConnector.newBuilder().url(serverUrl).build();
+    server.shutdown();
+
+    CompletableFuture<WsResponse> future = underTest.callAsync(new GetRequest("api/issues/search"));
+
+    expectedException.expect(ExecutionException.class);
+    expectedException.expectCause(isA(IllegalStateException.class));
+    future.get(10, TimeUnit.SECONDS);
+  }
+
   @Test
   public void support_base_url_ending_with_slash() throws Exception {
     assertThat(serverUrl).endsWith("/");